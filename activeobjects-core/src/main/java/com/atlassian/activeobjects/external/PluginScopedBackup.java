@@ -0,0 +1,44 @@
+package com.atlassian.activeobjects.external;
+
+import com.atlassian.activeobjects.spi.Backup;
+import com.atlassian.activeobjects.spi.BackupProgressMonitor;
+import com.atlassian.activeobjects.spi.RestoreProgressMonitor;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * A {@link Backup} which can also back up, restore and clear the tables of a single plugin, leaving the tables of
+ * other plugins, and their running services, untouched.
+ * <p>It is exported by the Active Objects plugin rather than by the SPI, so that products providing an older SPI can
+ * still use it.</p>
+ *
+ * @since 1.4.1
+ */
+public interface PluginScopedBackup extends Backup {
+    /**
+     * Backs up the tables of a single plugin.
+     *
+     * @param os        the stream to write the backup to
+     * @param monitor   the progress monitor for the current backup
+     * @param pluginKey the key of the plugin whose tables are backed up
+     */
+    void save(OutputStream os, BackupProgressMonitor monitor, String pluginKey);
+
+    /**
+     * <p>Restores the tables of a single plugin. Only the tables of that plugin are cleared before the restore, and only
+     * the tables of that plugin found in the backup are restored.</p>
+     *
+     * @param stream    the stream of data previously backed up by the plugin.
+     * @param monitor   the progress monitor for the current restore
+     * @param pluginKey the key of the plugin whose tables are restored
+     */
+    void restore(InputStream stream, RestoreProgressMonitor monitor, String pluginKey);
+
+    /**
+     * Clears the database of the AO tables of a single plugin.
+     *
+     * @param pluginKey the key of the plugin whose tables are cleared
+     */
+    void clear(String pluginKey);
+}
@@ -1,7 +1,13 @@
 package com.atlassian.dbexporter;
 
 public enum BatchMode {
-    ON, OFF;
+    ON, OFF,
+
+    /**
+     * Rows are inserted several at a time by each statement, for drivers that send each row of a JDBC batch in its own
+     * round trip. Databases that can't insert several rows at once use JDBC batches as with {@link #ON}.
+     */
+    MULTI_ROW;
 
     static BatchMode from(boolean batch) {
         return batch ? ON : OFF;
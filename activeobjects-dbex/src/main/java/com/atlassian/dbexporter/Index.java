@@ -0,0 +1,25 @@
+package com.atlassian.dbexporter;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * A secondary, i.e. non primary key, index on a single column of a table. Its name is left to the database the
+ * index is created in, as it is for foreign keys.
+ */
+public final class Index {
+    private final String table;
+    private final String column;
+
+    public Index(String table, String column) {
+        this.table = checkNotNull(table);
+        this.column = checkNotNull(column);
+    }
+
+    public String getTable() {
+        return table;
+    }
+
+    public String getColumn() {
+        return column;
+    }
+}
@@ -1,6 +1,7 @@
 package com.atlassian.dbexporter;
 
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 
 import static com.google.common.base.Preconditions.checkNotNull;
@@ -12,11 +13,17 @@ public final class Table {
     private final String name;
     private final List<Column> columns;
     private final Collection<ForeignKey> foreignKeys;
+    private final Collection<Index> indexes;
 
     public Table(String name, List<Column> columns, Collection<ForeignKey> foreignKeys) {
+        this(name, columns, foreignKeys, Collections.<Index>emptyList());
+    }
+
+    public Table(String name, List<Column> columns, Collection<ForeignKey> foreignKeys, Collection<Index> indexes) {
         this.name = checkNotNull(name);
         this.columns = newLinkedList(checkNotNull(columns));
         this.foreignKeys = newLinkedList(checkNotNull(foreignKeys));
+        this.indexes = newLinkedList(checkNotNull(indexes));
     }
 
     public String getName() {
@@ -30,4 +37,11 @@ public final class Table {
     public Collection<ForeignKey> getForeignKeys() {
         return unmodifiableCollection(foreignKeys);
     }
+
+    /**
+     * @return the secondary indexes of the table, which are created once the data has been imported.
+     */
+    public Collection<Index> getIndexes() {
+        return unmodifiableCollection(indexes);
+    }
 }
@@ -0,0 +1,88 @@
+package com.atlassian.dbexporter.compress;
+
+import java.io.BufferedInputStream;
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.GZIPInputStream;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Compression of backup streams. Backups are compressed with gzip, which restores detect by its magic bytes so that
+ * compressed and uncompressed backups can be restored alike.
+ */
+public final class Compression {
+    private static final int GZIP_MAGIC_1 = 0x1f;
+    private static final int GZIP_MAGIC_2 = 0x8b;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int READ_AHEAD_CHUNKS = 16;
+
+    private Compression() {
+    }
+
+    /**
+     * Compresses data with gzip, on the given number of threads.
+     *
+     * @param stream  the stream to write the compressed data to
+     * @param threads the number of compressing threads
+     * @return the stream to write data to. Closing it finishes the compression, the given stream is left open.
+     */
+    public static OutputStream compress(OutputStream stream, int threads) {
+        return new ParallelGzipOutputStream(new NonClosingOutputStream(stream), threads);
+    }
+
+    /**
+     * Decompresses data if it is gzip compressed. Decompression happens on a separate thread, ahead of the reads.
+     *
+     * @param stream the stream to read, compressed or not
+     * @return the stream of uncompressed data. Closing it stops the decompression, the given stream is left open.
+     * @throws IOException if an error occurs reading the beginning of the stream
+     */
+    public static InputStream decompressIfCompressed(InputStream stream) throws IOException {
+        final InputStream buffered = new BufferedInputStream(new NonClosingInputStream(stream), BUFFER_SIZE);
+        if (!isGzip(buffered)) {
+            return buffered;
+        }
+        return ReadAheadInputStream.start(new GZIPInputStream(buffered, BUFFER_SIZE), BUFFER_SIZE, READ_AHEAD_CHUNKS, "active-objects-gunzip");
+    }
+
+    static boolean isGzip(InputStream stream) throws IOException {
+        stream.mark(2);
+        try {
+            return stream.read() == GZIP_MAGIC_1 && stream.read() == GZIP_MAGIC_2;
+        } finally {
+            stream.reset();
+        }
+    }
+
+    private static final class NonClosingOutputStream extends FilterOutputStream {
+        NonClosingOutputStream(OutputStream out) {
+            super(checkNotNull(out));
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+
+    private static final class NonClosingInputStream extends FilterInputStream {
+        NonClosingInputStream(InputStream in) {
+            super(checkNotNull(in));
+        }
+
+        @Override
+        public void close() {
+            // the stream belongs to the caller
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package com.atlassian.dbexporter.compress;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * <p>An output stream writing the gzip format, compressing blocks of data concurrently on a pool of worker threads.</p>
+ * <p>Data is cut into fixed size blocks, each block is deflated on its own, primed with the last 32K of the block before
+ * it, and ends on a byte boundary (sync flush) so that the deflated blocks can be concatenated into a single deflate
+ * stream. The compressed blocks are written in order; at most twice as many blocks as there are threads are pending at
+ * any time, writers block until the oldest pending block is written.</p>
+ * <p>The output can be read by any gzip implementation, including {@link java.util.zip.GZIPInputStream}.</p>
+ */
+public final class ParallelGzipOutputStream extends OutputStream {
+    public static final int DEFAULT_BLOCK_SIZE = 128 * 1024;
+
+    private static final int DICTIONARY_SIZE = 32 * 1024;
+    private static final byte[] HEADER = new byte[]{0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+
+    private final OutputStream out;
+    private final ExecutorService executor;
+    private final int maxPendingBlocks;
+    private final Deque<Future<byte[]>> pendingBlocks = new ArrayDeque<Future<byte[]>>();
+    private final CRC32 crc = new CRC32();
+
+    private byte[] block;
+    private int blockLength;
+    private byte[] dictionary;
+    private long size;
+    private boolean headerWritten;
+    private boolean finished;
+
+    public ParallelGzipOutputStream(OutputStream out, int threads) {
+        this(out, threads, DEFAULT_BLOCK_SIZE);
+    }
+
+    public ParallelGzipOutputStream(OutputStream out, int threads, int blockSize) {
+        checkArgument(threads > 0, "Number of threads must be positive");
+        checkArgument(blockSize > 0, "Block size must be positive");
+        this.out = checkNotNull(out);
+        this.executor = Executors.newFixedThreadPool(threads,
+                new ThreadFactoryBuilder().setNameFormat("active-objects-gzip-%d").setDaemon(true).build());
+        this.maxPendingBlocks = 2 * threads;
+        this.block = new byte[blockSize];
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        checkNotFinished();
+        block[blockLength++] = (byte) b;
+        if (blockLength == block.length) {
+            submitBlock(false);
+        }
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        checkNotFinished();
+        while (len > 0) {
+            final int n = Math.min(len, block.length - blockLength);
+            System.arraycopy(b, off, block, blockLength, n);
+            blockLength += n;
+            off += n;
+            len -= n;
+            if (blockLength == block.length) {
+                submitBlock(false);
+            }
+        }
+    }
+
+    /**
+     * Compresses any buffered data and writes all pending blocks to the underlying stream before flushing it. Flushing
+     * often degrades compression. Flushing a finished stream does nothing, so that writers layered on top of it may
+     * still be closed.
+     */
+    @Override
+    public void flush() throws IOException {
+        if (finished) {
+            return; // everything has been written already
+        }
+        if (blockLength > 0) {
+            submitBlock(false);
+        }
+        writePendingBlocks(0);
+        out.flush();
+    }
+
+    /**
+     * Finishes writing compressed data to the underlying stream without closing it, and stops the worker threads.
+     * Nothing can be written to this stream after it is finished.
+     *
+     * @throws IOException if an error occurs compressing or writing the remaining data
+     */
+    public void finish() throws IOException {
+        if (finished) {
+            return;
+        }
+        try {
+            submitBlock(true);
+            writePendingBlocks(0);
+            writeTrailer();
+            out.flush();
+        } finally {
+            finished = true;
+            executor.shutdownNow();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            finish();
+        } finally {
+            out.close();
+        }
+    }
+
+    private void submitBlock(final boolean last) throws IOException {
+        final byte[] input = block;
+        final int length = blockLength;
+        final byte[] blockDictionary = dictionary;
+
+        crc.update(input, 0, length);
+        size += length;
+        dictionary = length >= DICTIONARY_SIZE ? Arrays.copyOfRange(input, length - DICTIONARY_SIZE, length) : null;
+
+        pendingBlocks.add(executor.submit(new Callable<byte[]>() {
+            @Override
+            public byte[] call() {
+                return deflate(input, length, blockDictionary, last);
+            }
+        }));
+
+        // the submitted block now belongs to the worker
+        block = new byte[block.length];
+        blockLength = 0;
+
+        writePendingBlocks(maxPendingBlocks);
+    }
+
+    private void writePendingBlocks(int maxPending) throws IOException {
+        while (pendingBlocks.size() > maxPending) {
+            final byte[] compressed = getCompressedBlock(pendingBlocks.remove());
+            if (!headerWritten) {
+                out.write(HEADER);
+                headerWritten = true;
+            }
+            out.write(compressed);
+        }
+    }
+
+    private void writeTrailer() throws IOException {
+        writeIntLE(crc.getValue());
+        writeIntLE(size);
+    }
+
+    private void writeIntLE(long value) throws IOException {
+        out.write((int) (value & 0xff));
+        out.write((int) ((value >> 8) & 0xff));
+        out.write((int) ((value >> 16) & 0xff));
+        out.write((int) ((value >> 24) & 0xff));
+    }
+
+    private void checkNotFinished() throws IOException {
+        if (finished) {
+            throw new IOException("Stream is finished");
+        }
+    }
+
+    private static byte[] getCompressedBlock(Future<byte[]> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while compressing");
+        } catch (ExecutionException e) {
+            throw new IOException("Could not compress block", e.getCause());
+        }
+    }
+
+    private static byte[] deflate(byte[] input, int length, byte[] dictionary, boolean last) {
+        final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        try {
+            if (dictionary != null) {
+                deflater.setDictionary(dictionary);
+            }
+            deflater.setInput(input, 0, length);
+
+            final ByteArrayOutputStream compressed = new ByteArrayOutputStream(length / 2 + 64);
+            final byte[] buffer = new byte[16 * 1024];
+            if (last) {
+                deflater.finish();
+                while (!deflater.finished()) {
+                    compressed.write(buffer, 0, deflater.deflate(buffer));
+                }
+            } else {
+                int n;
+                do {
+                    n = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+                    compressed.write(buffer, 0, n);
+                } while (n == buffer.length);
+            }
+            return compressed.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+}
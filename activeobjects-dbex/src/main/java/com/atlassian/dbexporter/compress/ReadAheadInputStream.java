@@ -0,0 +1,170 @@
+package com.atlassian.dbexporter.compress;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * An input stream reading its source on a separate thread, ahead of its consumer, into a bounded queue of chunks. The
+ * source is closed by the reading thread once it is fully read, or once this stream is closed.
+ */
+final class ReadAheadInputStream extends InputStream {
+    private static final byte[] END = new byte[0];
+    private static final long END_POLL_MILLIS = 100;
+
+    private final BlockingQueue<byte[]> chunks;
+    private volatile Exception failure;
+    private Thread reader;
+
+    private byte[] chunk;
+    private int position;
+    private volatile boolean closed;
+
+    private ReadAheadInputStream(int maxChunks) {
+        this.chunks = new ArrayBlockingQueue<byte[]>(maxChunks);
+    }
+
+    /**
+     * Starts reading the source ahead.
+     *
+     * @param source    the stream to read
+     * @param chunkSize the maximum number of bytes read at once from the source
+     * @param maxChunks the maximum number of chunks read ahead
+     * @param name      the name of the reading thread
+     * @return the stream of data read from the source
+     */
+    static ReadAheadInputStream start(InputStream source, int chunkSize, int maxChunks, String name) {
+        checkNotNull(source);
+        checkArgument(chunkSize > 0, "Chunk size must be positive");
+        checkArgument(maxChunks > 0, "Number of chunks must be positive");
+
+        final ReadAheadInputStream stream = new ReadAheadInputStream(maxChunks);
+        stream.reader = new Thread(stream.newReader(source, chunkSize), name);
+        stream.reader.setDaemon(true);
+        stream.reader.start();
+        return stream;
+    }
+
+    private Runnable newReader(final InputStream source, final int chunkSize) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    readAhead(source, chunkSize);
+                } catch (InterruptedException e) {
+                    return; // the stream was closed, nobody is waiting for the end of it
+                } catch (Exception e) {
+                    failure = e;
+                } finally {
+                    closeQuietly(source);
+                }
+                putEnd();
+            }
+        };
+    }
+
+    private void readAhead(InputStream source, int chunkSize) throws IOException, InterruptedException {
+        byte[] buffer = new byte[chunkSize];
+        int n;
+        while (!closed && (n = source.read(buffer)) != -1) {
+            if (n == buffer.length) {
+                chunks.put(buffer);
+                buffer = new byte[chunkSize];
+            } else if (n > 0) {
+                chunks.put(Arrays.copyOf(buffer, n));
+            }
+        }
+    }
+
+    /**
+     * Waits for the consumer to make room for the end of the stream, unless it closes the stream. The interrupt sent by
+     * {@link #close()} may have been consumed by the source already, so this doesn't rely on it.
+     */
+    private void putEnd() {
+        try {
+            while (!closed && !chunks.offer(END, END_POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                // the consumer hasn't read the pending chunks yet
+            }
+        } catch (InterruptedException e) {
+            // the stream was closed
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!nextChunk()) {
+            return -1;
+        }
+        return chunk[position++] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (!nextChunk()) {
+            return -1;
+        }
+        final int n = Math.min(len, chunk.length - position);
+        System.arraycopy(chunk, position, b, off, n);
+        position += n;
+        return n;
+    }
+
+    @Override
+    public int available() throws IOException {
+        return chunk != null ? chunk.length - position : 0;
+    }
+
+    @Override
+    public void close() {
+        if (!closed) {
+            closed = true;
+            reader.interrupt();
+            chunks.clear();
+        }
+    }
+
+    private boolean nextChunk() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+        if (chunk != null && position < chunk.length) {
+            return true;
+        }
+        if (chunk != END) {
+            try {
+                chunk = chunks.take();
+                position = 0;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while reading ahead");
+            }
+        }
+        if (chunk == END) {
+            if (failure instanceof IOException) {
+                throw (IOException) failure;
+            } else if (failure != null) {
+                throw new IOException(failure);
+            }
+            return false;
+        }
+        return true;
+    }
+
+    private static void closeQuietly(InputStream stream) {
+        try {
+            stream.close();
+        } catch (IOException e) {
+            // ignore
+        }
+    }
+}
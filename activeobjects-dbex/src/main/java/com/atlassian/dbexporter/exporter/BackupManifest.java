@@ -0,0 +1,128 @@
+package com.atlassian.dbexporter.exporter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * <p>Records, for each exported table, the high-water mark (the greatest primary key exported) and the number of rows
+ * at or below that mark. The manifest of a backup is what the next incremental backup starts from:</p>
+ * <ul>
+ * <li>rows above the high-water mark are appended,</li>
+ * <li>tables with fewer, or more, rows at or below the high-water mark than recorded have had rows deleted (or
+ * re-keyed), they are exported in full and replace the table on restore.</li>
+ * </ul>
+ * <p>Updates to rows below the high-water mark are not detected, incremental backups are meant for append-mostly
+ * tables.</p>
+ * <p>Instances are thread safe, tables might be exported concurrently.</p>
+ *
+ * @see ExportConfiguration#getBaseManifest()
+ * @see ExportConfiguration#getManifest()
+ */
+public final class BackupManifest {
+    private static final String HIGH_WATER_MARK_SUFFIX = ".hwm";
+    private static final String ROW_COUNT_SUFFIX = ".rows";
+
+    private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<String, Entry>();
+
+    /**
+     * @param table the name of the table
+     * @return the entry for that table, {@code null} if the table was not part of the backup.
+     */
+    public Entry get(String table) {
+        return entries.get(checkNotNull(table));
+    }
+
+    /**
+     * Records that the given table was exported.
+     *
+     * @param table         the name of the table
+     * @param highWaterMark the greatest primary key exported, {@code null} if the table has no single numeric primary
+     *                      key, or no rows.
+     * @param rowCount      the number of rows at or below the high-water mark
+     */
+    public void put(String table, Long highWaterMark, long rowCount) {
+        checkArgument(rowCount >= 0, "Row count must not be negative");
+        entries.put(checkNotNull(table), new Entry(highWaterMark, rowCount));
+    }
+
+    /**
+     * @return a snapshot of all the entries of the manifest, sorted by table name.
+     */
+    public Map<String, Entry> getEntries() {
+        return new TreeMap<String, Entry>(entries);
+    }
+
+    /**
+     * Reads a manifest previously {@link #store(OutputStream) stored}. The stream is not closed.
+     *
+     * @param stream the stream to read from
+     * @return the manifest
+     * @throws IOException if an error occurs reading the stream
+     * @throws IllegalArgumentException if the stream doesn't contain a valid manifest
+     */
+    public static BackupManifest load(InputStream stream) throws IOException {
+        final Properties properties = new Properties();
+        properties.load(checkNotNull(stream));
+
+        final BackupManifest manifest = new BackupManifest();
+        for (String key : properties.stringPropertyNames()) {
+            if (key.endsWith(ROW_COUNT_SUFFIX)) {
+                final String table = key.substring(0, key.length() - ROW_COUNT_SUFFIX.length());
+                final String highWaterMark = properties.getProperty(table + HIGH_WATER_MARK_SUFFIX);
+                manifest.put(table,
+                        highWaterMark != null ? Long.valueOf(highWaterMark) : null,
+                        Long.parseLong(properties.getProperty(key)));
+            }
+        }
+        return manifest;
+    }
+
+    /**
+     * Writes this manifest to the given stream, in the {@link Properties} format. The stream is not closed.
+     *
+     * @param stream the stream to write to
+     * @throws IOException if an error occurs writing the stream
+     */
+    public void store(OutputStream stream) throws IOException {
+        final Properties properties = new Properties();
+        for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+            properties.setProperty(entry.getKey() + ROW_COUNT_SUFFIX, String.valueOf(entry.getValue().getRowCount()));
+            if (entry.getValue().getHighWaterMark() != null) {
+                properties.setProperty(entry.getKey() + HIGH_WATER_MARK_SUFFIX, String.valueOf(entry.getValue().getHighWaterMark()));
+            }
+        }
+        properties.store(checkNotNull(stream), "Active Objects backup manifest");
+    }
+
+    public static final class Entry {
+        private final Long highWaterMark;
+        private final long rowCount;
+
+        private Entry(Long highWaterMark, long rowCount) {
+            this.highWaterMark = highWaterMark;
+            this.rowCount = rowCount;
+        }
+
+        public Long getHighWaterMark() {
+            return highWaterMark;
+        }
+
+        public long getRowCount() {
+            return rowCount;
+        }
+
+        @Override
+        public String toString() {
+            return "Entry{highWaterMark=" + highWaterMark + ", rowCount=" + rowCount + "}";
+        }
+    }
+}
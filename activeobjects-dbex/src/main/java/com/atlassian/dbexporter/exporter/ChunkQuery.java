@@ -0,0 +1,119 @@
+package com.atlassian.dbexporter.exporter;
+
+import com.atlassian.dbexporter.DatabaseInformations.Database;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * <p>Renders the queries reading a table in chunks of rows ordered by key. The number of rows of a chunk is bounded in
+ * the SQL, so that the database can stop scanning the key index once the chunk is read, rather than with
+ * {@link java.sql.Statement#setMaxRows(int)} which most drivers only apply when fetching:</p>
+ * <ul>
+ * <li>PostgreSQL, MySQL, H2 and HSQLDB: {@code LIMIT ?},</li>
+ * <li>Oracle 12c and later: {@code FETCH FIRST ? ROWS ONLY},</li>
+ * <li>Oracle before 12c: the ordered query is wrapped in {@code WHERE ROWNUM <= ?},</li>
+ * <li>SQL Server: {@code TOP (?)},</li>
+ * <li>unknown databases: the maximum number of rows of the statement.</li>
+ * </ul>
+ * <p>Instances are immutable.</p>
+ */
+final class ChunkQuery {
+    private static final int ORACLE_FETCH_FIRST_VERSION = 12;
+
+    private enum Limit {
+        LIMIT,
+        FETCH_FIRST,
+        ROWNUM,
+        TOP,
+        MAX_ROWS
+    }
+
+    private final Limit limit;
+
+    private ChunkQuery(Limit limit) {
+        this.limit = limit;
+    }
+
+    /**
+     * @param type         the type of the database read
+     * @param majorVersion the major version of the database, only used for Oracle
+     */
+    static ChunkQuery forDatabase(Database.Type type, int majorVersion) {
+        switch (checkNotNull(type)) {
+            case POSTGRES:
+            case MYSQL:
+            case H2:
+            case HSQL:
+                return new ChunkQuery(Limit.LIMIT);
+            case ORACLE:
+                return new ChunkQuery(majorVersion >= ORACLE_FETCH_FIRST_VERSION ? Limit.FETCH_FIRST : Limit.ROWNUM);
+            case MSSQL:
+                return new ChunkQuery(Limit.TOP);
+            default:
+                return new ChunkQuery(Limit.MAX_ROWS);
+        }
+    }
+
+    /**
+     * Renders the query of a chunk.
+     *
+     * @param tableName the quoted, and qualified, name of the table
+     * @param key       the quoted name of the key column
+     * @param condition the condition on the key, starting with {@code WHERE}, or an empty string for the first chunk
+     * @param chunkSize the number of rows of the chunk, {@code 0} to read all rows
+     * @return the SQL query, see {@link #bind(PreparedStatement, Long, Long, int)} for its parameters.
+     */
+    String render(String tableName, String key, String condition, int chunkSize) {
+        final String ordered = " FROM " + tableName + condition + " ORDER BY " + key;
+        if (chunkSize <= 0) {
+            return "SELECT *" + ordered;
+        }
+        switch (limit) {
+            case LIMIT:
+                return "SELECT *" + ordered + " LIMIT ?";
+            case FETCH_FIRST:
+                return "SELECT *" + ordered + " FETCH FIRST ? ROWS ONLY";
+            case ROWNUM:
+                return "SELECT * FROM (SELECT *" + ordered + ") WHERE ROWNUM <= ?";
+            case TOP:
+                return "SELECT TOP (?) *" + ordered;
+            default:
+                return "SELECT *" + ordered;
+        }
+    }
+
+    /**
+     * Binds the parameters of a query rendered by {@link #render(String, String, String, int)}.
+     *
+     * @param fromKey   the key the chunk starts after, if the condition has one
+     * @param toKey     the last key the chunk may include, if the condition has one
+     * @param chunkSize the number of rows of the chunk, {@code 0} to read all rows
+     */
+    void bind(PreparedStatement statement, Long fromKey, Long toKey, int chunkSize) throws SQLException {
+        int parameter = 1;
+        if (chunkSize > 0 && limit == Limit.TOP) {
+            statement.setInt(parameter++, chunkSize);
+        }
+        if (fromKey != null) {
+            statement.setLong(parameter++, fromKey);
+        }
+        if (toKey != null) {
+            statement.setLong(parameter++, toKey);
+        }
+        if (chunkSize > 0) {
+            if (limit == Limit.MAX_ROWS) {
+                statement.setMaxRows(chunkSize);
+            } else if (limit != Limit.TOP) {
+                statement.setInt(parameter, chunkSize);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ChunkQuery{limit=" + limit + "}";
+    }
+}
@@ -0,0 +1,92 @@
+package com.atlassian.dbexporter.exporter;
+
+import com.atlassian.dbexporter.DatabaseInformations.Database;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * <p>How the result sets of table data are read when exporting. JDBC drivers disagree on what the fetch size means,
+ * and getting it wrong means buffering whole tables in memory:</p>
+ * <ul>
+ * <li>MySQL Connector/J reads the whole result set unless the fetch size is {@link Integer#MIN_VALUE}, in which case
+ * rows are streamed one by one,</li>
+ * <li>PostgreSQL only uses a server side cursor when auto-commit is off, which the {@link DataExporter} always ensures
+ * while reading table data,</li>
+ * <li>Oracle defaults to fetching 10 rows per round trip.</li>
+ * </ul>
+ * <p>Instances are immutable.</p>
+ */
+public final class CursorStrategy {
+    private static final int DEFAULT_FETCH_SIZE = 100;
+    private static final int MYSQL_STREAMING_FETCH_SIZE = Integer.MIN_VALUE;
+    private static final int POSTGRES_FETCH_SIZE = 1000;
+    private static final int ORACLE_FETCH_SIZE = 500;
+
+    private final Database.Type databaseType;
+    private final int fetchSize;
+
+    private CursorStrategy(Database.Type databaseType, int fetchSize) {
+        this.databaseType = checkNotNull(databaseType);
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * Gets the default cursor strategy for the given type of database.
+     *
+     * @param type the type of database being exported
+     * @return the default cursor strategy for that database
+     */
+    public static CursorStrategy forDatabase(Database.Type type) {
+        switch (checkNotNull(type)) {
+            case MYSQL:
+                return new CursorStrategy(type, MYSQL_STREAMING_FETCH_SIZE);
+            case POSTGRES:
+                return new CursorStrategy(type, POSTGRES_FETCH_SIZE);
+            case ORACLE:
+                return new CursorStrategy(type, ORACLE_FETCH_SIZE);
+            default:
+                return new CursorStrategy(type, DEFAULT_FETCH_SIZE);
+        }
+    }
+
+    /**
+     * Overrides the fetch size of this strategy. Note that a positive fetch size only makes MySQL stream results when
+     * the connection uses {@code useCursorFetch=true}.
+     *
+     * @param fetchSize the new fetch size, either positive, or {@link Integer#MIN_VALUE} for MySQL streaming.
+     * @return a new cursor strategy
+     */
+    public CursorStrategy withFetchSize(int fetchSize) {
+        return new CursorStrategy(databaseType, fetchSize);
+    }
+
+    public Database.Type getDatabaseType() {
+        return databaseType;
+    }
+
+    public int getFetchSize() {
+        return fetchSize;
+    }
+
+    /**
+     * Gets the fetch size to use for a query returning at most {@code maxRows} rows.
+     *
+     * @param maxRows the maximum number of rows the query returns
+     * @return the fetch size
+     */
+    int getFetchSize(int maxRows) {
+        return isRowStreaming() ? fetchSize : Math.min(fetchSize, maxRows);
+    }
+
+    /**
+     * @return whether rows are streamed one by one by the driver, i.e. MySQL's {@link Integer#MIN_VALUE} fetch size.
+     */
+    public boolean isRowStreaming() {
+        return fetchSize == MYSQL_STREAMING_FETCH_SIZE;
+    }
+
+    @Override
+    public String toString() {
+        return "CursorStrategy{databaseType=" + databaseType + ", fetchSize=" + fetchSize + "}";
+    }
+}
@@ -1,29 +1,53 @@
 package com.atlassian.dbexporter.exporter;
 
+import com.atlassian.dbexporter.Column;
 import com.atlassian.dbexporter.Context;
+import com.atlassian.dbexporter.DatabaseInformation;
+import com.atlassian.dbexporter.DatabaseInformations.Database;
 import com.atlassian.dbexporter.EntityNameProcessor;
 import com.atlassian.dbexporter.ImportExportErrorService;
 import com.atlassian.dbexporter.Table;
 import com.atlassian.dbexporter.jdbc.JdbcUtils;
 import com.atlassian.dbexporter.node.NodeCreator;
+import com.atlassian.dbexporter.node.NodeSpool;
+import com.atlassian.dbexporter.progress.NullProgressMonitor;
 import com.atlassian.dbexporter.progress.ProgressMonitor;
-import com.google.common.base.Function;
-import com.google.common.collect.Iterables;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
 import java.math.BigDecimal;
-import java.sql.Clob;
+import java.math.BigInteger;
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.sql.Timestamp;
 import java.sql.Types;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
+import static com.atlassian.dbexporter.DatabaseInformations.database;
 import static com.atlassian.dbexporter.jdbc.JdbcUtils.JdbcCallable;
 import static com.atlassian.dbexporter.jdbc.JdbcUtils.closeQuietly;
 import static com.atlassian.dbexporter.jdbc.JdbcUtils.createStatement;
 import static com.atlassian.dbexporter.jdbc.JdbcUtils.metadata;
+import static com.atlassian.dbexporter.jdbc.JdbcUtils.preparedStatement;
 import static com.atlassian.dbexporter.jdbc.JdbcUtils.quote;
 import static com.atlassian.dbexporter.jdbc.JdbcUtils.withConnection;
 import static com.atlassian.dbexporter.jdbc.JdbcUtils.withNoAutoCommit;
@@ -32,8 +56,15 @@ import static com.atlassian.dbexporter.node.NodeBackup.RowDataNode;
 import static com.atlassian.dbexporter.node.NodeBackup.TableDataNode;
 import static com.atlassian.dbexporter.progress.ProgressMonitor.Task;
 import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.collect.Lists.newArrayList;
+import static com.google.common.collect.Maps.newHashMap;
+import static com.google.common.collect.Sets.newHashSet;
 
 public final class DataExporter implements Exporter {
+    private static final int MAX_LONG_DIGITS = 18;
+    private static final int TABLE_SEGMENTS_PER_WORKER = 2;
+    private static final long WORKER_TERMINATION_TIMEOUT_SECONDS = 30;
+
     private final ImportExportErrorService errorService;
     private final String schema;
 
@@ -46,59 +77,551 @@ public final class DataExporter implements Exporter {
     public void export(final NodeCreator node, final ExportConfiguration configuration, final Context context) {
         final ProgressMonitor monitor = configuration.getProgressMonitor();
         monitor.begin(Task.TABLES_DATA);
-        withConnection(errorService, configuration.getConnectionProvider(), new JdbcUtils.JdbcCallable<Void>() {
+        final CursorStrategy cursor = getCursorStrategy(configuration, context);
+        if (configuration.isConsistentSnapshot()) {
+            exportFromSnapshot(node, configuration, cursor, context);
+        } else if (configuration.getWorkerCount() > 1) {
+            exportInParallel(node, configuration, cursor, context, null);
+        } else {
+            withConnection(errorService, configuration.getConnectionProvider(), new JdbcUtils.JdbcCallable<Void>() {
+                public Void call(Connection connection) {
+                    exportSequentially(node, connection, configuration, cursor, context);
+                    return null;
+                }
+            });
+        }
+        monitor.end(Task.TABLES_DATA);
+    }
+
+    private void exportSequentially(NodeCreator node, Connection connection, ExportConfiguration configuration, CursorStrategy cursor, Context context) {
+        for (Table table : getTables(context)) {
+            exportTable(table, connection, node, configuration.getProgressMonitor(), configuration, cursor, getCheckpoint(configuration));
+        }
+        node.closeEntity();
+    }
+
+    /**
+     * Exports all table data as of a single point in time, from an {@link ExportSnapshot}. Tables, and key ranges of
+     * tables, are only read concurrently if other connections can join the snapshot, otherwise they are read one after
+     * the other on the snapshot connection.
+     */
+    private void exportFromSnapshot(final NodeCreator node, final ExportConfiguration configuration, final CursorStrategy cursor, final Context context) {
+        withConnection(errorService, configuration.getConnectionProvider(), new JdbcCallable<Void>() {
+            @Override
             public Void call(Connection connection) {
-                for (final String table : getTableNames(context)) {
-                    withNoAutoCommit(errorService, connection, new JdbcCallable<Void>() {
+                final ExportSnapshot snapshot = ExportSnapshot.begin(errorService, connection, cursor.getDatabaseType());
+                try {
+                    if (configuration.getWorkerCount() > 1 && snapshot.isShareable()) {
+                        exportInParallel(node, configuration, cursor, context, snapshot);
+                    } else {
+                        exportSequentially(node, connection, configuration, cursor, context);
+                    }
+                } finally {
+                    snapshot.end();
+                }
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Reads on a new connection, joining the snapshot if any.
+     */
+    private <T> T withWorkerConnection(ExportConfiguration configuration, final ExportSnapshot snapshot, final JdbcCallable<T> callable) {
+        return withConnection(errorService, configuration.getConnectionProvider(), snapshot == null ? callable : new JdbcCallable<T>() {
+            @Override
+            public T call(Connection connection) {
+                return snapshot.join(connection, callable);
+            }
+        });
+    }
+
+    /**
+     * Exports tables concurrently on a single pool of workers, each worker task holding a single connection at a time.
+     * A task reads a whole table, or a key range of a {@link ExportConfiguration#getTablePartitioning() partitioned}
+     * table, into a {@link NodeSpool spill segment}. Segments are then written to the node, by the calling thread, in
+     * the original table and key order. At most {@value #TABLE_SEGMENTS_PER_WORKER} table segments per worker, and a
+     * key range segment per worker, are read ahead of the one being written.
+     */
+    private void exportInParallel(NodeCreator node, final ExportConfiguration configuration, final CursorStrategy cursor, Context context, final ExportSnapshot snapshot) {
+        final ProgressMonitor monitor = configuration.getProgressMonitor();
+        final EntityNameProcessor entityNameProcessor = configuration.getEntityNameProcessor();
+        final int workerCount = configuration.getWorkerCount();
+
+        final ExecutorService executor = Executors.newFixedThreadPool(workerCount,
+                new ThreadFactoryBuilder().setNameFormat("active-objects-export-%d").setDaemon(true).build());
+        final SegmentRegistry segments = new SegmentRegistry();
+        final List<Table> tables = getTables(context);
+        final Deque<Future<TableSegment>> reading = new ArrayDeque<Future<TableSegment>>();
+        int submitted = 0;
+        try {
+            for (Table table : tables) {
+                while (submitted < tables.size() && reading.size() < TABLE_SEGMENTS_PER_WORKER * workerCount) {
+                    reading.add(executor.submit(newTableTask(tables.get(submitted++), configuration, cursor, snapshot, segments)));
+                }
+
+                final String tableName = table.getName();
+                final TableSegment segment = getSegment(tableName, reading.remove());
+                monitor.begin(Task.TABLE_DATA, entityNameProcessor.tableName(tableName));
+                try {
+                    segment.replay(node);
+                } finally {
+                    segments.delete(segment);
+                }
+                final TableExport export = segment.export;
+                if (!export.partitions.isEmpty()) {
+                    export.exported = writePartitions(executor, workerCount, segments, export, node, configuration, cursor, getCheckpoint(configuration), snapshot);
+                }
+                endTableData(node, configuration, export);
+                monitor.end(Task.TABLE_DATA, entityNameProcessor.tableName(tableName));
+            }
+            node.closeEntity();
+        } finally {
+            executor.shutdownNow();
+            awaitTermination(executor);
+            segments.abort();
+        }
+    }
+
+    /**
+     * Creates the task reading the table into a segment. The rows of a table split into key ranges are not read, the
+     * ranges are left to {@link #writePartitions(ExecutorService, int, SegmentRegistry, TableExport, NodeCreator,
+     * ExportConfiguration, CursorStrategy, ExportCheckpoint, ExportSnapshot) read} once the segment is written.
+     */
+    private Callable<TableSegment> newTableTask(final Table table, final ExportConfiguration configuration, final CursorStrategy cursor, final ExportSnapshot snapshot, final SegmentRegistry segments) {
+        return new Callable<TableSegment>() {
+            @Override
+            public TableSegment call() {
+                final TableSegment segment = new TableSegment(NodeSpool.create(errorService), getCheckpoint(configuration));
+                try {
+                    segment.export = withWorkerConnection(configuration, snapshot, new JdbcCallable<TableExport>() {
                         @Override
-                        public Void call(Connection connection) {
-                            exportTable(table, connection, node, monitor, configuration.getEntityNameProcessor());
-                            return null;
+                        public TableExport call(Connection connection) {
+                            return startTableData(table, connection, segment.spool, NullProgressMonitor.INSTANCE, configuration, cursor, segment.checkpoint, true);
                         }
                     });
+                    return segments.completed(segment);
+                } catch (RuntimeException e) {
+                    segment.delete();
+                    throw e;
                 }
-                node.closeEntity();
-                return null;
             }
-        });
-        monitor.end(Task.TABLES_DATA);
+        };
+    }
+
+    private TableSegment getSegment(String table, Future<TableSegment> segment) {
+        try {
+            return segment.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw errorService.newImportExportException(table, "Interrupted while waiting for table data to be exported");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw new IllegalStateException("Unexpected exception exporting table " + table, e.getCause());
+        }
+    }
+
+    /**
+     * Waits for the workers to stop, so that their connections are released and the segments they were reading are
+     * known, before the segments left unwritten are deleted.
+     */
+    private static void awaitTermination(ExecutorService executor) {
+        try {
+            executor.awaitTermination(WORKER_TERMINATION_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Returns the tables that must be included in the export.
+     *
+     * @return the tables
+     */
+    private List<Table> getTables(Context context) {
+        return newArrayList(context.getAll(Table.class));
+    }
+
+    private static CursorStrategy getCursorStrategy(ExportConfiguration configuration, Context context) {
+        final DatabaseInformation databaseInformation = context.get(DatabaseInformation.class);
+        final Database.Type type = databaseInformation != null ? database(databaseInformation).getType() : Database.Type.UNKNOWN;
+        final CursorStrategy cursor = configuration.getCursorStrategy(type);
+        return cursor != null ? cursor : CursorStrategy.forDatabase(type);
+    }
+
+    private static ExportCheckpoint getCheckpoint(ExportConfiguration configuration) {
+        return configuration.getChunkSize() > 0 ? checkNotNull(configuration.getExportCheckpoint()) : null;
+    }
+
+    private NodeCreator exportTable(Table table, Connection connection, NodeCreator node, ProgressMonitor monitor, ExportConfiguration configuration, CursorStrategy cursor, ExportCheckpoint checkpoint) {
+        final String tableName = configuration.getEntityNameProcessor().tableName(table.getName());
+        monitor.begin(Task.TABLE_DATA, tableName);
+        node = endTableData(node, configuration, startTableData(table, connection, node, monitor, configuration, cursor, checkpoint, false));
+        monitor.end(Task.TABLE_DATA, tableName);
+        return node;
     }
 
     /**
-     * Returns the names of the tables that must be included in the export.
+     * Adds the data node of the table, and writes its rows unless the table is split into key ranges.
      *
-     * @return the table names
+     * @param partition whether the table may be split into key ranges, read concurrently by the caller
+     * @return the table being exported, with the key ranges left to write if it is split.
      */
-    private Iterable<String> getTableNames(Context context) {
-        return Iterables.transform(context.getAll(Table.class), new Function<Table, String>() {
+    private TableExport startTableData(Table table, Connection connection, NodeCreator node, ProgressMonitor monitor, ExportConfiguration configuration, CursorStrategy cursor, ExportCheckpoint checkpoint, boolean partition) {
+        final EntityNameProcessor entityNameProcessor = configuration.getEntityNameProcessor();
+        final String tableName = table.getName();
+        final Column keyColumn = getKeysetColumn(table);
+        final BackupManifest baseManifest = configuration.getBaseManifest();
+        final BackupManifest.Entry base = baseManifest != null && keyColumn != null ? getIncrementalBase(tableName, keyColumn.getName(), connection, baseManifest.get(tableName)) : null;
+
+        TableDataNode.add(node, entityNameProcessor.tableName(tableName), getTableDataMode(tableName, baseManifest, base, checkpoint));
+
+        final Long fromKey = base != null ? base.getHighWaterMark() : null;
+        final Long startKey = getStartKey(tableName, fromKey, checkpoint);
+        final List<KeyRange> partitions = partition && keyColumn != null ? getPartitions(tableName, keyColumn.getName(), startKey, connection, configuration) : Collections.<KeyRange>emptyList();
+        if (partitions.size() > 1) {
+            return new TableExport(tableName, keyColumn.getName(), base, partitions);
+        }
+
+        final TableExport export = new TableExport(tableName, keyColumn != null ? keyColumn.getName() : null, base, Collections.<KeyRange>emptyList());
+        if (keyColumn != null && (configuration.getChunkSize() > 0 || fromKey != null || configuration.getManifest() != null)) {
+            export.exported = writeRowsInChunks(tableName, keyColumn.getName(), startKey, null, connection, node, monitor, configuration, cursor, checkpoint, true);
+        } else {
+            export.exported = writeRows(tableName, connection, node, monitor, entityNameProcessor, cursor);
+        }
+        return export;
+    }
+
+    /**
+     * Records the rows written to the table in the manifest, and closes its data node.
+     */
+    private static NodeCreator endTableData(NodeCreator node, ExportConfiguration configuration, TableExport export) {
+        final BackupManifest manifest = configuration.getManifest();
+        if (manifest != null) {
+            manifest.put(export.table, export.exported.lastKey, (export.base != null ? export.base.getRowCount() : 0L) + export.exported.rows);
+        }
+        return node.closeEntity();
+    }
+
+    private static TableDataNode.Mode getTableDataMode(String table, BackupManifest baseManifest, BackupManifest.Entry base, ExportCheckpoint checkpoint) {
+        if (checkpoint != null && checkpoint.isResuming()) {
+            // the rows up to the recorded key are in the output of the interrupted export, restored before this one
+            return base != null || checkpoint.getLastExportedKey(table) != null ? TableDataNode.Mode.APPEND : TableDataNode.Mode.REPLACE;
+        }
+        if (baseManifest == null) {
+            return TableDataNode.Mode.FULL;
+        }
+        return base != null ? TableDataNode.Mode.APPEND : TableDataNode.Mode.REPLACE;
+    }
+
+    /**
+     * Checks whether the table can be exported incrementally from its entry in the base manifest, that is whether the
+     * rows at or below the high-water mark are still the ones recorded.
+     *
+     * @return the base entry, {@code null} if the table must be exported in full.
+     */
+    private BackupManifest.Entry getIncrementalBase(String table, String keyColumn, Connection connection, BackupManifest.Entry entry) {
+        if (entry == null || entry.getHighWaterMark() == null) {
+            return null;
+        }
+        return countRowsUpTo(table, keyColumn, entry.getHighWaterMark(), connection) == entry.getRowCount() ? entry : null;
+    }
+
+    private long countRowsUpTo(String table, String keyColumn, long key, Connection connection) {
+        final String sql = "SELECT COUNT(*) FROM " + tableName(table, connection)
+                + " WHERE " + quote(errorService, table, connection, keyColumn) + " <= ?";
+        final PreparedStatement statement = preparedStatement(errorService, table, connection, sql);
+        ResultSet result = null;
+        try {
+            statement.setLong(1, key);
+            result = statement.executeQuery();
+            result.next();
+            return result.getLong(1);
+        } catch (SQLException e) {
+            throw errorService.newImportExportSqlException(table, "Could not execute query '" + sql + "' with key " + key, e);
+        } finally {
+            closeQuietly(result, statement);
+        }
+    }
+
+    private Chunk writeRows(final String table, Connection connection, final NodeCreator node, final ProgressMonitor monitor, final EntityNameProcessor entityNameProcessor, final CursorStrategy cursor) {
+        return withNoAutoCommit(errorService, connection, new JdbcCallable<Chunk>() {
             @Override
-            public String apply(Table t) {
-                return t.getName();
+            public Chunk call(Connection connection) {
+                final Statement statement = createStatement(errorService, table, connection);
+                ResultSet result = null;
+                try {
+                    result = executeQueryWithFetchSize(table, statement, "SELECT * FROM " + tableName(table, connection), cursor.getFetchSize());
+                    final ResultSetMetaData meta = resultSetMetaData(table, result);
+
+                    // write column definitions
+                    writeColumnDefinitions(table, node, meta, entityNameProcessor);
+                    final ColumnEncoder[] encoders = columnEncoders(table, meta);
+                    long rows = 0;
+                    while (next(table, result)) {
+                        exportRow(table, node, result, encoders, monitor);
+                        rows++;
+                    }
+                    return new Chunk(null, rows);
+                } finally {
+                    closeQuietly(result, statement);
+                }
             }
         });
     }
 
-    private NodeCreator exportTable(String table, Connection connection, NodeCreator node, ProgressMonitor monitor, EntityNameProcessor entityNameProcessor) {
-        monitor.begin(Task.TABLE_DATA, entityNameProcessor.tableName(table));
-        TableDataNode.add(node, entityNameProcessor.tableName(table));
+    /**
+     * Gets the key after which rows are exported, that is the last key recorded in the checkpoint when resuming an
+     * export.
+     */
+    private static Long getStartKey(String table, Long fromKey, ExportCheckpoint checkpoint) {
+        final Long checkpointKey = checkpoint != null ? checkpoint.getLastExportedKey(table) : null;
+        return checkpointKey != null ? checkpointKey : fromKey;
+    }
 
-        final Statement statement = createStatement(errorService, table, connection);
+    /**
+     * Writes the rows of the table with a key greater than {@code fromKey}, and at most {@code toKey}, ordered by
+     * primary key. When {@link ExportConfiguration#getChunkSize() chunking} is enabled rows are read by pages of chunk
+     * size rows, each page in its own transaction and recorded in the {@link ExportCheckpoint} once written, which
+     * allows for resuming from the last completed chunk. Pages read from an {@link ExportSnapshot} all belong to the
+     * snapshot transaction.
+     *
+     * @return the last key written, and the total number of rows written.
+     */
+    private Chunk writeRowsInChunks(final String table, final String keyColumn, Long fromKey, final Long toKey, Connection connection, final NodeCreator node, final ProgressMonitor monitor, final ExportConfiguration configuration, final CursorStrategy cursor, ExportCheckpoint checkpoint, boolean writeColumnDefinitions) {
+        final int chunkSize = Math.max(configuration.getChunkSize(), 0); // 0 means the whole table at once
+        final ChunkQuery query = chunkQuery(table, connection, cursor.getDatabaseType());
+
+        Chunk chunk = new Chunk(fromKey, 0);
+        long rows = 0;
+        boolean firstChunk = true;
+        do {
+            final Long chunkFromKey = chunk.lastKey;
+            final boolean writeChunkColumnDefinitions = firstChunk && writeColumnDefinitions;
+            chunk = withNoAutoCommit(errorService, connection, new JdbcCallable<Chunk>() {
+                @Override
+                public Chunk call(Connection connection) {
+                    return writeChunk(table, keyColumn, chunkFromKey, toKey, chunkSize, query, connection, node, monitor, configuration.getEntityNameProcessor(), cursor, writeChunkColumnDefinitions);
+                }
+            });
+            if (checkpoint != null && chunk.rows > 0) {
+                checkpoint.chunkExported(table, chunk.lastKey);
+            }
+            rows += chunk.rows;
+            firstChunk = false;
+        }
+        while (chunkSize > 0 && chunk.rows == chunkSize);
+        return new Chunk(chunk.lastKey, rows);
+    }
+
+    private Chunk writeChunk(String table, String keyColumn, Long fromKey, Long toKey, int chunkSize, ChunkQuery query, Connection connection, NodeCreator node, ProgressMonitor monitor, EntityNameProcessor entityNameProcessor, CursorStrategy cursor, boolean writeColumnDefinitions) {
+        final String key = quote(errorService, table, connection, keyColumn);
+        final String sql = query.render(tableName(table, connection), key, keyRangeCondition(key, fromKey, toKey), chunkSize);
+
+        final PreparedStatement statement = preparedStatement(errorService, table, connection, sql);
         ResultSet result = null;
         try {
-            result = executeQueryWithFetchSize(table, statement, "SELECT * FROM " + tableName(table, connection), 100);
+            result = executeChunkQuery(table, statement, sql, query, fromKey, toKey, chunkSize, chunkSize > 0 ? cursor.getFetchSize(chunkSize) : cursor.getFetchSize());
             final ResultSetMetaData meta = resultSetMetaData(table, result);
+            if (writeColumnDefinitions) {
+                writeColumnDefinitions(table, node, meta, entityNameProcessor);
+            }
 
-            // write column definitions
-            node = writeColumnDefinitions(table, node, meta, entityNameProcessor);
+            final ColumnEncoder[] encoders = columnEncoders(table, meta);
+            final int keyIndex = findColumn(table, result, keyColumn);
+            Long lastKey = fromKey;
+            long rows = 0;
             while (next(table, result)) {
-                node = exportRow(table, node, result, monitor);
+                exportRow(table, node, result, encoders, monitor);
+                lastKey = getLong(table, result, keyIndex);
+                rows++;
             }
+            return new Chunk(lastKey, rows);
         } finally {
             closeQuietly(result, statement);
         }
+    }
 
-        monitor.end(Task.TABLE_DATA, entityNameProcessor.tableName(table));
-        return node.closeEntity();
+    /**
+     * Gets how chunks of the table are queried, only Oracle needs the version of the database.
+     */
+    private ChunkQuery chunkQuery(String table, Connection connection, Database.Type type) {
+        if (type != Database.Type.ORACLE) {
+            return ChunkQuery.forDatabase(type, 0);
+        }
+        try {
+            return ChunkQuery.forDatabase(type, metadata(errorService, connection).getDatabaseMajorVersion());
+        } catch (SQLException e) {
+            throw errorService.newImportExportSqlException(table, "Could not get database major version from metadata", e);
+        }
+    }
+
+    private static String keyRangeCondition(String key, Long fromKey, Long toKey) {
+        if (fromKey != null && toKey != null) {
+            return " WHERE " + key + " > ? AND " + key + " <= ?";
+        } else if (fromKey != null) {
+            return " WHERE " + key + " > ?";
+        } else if (toKey != null) {
+            return " WHERE " + key + " <= ?";
+        } else {
+            return "";
+        }
+    }
+
+    /**
+     * Splits the rows of the table with a key greater than {@code fromKey} into ranges of keys of equal width, as
+     * configured by the {@link ExportConfiguration#getTablePartitioning() table partitioning}. The last range is open
+     * ended so that rows added while exporting are not missed.
+     *
+     * @return the key ranges, in key order, a single range or none if the table is not to be split.
+     */
+    private List<KeyRange> getPartitions(String table, String keyColumn, Long fromKey, Connection connection, ExportConfiguration configuration) {
+        final TablePartitioning partitioning = configuration.getTablePartitioning();
+        if (partitioning == null || !partitioning.isEnabled()) {
+            return Collections.emptyList();
+        }
+
+        final Long[] minMax = getKeyRange(table, keyColumn, fromKey, connection);
+        if (minMax[0] == null || minMax[1] == null) {
+            return Collections.emptyList(); // no rows
+        }
+        final long min = minMax[0];
+        final long span = minMax[1] - min + 1;
+        if (span <= 0) {
+            return Collections.emptyList(); // overflow, the keys span more than a long
+        }
+
+        final int count = (int) Math.min(partitioning.getPartitionCount(table, span), span);
+        final long width = (span + count - 1) / count;
+        final List<KeyRange> ranges = newArrayList();
+        Long from = fromKey;
+        for (int i = 0; i < count; i++) {
+            final Long to = i < count - 1 ? min - 1 + width * (i + 1) : null;
+            ranges.add(new KeyRange(from, to));
+            from = to;
+        }
+        return ranges;
+    }
+
+    private Long[] getKeyRange(String table, String keyColumn, Long fromKey, Connection connection) {
+        final String key = quote(errorService, table, connection, keyColumn);
+        final String sql = "SELECT MIN(" + key + "), MAX(" + key + ") FROM " + tableName(table, connection)
+                + keyRangeCondition(key, fromKey, null);
+        final PreparedStatement statement = preparedStatement(errorService, table, connection, sql);
+        ResultSet result = null;
+        try {
+            if (fromKey != null) {
+                statement.setLong(1, fromKey);
+            }
+            result = statement.executeQuery();
+            result.next();
+            final long min = result.getLong(1);
+            final Long minKey = result.wasNull() ? null : min;
+            final long max = result.getLong(2);
+            final Long maxKey = result.wasNull() ? null : max;
+            return new Long[]{minKey, maxKey};
+        } catch (SQLException e) {
+            throw errorService.newImportExportSqlException(table, "Could not execute query '" + sql + "' from key " + fromKey, e);
+        } finally {
+            closeQuietly(result, statement);
+        }
+    }
+
+    /**
+     * Exports the key ranges of a table concurrently, on the workers exporting tables. Each range is read on its own
+     * connection into a {@link NodeSpool spill segment}, at most one range per worker ahead of the one being written.
+     * Segments are written to the node, by the calling thread, in key order and recorded in the checkpoint once
+     * written.
+     *
+     * @return the last key written, and the total number of rows written.
+     */
+    private Chunk writePartitions(ExecutorService executor, int workerCount, SegmentRegistry segments, TableExport export, NodeCreator node, ExportConfiguration configuration, CursorStrategy cursor, ExportCheckpoint checkpoint, ExportSnapshot snapshot) {
+        final List<KeyRange> partitions = export.partitions;
+        final Deque<Future<TableSegment>> reading = new ArrayDeque<Future<TableSegment>>();
+        int submitted = 0;
+
+        Long lastKey = partitions.get(0).from;
+        long rows = 0;
+        for (int i = 0; i < partitions.size(); i++) {
+            while (submitted < partitions.size() && reading.size() < workerCount) {
+                reading.add(executor.submit(newPartitionTask(export.table, export.keyColumn, partitions.get(submitted), submitted == 0, configuration, cursor, snapshot, segments)));
+                submitted++;
+            }
+
+            final TableSegment segment = getSegment(export.table, reading.remove());
+            try {
+                segment.replay(node);
+            } finally {
+                segments.delete(segment);
+            }
+            if (segment.exported.rows > 0) {
+                lastKey = segment.exported.lastKey;
+                if (checkpoint != null) {
+                    checkpoint.chunkExported(export.table, lastKey);
+                }
+            }
+            rows += segment.exported.rows;
+        }
+        return new Chunk(lastKey, rows);
+    }
+
+    private Callable<TableSegment> newPartitionTask(final String table, final String keyColumn, final KeyRange range, final boolean writeColumnDefinitions, final ExportConfiguration configuration, final CursorStrategy cursor, final ExportSnapshot snapshot, final SegmentRegistry segments) {
+        return new Callable<TableSegment>() {
+            @Override
+            public TableSegment call() {
+                final TableSegment segment = new TableSegment(NodeSpool.create(errorService), null);
+                try {
+                    segment.exported = withWorkerConnection(configuration, snapshot, new JdbcCallable<Chunk>() {
+                        @Override
+                        public Chunk call(Connection connection) {
+                            return writeRowsInChunks(table, keyColumn, range.from, range.to, connection, segment.spool, NullProgressMonitor.INSTANCE, configuration, cursor, null, writeColumnDefinitions);
+                        }
+                    });
+                    return segments.completed(segment);
+                } catch (RuntimeException e) {
+                    segment.delete();
+                    throw e;
+                }
+            }
+        };
+    }
+
+    /**
+     * Finds the column to page the table by, that is its primary key if it is made of a single integral column.
+     *
+     * @return the key column, {@code null} if the table can't be paged by its primary key.
+     */
+    private static Column getKeysetColumn(Table table) {
+        Column key = null;
+        for (Column column : table.getColumns()) {
+            if (Boolean.TRUE.equals(column.isPrimaryKey())) {
+                if (key != null) {
+                    return null; // composite primary key
+                }
+                key = column;
+            }
+        }
+        return key != null && isIntegral(key) ? key : null;
+    }
+
+    private static boolean isIntegral(Column column) {
+        switch (column.getSqlType()) {
+            case Types.TINYINT:
+            case Types.SMALLINT:
+            case Types.INTEGER:
+            case Types.BIGINT:
+                return true;
+            case Types.NUMERIC:
+            case Types.DECIMAL:
+                return column.getScale() == null || column.getScale() == 0;
+            default:
+                return false;
+        }
     }
 
     private String tableName(String table, Connection connection) {
@@ -106,98 +629,170 @@ public final class DataExporter implements Exporter {
         return schema != null ? schema + "." + quoted : quoted;
     }
 
-    private NodeCreator exportRow(String table, NodeCreator node, ResultSet result, ProgressMonitor monitor) {
+    private NodeCreator exportRow(String table, NodeCreator node, ResultSet result, ColumnEncoder[] encoders, ProgressMonitor monitor) {
         monitor.begin(Task.TABLE_ROW);
-        final ResultSetMetaData metaData = resultSetMetaData(table, result);
-
         RowDataNode.add(node);
 
-        for (int col = 1; col <= columnCount(table, metaData); col++) {
-            switch (columnType(table, metaData, col)) {
-                case Types.TINYINT:
-                case Types.SMALLINT:
-                case Types.BIGINT:
-                case Types.INTEGER:
-                    appendInteger(table, result, col, node);
-                    break;
-                case Types.NUMERIC:
-                    // Oracle: either it's got a scale, or it's a DOUBLE PRECISION
-                    if (scale(table, metaData, col) > 0 || precision(table, metaData, col) == 126) {
-                        appendDouble(table, result, col, node);
-                    }
-                    // Oracle: NUMERIC with a precision of 1 indicates it is a boolean
-                    else if (precision(table, metaData, col) == 1) {
-                        appendBoolean(table, result, col, node);
-                    } else {
-                        appendInteger(table, result, col, node);
-                    }
-                    break;
-                case Types.CHAR:
-                case Types.NCHAR:
-                case Types.VARCHAR:
-                case Types.LONGVARCHAR:
-                case Types.NVARCHAR:
-                case Types.LONGNVARCHAR:
-                    final String s = getString(table, result, col);
-                    RowDataNode.append(node, wasNull(table, result) ? null : s);
-                    break;
-
-                case Types.BOOLEAN:
-                case Types.BIT:
-                    appendBoolean(table, result, col, node);
-                    break;
-
-                case Types.DOUBLE:
-                case Types.DECIMAL:
-                    appendDouble(table, result, col, node);
-                    break;
-
-                case Types.TIMESTAMP:
-                    final Timestamp t = getTimestamp(table, result, col);
-                    RowDataNode.append(node, wasNull(table, result) ? null : t);
-                    break;
-
-                case Types.CLOB:
-                case Types.NCLOB:
-                    final String c = getClobAsString(table, result, col);
-                    RowDataNode.append(node, wasNull(table, result) ? null : c);
-                    break;
-
-                case Types.BLOB:
-                case Types.BINARY:
-                case Types.VARBINARY:
-                case Types.LONGVARBINARY:
-                    final byte[] b = getBinary(table, result, col);
-                    RowDataNode.append(node, wasNull(table, result) ? null : b);
-                    break;
-
-                default:
-                    throw errorService.newImportExportException(table, String.format(
-                            "Cannot encode value for unsupported column type: \"%s\" (%d) of column %s.%s",
-                            columnTypeName(table, metaData, col),
-                            columnType(table, metaData, col),
-                            table,
-                            columnName(table, metaData, col)));
-            }
+        for (int col = 1; col <= encoders.length; col++) {
+            encoders[col - 1].append(this, table, result, col, node);
         }
 
         monitor.end(Task.TABLE_ROW);
         return node.closeEntity();
     }
 
+    /**
+     * Resolves, once per query, how each column of the result set is read and written to the export.
+     *
+     * @return the encoders, indexed by column index minus one.
+     */
+    private ColumnEncoder[] columnEncoders(String table, ResultSetMetaData metaData) {
+        final ColumnEncoder[] encoders = new ColumnEncoder[columnCount(table, metaData)];
+        for (int col = 1; col <= encoders.length; col++) {
+            encoders[col - 1] = columnEncoder(table, metaData, col);
+        }
+        return encoders;
+    }
+
+    private ColumnEncoder columnEncoder(String table, ResultSetMetaData metaData, int col) {
+        switch (columnType(table, metaData, col)) {
+            case Types.TINYINT:
+            case Types.SMALLINT:
+            case Types.BIGINT:
+            case Types.INTEGER:
+                return ColumnEncoder.INTEGER;
+            case Types.NUMERIC:
+                // Oracle: either it's got a scale, or it's a DOUBLE PRECISION
+                if (scale(table, metaData, col) > 0 || precision(table, metaData, col) == 126) {
+                    return ColumnEncoder.DOUBLE;
+                }
+                // Oracle: NUMERIC with a precision of 1 indicates it is a boolean
+                else if (precision(table, metaData, col) == 1) {
+                    return ColumnEncoder.BOOLEAN;
+                }
+                // up to 18 digits always fit in a long, an unknown precision (0) might not
+                else if (precision(table, metaData, col) > 0 && precision(table, metaData, col) <= MAX_LONG_DIGITS) {
+                    return ColumnEncoder.INTEGER;
+                } else {
+                    return ColumnEncoder.BIG_INTEGER;
+                }
+            case Types.CHAR:
+            case Types.NCHAR:
+            case Types.VARCHAR:
+            case Types.NVARCHAR:
+                return ColumnEncoder.STRING;
+
+            case Types.BOOLEAN:
+            case Types.BIT:
+                return ColumnEncoder.BOOLEAN;
+
+            case Types.DOUBLE:
+            case Types.DECIMAL:
+                return ColumnEncoder.DOUBLE;
+
+            case Types.TIMESTAMP:
+                return ColumnEncoder.TIMESTAMP;
+
+            case Types.LONGVARCHAR:
+            case Types.LONGNVARCHAR:
+            case Types.CLOB:
+            case Types.NCLOB:
+                return ColumnEncoder.CLOB;
+
+            case Types.BINARY:
+            case Types.VARBINARY:
+                return ColumnEncoder.BINARY;
+
+            case Types.BLOB:
+            case Types.LONGVARBINARY:
+                return ColumnEncoder.BLOB;
+
+            default:
+                throw errorService.newImportExportException(table, String.format(
+                        "Cannot encode value for unsupported column type: \"%s\" (%d) of column %s.%s",
+                        columnTypeName(table, metaData, col),
+                        columnType(table, metaData, col),
+                        table,
+                        columnName(table, metaData, col)));
+        }
+    }
+
     private void appendBoolean(String table, ResultSet result, int col, NodeCreator node) {
         final boolean b = getBoolean(table, result, col);
         RowDataNode.append(node, wasNull(table, result) ? null : b);
     }
 
+    private void appendString(String table, ResultSet result, int col, NodeCreator node) {
+        final String s = getString(table, result, col);
+        RowDataNode.append(node, wasNull(table, result) ? null : s);
+    }
+
+    private void appendTimestamp(String table, ResultSet result, int col, NodeCreator node) {
+        final Timestamp t = getTimestamp(table, result, col);
+        if (wasNull(table, result)) {
+            RowDataNode.append(node, (Timestamp) null);
+        } else {
+            RowDataNode.appendTimestamp(node, t.getTime());
+        }
+    }
+
+    /**
+     * Streams large character values to the node, so that they never have to be held in memory as a whole.
+     */
+    private void appendClob(String table, ResultSet result, int col, NodeCreator node) {
+        final Reader c = getCharacterStream(table, result, col);
+        try {
+            RowDataNode.append(node, c);
+        } catch (IOException e) {
+            throw errorService.newParseException("Could not export character stream value for col #" + col + " of table " + table, e);
+        } finally {
+            closeStreamQuietly(c);
+        }
+    }
+
+    /**
+     * Streams large binary values to the node, so that they never have to be held in memory as a whole.
+     */
+    private void appendBlob(String table, ResultSet result, int col, NodeCreator node) {
+        final InputStream b = getBinaryStream(table, result, col);
+        try {
+            RowDataNode.append(node, b);
+        } catch (IOException e) {
+            throw errorService.newParseException("Could not export binary stream value for col #" + col + " of table " + table, e);
+        } finally {
+            closeStreamQuietly(b);
+        }
+    }
+
+    private void appendBinary(String table, ResultSet result, int col, NodeCreator node) {
+        final byte[] b = getBinary(table, result, col);
+        RowDataNode.append(node, wasNull(table, result) ? null : b);
+    }
+
+    /**
+     * Appends integers which fit in a long, without creating big number objects for them.
+     */
     private void appendInteger(String table, ResultSet result, int col, NodeCreator node) {
+        final long l = getLong(table, result, col);
+        if (wasNull(table, result)) {
+            RowDataNode.append(node, (BigInteger) null);
+        } else {
+            RowDataNode.append(node, l);
+        }
+    }
+
+    private void appendBigInteger(String table, ResultSet result, int col, NodeCreator node) {
         final BigDecimal bd = getBigDecimal(table, result, col);
         RowDataNode.append(node, wasNull(table, result) ? null : bd.toBigInteger());
     }
 
     private void appendDouble(String table, ResultSet result, int col, NodeCreator node) {
         final double d = getDouble(table, result, col);
-        RowDataNode.append(node, wasNull(table, result) ? null : BigDecimal.valueOf(d));
+        if (wasNull(table, result)) {
+            RowDataNode.append(node, (BigDecimal) null);
+        } else {
+            RowDataNode.append(node, d);
+        }
     }
 
     private NodeCreator writeColumnDefinitions(String table, NodeCreator node, ResultSetMetaData metaData, EntityNameProcessor entityNameProcessor) {
@@ -304,12 +899,29 @@ public final class DataExporter implements Exporter {
         }
     }
 
-    private String getClobAsString(String table, ResultSet result, int col) {
+    private Reader getCharacterStream(String table, ResultSet result, int col) {
         try {
-            final Clob clob = result.getClob(col);
-            return clob == null ? null : clob.getSubString(1L, (int) clob.length());
+            return result.getCharacterStream(col);
         } catch (SQLException e) {
-            throw errorService.newImportExportSqlException(table, "Could not get clob value for col #" + col, e);
+            throw errorService.newImportExportSqlException(table, "Could not get character stream value for col #" + col, e);
+        }
+    }
+
+    private InputStream getBinaryStream(String table, ResultSet result, int col) {
+        try {
+            return result.getBinaryStream(col);
+        } catch (SQLException e) {
+            throw errorService.newImportExportSqlException(table, "Could not get binary stream value for col #" + col, e);
+        }
+    }
+
+    private static void closeStreamQuietly(Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException e) {
+                // ignore
+            }
         }
     }
 
@@ -337,6 +949,22 @@ public final class DataExporter implements Exporter {
         }
     }
 
+    private long getLong(String table, ResultSet result, int col) {
+        try {
+            return result.getLong(col);
+        } catch (SQLException e) {
+            throw errorService.newImportExportSqlException(table, "Could not get long value for col #" + col, e);
+        }
+    }
+
+    private int findColumn(String table, ResultSet result, String column) {
+        try {
+            return result.findColumn(column);
+        } catch (SQLException e) {
+            throw errorService.newImportExportSqlException(table, "Could not find column " + column + " in result set", e);
+        }
+    }
+
     private ResultSet getTablesResultSet(Connection connection) {
         try {
             return metadata(errorService, connection).getTables(null, schema, "%", new String[]{"TABLE"});
@@ -354,6 +982,16 @@ public final class DataExporter implements Exporter {
         }
     }
 
+    private ResultSet executeChunkQuery(String table, PreparedStatement statement, String sql, ChunkQuery query, Long fromKey, Long toKey, int chunkSize, int fetchSize) {
+        try {
+            query.bind(statement, fromKey, toKey, chunkSize);
+            statement.setFetchSize(fetchSize);
+            return statement.executeQuery();
+        } catch (SQLException e) {
+            throw errorService.newImportExportSqlException(table, "Could not execute query '" + sql + "' from key " + fromKey + " with chunk size " + chunkSize, e);
+        }
+    }
+
     private static boolean isBlank(String str) {
         int strLen;
         if (str == null || (strLen = str.length()) == 0) {
@@ -366,4 +1004,195 @@ public final class DataExporter implements Exporter {
         }
         return true;
     }
+
+    private static final class Chunk {
+        private final Long lastKey;
+        private final long rows;
+
+        private Chunk(Long lastKey, long rows) {
+            this.lastKey = lastKey;
+            this.rows = rows;
+        }
+    }
+
+    /**
+     * A range of primary keys, both ends may be {@code null} for the range to be unbounded.
+     */
+    private static final class KeyRange {
+        private final Long from; // exclusive
+        private final Long to; // inclusive
+
+        private KeyRange(Long from, Long to) {
+            this.from = from;
+            this.to = to;
+        }
+    }
+
+    /**
+     * A table whose data node is being written.
+     */
+    private static final class TableExport {
+        private final String table;
+        private final String keyColumn; // maybe null
+        private final BackupManifest.Entry base; // maybe null
+        private final List<KeyRange> partitions; // the key ranges left to write, empty if the rows are written
+        private Chunk exported;
+
+        private TableExport(String table, String keyColumn, BackupManifest.Entry base, List<KeyRange> partitions) {
+            this.table = checkNotNull(table);
+            this.keyColumn = keyColumn;
+            this.base = base;
+            this.partitions = checkNotNull(partitions);
+        }
+    }
+
+    /**
+     * The spill segment of a table, or of a key range of a table, exported by a worker. Chunks read by the worker are
+     * only recorded in the actual checkpoint once the segment has been written to the export.
+     */
+    private static final class TableSegment {
+        private final NodeSpool spool;
+        private final DeferredExportCheckpoint checkpoint;
+        private TableExport export; // of a whole table
+        private Chunk exported; // of a key range
+
+        private TableSegment(NodeSpool spool, ExportCheckpoint checkpoint) {
+            this.spool = checkNotNull(spool);
+            this.checkpoint = checkpoint != null ? new DeferredExportCheckpoint(checkpoint) : null;
+        }
+
+        void replay(NodeCreator node) {
+            spool.replay(node);
+            if (checkpoint != null) {
+                checkpoint.commit();
+            }
+        }
+
+        void delete() {
+            spool.delete();
+        }
+    }
+
+    /**
+     * The segments read by workers and not written yet. Once the export has failed, the segments that were read are
+     * deleted, and so are those that workers complete afterwards.
+     */
+    private static final class SegmentRegistry {
+        private final Set<TableSegment> completed = newHashSet();
+        private boolean aborted;
+
+        synchronized TableSegment completed(TableSegment segment) {
+            if (aborted) {
+                throw new CancellationException("Export has failed, table data read is discarded");
+            }
+            completed.add(segment);
+            return segment;
+        }
+
+        synchronized void delete(TableSegment segment) {
+            completed.remove(segment);
+            segment.delete();
+        }
+
+        synchronized void abort() {
+            aborted = true;
+            for (TableSegment segment : completed) {
+                segment.delete();
+            }
+            completed.clear();
+        }
+    }
+
+    private static final class DeferredExportCheckpoint implements ExportCheckpoint {
+        private final ExportCheckpoint delegate;
+        private final Map<String, Long> exported = newHashMap();
+
+        private DeferredExportCheckpoint(ExportCheckpoint delegate) {
+            this.delegate = checkNotNull(delegate);
+        }
+
+        @Override
+        public boolean isResuming() {
+            return delegate.isResuming();
+        }
+
+        @Override
+        public synchronized Long getLastExportedKey(String table) {
+            return exported.containsKey(table) ? exported.get(table) : delegate.getLastExportedKey(table);
+        }
+
+        @Override
+        public synchronized void chunkExported(String table, long lastKey) {
+            exported.put(table, lastKey);
+        }
+
+        synchronized void commit() {
+            for (Map.Entry<String, Long> entry : exported.entrySet()) {
+                delegate.chunkExported(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * How a column value is read from the result set and written to the export, resolved once per table from the
+     * result set meta data.
+     */
+    private enum ColumnEncoder {
+        INTEGER {
+            @Override
+            void append(DataExporter exporter, String table, ResultSet result, int col, NodeCreator node) {
+                exporter.appendInteger(table, result, col, node);
+            }
+        },
+        BIG_INTEGER {
+            @Override
+            void append(DataExporter exporter, String table, ResultSet result, int col, NodeCreator node) {
+                exporter.appendBigInteger(table, result, col, node);
+            }
+        },
+        DOUBLE {
+            @Override
+            void append(DataExporter exporter, String table, ResultSet result, int col, NodeCreator node) {
+                exporter.appendDouble(table, result, col, node);
+            }
+        },
+        BOOLEAN {
+            @Override
+            void append(DataExporter exporter, String table, ResultSet result, int col, NodeCreator node) {
+                exporter.appendBoolean(table, result, col, node);
+            }
+        },
+        STRING {
+            @Override
+            void append(DataExporter exporter, String table, ResultSet result, int col, NodeCreator node) {
+                exporter.appendString(table, result, col, node);
+            }
+        },
+        TIMESTAMP {
+            @Override
+            void append(DataExporter exporter, String table, ResultSet result, int col, NodeCreator node) {
+                exporter.appendTimestamp(table, result, col, node);
+            }
+        },
+        CLOB {
+            @Override
+            void append(DataExporter exporter, String table, ResultSet result, int col, NodeCreator node) {
+                exporter.appendClob(table, result, col, node);
+            }
+        },
+        BINARY {
+            @Override
+            void append(DataExporter exporter, String table, ResultSet result, int col, NodeCreator node) {
+                exporter.appendBinary(table, result, col, node);
+            }
+        },
+        BLOB {
+            @Override
+            void append(DataExporter exporter, String table, ResultSet result, int col, NodeCreator node) {
+                exporter.appendBlob(table, result, col, node);
+            }
+        };
+
+        abstract void append(DataExporter exporter, String table, ResultSet result, int col, NodeCreator node);
+    }
 }
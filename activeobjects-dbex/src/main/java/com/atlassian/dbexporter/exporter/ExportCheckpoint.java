@@ -0,0 +1,35 @@
+package com.atlassian.dbexporter.exporter;
+
+/**
+ * Records how far the data of each table has been exported when tables are exported in chunks, so that an interrupted
+ * export can resume from the last completed chunk rather than from the start of the table.
+ * <p>
+ * Implementations must be thread safe, as tables might be exported concurrently.
+ *
+ * @see ExportConfiguration#getChunkSize()
+ */
+public interface ExportCheckpoint {
+    /**
+     * Whether the checkpoint holds the progress of an interrupted export, which must not change while an export runs.
+     * A resumed export only writes the rows after the recorded keys, it is restored as an incremental backup following
+     * the output of the interrupted export: tables with a recorded key are appended to, the others are replaced.
+     *
+     * @return {@code true} if this export resumes an interrupted one
+     */
+    boolean isResuming();
+
+    /**
+     * @param table the name of the table
+     * @return the primary key of the last row of the last completed chunk for the table, {@code null} if no chunk of
+     * this table has been exported yet.
+     */
+    Long getLastExportedKey(String table);
+
+    /**
+     * Called once a chunk of rows has been completely written to the export.
+     *
+     * @param table   the name of the table
+     * @param lastKey the primary key of the last row of the chunk
+     */
+    void chunkExported(String table, long lastKey);
+}
@@ -1,6 +1,77 @@
 package com.atlassian.dbexporter.exporter;
 
+import com.atlassian.dbexporter.DatabaseInformations;
 import com.atlassian.dbexporter.ImportExportConfiguration;
 
 public interface ExportConfiguration extends ImportExportConfiguration {
+    /**
+     * The number of worker connections used to read table data concurrently. Each worker scans whole tables, or key
+     * ranges of {@link #getTablePartitioning() partitioned} tables, into spill segments which are then written to the
+     * export in the original table order. No more connections than workers are open at once.
+     *
+     * @return the number of export workers, {@code 1} or less means tables are exported sequentially on a single
+     * connection.
+     */
+    int getWorkerCount();
+
+    /**
+     * The maximum number of rows read per query, and per transaction, when exporting a table. Tables are paged by
+     * their primary key ({@code WHERE ID > ? ORDER BY ID}), which requires a single numeric primary key. Tables
+     * without one are always read in a single query.
+     *
+     * @return the chunk size, {@code 0} or less means tables are read in a single query.
+     */
+    int getChunkSize();
+
+    /**
+     * Where the progress of chunked exports is recorded, and read from when resuming an export. Only used when
+     * {@link #getChunkSize() chunking} is enabled.
+     *
+     * @return the export checkpoint
+     */
+    ExportCheckpoint getExportCheckpoint();
+
+    /**
+     * How table data is read from the database being exported. Implementations will usually start from
+     * {@link CursorStrategy#forDatabase(DatabaseInformations.Database.Type) the database default} and apply any
+     * override.
+     *
+     * @param databaseType the type of the database being exported
+     * @return the cursor strategy, {@code null} to use the default one for the database.
+     */
+    CursorStrategy getCursorStrategy(DatabaseInformations.Database.Type databaseType);
+
+    /**
+     * The manifest of the backup this export is incremental to. Tables whose rows at or below the high-water mark of
+     * the base are unchanged only have the rows above it exported, all other tables are exported in full and marked
+     * as replacing the table's data.
+     *
+     * @return the base manifest, {@code null} for a full export.
+     */
+    BackupManifest getBaseManifest();
+
+    /**
+     * Where the high-water mark and row count of each exported table is recorded, for a later incremental export to
+     * start from.
+     *
+     * @return the manifest to record to, {@code null} if no manifest is needed.
+     */
+    BackupManifest getManifest();
+
+    /**
+     * How tables with a single numeric primary key are split into ranges of keys read concurrently, each by one of the
+     * {@link #getWorkerCount() workers}. Tables are not split when exported sequentially.
+     *
+     * @return the table partitioning, {@code null} for tables not to be split.
+     */
+    TablePartitioning getTablePartitioning();
+
+    /**
+     * Whether all table data is read from a single read only snapshot of the database, for the export to be consistent
+     * while the database is being written to. Workers, and key ranges of tables, only read concurrently on databases
+     * which can share a snapshot between connections (PostgreSQL), otherwise all tables are read on a single connection.
+     *
+     * @return {@code true} to export from a consistent snapshot
+     */
+    boolean isConsistentSnapshot();
 }
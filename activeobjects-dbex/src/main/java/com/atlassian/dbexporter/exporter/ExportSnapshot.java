@@ -0,0 +1,176 @@
+package com.atlassian.dbexporter.exporter;
+
+import com.atlassian.dbexporter.DatabaseInformations.Database;
+import com.atlassian.dbexporter.ImportExportErrorService;
+import com.atlassian.dbexporter.jdbc.JdbcUtils.JdbcCallable;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static com.atlassian.dbexporter.jdbc.JdbcUtils.closeQuietly;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * <p>A read only transaction pinning a consistent snapshot of the database, for all the table data of an export to
+ * be read as of a single point in time without blocking concurrent writes. The isolation level giving a snapshot
+ * depends on the database:</p>
+ * <ul>
+ * <li>{@code REPEATABLE READ} for PostgreSQL, MySQL (InnoDB), H2 and HSQLDB (MVCC),</li>
+ * <li>{@code SERIALIZABLE} for Oracle,</li>
+ * <li>{@code SNAPSHOT} for SQL Server, which requires the database to {@code ALLOW_SNAPSHOT_ISOLATION}.</li>
+ * </ul>
+ * <p>PostgreSQL exports the snapshot so that other connections can {@link #join(Connection, JdbcCallable) join} it,
+ * on other databases the snapshot is only visible to the connection it was taken on.</p>
+ */
+final class ExportSnapshot {
+    private static final int SQL_SERVER_TRANSACTION_SNAPSHOT = 4096;
+
+    private final ImportExportErrorService errorService;
+    private final Connection connection;
+    private final TransactionSettings settings;
+    private final String snapshotId;
+
+    private ExportSnapshot(ImportExportErrorService errorService, Connection connection, TransactionSettings settings, String snapshotId) {
+        this.errorService = checkNotNull(errorService);
+        this.connection = checkNotNull(connection);
+        this.settings = checkNotNull(settings);
+        this.snapshotId = snapshotId; // maybe null
+    }
+
+    /**
+     * Starts the snapshot transaction on the given connection. The connection must not be used for anything else than
+     * reading table data until the snapshot {@link #end() ends}.
+     */
+    static ExportSnapshot begin(ImportExportErrorService errorService, Connection connection, Database.Type databaseType) {
+        final TransactionSettings settings = TransactionSettings.begin(errorService, connection, isolationLevel(databaseType));
+        try {
+            final String snapshotId = databaseType == Database.Type.POSTGRES ? exportSnapshot(errorService, connection) : null;
+            return new ExportSnapshot(errorService, connection, settings, snapshotId);
+        } catch (RuntimeException e) {
+            settings.end(errorService, connection);
+            throw e;
+        }
+    }
+
+    Connection getConnection() {
+        return connection;
+    }
+
+    /**
+     * @return whether other connections can {@link #join(Connection, JdbcCallable) join} this snapshot.
+     */
+    boolean isShareable() {
+        return snapshotId != null;
+    }
+
+    /**
+     * Reads from this snapshot on another connection.
+     *
+     * @param worker   the connection to read with
+     * @param callable what to read
+     * @return the value returned by the callable
+     * @throws IllegalStateException if the snapshot is not {@link #isShareable() shareable}.
+     */
+    <T> T join(Connection worker, JdbcCallable<T> callable) {
+        if (!isShareable()) {
+            throw new IllegalStateException("The export snapshot cannot be shared with other connections");
+        }
+        final TransactionSettings workerSettings = TransactionSettings.begin(errorService, worker, Connection.TRANSACTION_REPEATABLE_READ);
+        try {
+            execute(errorService, worker, "SET TRANSACTION SNAPSHOT '" + snapshotId + "'");
+            return callable.call(worker);
+        } finally {
+            workerSettings.end(errorService, worker);
+        }
+    }
+
+    /**
+     * Ends the snapshot transaction, and restores the settings of the connection.
+     */
+    void end() {
+        settings.end(errorService, connection);
+    }
+
+    private static int isolationLevel(Database.Type databaseType) {
+        switch (databaseType) {
+            case ORACLE:
+                return Connection.TRANSACTION_SERIALIZABLE;
+            case MSSQL:
+                return SQL_SERVER_TRANSACTION_SNAPSHOT;
+            default:
+                return Connection.TRANSACTION_REPEATABLE_READ;
+        }
+    }
+
+    private static String exportSnapshot(ImportExportErrorService errorService, Connection connection) {
+        final String sql = "SELECT pg_export_snapshot()";
+        Statement statement = null;
+        ResultSet result = null;
+        try {
+            statement = connection.createStatement();
+            result = statement.executeQuery(sql);
+            result.next();
+            return result.getString(1);
+        } catch (SQLException e) {
+            throw errorService.newImportExportSqlException(null, "Could not execute query '" + sql + "'", e);
+        } finally {
+            closeQuietly(result, statement);
+        }
+    }
+
+    private static void execute(ImportExportErrorService errorService, Connection connection, String sql) {
+        Statement statement = null;
+        try {
+            statement = connection.createStatement();
+            statement.execute(sql);
+        } catch (SQLException e) {
+            throw errorService.newImportExportSqlException(null, "Could not execute '" + sql + "'", e);
+        } finally {
+            closeQuietly(statement);
+        }
+    }
+
+    /**
+     * The settings of a connection before a read only transaction was started on it.
+     */
+    private static final class TransactionSettings {
+        private final boolean autoCommit;
+        private final boolean readOnly;
+        private final int isolationLevel;
+
+        private TransactionSettings(boolean autoCommit, boolean readOnly, int isolationLevel) {
+            this.autoCommit = autoCommit;
+            this.readOnly = readOnly;
+            this.isolationLevel = isolationLevel;
+        }
+
+        /**
+         * Isolation and read only are set before auto-commit is turned off, so that nothing starts the transaction
+         * before the first statement run on it.
+         */
+        static TransactionSettings begin(ImportExportErrorService errorService, Connection connection, int isolationLevel) {
+            try {
+                final TransactionSettings settings = new TransactionSettings(connection.getAutoCommit(), connection.isReadOnly(), connection.getTransactionIsolation());
+                connection.setTransactionIsolation(isolationLevel);
+                connection.setReadOnly(true);
+                connection.setAutoCommit(false);
+                return settings;
+            } catch (SQLException e) {
+                throw errorService.newImportExportSqlException(null, "Could not start read only transaction with isolation level " + isolationLevel, e);
+            }
+        }
+
+        void end(ImportExportErrorService errorService, Connection connection) {
+            try {
+                connection.rollback(); // nothing was written
+                connection.setAutoCommit(autoCommit);
+                connection.setReadOnly(readOnly);
+                connection.setTransactionIsolation(isolationLevel);
+            } catch (SQLException e) {
+                throw errorService.newImportExportSqlException(null, "Could not end read only transaction", e);
+            }
+        }
+    }
+}
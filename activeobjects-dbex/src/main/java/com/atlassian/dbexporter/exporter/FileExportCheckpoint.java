@@ -0,0 +1,224 @@
+package com.atlassian.dbexporter.exporter;
+
+import com.atlassian.dbexporter.node.NodeCreator;
+import com.atlassian.dbexporter.node.NodeStreamWriter;
+import com.google.common.base.Function;
+import com.google.common.io.CountingOutputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Properties;
+
+import static com.atlassian.dbexporter.node.NodeBackup.RootNode;
+import static com.atlassian.dbexporter.node.NodeBackup.RowDataNode;
+import static com.atlassian.dbexporter.node.NodeBackup.TableDataNode;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+import static com.google.common.collect.Maps.newHashMap;
+
+/**
+ * <p>An {@link ExportCheckpoint} persisted to a file, written again every time a chunk is recorded, so that it
+ * survives the failure of the export, or of the whole JVM.</p>
+ * <p>The export is written to numbered segments. Along with the last exported key of each table, the checkpoint
+ * records the segment being written and its length once the chunk was written to it. A resumed export cuts the
+ * interrupted segment at that length, see {@link #endSegment(File, Function)}, and writes the rows after the recorded
+ * keys to the next segment. The segments are restored in order, the first one as a full backup and the following
+ * ones as incremental backups. The file is deleted once the export completes.</p>
+ */
+public final class FileExportCheckpoint implements ExportCheckpoint {
+    private static final Logger logger = LoggerFactory.getLogger(FileExportCheckpoint.class);
+
+    private static final String SEGMENT = "segment";
+    private static final String SEGMENT_LENGTH = "segment.length";
+    private static final String EXPORTED_PREFIX = "exported.";
+
+    private final File file;
+    private final boolean resuming;
+    private final Map<String, Long> exportedKeys;
+    private int segment;
+    private long segmentLength;
+    private NodeStreamWriter writer;
+    private CountingOutputStream output;
+
+    private FileExportCheckpoint(File file, Map<String, Long> exportedKeys, int segment, long segmentLength) {
+        this.file = checkNotNull(file);
+        this.exportedKeys = exportedKeys;
+        this.segment = segment;
+        this.segmentLength = segmentLength;
+        this.resuming = !exportedKeys.isEmpty();
+    }
+
+    /**
+     * Opens the checkpoint of an export, resuming the progress recorded in the file if there is one.
+     *
+     * @param file the file of the checkpoint, created as soon as a chunk is recorded
+     */
+    public static FileExportCheckpoint open(File file) throws IOException {
+        final Map<String, Long> exportedKeys = newHashMap();
+        int segment = 0;
+        long segmentLength = 0L;
+        if (file.exists()) {
+            final Properties properties = load(file);
+            for (String key : properties.stringPropertyNames()) {
+                if (key.startsWith(EXPORTED_PREFIX)) {
+                    exportedKeys.put(key.substring(EXPORTED_PREFIX.length()), Long.valueOf(properties.getProperty(key)));
+                }
+            }
+            segment = Integer.parseInt(properties.getProperty(SEGMENT, "0"));
+            segmentLength = Long.parseLong(properties.getProperty(SEGMENT_LENGTH, "0"));
+            logger.info("Resuming export from checkpoint {}, {} table(s) partly exported", file, exportedKeys.size());
+        }
+        return new FileExportCheckpoint(file, exportedKeys, segment, segmentLength);
+    }
+
+    @Override
+    public boolean isResuming() {
+        return resuming;
+    }
+
+    /**
+     * @return the index of the segment the interrupted export was writing when it last recorded a chunk, {@code 0}
+     * if there is no export to resume.
+     */
+    public synchronized int getSegment() {
+        return segment;
+    }
+
+    /**
+     * @return the length of the segment the interrupted export was writing, up to the end of the last recorded chunk
+     */
+    public synchronized long getSegmentLength() {
+        return segmentLength;
+    }
+
+    /**
+     * Cuts the segment the interrupted export was writing right after the last recorded chunk, and ends the data of
+     * its table and the document there, so that the segment can be restored. The rows after the cut are written to
+     * the next segment by the resumed export. Cutting the same segment again gives the same result.
+     *
+     * @param segment the file of the segment, see {@link #getSegment()}
+     * @param writers creates a writer of the format the segment was written in, over the given stream
+     */
+    public synchronized void endSegment(File segment, Function<OutputStream, NodeStreamWriter> writers) throws IOException {
+        checkState(resuming, "There is no interrupted export to resume");
+        final byte[] end = getTableDataEnd(writers);
+        final RandomAccessFile output = new RandomAccessFile(segment, "rw");
+        try {
+            if (output.length() < segmentLength) {
+                throw new IOException("Segment " + segment + " is shorter than the " + segmentLength + " bytes recorded in " + file);
+            }
+            output.setLength(segmentLength);
+            output.seek(segmentLength);
+            output.write(end);
+        } finally {
+            output.close();
+        }
+    }
+
+    /**
+     * What a writer writes after a row to end the data of its table and the document, the only nodes still open when
+     * a chunk is recorded.
+     */
+    private static byte[] getTableDataEnd(Function<OutputStream, NodeStreamWriter> writers) {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final NodeStreamWriter writer = writers.apply(bytes);
+        final NodeCreator data = TableDataNode.add(RootNode.add(writer), "table");
+        RowDataNode.add(data).closeEntity();
+        writer.flush();
+        final int start = bytes.size();
+        data.closeEntity().closeEntity();
+        writer.close();
+        return Arrays.copyOfRange(bytes.toByteArray(), start, bytes.size());
+    }
+
+    /**
+     * Called before the export starts writing a segment. Every chunk recorded afterwards flushes the writer and records
+     * how many bytes were written to the segment, chunks must then be recorded by the thread writing the export.
+     *
+     * @param segment the index of the segment, the one after {@link #getSegment()} when resuming
+     * @param writer  the writer of the export
+     * @param output  the stream of the segment, under any buffering of the writer
+     */
+    public synchronized void segmentStarted(int segment, NodeStreamWriter writer, CountingOutputStream output) {
+        this.segment = segment;
+        this.segmentLength = output.getCount();
+        this.writer = checkNotNull(writer);
+        this.output = checkNotNull(output);
+    }
+
+    @Override
+    public synchronized Long getLastExportedKey(String table) {
+        return exportedKeys.get(checkNotNull(table));
+    }
+
+    @Override
+    public synchronized void chunkExported(String table, long lastKey) {
+        checkState(writer != null, "The segment being written must be started before chunks are recorded");
+        writer.flush();
+        segmentLength = output.getCount();
+        exportedKeys.put(checkNotNull(table), lastKey);
+        save();
+    }
+
+    /**
+     * Called once the export completes, the checkpoint is deleted.
+     */
+    public synchronized void exportCompleted() {
+        exportedKeys.clear();
+        writer = null;
+        output = null;
+        if (file.exists() && !file.delete()) {
+            logger.warn("Could not delete export checkpoint {}", file);
+        }
+    }
+
+    /**
+     * Writes the checkpoint to a file next to the checkpoint file, then renames it over, so that a failure while
+     * writing never leaves a truncated checkpoint.
+     */
+    private void save() {
+        final Properties properties = new Properties();
+        properties.setProperty(SEGMENT, Integer.toString(segment));
+        properties.setProperty(SEGMENT_LENGTH, Long.toString(segmentLength));
+        for (Map.Entry<String, Long> key : exportedKeys.entrySet()) {
+            properties.setProperty(EXPORTED_PREFIX + key.getKey(), key.getValue().toString());
+        }
+
+        final File temp = new File(file.getPath() + ".tmp");
+        try {
+            final OutputStream output = new FileOutputStream(temp);
+            try {
+                properties.store(output, "Active Objects export checkpoint");
+            } finally {
+                output.close();
+            }
+            // renaming over an existing file fails on some platforms
+            if (!temp.renameTo(file) && !(file.delete() && temp.renameTo(file))) {
+                throw new IOException("Could not rename " + temp + " to " + file);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not save export checkpoint to " + file, e);
+        }
+    }
+
+    private static Properties load(File file) throws IOException {
+        final Properties properties = new Properties();
+        final InputStream input = new FileInputStream(file);
+        try {
+            properties.load(input);
+        } finally {
+            input.close();
+        }
+        return properties;
+    }
+}
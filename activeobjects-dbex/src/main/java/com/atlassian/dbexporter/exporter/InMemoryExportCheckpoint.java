@@ -0,0 +1,54 @@
+package com.atlassian.dbexporter.exporter;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * An {@link ExportCheckpoint} that keeps track of exported keys in memory, it only lives as long as the export does,
+ * unless the keys it recorded are given to the checkpoint of a subsequent export, see
+ * {@link #InMemoryExportCheckpoint(Map)}.
+ */
+public final class InMemoryExportCheckpoint implements ExportCheckpoint {
+    private final ConcurrentMap<String, Long> lastExportedKeys = new ConcurrentHashMap<String, Long>();
+    private final boolean resuming;
+
+    public InMemoryExportCheckpoint() {
+        this.resuming = false;
+    }
+
+    /**
+     * Creates the checkpoint of an export resuming an interrupted one.
+     *
+     * @param lastExportedKeys the keys recorded by the checkpoint of the interrupted export, see
+     *                         {@link #getLastExportedKeys()}
+     */
+    public InMemoryExportCheckpoint(Map<String, Long> lastExportedKeys) {
+        this.lastExportedKeys.putAll(lastExportedKeys);
+        this.resuming = !lastExportedKeys.isEmpty();
+    }
+
+    @Override
+    public boolean isResuming() {
+        return resuming;
+    }
+
+    @Override
+    public Long getLastExportedKey(String table) {
+        return lastExportedKeys.get(checkNotNull(table));
+    }
+
+    @Override
+    public void chunkExported(String table, long lastKey) {
+        lastExportedKeys.put(checkNotNull(table), lastKey);
+    }
+
+    /**
+     * @return a snapshot of the last exported key of every table with at least one exported chunk
+     */
+    public Map<String, Long> getLastExportedKeys() {
+        return new ConcurrentHashMap<String, Long>(lastExportedKeys);
+    }
+}
@@ -4,12 +4,14 @@ import com.atlassian.dbexporter.Column;
 import com.atlassian.dbexporter.Context;
 import com.atlassian.dbexporter.DatabaseInformation;
 import com.atlassian.dbexporter.ForeignKey;
+import com.atlassian.dbexporter.Index;
 import com.atlassian.dbexporter.Table;
 import com.atlassian.dbexporter.node.NodeCreator;
 import com.atlassian.dbexporter.progress.ProgressMonitor;
 
 import static com.atlassian.dbexporter.node.NodeBackup.ColumnDefinitionNode;
 import static com.atlassian.dbexporter.node.NodeBackup.ForeignKeyDefinitionNode;
+import static com.atlassian.dbexporter.node.NodeBackup.IndexDefinitionNode;
 import static com.atlassian.dbexporter.node.NodeBackup.TableDefinitionNode;
 import static com.atlassian.dbexporter.progress.ProgressMonitor.Task;
 import static com.google.common.base.Preconditions.checkNotNull;
@@ -55,6 +57,10 @@ public final class TableDefinitionExporter implements Exporter {
             export(node, foreignKey);
         }
 
+        for (Index index : table.getIndexes()) {
+            export(node, index);
+        }
+
         node.closeEntity();
     }
 
@@ -77,4 +83,11 @@ public final class TableDefinitionExporter implements Exporter {
         ForeignKeyDefinitionNode.setToColumn(node, foreignKey.getToField());
         node.closeEntity();
     }
+
+    private void export(NodeCreator node, Index index) {
+        IndexDefinitionNode.add(node);
+        IndexDefinitionNode.setTable(node, index.getTable());
+        IndexDefinitionNode.setColumn(node, index.getColumn());
+        node.closeEntity();
+    }
 }
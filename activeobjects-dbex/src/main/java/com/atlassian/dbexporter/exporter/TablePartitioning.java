@@ -0,0 +1,104 @@
+package com.atlassian.dbexporter.exporter;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * <p>How many partitions a table is split into when exporting. Tables with a single numeric primary key can be split
+ * into ranges of keys of equal width, between the smallest and greatest key, each range being read on its own
+ * connection and the rows written back in key order.</p>
+ * <p>The number of partitions is either set for a given table, or derived from the number of rows of the table, which
+ * is estimated from its range of keys. Tables are not partitioned by default.</p>
+ * <p>Instances are immutable.</p>
+ */
+public final class TablePartitioning {
+    private static final TablePartitioning NONE = new TablePartitioning(new TreeMap<String, Integer>(String.CASE_INSENSITIVE_ORDER), 0, 1);
+
+    private final Map<String, Integer> partitionsByTable;
+    private final long rowsPerPartition;
+    private final int maxPartitions;
+
+    private TablePartitioning(Map<String, Integer> partitionsByTable, long rowsPerPartition, int maxPartitions) {
+        this.partitionsByTable = checkNotNull(partitionsByTable);
+        this.rowsPerPartition = rowsPerPartition;
+        this.maxPartitions = maxPartitions;
+    }
+
+    /**
+     * @return the partitioning where no table is split.
+     */
+    public static TablePartitioning none() {
+        return NONE;
+    }
+
+    /**
+     * Splits the given table into a fixed number of partitions, whatever its number of rows.
+     *
+     * @param table      the name of the table, case insensitive
+     * @param partitions the number of partitions, {@code 1} for the table not to be split.
+     * @return a new table partitioning
+     */
+    public TablePartitioning withPartitions(String table, int partitions) {
+        checkArgument(partitions > 0, "Number of partitions must be positive");
+        final Map<String, Integer> newPartitionsByTable = new TreeMap<String, Integer>(String.CASE_INSENSITIVE_ORDER);
+        newPartitionsByTable.putAll(partitionsByTable);
+        newPartitionsByTable.put(checkNotNull(table), partitions);
+        return new TablePartitioning(newPartitionsByTable, rowsPerPartition, maxPartitions);
+    }
+
+    /**
+     * Splits the tables with more than the given number of rows, into one partition per {@code rowsPerPartition}
+     * rows, up to {@code maxPartitions}.
+     *
+     * @param rowsPerPartition the number of rows above which tables are split, {@code 0} for tables not to be split by
+     *                         their number of rows.
+     * @param maxPartitions    the maximum number of partitions of a table
+     * @return a new table partitioning
+     */
+    public TablePartitioning withRowThreshold(long rowsPerPartition, int maxPartitions) {
+        checkArgument(rowsPerPartition >= 0, "Number of rows per partition must not be negative");
+        checkArgument(maxPartitions > 0, "Maximum number of partitions must be positive");
+        return new TablePartitioning(partitionsByTable, rowsPerPartition, maxPartitions);
+    }
+
+    /**
+     * @return whether any table might be split.
+     */
+    public boolean isEnabled() {
+        if (rowsPerPartition > 0 && maxPartitions > 1) {
+            return true;
+        }
+        for (Integer partitions : partitionsByTable.values()) {
+            if (partitions > 1) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Gets the number of partitions of a table.
+     *
+     * @param table         the name of the table
+     * @param estimatedRows the estimated number of rows of the table
+     * @return the number of partitions, {@code 1} if the table must not be split.
+     */
+    public int getPartitionCount(String table, long estimatedRows) {
+        final Integer partitions = partitionsByTable.get(table);
+        if (partitions != null) {
+            return partitions;
+        }
+        if (rowsPerPartition <= 0 || estimatedRows <= rowsPerPartition) {
+            return 1;
+        }
+        return (int) Math.min(maxPartitions, (estimatedRows + rowsPerPartition - 1) / rowsPerPartition);
+    }
+
+    @Override
+    public String toString() {
+        return "TablePartitioning{partitionsByTable=" + partitionsByTable + ", rowsPerPartition=" + rowsPerPartition + ", maxPartitions=" + maxPartitions + "}";
+    }
+}
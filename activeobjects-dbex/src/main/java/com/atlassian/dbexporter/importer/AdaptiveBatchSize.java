@@ -0,0 +1,55 @@
+package com.atlassian.dbexporter.importer;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * <p>The number of rows of the next batch of a table, adjusted after each batch is executed (additive increase,
+ * multiplicative decrease): it grows by a step while batches execute within the
+ * {@link BatchSizing#getTargetFlushMillis() target time}, and halves when they take longer.</p>
+ * <p>Batches cut short by the {@link BatchSizing#getMaxBytes() byte budget} don't grow the limit, rows that wide would
+ * not fit in a bigger batch anyway.</p>
+ * <p>Instances are not thread safe, there is one per table being imported.</p>
+ */
+final class AdaptiveBatchSize {
+    private static final int INCREASE_STEPS = 16;
+
+    private final BatchSizing sizing;
+    private final int increase;
+    private int rowLimit;
+
+    AdaptiveBatchSize(BatchSizing sizing) {
+        this.sizing = checkNotNull(sizing);
+        this.increase = Math.max(1, (sizing.getMaxRows() - sizing.getMinRows()) / INCREASE_STEPS);
+        this.rowLimit = sizing.getInitialRows();
+    }
+
+    int getRowLimit() {
+        return rowLimit;
+    }
+
+    /**
+     * @param rows  the number of rows in the current batch
+     * @param bytes the approximate size of the values of the current batch
+     * @return whether the current batch must be executed
+     */
+    boolean isFull(int rows, long bytes) {
+        return rows >= rowLimit || bytes >= sizing.getMaxBytes();
+    }
+
+    /**
+     * Adjusts the row limit after a batch was executed.
+     *
+     * @param rows         the number of rows of the batch
+     * @param bytes        the approximate size of the values of the batch
+     * @param elapsedNanos how long executing the batch took
+     */
+    void flushed(int rows, long bytes, long elapsedNanos) {
+        if (TimeUnit.NANOSECONDS.toMillis(elapsedNanos) > sizing.getTargetFlushMillis()) {
+            rowLimit = Math.max(sizing.getMinRows(), Math.min(rowLimit, rows) / 2);
+        } else if (rows >= rowLimit && bytes < sizing.getMaxBytes()) {
+            rowLimit = Math.min(sizing.getMaxRows(), rowLimit + increase);
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.atlassian.dbexporter.importer;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * <p>How rows are grouped into JDBC batches when importing with {@link com.atlassian.dbexporter.BatchMode#ON batches
+ * on}. The number of rows of a batch adapts to how long the database takes to execute it, between a minimum and a
+ * maximum, and a batch is executed early once the approximate size of its values reaches a byte budget so that wide
+ * rows don't exhaust the memory of the driver.</p>
+ * <p>Commits are independent of batches: the rows are committed once at least the commit interval has been inserted
+ * since the last commit.</p>
+ * <p>Instances are immutable.</p>
+ */
+public final class BatchSizing {
+    private static final BatchSizing DEFAULTS = new BatchSizing(100, 50000, 5000, 8 * 1024 * 1024, 1000, 5000);
+
+    private final int minRows;
+    private final int maxRows;
+    private final int initialRows;
+    private final long maxBytes;
+    private final long targetFlushMillis;
+    private final int commitInterval;
+
+    private BatchSizing(int minRows, int maxRows, int initialRows, long maxBytes, long targetFlushMillis, int commitInterval) {
+        this.minRows = minRows;
+        this.maxRows = maxRows;
+        this.initialRows = initialRows;
+        this.maxBytes = maxBytes;
+        this.targetFlushMillis = targetFlushMillis;
+        this.commitInterval = commitInterval;
+    }
+
+    /**
+     * @return batches of 100 to 50000 rows, starting at 5000, of at most 8MB, executing in about a second, and a
+     * commit every 5000 rows.
+     */
+    public static BatchSizing defaults() {
+        return DEFAULTS;
+    }
+
+    /**
+     * @param minRows the smallest number of rows a batch shrinks to when the database is slow
+     * @param maxRows the greatest number of rows a batch grows to when the database is fast
+     * @return a new batch sizing
+     */
+    public BatchSizing withRows(int minRows, int maxRows) {
+        checkArgument(minRows > 0, "Minimum number of rows must be positive");
+        checkArgument(maxRows >= minRows, "Maximum number of rows must not be less than the minimum");
+        return new BatchSizing(minRows, maxRows, initialRows, maxBytes, targetFlushMillis, commitInterval);
+    }
+
+    /**
+     * @param maxBytes the approximate size of the values of a batch above which it is executed, whatever its number of
+     *                 rows.
+     * @return a new batch sizing
+     */
+    public BatchSizing withMaxBytes(long maxBytes) {
+        checkArgument(maxBytes > 0, "Maximum number of bytes must be positive");
+        return new BatchSizing(minRows, maxRows, initialRows, maxBytes, targetFlushMillis, commitInterval);
+    }
+
+    /**
+     * @param targetFlushMillis how long executing a batch should take; batches grow while they execute faster, and
+     *                          halve when they execute slower.
+     * @return a new batch sizing
+     */
+    public BatchSizing withTargetFlushMillis(long targetFlushMillis) {
+        checkArgument(targetFlushMillis > 0, "Target flush time must be positive");
+        return new BatchSizing(minRows, maxRows, initialRows, maxBytes, targetFlushMillis, commitInterval);
+    }
+
+    /**
+     * @param commitInterval the number of rows inserted between commits, {@code 0} to commit after every batch.
+     * @return a new batch sizing
+     */
+    public BatchSizing withCommitInterval(int commitInterval) {
+        checkArgument(commitInterval >= 0, "Commit interval must not be negative");
+        return new BatchSizing(minRows, maxRows, initialRows, maxBytes, targetFlushMillis, commitInterval);
+    }
+
+    public int getMinRows() {
+        return minRows;
+    }
+
+    public int getMaxRows() {
+        return maxRows;
+    }
+
+    /**
+     * @return the number of rows of the first batch of a table, within the minimum and maximum.
+     */
+    public int getInitialRows() {
+        return Math.max(minRows, Math.min(maxRows, initialRows));
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public long getTargetFlushMillis() {
+        return targetFlushMillis;
+    }
+
+    public int getCommitInterval() {
+        return commitInterval;
+    }
+
+    @Override
+    public String toString() {
+        return "BatchSizing{minRows=" + minRows + ", maxRows=" + maxRows + ", initialRows=" + initialRows
+                + ", maxBytes=" + maxBytes + ", targetFlushMillis=" + targetFlushMillis + ", commitInterval=" + commitInterval + "}";
+    }
+}
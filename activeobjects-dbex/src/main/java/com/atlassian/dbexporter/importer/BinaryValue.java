@@ -0,0 +1,154 @@
+package com.atlassian.dbexporter.importer;
+
+import com.atlassian.dbexporter.node.NodeParser;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * <p>The value of a binary field, decoded from the backup as it is parsed. Values up to {@link #IN_MEMORY_LIMIT} bytes
+ * are kept in memory, larger values are spooled to a temporary file, so that restoring large binaries runs in
+ * constant memory.</p>
+ * <p>The value is bound to statements as a stream, and must be {@link #release() released} once the statements it is
+ * bound to have been executed, which deletes its file.</p>
+ */
+final class BinaryValue implements Spooled {
+    static final int IN_MEMORY_LIMIT = 64 * 1024;
+
+    private final byte[] bytes; // maybe null, then the value is in the file
+    private final File file;
+    private final long length;
+    private InputStream stream;
+
+    private BinaryValue(byte[] bytes, File file, long length) {
+        this.bytes = bytes;
+        this.file = file;
+        this.length = length;
+    }
+
+    /**
+     * Reads the binary content of a field node.
+     *
+     * @return the value, {@code null} if the field has no data. The node is left on the end of the field.
+     */
+    static BinaryValue read(NodeParser node) {
+        final Spool spool = new Spool();
+        boolean read = false;
+        try {
+            if (!node.getContentAsBinary(spool)) {
+                return null;
+            }
+            spool.close();
+            read = true;
+            return spool.toValue();
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not spool binary value to " + spool.file, e);
+        } finally {
+            if (!read) {
+                spool.discard();
+            }
+        }
+    }
+
+    long length() {
+        return length;
+    }
+
+    boolean isInMemory() {
+        return bytes != null;
+    }
+
+    /**
+     * Opens the stream of the value bound to a statement, the stream previously opened if any is closed.
+     */
+    InputStream openStream() throws IOException {
+        closeStream();
+        stream = bytes != null ? new ByteArrayInputStream(bytes) : new BufferedInputStream(new FileInputStream(file));
+        return stream;
+    }
+
+    /**
+     * Closes the stream of the value and deletes its file, if any.
+     */
+    public void release() {
+        closeStream();
+        if (file != null) {
+            file.delete();
+        }
+    }
+
+    private void closeStream() {
+        closeQuietly(stream);
+        stream = null;
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException e) {
+                // ignore
+            }
+        }
+    }
+
+    /**
+     * Keeps bytes in memory until they exceed {@link #IN_MEMORY_LIMIT}, then writes them to a temporary file.
+     */
+    static final class Spool extends OutputStream {
+        private ByteArrayOutputStream memory = new ByteArrayOutputStream();
+        private File file;
+        private OutputStream fileOutput;
+        private long length;
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (fileOutput == null && length + len > IN_MEMORY_LIMIT) {
+                file = File.createTempFile("ao-restore-", ".bin");
+                fileOutput = new BufferedOutputStream(new FileOutputStream(file));
+                memory.writeTo(fileOutput);
+                memory = null;
+            }
+            (fileOutput != null ? fileOutput : memory).write(b, off, len);
+            length += len;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (fileOutput != null) {
+                fileOutput.close();
+            }
+        }
+
+        /**
+         * @return the value of the bytes written, once closed.
+         */
+        BinaryValue toValue() {
+            return new BinaryValue(memory != null ? memory.toByteArray() : null, file, length);
+        }
+
+        /**
+         * Deletes the bytes written, when failing to read the value.
+         */
+        void discard() {
+            closeQuietly(fileOutput);
+            if (file != null) {
+                file.delete();
+            }
+        }
+    }
+}
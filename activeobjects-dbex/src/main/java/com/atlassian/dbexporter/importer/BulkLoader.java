@@ -0,0 +1,211 @@
+package com.atlassian.dbexporter.importer;
+
+import com.atlassian.dbexporter.DatabaseInformations.Database;
+import com.atlassian.dbexporter.ImportExportErrorService;
+
+import java.lang.reflect.InvocationTargetException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+
+import static com.atlassian.dbexporter.jdbc.JdbcUtils.quote;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * <p>Loads table data through the native bulk path of the database rather than batches of {@code INSERT}s:</p>
+ * <ul>
+ * <li>{@code COPY ... FROM STDIN} for PostgreSQL,</li>
+ * <li>{@code LOAD DATA LOCAL INFILE} for MySQL, which requires the connection to allow it with
+ * {@code allowLoadLocalInfile=true},</li>
+ * <li>the bulk copy API for SQL Server,</li>
+ * <li>{@code CSVREAD} for embedded H2, mostly so that bulk loading can be tested without a database server.</li>
+ * </ul>
+ * <p>The native paths are only available from the JDBC drivers' own classes, which are looked up through the
+ * connection so that none is required at compile time. Whenever a loader doesn't {@link #isSupported(Connection)
+ * support} a connection, e.g. because the driver can't be found or the database has no bulk path, the
+ * {@link DataImporter} falls back to JDBC batches.</p>
+ * <p>Rows are loaded in the transaction of the connection, values are the ones of the backup once checked against the
+ * columns of the table, i.e. {@link String}, {@link Boolean}, {@link Long} or {@link java.math.BigInteger},
+ * {@link Double} or {@link java.math.BigDecimal}, or {@link java.util.Date}, or {@code null}.</p>
+ * <p>Instances are immutable.</p>
+ */
+public abstract class BulkLoader {
+    private final Database.Type databaseType;
+
+    BulkLoader(Database.Type databaseType) {
+        this.databaseType = checkNotNull(databaseType);
+    }
+
+    /**
+     * Gets the bulk loader for the given type of database.
+     *
+     * @param type the type of database being imported into
+     * @return the bulk loader, which supports no connection if the database has no native bulk path.
+     */
+    public static BulkLoader forDatabase(Database.Type type) {
+        switch (checkNotNull(type)) {
+            case POSTGRES:
+                return new PostgresCopyBulkLoader();
+            case MYSQL:
+                return new MySqlLoadDataBulkLoader();
+            case MSSQL:
+                return new SqlServerBulkCopyLoader();
+            case H2:
+                return new H2CsvReadBulkLoader();
+            default:
+                return new JdbcBatchFallback(type);
+        }
+    }
+
+    public Database.Type getDatabaseType() {
+        return databaseType;
+    }
+
+    /**
+     * @return whether rows can be bulk loaded on the given connection, rows are inserted with JDBC batches otherwise.
+     */
+    public abstract boolean isSupported(Connection connection);
+
+    /**
+     * Starts loading rows into a table.
+     *
+     * @param schema           the schema of the table, {@code null} for the default one
+     * @param table            the (unquoted) name of the table
+     * @param columns          the (unquoted) names of the columns rows have values for, in order
+     * @param maxBufferedBytes the approximate number of bytes of rows held in memory before they are sent to the
+     *                         database, for loaders that can't stream rows.
+     * @return the load, that must either be {@link Load#finish() finished} or {@link Load#abort() aborted}.
+     */
+    abstract Load begin(ImportExportErrorService errorService, Connection connection, String schema, String table, List<String> columns, long maxBufferedBytes) throws SQLException;
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "{databaseType=" + databaseType + "}";
+    }
+
+    /**
+     * The rows being loaded into a table.
+     */
+    interface Load {
+        /**
+         * @param values the values of the row, one per column. The array can be reused once this method returns.
+         */
+        void addRow(Object[] values) throws SQLException;
+
+        /**
+         * Sends any remaining row to the database, and waits for all of them to be loaded.
+         */
+        void finish() throws SQLException;
+
+        /**
+         * Releases what the load holds, without loading the remaining rows.
+         */
+        void abort();
+    }
+
+    /**
+     * Gets the driver's own interface or class of a connection.
+     *
+     * @param className the name of the interface or class of the driver
+     * @return the connection as an instance of that class, {@code null} if the driver doesn't provide it.
+     */
+    static Object unwrap(Connection connection, String className) {
+        try {
+            final Class<?> type = driverClass(connection, className);
+            return type != null && connection.isWrapperFor(type) ? connection.unwrap(type) : null;
+        } catch (SQLException e) {
+            return null;
+        } catch (AbstractMethodError e) {
+            return null; // pre JDBC 4 connection pool
+        }
+    }
+
+    /**
+     * Gets a class of the driver of a connection, looked up from the class loader of the connection so that drivers
+     * not visible from this library are found.
+     *
+     * @return the class, {@code null} if it can't be found.
+     */
+    static Class<?> driverClass(Connection connection, String className) {
+        try {
+            return Class.forName(className, false, connection.getMetaData().getConnection().getClass().getClassLoader());
+        } catch (ClassNotFoundException e) {
+            return contextClass(className);
+        } catch (SQLException e) {
+            return contextClass(className);
+        }
+    }
+
+    private static Class<?> contextClass(String className) {
+        final ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+        try {
+            return classLoader != null ? Class.forName(className, false, classLoader) : null;
+        } catch (ClassNotFoundException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Invokes a method of a driver object, unwrapping the exceptions it throws.
+     *
+     * @param type the public class or interface declaring the method, implementations are often not public.
+     */
+    static Object invoke(Class<?> type, Object target, String methodName, Class<?>[] parameterTypes, Object... args) throws SQLException {
+        try {
+            return type.getMethod(methodName, parameterTypes).invoke(target, args);
+        } catch (NoSuchMethodException e) {
+            throw new SQLException("Driver class " + type.getName() + " has no method " + methodName, e);
+        } catch (IllegalAccessException e) {
+            throw new SQLException("Could not call " + methodName + " on " + type.getName(), e);
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof SQLException) {
+                throw (SQLException) e.getCause();
+            }
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new SQLException("Could not call " + methodName + " on " + type.getName(), e.getCause());
+        }
+    }
+
+    /**
+     * @return the quoted name of the table, qualified with the schema if any.
+     */
+    static String tableName(ImportExportErrorService errorService, Connection connection, String schema, String table) {
+        final String quoted = quote(errorService, table, connection, table);
+        return schema != null ? schema + "." + quoted : quoted;
+    }
+
+    /**
+     * @return the comma separated list of quoted column names.
+     */
+    static String columnList(ImportExportErrorService errorService, Connection connection, String table, List<String> columns) {
+        final StringBuilder list = new StringBuilder();
+        for (String column : columns) {
+            if (list.length() > 0) {
+                list.append(", ");
+            }
+            list.append(quote(errorService, table, connection, column));
+        }
+        return list.toString();
+    }
+
+    /**
+     * The databases without a native bulk path, rows are always inserted with JDBC batches.
+     */
+    private static final class JdbcBatchFallback extends BulkLoader {
+        JdbcBatchFallback(Database.Type databaseType) {
+            super(databaseType);
+        }
+
+        @Override
+        public boolean isSupported(Connection connection) {
+            return false;
+        }
+
+        @Override
+        Load begin(ImportExportErrorService errorService, Connection connection, String schema, String table, List<String> columns, long maxBufferedBytes) {
+            throw new UnsupportedOperationException("No bulk load for " + getDatabaseType());
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.atlassian.dbexporter.importer;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.Date;
+
+/**
+ * The text formats rows are sent in to the bulk paths of databases reading text.
+ */
+final class BulkText {
+    /**
+     * How {@code null} is written in {@link #appendTabSeparated(StringBuilder, Object[]) tab separated} text.
+     */
+    static final String TAB_SEPARATED_NULL = "\\N";
+
+    private BulkText() {
+    }
+
+    /**
+     * Appends a row in the tab separated text read by PostgreSQL's {@code COPY} and MySQL's {@code LOAD DATA} by
+     * default: backslash, tab, new line and carriage return are escaped with a backslash, {@code null} is
+     * {@code \N}.
+     */
+    static void appendTabSeparated(StringBuilder text, Object[] values) {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                text.append('\t');
+            }
+            if (values[i] == null) {
+                text.append(TAB_SEPARATED_NULL);
+            } else {
+                final String value = format(values[i]);
+                for (int j = 0; j < value.length(); j++) {
+                    final char c = value.charAt(j);
+                    switch (c) {
+                        case '\\':
+                            text.append("\\\\");
+                            break;
+                        case '\t':
+                            text.append("\\t");
+                            break;
+                        case '\n':
+                            text.append("\\n");
+                            break;
+                        case '\r':
+                            text.append("\\r");
+                            break;
+                        default:
+                            text.append(c);
+                    }
+                }
+            }
+        }
+        text.append('\n');
+    }
+
+    /**
+     * Appends a row as comma separated values: every value is quoted, quotes doubled, and {@code null} is an empty
+     * unquoted field.
+     */
+    static void appendCsv(StringBuilder text, Object[] values) {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                text.append(',');
+            }
+            if (values[i] != null) {
+                final String value = format(values[i]);
+                text.append('"');
+                for (int j = 0; j < value.length(); j++) {
+                    final char c = value.charAt(j);
+                    if (c == '"') {
+                        text.append('"');
+                    }
+                    text.append(c);
+                }
+                text.append('"');
+            }
+        }
+        text.append('\n');
+    }
+
+    /**
+     * Formats a (non {@code null}) value as text every database converts to the type of its column. Booleans are
+     * {@code 1} and {@code 0} as MySQL stores them in numeric columns, and dates are in the time zone of the JVM as
+     * when bound as {@link Timestamp timestamps}.
+     */
+    static String format(Object value) {
+        if (value instanceof Boolean) {
+            return (Boolean) value ? "1" : "0";
+        } else if (value instanceof BigDecimal) {
+            return ((BigDecimal) value).toPlainString();
+        } else if (value instanceof Double) {
+            // rather than in scientific notation
+            return BigDecimal.valueOf((Double) value).toPlainString();
+        } else if (value instanceof Date) {
+            return new Timestamp(((Date) value).getTime()).toString();
+        } else {
+            return value.toString();
+        }
+    }
+}
@@ -0,0 +1,268 @@
+package com.atlassian.dbexporter.importer;
+
+import com.atlassian.dbexporter.DatabaseInformations.Database;
+import com.atlassian.dbexporter.ImportExportErrorService;
+import com.atlassian.dbexporter.node.NodeParser;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.Date;
+import java.util.List;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * <p>Binds the values of one column of the table being imported to the parameter of the insert statement. Everything
+ * that depends on the column or the database rather than the value, i.e. the parameter index, the size limit, how
+ * booleans are stored and whether integers are actually booleans, is resolved once per table when the binders are
+ * {@link #plan(ImportExportErrorService, String, List, Database.Type) planned}.</p>
+ * <p>Instances are not thread safe, they belong to the inserter of a single table.</p>
+ */
+final class ColumnBinder {
+    static final int UNLIMITED_COLUMN_SIZE = -1;
+
+    private final ImportExportErrorService errorService;
+    private final String table;
+    private final int index;
+    private final int maxSize;
+    private final boolean integerIsBoolean;
+    private final boolean numericBoolean;
+    private final int nullBooleanType;
+    private final int nullBinaryType;
+
+    // the type of the last field bound, fields of a column almost always have the same type
+    private String lastName;
+    private FieldType lastType;
+
+    private ColumnBinder(ImportExportErrorService errorService, String table, int index, int maxSize, Database.Type databaseType) {
+        this.errorService = checkNotNull(errorService);
+        this.table = table;
+        this.index = index;
+        this.maxSize = maxSize;
+        // this is actually a boolean that was stored as an Integer! Happens with legacy Oracle.
+        this.integerIsBoolean = maxSize == 1;
+        // Oracle stores booleans as NUMERICs with a precision of 1
+        this.numericBoolean = databaseType == Database.Type.ORACLE;
+        this.nullBooleanType = nullBooleanType(databaseType);
+        this.nullBinaryType = nullBinaryType(databaseType);
+    }
+
+    /**
+     * Plans the binding of the columns of a table.
+     *
+     * @param maxColumnSizes the maximum size of each column, indexed from {@code 1}, {@link #UNLIMITED_COLUMN_SIZE}
+     *                       when not known
+     * @param databaseType   the type of the database imported into
+     * @return the binders, the one at index {@code i} binding parameter {@code i + 1}.
+     */
+    static ColumnBinder[] plan(ImportExportErrorService errorService, String table, List<Integer> maxColumnSizes, Database.Type databaseType) {
+        final ColumnBinder[] binders = new ColumnBinder[maxColumnSizes.size() - 1];
+        for (int i = 0; i < binders.length; i++) {
+            binders[i] = new ColumnBinder(errorService, table, i + 1, maxColumnSizes.get(i + 1), databaseType);
+        }
+        return binders;
+    }
+
+    /**
+     * Gets the type of a field node of this column, without comparing its name against every type when it is the same
+     * as the previous field's.
+     */
+    FieldType typeOf(NodeParser node) {
+        final String name = node.getName();
+        if (lastType == null || !lastName.equals(name)) {
+            lastType = FieldType.of(node);
+            lastName = name;
+        }
+        return lastType;
+    }
+
+    /**
+     * Checks a value against the column, for loaders that don't bind values to statements.
+     *
+     * @return the value to load, integers of columns of size {@code 1} being booleans.
+     */
+    Object normalize(FieldType type, Object value) {
+        switch (type) {
+            case STRING:
+                if (value instanceof TextValue) {
+                    checkSize((TextValue) value);
+                    return ((TextValue) value).asString();
+                }
+                if (value != null) {
+                    checkSize((String) value);
+                }
+                return value;
+            case INTEGER:
+                return value != null && integerIsBoolean ? Boolean.valueOf(((Number) value).intValue() == 1) : value;
+            case BINARY:
+                throw new IllegalArgumentException("Binary values can't be bulk loaded, in table " + table);
+            default:
+                return value;
+        }
+    }
+
+    void bind(PreparedStatement ps, FieldType type, Object value) throws SQLException {
+        bind(ps, 0, type, value);
+    }
+
+    /**
+     * Binds a value to a statement inserting several rows at once.
+     *
+     * @param offset the number of parameters of the rows before the one of this value
+     */
+    void bind(PreparedStatement ps, int offset, FieldType type, Object value) throws SQLException {
+        final int parameter = offset + index;
+        switch (type) {
+            case STRING:
+                if (value instanceof TextValue) {
+                    bindText(ps, parameter, (TextValue) value);
+                } else {
+                    bindString(ps, parameter, (String) value);
+                }
+                break;
+            case BOOLEAN:
+                bindBoolean(ps, parameter, (Boolean) value);
+                break;
+            case INTEGER:
+                final Number integer = (Number) value;
+                if (integer != null && integerIsBoolean) {
+                    bindBoolean(ps, parameter, integer.intValue() == 1);
+                } else {
+                    bindInteger(ps, parameter, integer);
+                }
+                break;
+            case DOUBLE:
+                bindDouble(ps, parameter, (Number) value);
+                break;
+            case DATE:
+                bindDate(ps, parameter, (Date) value);
+                break;
+            case BINARY:
+                bindBinary(ps, parameter, (BinaryValue) value);
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported field type: " + type);
+        }
+    }
+
+    private void bindBoolean(PreparedStatement ps, int parameter, Boolean value) throws SQLException {
+        if (value == null) {
+            ps.setNull(parameter, nullBooleanType);
+        } else if (numericBoolean) {
+            ps.setObject(parameter, value, Types.NUMERIC, 1);
+        } else {
+            // setBoolean also handles BITs which are used by SQL Server
+            ps.setBoolean(parameter, value);
+        }
+    }
+
+    private void bindString(PreparedStatement ps, int parameter, String value) throws SQLException {
+        if (value == null) {
+            ps.setNull(parameter, Types.VARCHAR);
+        } else {
+            checkSize(value);
+            ps.setString(parameter, value);
+        }
+    }
+
+    private void checkSize(String value) {
+        if (maxSize != UNLIMITED_COLUMN_SIZE && value.length() > maxSize) {
+            throw errorService.newImportExportException(table, "Could not import data in table '" + table + "' column #" + index + ", value is too big for column which size limit is " + maxSize + ", value is:\n" + value + "\n");
+        }
+    }
+
+    /**
+     * Streams large text values to the statement, their characters being read from where they were spooled only once
+     * the statement is executed.
+     */
+    private void bindText(PreparedStatement ps, int parameter, TextValue value) throws SQLException {
+        checkSize(value);
+        try {
+            // the int length variant is the one JDBC 3 drivers support
+            ps.setCharacterStream(parameter, value.openReader(), (int) value.length());
+        } catch (IOException e) {
+            throw new SQLException("Could not read spooled text value for column #" + index, e);
+        }
+    }
+
+    private void checkSize(TextValue value) {
+        if (maxSize != UNLIMITED_COLUMN_SIZE && value.length() > maxSize) {
+            throw errorService.newImportExportException(table, "Could not import data in table '" + table + "' column #" + index + ", value of " + value.length() + " characters is too big for column which size limit is " + maxSize);
+        }
+        if (value.length() > Integer.MAX_VALUE) {
+            throw errorService.newImportExportException(table, "Could not import data in table '" + table + "' column #" + index + ", value of " + value.length() + " characters is too big");
+        }
+    }
+
+    private void bindDate(PreparedStatement ps, int parameter, Date value) throws SQLException {
+        if (value == null) {
+            ps.setNull(parameter, Types.TIMESTAMP);
+        } else {
+            ps.setTimestamp(parameter, new Timestamp(value.getTime()));
+        }
+    }
+
+    /**
+     * Binds {@link Long longs} as they are, and {@link BigInteger big integers} as big decimals.
+     */
+    private void bindInteger(PreparedStatement ps, int parameter, Number value) throws SQLException {
+        if (value == null) {
+            ps.setNull(parameter, Types.BIGINT);
+        } else if (value instanceof Long) {
+            ps.setLong(parameter, (Long) value);
+        } else {
+            ps.setBigDecimal(parameter, new BigDecimal((BigInteger) value));
+        }
+    }
+
+    /**
+     * Binds {@link Double doubles} as they are, and {@link BigDecimal big decimals} as big decimals.
+     */
+    private void bindDouble(PreparedStatement ps, int parameter, Number value) throws SQLException {
+        if (value == null) {
+            ps.setNull(parameter, Types.DOUBLE);
+        } else if (value instanceof Double) {
+            ps.setDouble(parameter, (Double) value);
+        } else {
+            ps.setBigDecimal(parameter, (BigDecimal) value);
+        }
+    }
+
+    private void bindBinary(PreparedStatement ps, int parameter, BinaryValue value) throws SQLException {
+        if (value == null) {
+            ps.setNull(parameter, nullBinaryType);
+        } else if (value.length() > Integer.MAX_VALUE) {
+            throw errorService.newImportExportException(table, "Could not import data in table '" + table + "' column #" + index + ", binary value of " + value.length() + " bytes is too big");
+        } else {
+            try {
+                // the int length variant is the one JDBC 3 drivers support
+                ps.setBinaryStream(parameter, value.openStream(), (int) value.length());
+            } catch (IOException e) {
+                throw new SQLException("Could not read spooled binary value for column #" + index, e);
+            }
+        }
+    }
+
+    private static int nullBinaryType(Database.Type databaseType) {
+        // Oracle stores binaries as BLOBs, which don't accept VARBINARY nulls
+        return databaseType == Database.Type.ORACLE ? Types.BLOB : Types.VARBINARY;
+    }
+
+    private static int nullBooleanType(Database.Type databaseType) {
+        switch (databaseType) {
+            case ORACLE:
+                return Types.NUMERIC;
+            case MSSQL:
+                // SQL Server stores booleans as BITs
+                return Types.BIT;
+            default:
+                // Derby stores booleans as SMALLINTs with a precision of 1 but is currently not being supported
+                return Types.BOOLEAN;
+        }
+    }
+}
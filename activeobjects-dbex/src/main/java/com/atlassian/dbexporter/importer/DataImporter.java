@@ -3,30 +3,46 @@ package com.atlassian.dbexporter.importer;
 import com.atlassian.dbexporter.BatchMode;
 import com.atlassian.dbexporter.Context;
 import com.atlassian.dbexporter.DatabaseInformation;
-import com.atlassian.dbexporter.DatabaseInformations;
+import com.atlassian.dbexporter.DatabaseInformations.Database;
 import com.atlassian.dbexporter.EntityNameProcessor;
 import com.atlassian.dbexporter.ImportExportErrorService;
 import com.atlassian.dbexporter.jdbc.JdbcUtils;
 import com.atlassian.dbexporter.node.NodeParser;
 import com.atlassian.dbexporter.progress.ProgressMonitor;
 import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.io.CharStreams;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
-import java.math.BigDecimal;
-import java.math.BigInteger;
+import java.io.Writer;
+import java.sql.BatchUpdateException;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Savepoint;
 import java.sql.Statement;
-import java.sql.Timestamp;
 import java.sql.Types;
 import java.util.ArrayList;
-import java.util.Date;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
-
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static com.atlassian.dbexporter.DatabaseInformations.database;
 import static com.atlassian.dbexporter.importer.ImporterUtils.isNodeNotClosed;
+import static com.atlassian.dbexporter.importer.ImporterUtils.isTableIncluded;
 import static com.atlassian.dbexporter.jdbc.JdbcUtils.closeQuietly;
+import static com.atlassian.dbexporter.jdbc.JdbcUtils.createStatement;
 import static com.atlassian.dbexporter.jdbc.JdbcUtils.metadata;
 import static com.atlassian.dbexporter.jdbc.JdbcUtils.preparedStatement;
 import static com.atlassian.dbexporter.jdbc.JdbcUtils.quote;
@@ -39,6 +55,11 @@ import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.collect.Lists.newArrayList;
 
 public final class DataImporter extends AbstractSingleNodeImporter {
+    private static final int BATCH_ROWS = 1000;
+    private static final int QUEUED_BATCHES = 4;
+    private static final List<Row> END_OF_TABLE = Collections.emptyList();
+    private static final Writer DISCARD = CharStreams.nullWriter();
+
     private final String schema;
     private final AroundTableImporter aroundTable;
 
@@ -61,17 +82,36 @@ public final class DataImporter extends AbstractSingleNodeImporter {
     protected void doImportNode(final NodeParser node, final ImportConfiguration configuration, final Context context) {
         final ProgressMonitor monitor = configuration.getProgressMonitor();
         monitor.begin(Task.TABLES_DATA);
+        if (configuration.getWorkerCount() > 1) {
+            importInParallel(node, configuration, context);
+        } else {
+            importSequentially(node, configuration, context);
+        }
+        monitor.end(Task.TABLES_DATA);
+    }
+
+    private void importSequentially(final NodeParser node, final ImportConfiguration configuration, final Context context) {
         withConnection(errorService, configuration.getConnectionProvider(), new JdbcUtils.JdbcCallable<Void>() {
             public Void call(Connection connection) {
                 try {
                     final boolean autoCommit = connection.getAutoCommit();
+                    boolean committed = false;
                     try {
                         connection.setAutoCommit(false);
                         for (; TableDataNode.NAME.equals(node.getName()) && !node.isClosed(); node.getNextNode()) {
-                            importTable(node, configuration, context, connection, configuration.getDatabaseInformation());
+                            if (isTableToImport(configuration, configuration.getEntityNameProcessor().tableName(TableDataNode.getName(node)))) {
+                                importTable(node, configuration, context, connection, configuration.getDatabaseInformation());
+                            } else {
+                                skipTable(node);
+                            }
                         }
                         connection.commit();
+                        committed = true;
                     } finally {
+                        // restoring autocommit commits, rows not recorded by the restore checkpoint must not be
+                        if (!committed) {
+                            rollbackQuietly(connection);
+                        }
                         connection.setAutoCommit(autoCommit);   // restore autocommit
                     }
                 } catch (SQLException e) {
@@ -80,7 +120,205 @@ public final class DataImporter extends AbstractSingleNodeImporter {
                 return null;
             }
         });
-        monitor.end(Task.TABLES_DATA);
+    }
+
+    /**
+     * <p>Imports tables concurrently. The calling thread parses the rows of each table into batches, queued for the
+     * worker loading that table on its own connection, at most {@link #QUEUED_BATCHES} batches per table. A table is
+     * loaded by a single worker in its own transaction, so that {@link AroundTableImporter around table importers}
+     * apply to the connection inserting its rows.</p>
+     * <p>The first failure, either of the parser or of a worker, stops the import: the parser stops reading, workers
+     * stop at their next batch and roll back, and tables not yet started are cancelled. The failure is rethrown once
+     * all the workers have stopped, so that no connection is in use when this method returns, and once the rows still
+     * queued have been released, so that no temporary file of their values is left behind.</p>
+     */
+    private void importInParallel(NodeParser node, final ImportConfiguration configuration, final Context context) {
+        final ProgressMonitor monitor = configuration.getProgressMonitor();
+        final EntityNameProcessor entityNameProcessor = configuration.getEntityNameProcessor();
+        final AtomicReference<RuntimeException> failure = new AtomicReference<RuntimeException>();
+
+        final ExecutorService executor = Executors.newFixedThreadPool(configuration.getWorkerCount(),
+                new ThreadFactoryBuilder().setNameFormat("active-objects-import-%d").setDaemon(true).build());
+        final List<TableLoad> tables = newArrayList();
+        final List<Future<Void>> loads = newArrayList();
+        boolean completed = false;
+        try {
+            for (; TableDataNode.NAME.equals(node.getName()) && !node.isClosed(); node = node.getNextNode()) {
+                final String table = entityNameProcessor.tableName(TableDataNode.getName(node));
+                if (!isTableToImport(configuration, table)) {
+                    node = skipTable(node);
+                    continue;
+                }
+
+                monitor.begin(Task.TABLE_DATA, table);
+                final TableLoad load = new TableLoad(table, TableDataNode.getMode(node), getRestoredRows(configuration, table), failure);
+                tables.add(load);
+                node = node.getNextNode();
+                for (; isNodeNotClosed(node, ColumnDataNode.NAME); node = node.getNextNode()) {
+                    load.columns.add(entityNameProcessor.columnName(ColumnDataNode.getName(node)));
+                    node = node.getNextNode();  // close column node
+                }
+                node = skipRows(node, load.restoredRows);
+                loads.add(executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() {
+                        try {
+                            loadTable(load, configuration, context);
+                            return null;
+                        } catch (RuntimeException e) {
+                            failure.compareAndSet(null, e);
+                            throw e;
+                        }
+                    }
+                }));
+
+                for (; isNodeNotClosed(node, RowDataNode.NAME); node = node.getNextNode()) {
+                    load.add(Row.read(node, load.columns.size()));
+                }
+                load.end();
+                monitor.end(Task.TABLE_DATA, table);
+            }
+
+            for (Future<Void> load : loads) {
+                waitFor(load);
+            }
+            completed = true;
+        } catch (RuntimeException e) {
+            failure.compareAndSet(null, e);
+            throw failure.get();
+        } finally {
+            executor.shutdownNow();
+            awaitTermination(executor);
+            if (!completed) {
+                // no worker takes rows any more
+                for (TableLoad load : tables) {
+                    load.discard();
+                }
+            }
+        }
+    }
+
+    private void loadTable(final TableLoad load, final ImportConfiguration configuration, final Context context) {
+        withConnection(errorService, configuration.getConnectionProvider(), new JdbcUtils.JdbcCallable<Void>() {
+            public Void call(Connection connection) {
+                try {
+                    final boolean autoCommit = connection.getAutoCommit();
+                    boolean committed = false;
+                    try {
+                        connection.setAutoCommit(false);
+                        loadTable(load, configuration, context, connection);
+                        connection.commit();
+                        committed = true;
+                        if (configuration.getRestoreCheckpoint() != null) {
+                            configuration.getRestoreCheckpoint().tableRestored(load.table);
+                        }
+                    } finally {
+                        if (!committed) {
+                            rollbackQuietly(connection);
+                        }
+                        connection.setAutoCommit(autoCommit);   // restore autocommit
+                    }
+                } catch (SQLException e) {
+                    throw errorService.newImportExportSqlException(load.table, "", e);
+                }
+                return null;
+            }
+        });
+    }
+
+    private void loadTable(TableLoad load, ImportConfiguration configuration, Context context, Connection connection) {
+        // rows already committed include the removal of the previous ones
+        if (load.mode == TableDataNode.Mode.REPLACE && load.restoredRows == 0L) {
+            deleteRows(load.table, connection);
+        }
+
+        final InserterBuilder builder = newInserterBuilder(load.table, configuration, configuration.getDatabaseInformation());
+        for (String column : load.columns) {
+            builder.addColumn(column);
+        }
+        final Inserter inserter = builder.build(connection, new TableProgress(load.table, configuration.getRestoreCheckpoint(), load.restoredRows));
+
+        long rowNum = load.restoredRows;
+        List<Row> batch = END_OF_TABLE;
+        try {
+            aroundTable.before(configuration, context, load.table, connection);
+            for (batch = load.take(); batch != END_OF_TABLE; batch = load.take()) {
+                for (Row row : batch) {
+                    for (int i = 0; i < row.size(); i++) {
+                        inserter.setValue(row.types[i], row.values[i]);
+                    }
+                    inserter.execute();
+                    rowNum++;
+                }
+            }
+            inserter.finish();
+        } catch (SQLException e) {
+            throw errorService.newRowImportSqlException(load.table, rowNum, e);
+        } finally {
+            // rows of the batch not bound yet when the load failed are not released by the inserter
+            Row.release(batch);
+            inserter.close();
+            aroundTable.after(configuration, context, load.table, connection);
+        }
+    }
+
+    private InserterBuilder newInserterBuilder(String table, ImportConfiguration configuration, DatabaseInformation databaseInformation) {
+        final Database.Type databaseType = database(databaseInformation).getType();
+        return new InserterBuilder(errorService, schema, table, configuration.getBatchMode(), getBatchSizing(configuration),
+                databaseType, configuration.getBulkLoader(databaseType), configuration.getRejectedRows());
+    }
+
+    /**
+     * @return whether the table is included in the import, and not recorded as restored by the restore checkpoint.
+     */
+    private static boolean isTableToImport(ImportConfiguration configuration, String table) {
+        final RestoreCheckpoint checkpoint = configuration.getRestoreCheckpoint();
+        return isTableIncluded(configuration, table) && (checkpoint == null || !checkpoint.isTableRestored(table));
+    }
+
+    private static long getRestoredRows(ImportConfiguration configuration, String table) {
+        final RestoreCheckpoint checkpoint = configuration.getRestoreCheckpoint();
+        return checkpoint != null ? checkpoint.getRestoredRows(table) : 0L;
+    }
+
+    private static BatchSizing getBatchSizing(ImportConfiguration configuration) {
+        final BatchSizing sizing = configuration.getBatchSizing();
+        return sizing != null ? sizing : BatchSizing.defaults();
+    }
+
+    private void waitFor(Future<Void> load) {
+        try {
+            load.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw errorService.newImportExportException(null, "Interrupted while waiting for table data to be imported");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw new IllegalStateException("Unexpected exception importing table data", e.getCause());
+        }
+    }
+
+    private static void awaitTermination(ExecutorService executor) {
+        try {
+            while (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                // keep waiting, workers stop at their next batch
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void rollbackQuietly(Connection connection) {
+        try {
+            connection.rollback();
+        } catch (SQLException e) {
+            // the original failure is more relevant
+        }
     }
 
     private NodeParser importTable(NodeParser node, ImportConfiguration configuration, Context context, Connection connection, DatabaseInformation databaseInformation) {
@@ -91,7 +329,13 @@ public final class DataImporter extends AbstractSingleNodeImporter {
 
         monitor.begin(Task.TABLE_DATA, currentTable);
 
-        final InserterBuilder builder = new InserterBuilder(errorService, schema, currentTable, configuration.getBatchMode());
+        final long restoredRows = getRestoredRows(configuration, currentTable);
+        // rows already committed include the removal of the previous ones
+        if (TableDataNode.getMode(node) == TableDataNode.Mode.REPLACE && restoredRows == 0L) {
+            deleteRows(currentTable, connection);
+        }
+
+        final InserterBuilder builder = newInserterBuilder(currentTable, configuration, databaseInformation);
 
         node = node.getNextNode();
         for (; isNodeNotClosed(node, ColumnDataNode.NAME); node = node.getNextNode()) {
@@ -99,21 +343,23 @@ public final class DataImporter extends AbstractSingleNodeImporter {
             builder.addColumn(entityNameProcessor.columnName(column));
             node = node.getNextNode();  // close column node
         }
+        node = skipRows(node, restoredRows);
 
-        final Inserter inserter = builder.build(connection);
+        final Inserter inserter = builder.build(connection, new TableProgress(currentTable, configuration.getRestoreCheckpoint(), restoredRows));
 
-        long rowNum = 0L;
+        long rowNum = restoredRows;
         try {
             aroundTable.before(configuration, context, currentTable, connection);
 
             for (; isNodeNotClosed(node, RowDataNode.NAME); node = node.getNextNode()) {
                 node = node.getNextNode();  // read the first field node
                 for (; !node.isClosed(); node = node.getNextNode()) {
-                    inserter.setValue(node, databaseInformation);
+                    inserter.setValue(node);
                 }
                 inserter.execute();
                 rowNum++;
             }
+            inserter.finish();
         } catch (SQLException e) {
             throw errorService.newRowImportSqlException(currentTable, rowNum, e);
         } finally {
@@ -121,34 +367,259 @@ public final class DataImporter extends AbstractSingleNodeImporter {
             aroundTable.after(configuration, context, currentTable, connection);
         }
 
+        final RestoreCheckpoint checkpoint = configuration.getRestoreCheckpoint();
+        if (checkpoint != null) {
+            // the table is only recorded as restored once all its rows are committed
+            try {
+                connection.commit();
+            } catch (SQLException e) {
+                throw errorService.newImportExportSqlException(currentTable, "", e);
+            }
+            checkpoint.tableRestored(currentTable);
+        }
+
         monitor.end(Task.TABLE_DATA, currentTable);
 
         return node;
     }
 
+    /**
+     * Reads through the data of a table that is not imported, or already restored.
+     *
+     * @return the closed table data node
+     */
+    private NodeParser skipTable(NodeParser node) {
+        node = node.getNextNode();
+        for (; isNodeNotClosed(node, ColumnDataNode.NAME); node = node.getNextNode()) {
+            node = node.getNextNode();  // close column node
+        }
+        return skipRows(node, Long.MAX_VALUE);
+    }
+
+    /**
+     * Reads through rows already restored, or of a table that is not imported, without decoding their values.
+     *
+     * @param rows the maximum number of rows to skip
+     * @return the node following the last row skipped
+     */
+    private static NodeParser skipRows(NodeParser node, long rows) {
+        for (long skipped = 0L; skipped < rows && isNodeNotClosed(node, RowDataNode.NAME); skipped++, node = node.getNextNode()) {
+            node = node.getNextNode();  // read the first field node
+            for (; !node.isClosed(); node = node.getNextNode()) {
+                node.getContent(DISCARD); // moves to the end of the field node
+            }
+        }
+        return node;
+    }
+
+    /**
+     * Removes the rows restored so far for the table, its data is replaced by the one of an incremental backup.
+     */
+    private void deleteRows(String table, Connection connection) {
+        final String quoted = quote(errorService, table, connection, table);
+        final String sql = "DELETE FROM " + (schema != null ? schema + "." + quoted : quoted);
+        final Statement statement = createStatement(errorService, table, connection);
+        try {
+            statement.executeUpdate(sql);
+        } catch (SQLException e) {
+            throw errorService.newImportExportSqlException(table, "Could not execute '" + sql + "'", e);
+        } finally {
+            closeQuietly(statement);
+        }
+    }
+
+    /**
+     * The rows of a table being loaded by a worker, handed over from the parsing thread in batches.
+     */
+    private final class TableLoad {
+        private static final int QUEUE_POLL_MILLIS = 100;
+        private final String table;
+        private final TableDataNode.Mode mode;
+        private final long restoredRows;
+        private final List<String> columns = newArrayList();
+        private final BlockingQueue<List<Row>> batches = new ArrayBlockingQueue<List<Row>>(QUEUED_BATCHES);
+        private final AtomicReference<RuntimeException> failure;
+        // rows read and not queued yet
+        private List<Row> batch = newArrayList();
+
+        TableLoad(String table, TableDataNode.Mode mode, long restoredRows, AtomicReference<RuntimeException> failure) {
+            this.table = checkNotNull(table);
+            this.mode = checkNotNull(mode);
+            this.restoredRows = restoredRows;
+            this.failure = checkNotNull(failure);
+        }
+
+        /**
+         * Adds a row read, queuing the rows read so far once they make a batch.
+         */
+        void add(Row row) {
+            batch.add(row);
+            if (batch.size() == BATCH_ROWS) {
+                put(batch);
+                batch = newArrayList();
+            }
+        }
+
+        /**
+         * Queues the last rows read, and the end of the table.
+         */
+        void end() {
+            put(batch);
+            batch = newArrayList();
+            put(END_OF_TABLE);
+        }
+
+        /**
+         * Releases the rows read and not loaded, once the import failed and no worker takes them any more.
+         */
+        void discard() {
+            Row.release(batch);
+            batch.clear();
+            final List<List<Row>> queued = newArrayList();
+            batches.drainTo(queued);
+            for (List<Row> rows : queued) {
+                Row.release(rows);
+            }
+        }
+
+        /**
+         * Queues a batch, waiting for room in the queue unless any table failed to load.
+         */
+        private void put(List<Row> rows) {
+            try {
+                while (!batches.offer(rows, QUEUE_POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                    if (failure.get() != null) {
+                        throw failure.get();
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw errorService.newImportExportException(table, "Interrupted while queuing table data");
+            }
+        }
+
+        List<Row> take() {
+            try {
+                return batches.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw errorService.newImportExportException(table, "Import was stopped");
+            }
+        }
+    }
+
+    /**
+     * The fields of a row, read by the parsing thread and bound by the worker loading the table.
+     */
+    private static final class Row {
+        private final FieldType[] types;
+        private final Object[] values;
+
+        private Row(int columns) {
+            this.types = new FieldType[columns];
+            this.values = new Object[columns];
+        }
+
+        /**
+         * Reads the fields of a row node.
+         *
+         * @param node the row node
+         * @return the row, the node is left on the end of the row.
+         */
+        static Row read(NodeParser node, int columns) {
+            final Row row = new Row(columns);
+            boolean read = false;
+            try {
+                int i = 0;
+                node = node.getNextNode();  // read the first field node
+                for (; !node.isClosed(); node = node.getNextNode()) {
+                    if (i == columns) {
+                        throw new IllegalArgumentException("Row has more fields than the " + columns + " columns of the table");
+                    }
+                    final FieldType type = FieldType.of(node);
+                    row.types[i] = type;
+                    row.values[i] = type.read(node);
+                    i++;
+                }
+                if (i < columns) {
+                    throw new IllegalArgumentException("Row has " + i + " fields, the table has " + columns + " columns");
+                }
+                read = true;
+                return row;
+            } finally {
+                if (!read) {
+                    row.release();
+                }
+            }
+        }
+
+        int size() {
+            return types.length;
+        }
+
+        /**
+         * Releases the {@link Spooled spooled} values of the row, releasing a value more than once is harmless.
+         */
+        void release() {
+            for (Object value : values) {
+                if (value instanceof Spooled) {
+                    ((Spooled) value).release();
+                }
+            }
+        }
+
+        static void release(List<Row> rows) {
+            for (Row row : rows) {
+                row.release();
+            }
+        }
+    }
+
     private static interface Inserter {
-        void setValue(NodeParser node, DatabaseInformation databaseInformation) throws SQLException;
+        void setValue(NodeParser node) throws SQLException;
+
+        void setValue(FieldType type, Object value) throws SQLException;
 
         void execute() throws SQLException;
 
+        /**
+         * Inserts the rows not inserted yet, and commits them if the inserter commits as it goes. Only called once all
+         * the rows of the table have been executed.
+         */
+        void finish();
+
+        /**
+         * Releases the statements and values held, rows not inserted yet are discarded. Always called, also when
+         * the table failed to import, in which case nothing must be committed.
+         */
         void close();
     }
 
 
     private static class InserterBuilder {
-        public static final int UNLIMITED_COLUMN_SIZE = -1;
+        public static final int UNLIMITED_COLUMN_SIZE = ColumnBinder.UNLIMITED_COLUMN_SIZE;
 
         private final ImportExportErrorService errorService;
         private final String schema;
         private final String table;
         private final BatchMode batch;
+        private final BatchSizing batchSizing;
+        private final Database.Type databaseType;
+        private final BulkLoader bulkLoader;
+        private final RejectedRows rejects;
         private final List<String> columns;
+        private boolean hasBinaryColumns;
 
-        public InserterBuilder(ImportExportErrorService errorService, String schema, String table, BatchMode batch) {
+        public InserterBuilder(ImportExportErrorService errorService, String schema, String table, BatchMode batch, BatchSizing batchSizing, Database.Type databaseType, BulkLoader bulkLoader,
+                               RejectedRows rejects) {
             this.errorService = checkNotNull(errorService);
             this.schema = schema;
             this.table = table;
             this.batch = batch;
+            this.batchSizing = checkNotNull(batchSizing);
+            this.databaseType = checkNotNull(databaseType);
+            this.bulkLoader = bulkLoader; // maybe null
+            this.rejects = rejects; // maybe null
             columns = new ArrayList<String>();
         }
 
@@ -160,30 +631,38 @@ public final class DataImporter extends AbstractSingleNodeImporter {
             columns.add(column);
         }
 
-        public Inserter build(Connection connection) {
-            final StringBuilder query = new StringBuilder("INSERT INTO ")
-                    .append(tableName(connection))
-                    .append(" (");
-
-            for (int i = 0; i < columns.size(); i++) {
-                query.append(quote(errorService, table, connection, columns.get(i)));
-                if (i < columns.size() - 1) {
-                    query.append(", ");
+        /**
+         * @param progress told about the rows committed by the inserter, as it commits along the way
+         */
+        public Inserter build(Connection connection, TableProgress progress) {
+            final ColumnBinder[] binders = ColumnBinder.plan(errorService, table, calculateColumnSizes(connection, columns), databaseType);
+            // binary values are streamed to statements, bulk loaders only take text
+            // failing rows are isolated by executing parts of the batch again, which only JDBC batches allow
+            if (!batch.equals(BatchMode.OFF) && bulkLoader != null && !hasBinaryColumns && rejects == null && bulkLoader.isSupported(connection)) {
+                try {
+                    return new BulkInserter(errorService, table, binders,
+                            bulkLoader.begin(errorService, connection, schema, table, columns, batchSizing.getMaxBytes()));
+                } catch (SQLException e) {
+                    throw errorService.newImportExportSqlException(table, "Could not start bulk load with " + bulkLoader, e);
                 }
             }
 
-            query.append(") VALUES (");
+            final StringBuilder columnList = new StringBuilder();
             for (int i = 0; i < columns.size(); i++) {
-                query.append("?");
+                columnList.append(quote(errorService, table, connection, columns.get(i)));
                 if (i < columns.size() - 1) {
-                    query.append(", ");
+                    columnList.append(", ");
                 }
             }
-            query.append(")");
 
-            final List<Integer> maxColumnSizes = calculateColumnSizes(connection, columns);
-            final PreparedStatement ps = preparedStatement(errorService, table, connection, query.toString());
-            return newInserter(maxColumnSizes, ps);
+            final MultiRowInsert insert = MultiRowInsert.forDatabase(databaseType);
+            if (batch.equals(BatchMode.MULTI_ROW) && rejects == null && insert.getRowsPerStatement(columns.size()) > 1) {
+                return new MultiRowInserter(errorService, table, connection, binders, insert, tableName(connection), columnList.toString(), batchSizing, progress);
+            }
+
+            final String query = insert.render(tableName(connection), columnList.toString(), columns.size(), 1);
+            final PreparedStatement ps = preparedStatement(errorService, table, connection, query);
+            return newInserter(binders, ps, progress);
         }
 
         private String tableName(Connection connection) {
@@ -191,14 +670,15 @@ public final class DataImporter extends AbstractSingleNodeImporter {
             return schema != null ? schema + "." + quoted : quoted;
         }
 
-        private Inserter newInserter(List<Integer> maxColumnSizes, PreparedStatement ps) {
-            return batch.equals(BatchMode.ON) ?
-                    new BatchInserter(errorService, getTable(), columns, ps, maxColumnSizes) :
-                    new ImmediateInserter(errorService, getTable(), columns, ps, maxColumnSizes);
+        private Inserter newInserter(ColumnBinder[] binders, PreparedStatement ps, TableProgress progress) {
+            return !batch.equals(BatchMode.OFF) ?
+                    new BatchInserter(errorService, getTable(), ps, binders, batchSizing, progress, columns, rejects) :
+                    new ImmediateInserter(errorService, getTable(), ps, binders);
         }
 
         /**
-         * Get the column size for all columns in the table -- only the sizes for String columns will be used
+         * Get the column size for all columns in the table -- only the sizes for String columns will be used. Also
+         * finds out whether any of the columns is binary.
          *
          * @param connection
          * @param columns
@@ -206,12 +686,16 @@ public final class DataImporter extends AbstractSingleNodeImporter {
          */
         private List<Integer> calculateColumnSizes(Connection connection, List<String> columns) {
             Map<String, Integer> columnSizeMap = Maps.newHashMap();
+            Set<String> binaryColumns = Sets.newHashSet();
             ResultSet rs = null;
             try {
                 rs = getColumnsResultSet(connection);
                 ColumnNameAndSize columnNameAndSize = getColumnNameAndSize(rs);
                 while (columnNameAndSize != ColumnNameAndSize.NULL) {
                     columnSizeMap.put(columnNameAndSize.name, columnNameAndSize.size);
+                    if (columnNameAndSize.binary) {
+                        binaryColumns.add(columnNameAndSize.name);
+                    }
                     columnNameAndSize = getColumnNameAndSize(rs);
                 }
 
@@ -219,6 +703,7 @@ public final class DataImporter extends AbstractSingleNodeImporter {
                 for (String column : columns) {
                     final Integer size = columnSizeMap.get(column);
                     sizes.add(size != null ? size : UNLIMITED_COLUMN_SIZE);
+                    hasBinaryColumns |= binaryColumns.contains(column);
                 }
                 return sizes;
             } finally {
@@ -232,7 +717,7 @@ public final class DataImporter extends AbstractSingleNodeImporter {
                     final String name = rs.getString("COLUMN_NAME");
                     final int size = rs.getInt("COLUMN_SIZE");
                     final int type = rs.getInt("DATA_TYPE");
-                    return new ColumnNameAndSize(name, type == Types.CLOB ? UNLIMITED_COLUMN_SIZE : size);
+                    return new ColumnNameAndSize(name, type == Types.CLOB ? UNLIMITED_COLUMN_SIZE : size, isBinary(type));
                 } else {
                     return ColumnNameAndSize.NULL;
                 }
@@ -241,6 +726,10 @@ public final class DataImporter extends AbstractSingleNodeImporter {
             }
         }
 
+        private static boolean isBinary(int type) {
+            return type == Types.BINARY || type == Types.VARBINARY || type == Types.LONGVARBINARY || type == Types.BLOB;
+        }
+
         private ResultSet getColumnsResultSet(Connection connection) {
             try {
                 return metadata(errorService, connection).getColumns(null, null, table, null);
@@ -255,15 +744,18 @@ public final class DataImporter extends AbstractSingleNodeImporter {
 
         public final String name;
         public final int size;
+        public final boolean binary;
 
         private ColumnNameAndSize() {
             this.name = null;
             this.size = InserterBuilder.UNLIMITED_COLUMN_SIZE;
+            this.binary = false;
         }
 
-        public ColumnNameAndSize(String name, int size) {
+        public ColumnNameAndSize(String name, int size, boolean binary) {
             this.name = checkNotNull(name);
             this.size = size <= 0 ? InserterBuilder.UNLIMITED_COLUMN_SIZE : size;
+            this.binary = binary;
         }
     }
 
@@ -271,171 +763,517 @@ public final class DataImporter extends AbstractSingleNodeImporter {
         protected final ImportExportErrorService errorService;
         protected final String tableName;
 
+        // index of the parameter bound next, 1 based
         private int col;
-        // this list is zero based
-        private final List<String> columnNames;
         protected final PreparedStatement ps;
-        // indices into this list are 1 based -- values of -1 indicate that we don't know the max length and assume there is no limit
-        // e.g. HSQL doesn't provide sizes
-        private final List<Integer> maxColumnSize;
-
-        public BaseInserter(ImportExportErrorService errorService, String tableName, List<String> columnNames, PreparedStatement ps, List<Integer> maxColumnSize) {
+        // binder of each column, this array is zero based
+        protected final ColumnBinder[] binders;
+        // approximate size of the values bound for the current row
+        protected long rowBytes;
+        // spooled values bound since the statement was last executed, released once executed
+        private final List<Spooled> spooled = newArrayList();
+
+        public BaseInserter(ImportExportErrorService errorService, String tableName, PreparedStatement ps, ColumnBinder[] binders) {
             this.errorService = checkNotNull(errorService);
             this.tableName = tableName;
-            this.columnNames = columnNames;
             this.ps = ps;
-            this.maxColumnSize = maxColumnSize;
+            this.binders = checkNotNull(binders);
             col = 1;
         }
 
-        private void setBoolean(Boolean value, DatabaseInformations.Database.Type databaseType) throws SQLException {
-            if (value == null) {
-                if (databaseType == DatabaseInformations.Database.Type.ORACLE) {
-                    // Oracle stores booleans as NUMERICs with a precision of 1
-                    ps.setNull(col, Types.NUMERIC);
-                } else if (databaseType == DatabaseInformations.Database.Type.MSSQL) {
-                    // SQL Server stores booleans as BITs
-                    ps.setNull(col, Types.BIT);
-                } else {
-                    ps.setNull(col, Types.BOOLEAN);
-                }
-                // Derby stores booleans as SMALLINTs with a precision of 1 but is currently not being supported
-            } else {
-                if (databaseType == DatabaseInformations.Database.Type.ORACLE) {
-                    // Oracle stores booleans as NUMERICs with a precision of 1
-                    ps.setObject(col, value, Types.NUMERIC, 1);
-                } else {
-                    // setBoolean also handles BITs which are used by SQL Server
-                    ps.setBoolean(col, value);
-                }
-            }
+        public void setValue(NodeParser node) throws SQLException {
+            final FieldType type = binders[col - 1].typeOf(node);
+            setValue(type, type.read(node));
         }
 
-        private void setString(String value) throws SQLException {
-            if (value == null) {
-                ps.setNull(col, Types.VARCHAR);
-            } else {
-                int maxSize = maxColumnSize.get(col);
-                if (maxSize != -1 && value.length() > maxSize) {
-                    throw errorService.newImportExportException(tableName, "Could not import data in table '" + tableName + "' column #" + col + ", value is too big for column which size limit is " + maxSize + ", value is:\n" + value + "\n");
-                }
-                ps.setString(col, value);
-            }
-        }
-
-        private void setDate(Date value) throws SQLException {
-            if (value == null) {
-                ps.setNull(col, Types.TIMESTAMP);
-            } else {
-                ps.setTimestamp(col, new Timestamp(value.getTime()));
-            }
-        }
-
-        private void setBigInteger(BigInteger value) throws SQLException {
-            if (value == null) {
-                ps.setNull(col, Types.BIGINT);
-            } else {
-                ps.setBigDecimal(col, new BigDecimal(value));
-            }
-        }
-
-        private void setBigDecimal(BigDecimal value) throws SQLException {
-            if (value == null) {
-                ps.setNull(col, Types.DOUBLE);
-            } else {
-                ps.setBigDecimal(col, value);
+        public void setValue(FieldType type, Object value) throws SQLException {
+            if (value instanceof Spooled) {
+                spooled.add((Spooled) value);
             }
+            binders[col - 1].bind(ps, type, value);
+            rowBytes += type.estimateSize(value);
+            col++;
         }
 
-        public void setValue(NodeParser node, DatabaseInformation databaseInformation) throws SQLException {
-            DatabaseInformations.Database.Type databaseType = DatabaseInformations.database(databaseInformation).getType();
-
-            if (RowDataNode.isString(node)) {
-                setString(node.getContentAsString());
-            } else if (RowDataNode.isBoolean(node)) {
-                setBoolean(node.getContentAsBoolean(), databaseType);
-            } else if (RowDataNode.isInteger(node)) {
-                final BigInteger bigInt = node.getContentAsBigInteger();
-                if (bigInt != null && maxColumnSize.get(col) == 1)
-                // this is actually a boolean that was stored as an Integer!
-                // Happens with legacy Oracle.
-                {
-                    setBoolean((bigInt.intValue() == 1), databaseType);
-                } else {
-                    setBigInteger(bigInt);
-                }
-            } else if (RowDataNode.isDouble(node)) {
-                setBigDecimal(node.getContentAsBigDecimal());
-            } else if (RowDataNode.isDate(node)) {
-                setDate(node.getContentAsDate());
-            } else {
-                throw new IllegalArgumentException("Unsupported field encountered: " + node.getName());
+        protected final void releaseSpooled() {
+            for (Spooled value : spooled) {
+                value.release();
             }
-            col++;
+            spooled.clear();
         }
 
         public final void execute() throws SQLException {
             executePS();
             col = 1;
+            rowBytes = 0;
         }
 
         protected abstract void executePS() throws SQLException;
     }
 
     private static class ImmediateInserter extends BaseInserter {
-        private ImmediateInserter(ImportExportErrorService errorService, String table, List<String> columns, PreparedStatement ps, List<Integer> maxColumnSize) {
-            super(errorService, table, columns, ps, maxColumnSize);
+        private ImmediateInserter(ImportExportErrorService errorService, String table, PreparedStatement ps, ColumnBinder[] binders) {
+            super(errorService, table, ps, binders);
         }
 
         protected void executePS() throws SQLException {
-            ps.execute();
+            try {
+                ps.execute();
+            } finally {
+                releaseSpooled();
+            }
+        }
+
+        public void finish() {
         }
 
         public void close() {
+            releaseSpooled();
             closeQuietly(ps);
         }
     }
 
+    /**
+     * <p>Executes rows in batches {@link AdaptiveBatchSize sized} by how long the database takes to execute them and by
+     * the approximate size of their values, and commits every {@link BatchSizing#getCommitInterval() commit interval}
+     * rows.</p>
+     * <p>In tolerant mode, i.e. with {@link RejectedRows rejected rows}, the rows of the batch are kept until it is
+     * executed, and each batch is executed after a savepoint. When a batch fails, the connection is rolled back to the
+     * savepoint and both halves of the batch are executed again, recursively, until the failing rows are isolated and
+     * rejected.</p>
+     */
     private static class BatchInserter extends BaseInserter {
-        private final int batchSize;
-        private int batch;
+        private final AdaptiveBatchSize batchSize;
+        private final int commitInterval;
+        private final TableProgress progress;
+        private final List<String> columns;
+        private final RejectedRows rejects;
+        // rows of the batch, only kept in tolerant mode
+        private final List<Row> batch = newArrayList();
+        private Row row;
+        private int rowCol;
+        private int batchRows;
+        private long batchBytes;
+        private int uncommittedRows;
+
+        private BatchInserter(ImportExportErrorService errorService, String table, PreparedStatement ps, ColumnBinder[] binders, BatchSizing batchSizing, TableProgress progress,
+                              List<String> columns, RejectedRows rejects) {
+            super(errorService, table, ps, binders);
+            batchSize = new AdaptiveBatchSize(batchSizing);
+            commitInterval = batchSizing.getCommitInterval();
+            this.progress = checkNotNull(progress);
+            this.columns = checkNotNull(columns);
+            this.rejects = rejects; // maybe null
+            this.row = rejects != null ? new Row(binders.length) : null;
+        }
 
-        private BatchInserter(ImportExportErrorService errorService, String table, List<String> columns, PreparedStatement ps, List<Integer> maxColumnSize) {
-            super(errorService, table, columns, ps, maxColumnSize);
-            batchSize = 5000;
-            batch = 0;
+        @Override
+        public void setValue(FieldType type, Object value) throws SQLException {
+            if (rejects != null) {
+                row.types[rowCol] = type;
+                row.values[rowCol] = value;
+                rowCol++;
+            }
+            super.setValue(type, value);
         }
 
         protected void executePS() throws SQLException {
             ps.addBatch();
-            if ((++batch) % batchSize == 0) {
+            if (rejects != null) {
+                batch.add(row);
+                row = new Row(binders.length);
+                rowCol = 0;
+            }
+            batchRows++;
+            batchBytes += rowBytes;
+            if (batchSize.isFull(batchRows, batchBytes)) {
                 flush();
-                batch = 0;
             }
         }
 
         private void flush() {
-            if (batch == 0) {
+            if (batchRows == 0) {
                 return;
             }
+            // number of the first row of the batch in the data of the table
+            final long firstRow = progress.getCommittedRows() + uncommittedRows;
+            try {
+                final long start = System.nanoTime();
+                if (rejects == null) {
+                    executeBatch(firstRow);
+                    batchSize.flushed(batchRows, batchBytes, System.nanoTime() - start);
+                } else if (executeOrBisect(0, batch.size(), firstRow)) {
+                    // the time taken by bisected batches does not tell how large batches should be
+                    batchSize.flushed(batchRows, batchBytes, System.nanoTime() - start);
+                }
+                uncommittedRows += batchRows;
+                batchRows = 0;
+                batchBytes = 0;
+                batch.clear();
+                if (uncommittedRows >= commitInterval) {
+                    commit();
+                }
+            } catch (SQLException e) {
+                throw errorService.newImportExportSqlException(tableName, "", e);
+            } finally {
+                releaseSpooled();
+            }
+        }
+
+        /**
+         * Executes the batch, telling which row failed when the driver reports it.
+         */
+        private void executeBatch(long firstRow) throws SQLException {
+            final int[] results;
+            try {
+                results = ps.executeBatch();
+            } catch (BatchUpdateException e) {
+                // drivers stopping at the first failure report the update counts of the rows before it
+                final int[] counts = e.getUpdateCounts();
+                if (counts != null && counts.length < batchRows) {
+                    throw errorService.newRowImportSqlException(tableName, firstRow + counts.length, e);
+                }
+                throw e;
+            }
+            for (int i = 0; i < results.length; i++) {
+                if (results[i] == Statement.EXECUTE_FAILED) {
+                    throw errorService.newRowImportSqlException(tableName, firstRow + i, new SQLException("SQL batch insert failed."));
+                }
+            }
+        }
+
+        /**
+         * Executes the rows of the batch added to the statement, bisecting them if that fails.
+         *
+         * @param from index in the batch of the first row added to the statement
+         * @param to   index in the batch of the row following the last row added to the statement
+         * @return whether the rows were executed at once
+         */
+        private boolean executeOrBisect(int from, int to, long firstRow) throws SQLException {
+            final Connection connection = ps.getConnection();
+            final Savepoint savepoint = connection.setSavepoint();
             try {
                 for (int result : ps.executeBatch()) {
                     if (result == Statement.EXECUTE_FAILED) {
                         throw new SQLException("SQL batch insert failed.");
                     }
                 }
-                ps.getConnection().commit();
+                releaseQuietly(connection, savepoint);
+                return true;
+            } catch (SQLException e) {
+                connection.rollback(savepoint);
+                ps.clearBatch();
+                if (to - from == 1) {
+                    reject(from, firstRow, e);
+                } else {
+                    final int middle = (from + to) >>> 1;
+                    addBatch(from, middle);
+                    executeOrBisect(from, middle, firstRow);
+                    addBatch(middle, to);
+                    executeOrBisect(middle, to, firstRow);
+                }
+                return false;
+            }
+        }
+
+        private void addBatch(int from, int to) throws SQLException {
+            for (int i = from; i < to; i++) {
+                final Row batchRow = batch.get(i);
+                for (int c = 0; c < binders.length; c++) {
+                    binders[c].bind(ps, batchRow.types[c], batchRow.values[c]);
+                }
+                ps.addBatch();
+            }
+        }
+
+        private void reject(int index, long firstRow, SQLException e) {
+            final long rowNum = firstRow + index;
+            // some drivers only tell why the batch failed in the next exception
+            final SQLException cause = e.getNextException() != null ? e.getNextException() : e;
+            if (!rejects.reject(tableName, rowNum, columns, batch.get(index).values, cause)) {
+                throw errorService.newRowImportSqlException(tableName, rowNum, cause);
+            }
+        }
+
+        private static void releaseQuietly(Connection connection, Savepoint savepoint) {
+            try {
+                connection.releaseSavepoint(savepoint);
+            } catch (SQLException e) {
+                // not supported by all databases, savepoints are released when committing anyway
+            }
+        }
+
+        private void commit() throws SQLException {
+            ps.getConnection().commit();
+            progress.committed(uncommittedRows);
+            uncommittedRows = 0;
+        }
+
+        public void finish() {
+            flush();
+            try {
+                if (uncommittedRows > 0) {
+                    commit();
+                }
             } catch (SQLException e) {
                 throw errorService.newImportExportSqlException(tableName, "", e);
             }
         }
 
         public void close() {
-            flush();
+            batch.clear();
+            releaseSpooled();
             closeQuietly(ps);
         }
     }
 
+    /**
+     * Inserts rows several at a time with {@link MultiRowInsert multi-row statements}, each statement inserting as many
+     * rows as the database accepts parameters for, the remaining rows being inserted by a statement of their own when
+     * finishing. A statement is executed early, with fewer rows, once the approximate size of its values would exceed
+     * the {@link BatchSizing#getMaxBytes() byte budget} of batches or the {@link MultiRowInsert#getMaxBytes() limit}
+     * of the database. Commits every {@link BatchSizing#getCommitInterval() commit interval} rows.
+     */
+    private static class MultiRowInserter implements Inserter {
+        private final ImportExportErrorService errorService;
+        private final String tableName;
+        private final Connection connection;
+        private final ColumnBinder[] binders;
+        private final MultiRowInsert insert;
+        private final String quotedTableName;
+        private final String columnList;
+        private final int rowsPerStatement;
+        private final long maxBytes;
+        private final int commitInterval;
+        private final TableProgress progress;
+        // values of the rows not inserted yet, row after row
+        private final FieldType[] types;
+        private final Object[] values;
+        private int col;
+        private int rows;
+        // approximate size of the values of the rows not inserted yet, and of the row being read
+        private long bytes;
+        private long rowBytes;
+        private int uncommittedRows;
+        private PreparedStatement ps;
+
+        private MultiRowInserter(ImportExportErrorService errorService, String tableName, Connection connection, ColumnBinder[] binders,
+                                 MultiRowInsert insert, String quotedTableName, String columnList, BatchSizing batchSizing, TableProgress progress) {
+            this.errorService = checkNotNull(errorService);
+            this.tableName = tableName;
+            this.connection = checkNotNull(connection);
+            this.binders = checkNotNull(binders);
+            this.insert = checkNotNull(insert);
+            this.quotedTableName = checkNotNull(quotedTableName);
+            this.columnList = checkNotNull(columnList);
+            this.rowsPerStatement = Math.min(insert.getRowsPerStatement(binders.length), batchSizing.getMaxRows());
+            this.maxBytes = Math.min(insert.getMaxBytes(), batchSizing.getMaxBytes());
+            this.commitInterval = batchSizing.getCommitInterval();
+            this.progress = checkNotNull(progress);
+            this.types = new FieldType[rowsPerStatement * binders.length];
+            this.values = new Object[rowsPerStatement * binders.length];
+        }
+
+        public void setValue(NodeParser node) throws SQLException {
+            final FieldType type = binders[col].typeOf(node);
+            setValue(type, type.read(node));
+        }
+
+        public void setValue(FieldType type, Object value) throws SQLException {
+            final int i = rows * binders.length + col;
+            types[i] = type;
+            values[i] = value;
+            rowBytes += type.estimateSize(value);
+            col++;
+        }
+
+        public void execute() throws SQLException {
+            col = 0;
+            if (rows > 0 && bytes + rowBytes > maxBytes) {
+                // the row read starts the next statement
+                final int offset = rows * binders.length;
+                insertRows();
+                System.arraycopy(types, offset, types, 0, binders.length);
+                System.arraycopy(values, offset, values, 0, binders.length);
+            }
+            rows++;
+            bytes += rowBytes;
+            rowBytes = 0;
+            if (rows == rowsPerStatement) {
+                insertRows();
+            }
+        }
+
+        /**
+         * Inserts the rows read so far, with the statement prepared once for full statements, or with a statement of
+         * their own.
+         */
+        private void insertRows() {
+            // number of the first row inserted in the data of the table
+            final long firstRow = progress.getCommittedRows() + uncommittedRows;
+            try {
+                if (rows == rowsPerStatement) {
+                    if (ps == null) {
+                        ps = preparedStatement(errorService, tableName, connection, insert.render(quotedTableName, columnList, binders.length, rows));
+                    }
+                    insertRows(ps);
+                } else {
+                    final PreparedStatement statement = preparedStatement(errorService, tableName, connection, insert.render(quotedTableName, columnList, binders.length, rows));
+                    try {
+                        insertRows(statement);
+                    } finally {
+                        closeQuietly(statement);
+                    }
+                }
+            } catch (SQLException e) {
+                throw errorService.newImportExportSqlException(tableName,
+                        "Could not insert rows " + firstRow + " to " + (firstRow + rows - 1) + " with a single statement of about " + bytes + " bytes", e);
+            } finally {
+                releaseRows();
+            }
+            uncommittedRows += rows;
+            rows = 0;
+            bytes = 0;
+            if (uncommittedRows >= commitInterval) {
+                commit();
+            }
+        }
+
+        private void insertRows(PreparedStatement statement) throws SQLException {
+            for (int row = 0; row < rows; row++) {
+                final int offset = row * binders.length;
+                for (int c = 0; c < binders.length; c++) {
+                    binders[c].bind(statement, offset, types[offset + c], values[offset + c]);
+                }
+            }
+            statement.executeUpdate();
+        }
+
+        private void commit() {
+            try {
+                connection.commit();
+            } catch (SQLException e) {
+                throw errorService.newImportExportSqlException(tableName,
+                        "Could not commit rows " + progress.getCommittedRows() + " to " + (progress.getCommittedRows() + uncommittedRows - 1), e);
+            }
+            progress.committed(uncommittedRows);
+            uncommittedRows = 0;
+        }
+
+        public void finish() {
+            if (rows > 0) {
+                insertRows();
+            }
+            if (uncommittedRows > 0) {
+                commit();
+            }
+        }
+
+        public void close() {
+            releaseRows();
+            closeQuietly(ps);
+        }
+
+        /**
+         * Releases the values of the rows not inserted yet, and of the row being read.
+         */
+        private void releaseRows() {
+            for (int i = 0; i < rows * binders.length + col; i++) {
+                if (values[i] instanceof Spooled) {
+                    ((Spooled) values[i]).release();
+                }
+                values[i] = null;
+            }
+        }
+    }
+
+    /**
+     * Loads rows through the native bulk path of the database, values being checked against the columns as they would
+     * be when bound to a statement.
+     */
+    private static class BulkInserter implements Inserter {
+        private final ImportExportErrorService errorService;
+        private final String tableName;
+        private final ColumnBinder[] binders;
+        private final BulkLoader.Load load;
+        private final Object[] values;
+        // index of the value set next, 0 based
+        private int col;
+        private boolean finished;
+
+        private BulkInserter(ImportExportErrorService errorService, String tableName, ColumnBinder[] binders, BulkLoader.Load load) {
+            this.errorService = checkNotNull(errorService);
+            this.tableName = tableName;
+            this.binders = checkNotNull(binders);
+            this.load = checkNotNull(load);
+            this.values = new Object[binders.length];
+        }
+
+        public void setValue(NodeParser node) throws SQLException {
+            final FieldType type = binders[col].typeOf(node);
+            setValue(type, type.read(node));
+        }
+
+        public void setValue(FieldType type, Object value) throws SQLException {
+            try {
+                values[col] = binders[col].normalize(type, value);
+            } finally {
+                // large text is read back as a string, bulk loaders take text
+                if (value instanceof Spooled) {
+                    ((Spooled) value).release();
+                }
+            }
+            col++;
+        }
+
+        public void execute() throws SQLException {
+            load.addRow(values);
+            col = 0;
+        }
+
+        public void finish() {
+            try {
+                load.finish();
+                finished = true;
+            } catch (SQLException e) {
+                throw errorService.newImportExportSqlException(tableName, "Could not load rows in bulk", e);
+            }
+        }
+
+        public void close() {
+            if (!finished) {
+                load.abort();
+            }
+        }
+    }
+
+    /**
+     * Counts the rows of a table committed, from the start of its data in the backup, and records them in the
+     * {@link RestoreCheckpoint restore checkpoint} if any.
+     */
+    private static final class TableProgress {
+        private final String table;
+        private final RestoreCheckpoint checkpoint;
+        private long committedRows;
+
+        TableProgress(String table, RestoreCheckpoint checkpoint, long restoredRows) {
+            this.table = checkNotNull(table);
+            this.checkpoint = checkpoint; // maybe null
+            this.committedRows = restoredRows;
+        }
+
+        long getCommittedRows() {
+            return committedRows;
+        }
+
+        void committed(int rows) {
+            committedRows += rows;
+            if (checkpoint != null) {
+                checkpoint.rowsRestored(table, committedRows);
+            }
+        }
+    }
+
     public static interface AroundTableImporter {
         void before(ImportConfiguration configuration, Context context, String table, Connection connection);
 
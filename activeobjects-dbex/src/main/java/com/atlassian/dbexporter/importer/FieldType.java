@@ -0,0 +1,110 @@
+package com.atlassian.dbexporter.importer;
+
+import com.atlassian.dbexporter.node.NodeParser;
+
+import static com.atlassian.dbexporter.node.NodeBackup.RowDataNode;
+
+/**
+ * The types of field of a row node.
+ */
+enum FieldType {
+    STRING {
+        /**
+         * @return the {@link String}, or the {@link TextValue} of large strings which must be released once bound
+         * and executed.
+         */
+        @Override
+        Object read(NodeParser node) {
+            return TextValue.read(node);
+        }
+
+        @Override
+        long estimateSize(Object value) {
+            if (value instanceof TextValue) {
+                return VALUE_OVERHEAD + 2L * ((TextValue) value).length();
+            }
+            return value != null ? VALUE_OVERHEAD + 2L * ((String) value).length() : VALUE_OVERHEAD;
+        }
+    },
+    BOOLEAN {
+        @Override
+        Object read(NodeParser node) {
+            return node.getContentAsBoolean();
+        }
+    },
+    INTEGER {
+        /**
+         * @return the {@link Long}, or the {@link java.math.BigInteger} of the rare values beyond the range of long,
+         * such as those of numeric columns without a precision.
+         */
+        @Override
+        Object read(NodeParser node) {
+            return node.getContentAsInteger();
+        }
+    },
+    DOUBLE {
+        /**
+         * @return the {@link Double}, as doubles are what was exported.
+         */
+        @Override
+        Object read(NodeParser node) {
+            return node.getContentAsDouble();
+        }
+    },
+    DATE {
+        @Override
+        Object read(NodeParser node) {
+            return node.getContentAsDate();
+        }
+    },
+    BINARY {
+        /**
+         * @return the {@link BinaryValue}, which must be released once bound and executed.
+         */
+        @Override
+        Object read(NodeParser node) {
+            return BinaryValue.read(node);
+        }
+
+        /**
+         * Counts the whole length of the value, even when spooled to a file, as drivers commonly buffer streams until
+         * the batch is executed.
+         */
+        @Override
+        long estimateSize(Object value) {
+            return value != null ? VALUE_OVERHEAD + ((BinaryValue) value).length() : VALUE_OVERHEAD;
+        }
+    };
+
+    private static final int VALUE_OVERHEAD = 16;
+
+    /**
+     * Reads the value of a field node of this type, the node is left on the end of the field.
+     */
+    abstract Object read(NodeParser node);
+
+    /**
+     * @return the approximate memory held by a bound value of this type, for sizing batches.
+     */
+    long estimateSize(Object value) {
+        return VALUE_OVERHEAD;
+    }
+
+    static FieldType of(NodeParser node) {
+        if (RowDataNode.isString(node)) {
+            return STRING;
+        } else if (RowDataNode.isBoolean(node)) {
+            return BOOLEAN;
+        } else if (RowDataNode.isInteger(node)) {
+            return INTEGER;
+        } else if (RowDataNode.isDouble(node)) {
+            return DOUBLE;
+        } else if (RowDataNode.isDate(node)) {
+            return DATE;
+        } else if (RowDataNode.isBinary(node)) {
+            return BINARY;
+        } else {
+            throw new IllegalArgumentException("Unsupported field encountered: " + node.getName());
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.atlassian.dbexporter.importer;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.collect.Maps.newHashMap;
+import static com.google.common.collect.Sets.newHashSet;
+
+/**
+ * <p>A {@link RestoreCheckpoint} persisted to a file, written again every time progress is recorded, so that it
+ * survives the failure of the restore, or of the whole JVM.</p>
+ * <p>The checkpoint holds the fingerprint of the backup it records the restore of. When opened for a backup with
+ * another fingerprint, the recorded progress is ignored and the restore starts from scratch. The file is deleted
+ * once the restore completes.</p>
+ */
+public final class FileRestoreCheckpoint implements RestoreCheckpoint {
+    private static final Logger logger = LoggerFactory.getLogger(FileRestoreCheckpoint.class);
+
+    private static final String FINGERPRINT = "fingerprint";
+    private static final String RESTORED_PREFIX = "restored.";
+    private static final String ROWS_PREFIX = "rows.";
+    private static final int FINGERPRINT_SAMPLE_BYTES = 1024 * 1024;
+
+    private final File file;
+    private final String fingerprint;
+    private final boolean resuming;
+    private final Set<String> restoredTables;
+    private final Map<String, Long> restoredRows;
+
+    private FileRestoreCheckpoint(File file, String fingerprint, Set<String> restoredTables, Map<String, Long> restoredRows) {
+        this.file = checkNotNull(file);
+        this.fingerprint = checkNotNull(fingerprint);
+        this.restoredTables = restoredTables;
+        this.restoredRows = restoredRows;
+        this.resuming = !restoredTables.isEmpty() || !restoredRows.isEmpty();
+    }
+
+    /**
+     * Opens the checkpoint of the restore of a backup, resuming the progress recorded in the file if it was recorded
+     * for the same backup.
+     *
+     * @param file        the file of the checkpoint, created as soon as progress is recorded
+     * @param fingerprint the fingerprint of the backup being restored, see {@link #fingerprint(File)}
+     */
+    public static FileRestoreCheckpoint open(File file, String fingerprint) throws IOException {
+        final Set<String> restoredTables = newHashSet();
+        final Map<String, Long> restoredRows = newHashMap();
+        if (file.exists()) {
+            final Properties properties = load(file);
+            if (fingerprint.equals(properties.getProperty(FINGERPRINT))) {
+                for (String key : properties.stringPropertyNames()) {
+                    if (key.startsWith(RESTORED_PREFIX)) {
+                        restoredTables.add(key.substring(RESTORED_PREFIX.length()));
+                    } else if (key.startsWith(ROWS_PREFIX)) {
+                        restoredRows.put(key.substring(ROWS_PREFIX.length()), Long.valueOf(properties.getProperty(key)));
+                    }
+                }
+                logger.info("Resuming restore from checkpoint {}, {} table(s) already restored", file, restoredTables.size());
+            } else {
+                logger.info("Ignoring checkpoint {}, it was recorded for another backup", file);
+            }
+        }
+        return new FileRestoreCheckpoint(file, fingerprint, restoredTables, restoredRows);
+    }
+
+    /**
+     * Computes the fingerprint of a backup file from its length and its first and last megabyte, which tells apart
+     * different backups without reading through multi-gigabyte files.
+     */
+    public static String fingerprint(File backup) throws IOException {
+        final RandomAccessFile input = new RandomAccessFile(backup, "r");
+        try {
+            final long length = input.length();
+            final Hasher hasher = Hashing.sha256().newHasher().putLong(length);
+            final byte[] sample = new byte[(int) Math.min(FINGERPRINT_SAMPLE_BYTES, length)];
+            input.readFully(sample);
+            hasher.putBytes(sample);
+            input.seek(length - sample.length);
+            input.readFully(sample);
+            hasher.putBytes(sample);
+            return hasher.hash().toString();
+        } finally {
+            input.close();
+        }
+    }
+
+    @Override
+    public boolean isResuming() {
+        return resuming;
+    }
+
+    @Override
+    public synchronized boolean isTableRestored(String table) {
+        return restoredTables.contains(checkNotNull(table));
+    }
+
+    @Override
+    public synchronized long getRestoredRows(String table) {
+        final Long rows = restoredRows.get(checkNotNull(table));
+        return rows != null ? rows : 0L;
+    }
+
+    @Override
+    public synchronized void rowsRestored(String table, long rows) {
+        restoredRows.put(checkNotNull(table), rows);
+        save();
+    }
+
+    @Override
+    public synchronized void tableRestored(String table) {
+        restoredRows.remove(checkNotNull(table));
+        restoredTables.add(table);
+        save();
+    }
+
+    @Override
+    public synchronized void restoreCompleted() {
+        restoredTables.clear();
+        restoredRows.clear();
+        if (file.exists() && !file.delete()) {
+            logger.warn("Could not delete restore checkpoint {}", file);
+        }
+    }
+
+    /**
+     * Writes the checkpoint to a file next to the checkpoint file, then renames it over, so that a failure while
+     * writing never leaves a truncated checkpoint.
+     */
+    private void save() {
+        final Properties properties = new Properties();
+        properties.setProperty(FINGERPRINT, fingerprint);
+        for (String table : restoredTables) {
+            properties.setProperty(RESTORED_PREFIX + table, Boolean.TRUE.toString());
+        }
+        for (Map.Entry<String, Long> rows : restoredRows.entrySet()) {
+            properties.setProperty(ROWS_PREFIX + rows.getKey(), rows.getValue().toString());
+        }
+
+        final File temp = new File(file.getPath() + ".tmp");
+        try {
+            final OutputStream output = new FileOutputStream(temp);
+            try {
+                properties.store(output, "Active Objects restore checkpoint");
+            } finally {
+                output.close();
+            }
+            // renaming over an existing file fails on some platforms
+            if (!temp.renameTo(file) && !(file.delete() && temp.renameTo(file))) {
+                throw new IOException("Could not rename " + temp + " to " + file);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not save restore checkpoint to " + file, e);
+        }
+    }
+
+    private static Properties load(File file) throws IOException {
+        final Properties properties = new Properties();
+        final InputStream input = new FileInputStream(file);
+        try {
+            properties.load(input);
+        } finally {
+            input.close();
+        }
+        return properties;
+    }
+}
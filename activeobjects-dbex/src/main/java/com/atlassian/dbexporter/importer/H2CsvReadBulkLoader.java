@@ -0,0 +1,123 @@
+package com.atlassian.dbexporter.importer;
+
+import com.atlassian.dbexporter.DatabaseInformations.Database;
+import com.atlassian.dbexporter.ImportExportErrorService;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+import static com.atlassian.dbexporter.jdbc.JdbcUtils.closeQuietly;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * <p>Loads rows into H2 with {@code INSERT INTO ... SELECT * FROM CSVREAD(...)}, the rows of the table being written
+ * to a temporary CSV file first.</p>
+ * <p>The file is read by the database, so this only works with embedded databases (and servers on the same host),
+ * connections to remote servers fall back to JDBC batches.</p>
+ */
+final class H2CsvReadBulkLoader extends BulkLoader {
+    private static final String[] REMOTE_URL_PREFIXES = {"jdbc:h2:tcp:", "jdbc:h2:ssl:"};
+
+    H2CsvReadBulkLoader() {
+        super(Database.Type.H2);
+    }
+
+    @Override
+    public boolean isSupported(Connection connection) {
+        try {
+            final String url = connection.getMetaData().getURL();
+            for (String prefix : REMOTE_URL_PREFIXES) {
+                if (url == null || url.startsWith(prefix)) {
+                    return false;
+                }
+            }
+            return true;
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    @Override
+    Load begin(ImportExportErrorService errorService, Connection connection, String schema, String table, List<String> columns, long maxBufferedBytes) throws SQLException {
+        final StringBuilder csvColumns = new StringBuilder();
+        for (int i = 1; i <= columns.size(); i++) {
+            csvColumns.append(i > 1 ? ",C" : "C").append(i);
+        }
+        try {
+            final File file = File.createTempFile("ao-import-", ".csv");
+            final String sql = "INSERT INTO " + tableName(errorService, connection, schema, table)
+                    + " (" + columnList(errorService, connection, table, columns) + ")"
+                    + " SELECT * FROM CSVREAD('" + file.getAbsolutePath().replace("'", "''") + "', '" + csvColumns + "', 'charset=UTF-8')";
+            return new CsvReadLoad(connection, sql, file);
+        } catch (IOException e) {
+            throw new SQLException("Could not create temporary file to load table " + table, e);
+        }
+    }
+
+    private static final class CsvReadLoad implements Load {
+        private final Connection connection;
+        private final String sql;
+        private final File file;
+        private final Writer writer;
+        private final StringBuilder text = new StringBuilder();
+
+        CsvReadLoad(Connection connection, String sql, File file) throws IOException {
+            this.connection = checkNotNull(connection);
+            this.sql = checkNotNull(sql);
+            this.file = checkNotNull(file);
+            this.writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), "UTF-8"));
+        }
+
+        @Override
+        public void addRow(Object[] values) throws SQLException {
+            BulkText.appendCsv(text, values);
+            try {
+                writer.append(text);
+            } catch (IOException e) {
+                throw new SQLException("Could not write rows to " + file, e);
+            }
+            text.setLength(0);
+        }
+
+        @Override
+        public void finish() throws SQLException {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                throw new SQLException("Could not write rows to " + file, e);
+            }
+
+            final Statement statement = connection.createStatement();
+            try {
+                statement.execute(sql);
+            } finally {
+                closeQuietly(statement);
+                delete();
+            }
+        }
+
+        @Override
+        public void abort() {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                // the file is deleted anyway
+            }
+            delete();
+        }
+
+        private void delete() {
+            if (!file.delete()) {
+                file.deleteOnExit();
+            }
+        }
+    }
+}
@@ -3,7 +3,9 @@ package com.atlassian.dbexporter.importer;
 import com.atlassian.dbexporter.BatchMode;
 import com.atlassian.dbexporter.CleanupMode;
 import com.atlassian.dbexporter.DatabaseInformation;
+import com.atlassian.dbexporter.DatabaseInformations.Database;
 import com.atlassian.dbexporter.ImportExportConfiguration;
+import com.google.common.base.Predicate;
 
 public interface ImportConfiguration extends ImportExportConfiguration {
     /**
@@ -22,4 +24,56 @@ public interface ImportConfiguration extends ImportExportConfiguration {
     CleanupMode getCleanupMode();
 
     BatchMode getBatchMode();
+
+    /**
+     * Which of the tables of the backup are imported, the others are neither created nor filled. This allows
+     * restoring only part of a backup, e.g. the tables of a single plugin.
+     *
+     * @return the filter on (processed) table names, {@code null} to import all tables.
+     */
+    Predicate<String> getTableFilter();
+
+    /**
+     * The number of worker connections loading table data concurrently, one table per worker. Rows are parsed on the
+     * calling thread and handed over to the workers in bounded batches.
+     *
+     * @return the number of import workers, {@code 1} or less means tables are imported sequentially on a single
+     * connection.
+     */
+    int getWorkerCount();
+
+    /**
+     * How rows are grouped into batches and commits when the {@link #getBatchMode() batch mode} is on.
+     *
+     * @return the batch sizing, {@code null} for the {@link BatchSizing#defaults() defaults}.
+     */
+    BatchSizing getBatchSizing();
+
+    /**
+     * How rows are loaded when the {@link #getBatchMode() batch mode} is on, if not with JDBC batches. Implementations
+     * will usually return {@link BulkLoader#forDatabase(Database.Type) the loader for the database}.
+     *
+     * @param databaseType the type of the database being imported into
+     * @return the bulk loader, {@code null} to insert rows with JDBC batches.
+     */
+    BulkLoader getBulkLoader(Database.Type databaseType);
+
+    /**
+     * Where progress is recorded as table data is committed, so that an interrupted restore can resume. Tables the
+     * checkpoint records as restored are skipped, and the rows it records as committed are skipped in the backup
+     * rather than inserted again.
+     *
+     * @return the restore checkpoint, {@code null} not to record progress.
+     */
+    RestoreCheckpoint getRestoreCheckpoint();
+
+    /**
+     * Where rows that cannot be inserted are written, in tolerant mode. When a batch fails, it is split in halves that
+     * are inserted again, recursively, until the failing rows are isolated and rejected. Batches are then always
+     * inserted with JDBC batches, rather than with the {@link #getBulkLoader(Database.Type) bulk loader} or
+     * multi-row statements, and rows are rejected only when the {@link #getBatchMode() batch mode} is on.
+     *
+     * @return the rejected rows, {@code null} to fail the import on the first row that cannot be inserted.
+     */
+    RejectedRows getRejectedRows();
 }
@@ -1,6 +1,7 @@
 package com.atlassian.dbexporter.importer;
 
 import com.atlassian.dbexporter.node.NodeParser;
+import com.google.common.base.Predicate;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
@@ -27,6 +28,19 @@ public final class ImporterUtils {
         return !node.isClosed() && nodeName.equals(node.getName());
     }
 
+    /**
+     * Checks whether the table is to be imported, according to the {@link ImportConfiguration#getTableFilter() table
+     * filter} of the configuration.
+     *
+     * @param configuration the import configuration
+     * @param tableName     the processed name of the table
+     * @return {@code true} if the table must be imported
+     */
+    public static boolean isTableIncluded(ImportConfiguration configuration, String tableName) {
+        final Predicate<String> tableFilter = configuration.getTableFilter();
+        return tableFilter == null || tableFilter.apply(tableName);
+    }
+
     public static void checkEndNode(NodeParser node, String nodeName) {
         checkNode(node, nodeName, node.isClosed());
     }
@@ -0,0 +1,116 @@
+package com.atlassian.dbexporter.importer;
+
+import com.atlassian.dbexporter.DatabaseInformations.Database;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * <p>Renders statements inserting several rows at once, for drivers that send each row of a JDBC batch in its own
+ * round trip. Rows are either a multi-row {@code VALUES} list, or {@code INSERT ALL} on Oracle. The number of rows
+ * of a statement is bounded by the number of bind parameters the database accepts:</p>
+ * <ul>
+ * <li>PostgreSQL: 32767 parameters,</li>
+ * <li>MySQL: 65535 parameters,</li>
+ * <li>Oracle: 65535 parameters, and at most 500 rows as {@code INSERT ALL} gets slower to parse as it grows,</li>
+ * <li>SQL Server: 2100 parameters, and at most 1000 rows in a {@code VALUES} list,</li>
+ * <li>H2: 32767 parameters,</li>
+ * <li>HSQLDB (1.8) and unknown databases don't support inserting several rows at once.</li>
+ * </ul>
+ * <p>MySQL also rejects statements larger than its {@code max_allowed_packet}, 1MB by default on MySQL 5.5 and 4MB
+ * from MySQL 5.6, so that statements are limited to about 1MB of values there.</p>
+ * <p>Instances are immutable.</p>
+ */
+final class MultiRowInsert {
+    private static final int MAX_ROWS = 1000;
+    private static final long MYSQL_MAX_BYTES = 1024 * 1024;
+
+    private final Database.Type databaseType;
+    private final int maxParameters;
+    private final int maxRows;
+    private final long maxBytes;
+
+    private MultiRowInsert(Database.Type databaseType, int maxParameters, int maxRows, long maxBytes) {
+        this.databaseType = checkNotNull(databaseType);
+        this.maxParameters = maxParameters;
+        this.maxRows = maxRows;
+        this.maxBytes = maxBytes;
+    }
+
+    static MultiRowInsert forDatabase(Database.Type type) {
+        switch (checkNotNull(type)) {
+            case POSTGRES:
+            case H2:
+                return new MultiRowInsert(type, 32767, MAX_ROWS, Long.MAX_VALUE);
+            case MYSQL:
+                return new MultiRowInsert(type, 65535, MAX_ROWS, MYSQL_MAX_BYTES);
+            case ORACLE:
+                return new MultiRowInsert(type, 65535, 500, Long.MAX_VALUE);
+            case MSSQL:
+                // strictly less than 2100 parameters
+                return new MultiRowInsert(type, 2099, MAX_ROWS, Long.MAX_VALUE);
+            default:
+                return new MultiRowInsert(type, 0, 1, Long.MAX_VALUE);
+        }
+    }
+
+    /**
+     * @param columns the number of columns of the rows inserted
+     * @return the greatest number of rows a statement can insert, {@code 1} if rows can't be inserted several at once.
+     */
+    int getRowsPerStatement(int columns) {
+        return Math.max(1, Math.min(maxRows, maxParameters / Math.max(1, columns)));
+    }
+
+    /**
+     * @return the approximate size of the values of a statement the database accepts, {@link Long#MAX_VALUE} if only
+     * the number of parameters is bounded. A single row larger than this is still inserted on its own.
+     */
+    long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * Renders the statement inserting the given number of rows.
+     *
+     * @param tableName  the quoted, and qualified, name of the table
+     * @param columnList the comma separated list of quoted column names
+     * @param columns    the number of columns
+     * @param rows       the number of rows
+     * @return the SQL statement, parameters being the values of each row in turn.
+     */
+    String render(String tableName, String columnList, int columns, int rows) {
+        checkArgument(rows > 0, "Number of rows must be positive");
+        final String values = values(columns);
+        final StringBuilder sql = new StringBuilder();
+        if (databaseType == Database.Type.ORACLE && rows > 1) {
+            sql.append("INSERT ALL");
+            for (int i = 0; i < rows; i++) {
+                sql.append(" INTO ").append(tableName).append(" (").append(columnList).append(") VALUES ").append(values);
+            }
+            sql.append(" SELECT * FROM DUAL");
+        } else {
+            sql.append("INSERT INTO ").append(tableName).append(" (").append(columnList).append(") VALUES ");
+            for (int i = 0; i < rows; i++) {
+                if (i > 0) {
+                    sql.append(", ");
+                }
+                sql.append(values);
+            }
+        }
+        return sql.toString();
+    }
+
+    private static String values(int columns) {
+        final StringBuilder values = new StringBuilder("(");
+        for (int i = 0; i < columns; i++) {
+            values.append(i > 0 ? ", ?" : "?");
+        }
+        return values.append(")").toString();
+    }
+
+    @Override
+    public String toString() {
+        return "MultiRowInsert{databaseType=" + databaseType + ", maxParameters=" + maxParameters + ", maxRows=" + maxRows + ", maxBytes=" + maxBytes + "}";
+    }
+}
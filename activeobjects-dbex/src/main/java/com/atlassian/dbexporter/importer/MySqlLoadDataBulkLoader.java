@@ -0,0 +1,153 @@
+package com.atlassian.dbexporter.importer;
+
+import com.atlassian.dbexporter.DatabaseInformations.Database;
+import com.atlassian.dbexporter.ImportExportErrorService;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLWarning;
+import java.sql.Statement;
+import java.util.List;
+
+import static com.atlassian.dbexporter.jdbc.JdbcUtils.closeQuietly;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * <p>Loads rows into MySQL with {@code LOAD DATA LOCAL INFILE}, the file being the rows in tab separated text set as
+ * the input stream of the statement. Rows are sent in chunks of at most the maximum number of buffered bytes, each
+ * chunk being a {@code LOAD DATA} statement.</p>
+ * <p>The connection must allow local files to be loaded, with {@code allowLoadLocalInfile=true}, and the server with
+ * {@code local_infile}.</p>
+ * <p>With {@code LOCAL}, MySQL turns errors into warnings: rows with duplicate keys are skipped, and values that don't
+ * fit their column are truncated. A chunk fails unless MySQL reports as many rows loaded as were sent, without any
+ * warning.</p>
+ */
+final class MySqlLoadDataBulkLoader extends BulkLoader {
+    // connection and statement interfaces of Connector/J 5.x and 8.x respectively
+    private static final String[][] MYSQL_DRIVERS = {
+            {"com.mysql.jdbc.Connection", "com.mysql.jdbc.Statement"},
+            {"com.mysql.cj.jdbc.JdbcConnection", "com.mysql.cj.jdbc.JdbcStatement"}};
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    // warnings told in the message of the failure, MySQL reports up to max_error_count warnings
+    private static final int MAX_WARNINGS = 10;
+
+    MySqlLoadDataBulkLoader() {
+        super(Database.Type.MYSQL);
+    }
+
+    @Override
+    public boolean isSupported(Connection connection) {
+        return statementType(connection) != null;
+    }
+
+    @Override
+    Load begin(ImportExportErrorService errorService, Connection connection, String schema, String table, List<String> columns, long maxBufferedBytes) throws SQLException {
+        final Class<?> statementType = statementType(connection);
+        if (statementType == null) {
+            throw new SQLException("Connection is not a MySQL connection");
+        }
+        final String sql = "LOAD DATA LOCAL INFILE 'rows' INTO TABLE " + tableName(errorService, connection, schema, table)
+                + " CHARACTER SET utf8mb4 (" + columnList(errorService, connection, table, columns) + ")";
+        final Statement statement = connection.createStatement();
+        try {
+            return new LoadDataLoad(statementType, statement, statement.unwrap(statementType), sql, maxBufferedBytes);
+        } catch (SQLException e) {
+            closeQuietly(statement);
+            throw e;
+        }
+    }
+
+    /**
+     * @return the statement interface of the driver of the connection, {@code null} if it's not Connector/J.
+     */
+    private static Class<?> statementType(Connection connection) {
+        for (String[] driver : MYSQL_DRIVERS) {
+            if (unwrap(connection, driver[0]) != null) {
+                return driverClass(connection, driver[1]);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Checks that all the rows sent with the statement just executed were loaded, as is.
+     *
+     * @param statement the statement which executed {@code LOAD DATA}
+     * @param rows      the number of rows sent
+     * @throws SQLException if fewer rows were loaded, or any warning was raised, the warnings being its cause.
+     */
+    static void checkLoaded(Statement statement, int rows) throws SQLException {
+        final int loaded = statement.getUpdateCount();
+        // Connector/J reads the warnings with SHOW WARNINGS when the server reports any
+        final SQLWarning warnings = statement.getWarnings();
+        if (loaded == rows && warnings == null) {
+            return;
+        }
+        final StringBuilder message = new StringBuilder("LOAD DATA loaded ").append(loaded).append(" of the ").append(rows).append(" rows sent");
+        int count = 0;
+        for (SQLWarning warning = warnings; warning != null && count < MAX_WARNINGS; warning = warning.getNextWarning()) {
+            message.append(count++ == 0 ? ": " : "; ").append(warning.getMessage());
+        }
+        throw new SQLException(message.toString(), warnings != null ? warnings.getSQLState() : null, warnings);
+    }
+
+    private static final class LoadDataLoad implements Load {
+        private final Class<?> statementType;
+        private final Statement statement;
+        private final Object mysqlStatement;
+        private final String sql;
+        private final long maxBufferedBytes;
+        private final StringBuilder text = new StringBuilder();
+        // number of rows in the text
+        private int rows;
+
+        LoadDataLoad(Class<?> statementType, Statement statement, Object mysqlStatement, String sql, long maxBufferedBytes) {
+            this.statementType = checkNotNull(statementType);
+            this.statement = checkNotNull(statement);
+            this.mysqlStatement = checkNotNull(mysqlStatement);
+            this.sql = checkNotNull(sql);
+            this.maxBufferedBytes = maxBufferedBytes;
+        }
+
+        @Override
+        public void addRow(Object[] values) throws SQLException {
+            BulkText.appendTabSeparated(text, values);
+            rows++;
+            if (text.length() >= maxBufferedBytes) {
+                send();
+            }
+        }
+
+        private void send() throws SQLException {
+            if (text.length() > 0) {
+                final InputStream input = new ByteArrayInputStream(text.toString().getBytes(UTF_8));
+                final int sent = rows;
+                text.setLength(0);
+                rows = 0;
+                invoke(statementType, mysqlStatement, "setLocalInfileInputStream", new Class<?>[]{InputStream.class}, input);
+                statement.clearWarnings();
+                statement.execute(sql);
+                checkLoaded(statement, sent);
+            }
+        }
+
+        @Override
+        public void finish() throws SQLException {
+            try {
+                send();
+            } finally {
+                closeQuietly(statement);
+            }
+        }
+
+        @Override
+        public void abort() {
+            text.setLength(0);
+            rows = 0;
+            closeQuietly(statement);
+        }
+    }
+}
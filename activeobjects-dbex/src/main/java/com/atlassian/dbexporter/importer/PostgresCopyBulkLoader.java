@@ -0,0 +1,92 @@
+package com.atlassian.dbexporter.importer;
+
+import com.atlassian.dbexporter.DatabaseInformations.Database;
+import com.atlassian.dbexporter.ImportExportErrorService;
+
+import java.nio.charset.Charset;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Streams rows to PostgreSQL with {@code COPY ... FROM STDIN} in text format, through the driver's {@code CopyManager}.
+ * The driver always sets the client encoding to UTF-8.
+ */
+final class PostgresCopyBulkLoader extends BulkLoader {
+    private static final String PG_CONNECTION = "org.postgresql.PGConnection";
+    private static final String COPY_MANAGER = "org.postgresql.copy.CopyManager";
+    private static final String COPY_IN = "org.postgresql.copy.CopyIn";
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    PostgresCopyBulkLoader() {
+        super(Database.Type.POSTGRES);
+    }
+
+    @Override
+    public boolean isSupported(Connection connection) {
+        return unwrap(connection, PG_CONNECTION) != null;
+    }
+
+    @Override
+    Load begin(ImportExportErrorService errorService, Connection connection, String schema, String table, List<String> columns, long maxBufferedBytes) throws SQLException {
+        final Object pgConnection = unwrap(connection, PG_CONNECTION);
+        if (pgConnection == null) {
+            throw new SQLException("Connection is not a PostgreSQL connection");
+        }
+        final Object copyManager = invoke(driverClass(connection, PG_CONNECTION), pgConnection, "getCopyAPI", new Class<?>[0]);
+        final String sql = "COPY " + tableName(errorService, connection, schema, table)
+                + " (" + columnList(errorService, connection, table, columns) + ") FROM STDIN";
+        final Object copyIn = invoke(driverClass(connection, COPY_MANAGER), copyManager, "copyIn", new Class<?>[]{String.class}, sql);
+        return new CopyLoad(driverClass(connection, COPY_IN), copyIn);
+    }
+
+    static final class CopyLoad implements Load {
+        private final Class<?> copyInType;
+        private final Object copyIn;
+        private final StringBuilder text = new StringBuilder(CHUNK_SIZE);
+        private boolean active = true;
+
+        CopyLoad(Class<?> copyInType, Object copyIn) {
+            this.copyInType = checkNotNull(copyInType);
+            this.copyIn = checkNotNull(copyIn);
+        }
+
+        @Override
+        public void addRow(Object[] values) throws SQLException {
+            BulkText.appendTabSeparated(text, values);
+            if (text.length() >= CHUNK_SIZE) {
+                send();
+            }
+        }
+
+        private void send() throws SQLException {
+            if (text.length() > 0) {
+                final byte[] bytes = text.toString().getBytes(UTF_8);
+                invoke(copyInType, copyIn, "writeToCopy", new Class<?>[]{byte[].class, int.class, int.class}, bytes, 0, bytes.length);
+                text.setLength(0);
+            }
+        }
+
+        @Override
+        public void finish() throws SQLException {
+            send();
+            invoke(copyInType, copyIn, "endCopy", new Class<?>[0]);
+            active = false;
+        }
+
+        @Override
+        public void abort() {
+            if (active) {
+                active = false;
+                try {
+                    invoke(copyInType, copyIn, "cancelCopy", new Class<?>[0]);
+                } catch (SQLException e) {
+                    // the copy failed already
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.atlassian.dbexporter.importer;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.sql.SQLException;
+import java.util.List;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * <p>Where rows that cannot be inserted are written when importing in tolerant mode, rather than failing the import.
+ * Each rejected row is written with its table, its row number in the backup, the SQL error and its values, one column
+ * per line:</p>
+ * <pre>
+ * # AO_123456_ISSUE row 1234: value too long for type character varying(255) (SQL state 22001)
+ * ID=1235
+ * SUMMARY=...
+ * </pre>
+ * <p>Line breaks and backslashes in values are escaped, large binary and text values are only written as their
+ * length. Up to {@code maxRejects} rows are rejected, the import fails on the next row that cannot be inserted.</p>
+ * <p>This class is thread safe, as tables might be imported concurrently.</p>
+ *
+ * @see ImportConfiguration#getRejectedRows()
+ */
+public final class RejectedRows implements Closeable {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final Writer writer;
+    private final int maxRejects;
+    private int rejects;
+
+    /**
+     * @param writer     where rejected rows are written, flushed after each row
+     * @param maxRejects the maximum number of rows rejected, across all tables
+     */
+    public RejectedRows(Writer writer, int maxRejects) {
+        checkArgument(maxRejects >= 0, "Maximum number of rejected rows must not be negative");
+        this.writer = checkNotNull(writer);
+        this.maxRejects = maxRejects;
+    }
+
+    /**
+     * Opens the reject file.
+     *
+     * @param append whether rows are appended to the file, e.g. when resuming an interrupted import, rather than
+     *               replacing it
+     */
+    public static RejectedRows toFile(File file, boolean append, int maxRejects) throws IOException {
+        return new RejectedRows(new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file, append), UTF_8)), maxRejects);
+    }
+
+    /**
+     * Writes a row that cannot be inserted, unless the maximum number of rejected rows has been reached.
+     *
+     * @param table   the name of the table
+     * @param rowNum  the number of the row in the data of the table, starting from {@code 0}
+     * @param columns the names of the columns of the table
+     * @param values  the values of the row, one per column
+     * @param error   why the row cannot be inserted
+     * @return {@code false} if the row was not rejected, as too many rows have been, then the import must fail.
+     */
+    synchronized boolean reject(String table, long rowNum, List<String> columns, Object[] values, SQLException error) {
+        if (rejects == maxRejects) {
+            return false;
+        }
+        rejects++;
+        try {
+            writer.append("# ").append(table).append(" row ").append(String.valueOf(rowNum)).append(": ")
+                    .append(escape(String.valueOf(error.getMessage())))
+                    .append(" (SQL state ").append(error.getSQLState()).append(")\n");
+            for (int i = 0; i < values.length; i++) {
+                writer.append(columns.get(i)).append('=').append(format(values[i])).append('\n');
+            }
+            writer.append('\n');
+            writer.flush();
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not write rejected row " + rowNum + " of table " + table, e);
+        }
+        return true;
+    }
+
+    /**
+     * @return the number of rows rejected so far
+     */
+    public synchronized int getRejectCount() {
+        return rejects;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        writer.close();
+    }
+
+    private static String format(Object value) {
+        if (value == null) {
+            return "NULL";
+        }
+        if (value instanceof BinaryValue) {
+            return "<" + ((BinaryValue) value).length() + " bytes>";
+        }
+        if (value instanceof TextValue) {
+            return "<" + ((TextValue) value).length() + " characters>";
+        }
+        return escape(value.toString());
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\n", "\\n").replace("\r", "\\r");
+    }
+}
@@ -0,0 +1,51 @@
+package com.atlassian.dbexporter.importer;
+
+/**
+ * Records which tables have been restored, and how many rows of the tables being restored have been committed, so
+ * that an interrupted restore of the same backup can resume where it stopped, rather than clean the database and
+ * start over.
+ * <p>
+ * Implementations must be thread safe, as tables might be imported concurrently.
+ *
+ * @see ImportConfiguration#getRestoreCheckpoint()
+ */
+public interface RestoreCheckpoint {
+    /**
+     * @return whether a previous restore of the same backup recorded any progress, in which case the tables of the
+     * backup are expected to exist already and must not be cleaned.
+     */
+    boolean isResuming();
+
+    /**
+     * @param table the (processed) name of the table
+     * @return whether all the rows of the table have been committed
+     */
+    boolean isTableRestored(String table);
+
+    /**
+     * @param table the (processed) name of the table
+     * @return the number of rows of the table, counted from the start of its data in the backup, that have been
+     * committed, {@code 0} if none.
+     */
+    long getRestoredRows(String table);
+
+    /**
+     * Called once rows of a table have been committed.
+     *
+     * @param table the (processed) name of the table
+     * @param rows  the number of rows of the table committed so far, counted from the start of its data in the backup
+     */
+    void rowsRestored(String table, long rows);
+
+    /**
+     * Called once all the rows of a table have been committed.
+     *
+     * @param table the (processed) name of the table
+     */
+    void tableRestored(String table);
+
+    /**
+     * Called once the whole backup has been restored, the progress recorded so far is no longer needed.
+     */
+    void restoreCompleted();
+}
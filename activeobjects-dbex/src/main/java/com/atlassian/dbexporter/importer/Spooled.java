@@ -0,0 +1,12 @@
+package com.atlassian.dbexporter.importer;
+
+/**
+ * A value read from the backup which holds resources, memory or a temporary file, until the statement it is bound to
+ * has been executed.
+ */
+interface Spooled {
+    /**
+     * Releases the resources of the value, it can't be bound afterwards. Releasing it again has no effect.
+     */
+    void release();
+}
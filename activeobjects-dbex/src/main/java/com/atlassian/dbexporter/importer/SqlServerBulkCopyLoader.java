@@ -0,0 +1,323 @@
+package com.atlassian.dbexporter.importer;
+
+import com.atlassian.dbexporter.DatabaseInformations.Database;
+import com.atlassian.dbexporter.ImportExportErrorService;
+import com.google.common.base.Defaults;
+import com.google.common.collect.Maps;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static com.atlassian.dbexporter.jdbc.JdbcUtils.closeQuietly;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.collect.Lists.newArrayList;
+
+/**
+ * <p>Loads rows into SQL Server with the bulk copy API of the Microsoft driver ({@code SQLServerBulkCopy}), rows being
+ * held in memory up to the maximum number of buffered bytes, then written to the server as one bulk copy.</p>
+ * <p>Identity values and {@code null}s of the backup are kept as they are, rather than generated or defaulted.</p>
+ * <p>Rows are passed to {@code writeToServer} as an {@code ISQLServerBulkData}, the interface recent drivers take, or
+ * as an {@code ISQLServerBulkRecord} for older drivers, which don't have the former.</p>
+ */
+final class SqlServerBulkCopyLoader extends BulkLoader {
+    private static final String SQL_SERVER_CONNECTION = "com.microsoft.sqlserver.jdbc.SQLServerConnection";
+    private static final String BULK_COPY = "com.microsoft.sqlserver.jdbc.SQLServerBulkCopy";
+    private static final String BULK_COPY_OPTIONS = "com.microsoft.sqlserver.jdbc.SQLServerBulkCopyOptions";
+    private static final String BULK_DATA = "com.microsoft.sqlserver.jdbc.ISQLServerBulkData";
+    private static final String BULK_RECORD = "com.microsoft.sqlserver.jdbc.ISQLServerBulkRecord";
+    private static final int VALUE_OVERHEAD = 16;
+
+    SqlServerBulkCopyLoader() {
+        super(Database.Type.MSSQL);
+    }
+
+    @Override
+    public boolean isSupported(Connection connection) {
+        return unwrap(connection, SQL_SERVER_CONNECTION) != null && rowsType(connection) != null;
+    }
+
+    /**
+     * @return the type of the rows the {@code writeToServer} method of the driver's bulk copy takes, {@code null} if
+     * the driver has no bulk copy API.
+     */
+    private static Class<?> rowsType(Connection connection) {
+        final Class<?> bulkCopyType = driverClass(connection, BULK_COPY);
+        return bulkCopyType != null
+                ? writeToServerParameter(bulkCopyType, driverClass(connection, BULK_DATA), driverClass(connection, BULK_RECORD))
+                : null;
+    }
+
+    /**
+     * Finds the {@code writeToServer} method of the bulk copy taking rows of one of the given types.
+     *
+     * @param candidates the types of rows, in order of preference, {@code null} for those the driver doesn't have
+     * @return the type of the parameter of the method found, {@code null} if none takes any of the candidates.
+     */
+    static Class<?> writeToServerParameter(Class<?> bulkCopyType, Class<?>... candidates) {
+        for (Class<?> candidate : candidates) {
+            if (candidate != null) {
+                try {
+                    return bulkCopyType.getMethod("writeToServer", candidate).getParameterTypes()[0];
+                } catch (NoSuchMethodException e) {
+                    // older drivers only take bulk records
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the interface the proxy of the rows implements: the bulk record when the driver has one that can be
+     * passed as the rows, as the bulk copy reads its columns' metadata when it is given one, the type of the rows
+     * otherwise.
+     */
+    private static Class<?> recordType(Connection connection, Class<?> rowsType) {
+        final Class<?> recordType = driverClass(connection, BULK_RECORD);
+        return recordType != null && rowsType.isAssignableFrom(recordType) ? recordType : rowsType;
+    }
+
+    @Override
+    Load begin(ImportExportErrorService errorService, Connection connection, String schema, String table, List<String> columns, long maxBufferedBytes) throws SQLException {
+        final Object sqlServerConnection = unwrap(connection, SQL_SERVER_CONNECTION);
+        if (sqlServerConnection == null) {
+            throw new SQLException("Connection is not a SQL Server connection");
+        }
+        return new BulkCopyLoad(connection, (Connection) sqlServerConnection, destination(schema, table), columns,
+                columnMetaData(connection, schema, table, columns), maxBufferedBytes);
+    }
+
+    private static String destination(String schema, String table) {
+        final String bracketed = "[" + table.replace("]", "]]") + "]";
+        return schema != null ? "[" + schema.replace("]", "]]") + "]." + bracketed : bracketed;
+    }
+
+    /**
+     * @return the SQL type, precision and scale of each column, in order.
+     */
+    private static int[][] columnMetaData(Connection connection, String schema, String table, List<String> columns) throws SQLException {
+        final Map<String, int[]> byName = Maps.newHashMap();
+        ResultSet rs = null;
+        try {
+            rs = connection.getMetaData().getColumns(null, schema, table, null);
+            while (rs.next()) {
+                byName.put(rs.getString("COLUMN_NAME"), new int[]{rs.getInt("DATA_TYPE"), rs.getInt("COLUMN_SIZE"), rs.getInt("DECIMAL_DIGITS")});
+            }
+        } finally {
+            closeQuietly(rs);
+        }
+
+        final int[][] metaData = new int[columns.size()][];
+        for (int i = 0; i < metaData.length; i++) {
+            metaData[i] = byName.get(columns.get(i));
+            if (metaData[i] == null) {
+                throw new SQLException("Could not find column " + columns.get(i) + " of table " + table);
+            }
+        }
+        return metaData;
+    }
+
+    /**
+     * Converts a value of the backup to the Java type the bulk copy API expects for the SQL type of the column.
+     */
+    static Object convert(Object value, int sqlType) {
+        if (value == null) {
+            return null;
+        }
+        switch (sqlType) {
+            case Types.BIT:
+            case Types.BOOLEAN:
+                return value instanceof Boolean ? value : ((Number) value).intValue() != 0;
+            case Types.TINYINT:
+            case Types.SMALLINT:
+                return value instanceof Boolean ? (short) ((Boolean) value ? 1 : 0) : ((Number) value).shortValue();
+            case Types.INTEGER:
+                return value instanceof Boolean ? ((Boolean) value ? 1 : 0) : ((Number) value).intValue();
+            case Types.BIGINT:
+                return ((Number) value).longValue();
+            case Types.DOUBLE:
+            case Types.FLOAT:
+                return ((Number) value).doubleValue();
+            case Types.REAL:
+                return ((Number) value).floatValue();
+            case Types.DECIMAL:
+            case Types.NUMERIC:
+                if (value instanceof BigInteger) {
+                    return new BigDecimal((BigInteger) value);
+                } else if (value instanceof Long) {
+                    return BigDecimal.valueOf((Long) value);
+                } else if (value instanceof Double) {
+                    return BigDecimal.valueOf((Double) value);
+                }
+                return value;
+            case Types.DATE:
+            case Types.TIME:
+            case Types.TIMESTAMP:
+                return new Timestamp(((Date) value).getTime());
+            default:
+                return value instanceof Date ? new Timestamp(((Date) value).getTime()) : value;
+        }
+    }
+
+    private static final class BulkCopyLoad implements Load {
+        private final Connection connection;
+        private final Connection sqlServerConnection;
+        private final String destination;
+        private final List<String> columns;
+        private final int[][] columnMetaData;
+        private final long maxBufferedBytes;
+        private final List<Object[]> rows = newArrayList();
+        private long bufferedBytes;
+
+        BulkCopyLoad(Connection connection, Connection sqlServerConnection, String destination, List<String> columns, int[][] columnMetaData, long maxBufferedBytes) {
+            this.connection = checkNotNull(connection);
+            this.sqlServerConnection = checkNotNull(sqlServerConnection);
+            this.destination = checkNotNull(destination);
+            this.columns = checkNotNull(columns);
+            this.columnMetaData = checkNotNull(columnMetaData);
+            this.maxBufferedBytes = maxBufferedBytes;
+        }
+
+        @Override
+        public void addRow(Object[] values) throws SQLException {
+            final Object[] row = new Object[values.length];
+            for (int i = 0; i < values.length; i++) {
+                row[i] = convert(values[i], columnMetaData[i][0]);
+                bufferedBytes += row[i] instanceof String ? VALUE_OVERHEAD + 2L * ((String) row[i]).length() : VALUE_OVERHEAD;
+            }
+            rows.add(row);
+            if (bufferedBytes >= maxBufferedBytes) {
+                send();
+            }
+        }
+
+        private void send() throws SQLException {
+            if (rows.isEmpty()) {
+                return;
+            }
+            final Class<?> bulkCopyType = driverClass(connection, BULK_COPY);
+            final Class<?> optionsType = driverClass(connection, BULK_COPY_OPTIONS);
+            final Class<?> rowsType = rowsType(connection);
+            if (rowsType == null) {
+                throw new SQLException("Driver has no bulk copy method taking rows");
+            }
+            final Object bulkCopy = newInstance(bulkCopyType, new Class<?>[]{Connection.class}, sqlServerConnection);
+            try {
+                final Object options = newInstance(optionsType, new Class<?>[0]);
+                invoke(optionsType, options, "setKeepIdentity", new Class<?>[]{boolean.class}, true);
+                invoke(optionsType, options, "setKeepNulls", new Class<?>[]{boolean.class}, true);
+                invoke(bulkCopyType, bulkCopy, "setBulkCopyOptions", new Class<?>[]{optionsType}, options);
+                invoke(bulkCopyType, bulkCopy, "setDestinationTableName", new Class<?>[]{String.class}, destination);
+                for (int i = 0; i < columns.size(); i++) {
+                    invoke(bulkCopyType, bulkCopy, "addColumnMapping", new Class<?>[]{int.class, String.class}, i + 1, columns.get(i));
+                }
+                final Object record = newBulkRecord(recordType(connection, rowsType), destination, columns, columnMetaData, rows.iterator());
+                invoke(bulkCopyType, bulkCopy, "writeToServer", new Class<?>[]{rowsType}, record);
+            } finally {
+                rows.clear();
+                bufferedBytes = 0;
+                invoke(bulkCopyType, bulkCopy, "close", new Class<?>[0]);
+            }
+        }
+
+        private static Object newInstance(Class<?> type, Class<?>[] parameterTypes, Object... args) throws SQLException {
+            try {
+                return type.getConstructor(parameterTypes).newInstance(args);
+            } catch (Exception e) {
+                if (e.getCause() instanceof SQLException) {
+                    throw (SQLException) e.getCause();
+                }
+                throw new SQLException("Could not create " + type.getName(), e);
+            }
+        }
+
+        @Override
+        public void finish() throws SQLException {
+            send();
+        }
+
+        @Override
+        public void abort() {
+            rows.clear();
+        }
+    }
+
+    /**
+     * @param recordType the bulk record, or bulk data, interface of the driver
+     * @return the rows as an instance of the record type, reading the rows from the given iterator.
+     */
+    static Object newBulkRecord(Class<?> recordType, String destination, List<String> columns, int[][] columnMetaData, Iterator<Object[]> rows) {
+        return Proxy.newProxyInstance(recordType.getClassLoader(), new Class<?>[]{recordType}, new BulkRecord(destination, columns, columnMetaData, rows));
+    }
+
+    /**
+     * The buffered rows, as the {@code ISQLServerBulkRecord} or {@code ISQLServerBulkData} the bulk copy API reads
+     * from. Methods the bulk copy doesn't need, such as those adding column metadata or formats, or added by later
+     * drivers, do nothing and return the default value of their type.
+     */
+    private static final class BulkRecord implements InvocationHandler {
+        private final String destination;
+        private final List<String> columns;
+        private final int[][] columnMetaData;
+        private final Iterator<Object[]> rows;
+        private Object[] row;
+
+        BulkRecord(String destination, List<String> columns, int[][] columnMetaData, Iterator<Object[]> rows) {
+            this.destination = checkNotNull(destination);
+            this.columns = checkNotNull(columns);
+            this.columnMetaData = checkNotNull(columnMetaData);
+            this.rows = checkNotNull(rows);
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) {
+            final String name = method.getName();
+            if (name.equals("getColumnOrdinals")) {
+                final Set<Integer> ordinals = new TreeSet<Integer>();
+                for (int i = 1; i <= columns.size(); i++) {
+                    ordinals.add(i);
+                }
+                return ordinals;
+            } else if (name.equals("getColumnName")) {
+                return columns.get(column(args));
+            } else if (name.equals("getColumnType")) {
+                return columnMetaData[column(args)][0];
+            } else if (name.equals("getPrecision")) {
+                return columnMetaData[column(args)][1];
+            } else if (name.equals("getScale")) {
+                return columnMetaData[column(args)][2];
+            } else if (name.equals("isAutoIncrement")) {
+                return false;
+            } else if (name.equals("next")) {
+                row = rows.hasNext() ? rows.next() : null;
+                return row != null;
+            } else if (name.equals("getRowData")) {
+                return row;
+            } else if (name.equals("hashCode")) {
+                return System.identityHashCode(proxy);
+            } else if (name.equals("equals")) {
+                return proxy == args[0];
+            } else if (name.equals("toString")) {
+                return "BulkRecord{destination=" + destination + "}";
+            }
+            return Defaults.defaultValue(method.getReturnType());
+        }
+
+        private int column(Object[] args) {
+            return (Integer) args[0] - 1;
+        }
+    }
+}
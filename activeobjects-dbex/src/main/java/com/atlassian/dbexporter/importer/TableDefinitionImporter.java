@@ -6,6 +6,7 @@ import com.atlassian.dbexporter.DatabaseInformation;
 import com.atlassian.dbexporter.EntityNameProcessor;
 import com.atlassian.dbexporter.ForeignKey;
 import com.atlassian.dbexporter.ImportExportErrorService;
+import com.atlassian.dbexporter.Index;
 import com.atlassian.dbexporter.Table;
 import com.atlassian.dbexporter.node.NodeParser;
 import com.atlassian.dbexporter.progress.ProgressMonitor;
@@ -17,9 +18,11 @@ import java.util.List;
 import static com.atlassian.dbexporter.importer.ImporterUtils.checkEndNode;
 import static com.atlassian.dbexporter.importer.ImporterUtils.checkStartNode;
 import static com.atlassian.dbexporter.importer.ImporterUtils.isNodeNotClosed;
+import static com.atlassian.dbexporter.importer.ImporterUtils.isTableIncluded;
 import static com.atlassian.dbexporter.importer.TableDefinitionImporter.DatabaseCleanerAroundImporter.newCleaner;
 import static com.atlassian.dbexporter.node.NodeBackup.ColumnDefinitionNode;
 import static com.atlassian.dbexporter.node.NodeBackup.ForeignKeyDefinitionNode;
+import static com.atlassian.dbexporter.node.NodeBackup.IndexDefinitionNode;
 import static com.atlassian.dbexporter.node.NodeBackup.TableDefinitionNode;
 import static com.atlassian.dbexporter.progress.ProgressMonitor.Task;
 import static com.google.common.base.Preconditions.checkNotNull;
@@ -40,7 +43,10 @@ public final class TableDefinitionImporter extends AbstractSingleNodeImporter {
 
         final List<Table> tables = newArrayList();
         while (isNodeNotClosed(node, getNodeName())) {
-            tables.add(readTable(node, configuration.getEntityNameProcessor()));
+            final Table table = readTable(node, configuration.getEntityNameProcessor());
+            if (isTableIncluded(configuration, table.getName())) {
+                tables.add(table);
+            }
         }
 
         monitor.end(Task.TABLE_DEFINITION);
@@ -59,12 +65,13 @@ public final class TableDefinitionImporter extends AbstractSingleNodeImporter {
 
         final List<Column> columns = readColumns(node, entityNameProcessor);
         final Collection<ForeignKey> foreignKeys = readForeignKeys(node);
+        final Collection<Index> indexes = readIndexes(node, entityNameProcessor); // none in backups of older versions
 
         checkEndNode(node, TableDefinitionNode.NAME);
 
         node.getNextNode(); // get to the next node, that table has been imported!
 
-        return new Table(tableName, columns, foreignKeys);
+        return new Table(tableName, columns, foreignKeys, indexes);
     }
 
     private List<Column> readColumns(NodeParser node, EntityNameProcessor entityNameProcessor) {
@@ -111,6 +118,25 @@ public final class TableDefinitionImporter extends AbstractSingleNodeImporter {
         return new ForeignKey(fromTable, fromColumn, toTable, toColumn);
     }
 
+    private Collection<Index> readIndexes(NodeParser node, EntityNameProcessor entityNameProcessor) {
+        final Collection<Index> indexes = newArrayList();
+        while (node.getName().equals(IndexDefinitionNode.NAME)) {
+            indexes.add(readIndex(node, entityNameProcessor));
+        }
+        return indexes;
+    }
+
+    private Index readIndex(NodeParser node, EntityNameProcessor entityNameProcessor) {
+        checkStartNode(node, IndexDefinitionNode.NAME);
+
+        final String table = entityNameProcessor.tableName(IndexDefinitionNode.getTable(node));
+        final String column = entityNameProcessor.columnName(IndexDefinitionNode.getColumn(node));
+
+        checkEndNode(node.getNextNode(), IndexDefinitionNode.NAME);
+        node.getNextNode(); // get to the next node, that index has been imported!
+        return new Index(table, column);
+    }
+
     @Override
     protected String getNodeName() {
         return TableDefinitionNode.NAME;
@@ -0,0 +1,140 @@
+package com.atlassian.dbexporter.importer;
+
+import com.atlassian.dbexporter.node.NodeParser;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.Charset;
+
+/**
+ * <p>The value of a string field too large to be held as a {@link String}, i.e. longer than {@link #IN_MEMORY_LIMIT}
+ * characters. Its characters are spooled, encoded in UTF-8, to a temporary file as they are parsed, and bound to
+ * statements as a character stream.</p>
+ * <p>The value must be {@link #release() released} once the statements it is bound to have been executed, which
+ * deletes its file.</p>
+ */
+final class TextValue implements Spooled {
+    static final int IN_MEMORY_LIMIT = BinaryValue.IN_MEMORY_LIMIT;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final BinaryValue utf8;
+    private final long length;
+
+    private TextValue(BinaryValue utf8, long length) {
+        this.utf8 = utf8;
+        this.length = length;
+    }
+
+    /**
+     * Reads the content of a string field node.
+     *
+     * @return the value, a {@link String} unless longer than {@link #IN_MEMORY_LIMIT} characters, {@code null} if the
+     * field has no data. The node is left on the end of the field.
+     */
+    static Object read(NodeParser node) {
+        final Spool spool = new Spool();
+        boolean read = false;
+        try {
+            if (!node.getContent(spool)) {
+                return null;
+            }
+            spool.close();
+            read = true;
+            return spool.toValue();
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not spool text value", e);
+        } finally {
+            if (!read) {
+                spool.discard();
+            }
+        }
+    }
+
+    /**
+     * @return the number of characters of the value.
+     */
+    long length() {
+        return length;
+    }
+
+    /**
+     * Opens the reader of the value bound to a statement, the reader previously opened if any is closed.
+     */
+    Reader openReader() throws IOException {
+        return new InputStreamReader(utf8.openStream(), UTF_8);
+    }
+
+    /**
+     * Reads the whole value, for loaders that don't bind values to statements.
+     */
+    String asString() {
+        final StringBuilder text = new StringBuilder((int) Math.min(length, Integer.MAX_VALUE));
+        try {
+            final Reader reader = openReader();
+            final char[] buffer = new char[8 * 1024];
+            int read;
+            while ((read = reader.read(buffer)) != -1) {
+                text.append(buffer, 0, read);
+            }
+            return text.toString();
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not read spooled text value", e);
+        }
+    }
+
+    public void release() {
+        utf8.release();
+    }
+
+    /**
+     * Keeps characters in memory until they exceed {@link #IN_MEMORY_LIMIT}, then encodes them to a
+     * {@link BinaryValue.Spool spool} of bytes.
+     */
+    private static final class Spool extends Writer {
+        private StringBuilder text = new StringBuilder();
+        private BinaryValue.Spool bytes;
+        private Writer encoder;
+        private long length;
+
+        @Override
+        public void write(char[] chars, int offset, int count) throws IOException {
+            if (encoder == null && length + count > IN_MEMORY_LIMIT) {
+                bytes = new BinaryValue.Spool();
+                encoder = new OutputStreamWriter(bytes, UTF_8);
+                encoder.append(text);
+                text = null;
+            }
+            if (encoder != null) {
+                encoder.write(chars, offset, count);
+            } else {
+                text.append(chars, offset, count);
+            }
+            length += count;
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (encoder != null) {
+                encoder.close();
+            }
+        }
+
+        Object toValue() {
+            return encoder == null ? text.toString() : new TextValue(bytes.toValue(), length);
+        }
+
+        void discard() {
+            if (bytes != null) {
+                bytes.discard();
+            }
+        }
+    }
+}
@@ -1,8 +1,12 @@
 package com.atlassian.dbexporter.node;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.sql.Timestamp;
+import java.util.Locale;
 
 import static com.google.common.base.Preconditions.checkArgument;
 
@@ -175,22 +179,80 @@ public final class NodeBackup {
         }
     }
 
+    public final static class IndexDefinitionNode {
+        public static final String NAME = "index";
+
+        private static final String TABLE = "table";
+        private static final String COLUMN = "column";
+
+        public static NodeCreator add(NodeCreator node) {
+            return node.addNode(NAME);
+        }
+
+        public static String getTable(NodeParser node) {
+            return node.getRequiredAttribute(TABLE);
+        }
+
+        public static NodeCreator setTable(NodeCreator node, String table) {
+            return node.addAttribute(TABLE, table);
+        }
+
+        public static String getColumn(NodeParser node) {
+            return node.getRequiredAttribute(COLUMN);
+        }
+
+        public static NodeCreator setColumn(NodeCreator node, String column) {
+            return node.addAttribute(COLUMN, column);
+        }
+    }
+
     public final static class TableDataNode {
         public static final String NAME = "data";
         private static final String NAME_ATTR = "tableName";
+        private static final String MODE_ATTR = "mode";
+
+        /**
+         * How the rows of the table data node apply to the table being restored.
+         */
+        public static enum Mode {
+            /**
+             * The table is restored from scratch, this is the mode of full backups.
+             */
+            FULL,
+            /**
+             * The rows are added to the ones already restored, this is the mode of unchanged tables in incremental
+             * backups.
+             */
+            APPEND,
+            /**
+             * The rows replace the ones already restored, a tombstone for tables that had rows removed since the
+             * backup incremental backups are based on.
+             */
+            REPLACE
+        }
 
         public static NodeCreator add(NodeCreator node, String tableName) {
             return node.addNode(NAME).addAttribute(NAME_ATTR, tableName);
         }
 
+        public static NodeCreator add(NodeCreator node, String tableName, Mode mode) {
+            final NodeCreator data = add(node, tableName);
+            return mode == Mode.FULL ? data : data.addAttribute(MODE_ATTR, mode.name().toLowerCase(Locale.ENGLISH));
+        }
+
         public static String getName(NodeParser node) {
             return node.getRequiredAttribute(NAME_ATTR);
         }
+
+        public static Mode getMode(NodeParser node) {
+            final String mode = node.getAttribute(MODE_ATTR);
+            return mode == null ? Mode.FULL : Mode.valueOf(mode.toUpperCase(Locale.ENGLISH));
+        }
     }
 
     public final static class ColumnDataNode {
         public static final String NAME = "column";
-        private static final String NAME_ATTR = "name";
+        public static final String NAME_ATTR = "name";
 
         public static NodeCreator add(NodeCreator node, String columnName) {
             return node.addNode(NAME).addAttribute(NAME_ATTR, columnName);
@@ -203,12 +265,12 @@ public final class NodeBackup {
 
     public final static class RowDataNode {
         public static final String NAME = "row";
-        private static final String STRING = "string";
-        private static final String BOOLEAN = "boolean";
-        private static final String INTEGER = "integer";
-        private static final String DOUBLE = "double";
-        private static final String DATE = "timestamp";
-        private static final String BINARY = "binary";
+        public static final String STRING = "string";
+        public static final String BOOLEAN = "boolean";
+        public static final String INTEGER = "integer";
+        public static final String DOUBLE = "double";
+        public static final String DATE = "timestamp";
+        public static final String BINARY = "binary";
 
         public static NodeCreator add(NodeCreator node) {
             return node.addNode(NAME);
@@ -222,6 +284,18 @@ public final class NodeBackup {
             return node.addNode(DOUBLE).setContentAsBigDecimal(value == null ? null : value).closeEntity();
         }
 
+        public static NodeCreator append(NodeCreator node, long value) {
+            return node.addNode(INTEGER).setContentAsLong(value).closeEntity();
+        }
+
+        public static NodeCreator append(NodeCreator node, double value) {
+            return node.addNode(DOUBLE).setContentAsDouble(value).closeEntity();
+        }
+
+        public static NodeCreator appendTimestamp(NodeCreator node, long epochMillis) {
+            return node.addNode(DATE).setContentAsEpochMillis(epochMillis).closeEntity();
+        }
+
         public static NodeCreator append(NodeCreator node, String value) {
             return node.addNode(STRING).setContentAsString(value).closeEntity();
         }
@@ -238,6 +312,14 @@ public final class NodeBackup {
             return node.addNode(BINARY).setContentAsBinary(value).closeEntity();
         }
 
+        public static NodeCreator append(NodeCreator node, Reader value) throws IOException {
+            return node.addNode(STRING).setContent(value).closeEntity();
+        }
+
+        public static NodeCreator append(NodeCreator node, InputStream value) throws IOException {
+            return node.addNode(BINARY).setContentAsBinary(value).closeEntity();
+        }
+
         public static boolean isString(NodeParser node) {
             return STRING.equals(node.getName());
         }
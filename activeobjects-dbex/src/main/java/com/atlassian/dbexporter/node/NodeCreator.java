@@ -1,6 +1,7 @@
 package com.atlassian.dbexporter.node;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.Reader;
 import java.math.BigDecimal;
 import java.math.BigInteger;
@@ -55,6 +56,36 @@ public interface NodeCreator {
 
     NodeCreator setContentAsBigDecimal(BigDecimal bigDecimal);
 
+    /**
+     * Similar to {@link NodeCreator#setContentAsBigInteger(BigInteger)}, but
+     * sets the content to the specified primitive value, without creating a
+     * {@link java.math.BigInteger} for it.
+     *
+     * @param value
+     * @return a reference to the current node.
+     */
+    NodeCreator setContentAsLong(long value);
+
+    /**
+     * Similar to {@link NodeCreator#setContentAsBigDecimal(BigDecimal)}, but
+     * sets the content to the specified primitive value, without creating a
+     * {@link java.math.BigDecimal} for it.
+     *
+     * @param value
+     * @return a reference to the current node.
+     */
+    NodeCreator setContentAsDouble(double value);
+
+    /**
+     * Similar to {@link NodeCreator#setContentAsDate(Date)}, but sets the
+     * content to the date at the specified number of milliseconds since the
+     * epoch.
+     *
+     * @param millis
+     * @return a reference to the current node.
+     */
+    NodeCreator setContentAsEpochMillis(long millis);
+
     /**
      * Sets the content of the current node to be the specified string. This
      * method does not automatically close the node, but returns a reference to
@@ -91,7 +122,8 @@ public interface NodeCreator {
     /**
      * Similar to {@link NodeCreator#setContentAsString(String)}, but passes the
      * content to the {@link NodeCreator} as a {@link java.io.Reader} instance. Use this
-     * to encode large chunks of content in a memory-efficient way.
+     * to encode large chunks of content in a memory-efficient way. The reader is
+     * read until its end, but not closed.
      *
      * @param data
      * @return a reference to the current node.
@@ -99,6 +131,18 @@ public interface NodeCreator {
      */
     NodeCreator setContent(Reader data) throws IOException;
 
+    /**
+     * Similar to {@link NodeCreator#setContentAsBinary(byte[])}, but passes the
+     * content to the {@link NodeCreator} as a {@link java.io.InputStream} instance.
+     * Use this to encode large binary content in a memory-efficient way. The
+     * stream is read until its end, but not closed.
+     *
+     * @param data
+     * @return a reference to the current node.
+     * @throws java.io.IOException
+     */
+    NodeCreator setContentAsBinary(InputStream data) throws IOException;
+
     /**
      * Adds an attribute to the current node.
      *
@@ -2,6 +2,7 @@ package com.atlassian.dbexporter.node;
 
 import com.atlassian.activeobjects.spi.ImportExportException;
 
+import java.io.OutputStream;
 import java.io.Writer;
 import java.math.BigDecimal;
 import java.math.BigInteger;
@@ -145,15 +146,81 @@ public interface NodeParser {
     BigDecimal getContentAsBigDecimal() throws IllegalStateException;
 
     /**
-     * Similar to {@link NodeParser#getContentAsString()}, but writes the contents
-     * to the specified {@link java.io.Writer} instance. Useful for reading large lumps
-     * of content in a memory-efficient way. The writer is not closed.
+     * Similar to {@link NodeParser#getContentAsBigInteger()}, but converts
+     * content to a {@link Long}, without creating a {@link java.math.BigInteger}
+     * for it.
+     *
+     * @return the content of the current node as a {@link Long} instance.
+     * @throws ImportExportException when the current node is not a content node, or
+     *                               when the input could not be parsed.
+     * @throws NumberFormatException when the content is not an integer value within
+     *                               the range of a long.
+     * @throws IllegalStateException if the current node cannot contain
+     *                               content (for instance because {@link NodeParser#isClosed()} is true.
+     */
+    Long getContentAsLong() throws IllegalStateException;
+
+    /**
+     * Similar to {@link NodeParser#getContentAsLong()}, but falls back to a
+     * {@link BigInteger} for content outside of the range of a long, rather than
+     * failing.
+     *
+     * @return the content of the current node as a {@link Long} if it fits in one,
+     *         as a {@link BigInteger} otherwise.
+     * @throws ImportExportException when the current node is not a content node, or
+     *                               when the input could not be parsed.
+     * @throws NumberFormatException when the content is not an integer value.
+     * @throws IllegalStateException if the current node cannot contain
+     *                               content (for instance because {@link NodeParser#isClosed()} is true.
+     */
+    Number getContentAsInteger() throws IllegalStateException;
+
+    /**
+     * Similar to {@link NodeParser#getContentAsBigDecimal()}, but converts
+     * content to a {@link Double}, without creating a {@link java.math.BigDecimal}
+     * for it.
      *
-     * @param writer
+     * @return the content of the current node as a {@link Double} instance.
      * @throws ImportExportException when the current node is not a content node, or
      *                               when the input could not be parsed.
+     * @throws NumberFormatException when the content is not a numeric value.
+     * @throws IllegalStateException if the current node cannot contain
+     *                               content (for instance because {@link NodeParser#isClosed()} is true.
+     */
+    Double getContentAsDouble() throws IllegalStateException;
+
+    /**
+     * Similar to {@link NodeParser#getContentAsString()}, but writes the contents
+     * to the specified {@link java.io.Writer} instance as it is read. Useful for
+     * reading large lumps of content in a memory-efficient way. The writer is not
+     * closed.
+     *
+     * @param writer the writer the content is written to
+     * @return <code>false</code> if the node contains no data (e.g.
+     * <code><node xsi:nil="true"/></code> in XML), in which case nothing is
+     * written.
+     * @throws ImportExportException when the current node is not a content node, or
+     *                               when the input could not be parsed or written.
+     * @throws IllegalStateException if the current node cannot contain
+     *                               content (for instance because {@link NodeParser#isClosed()} is true.
+     */
+    boolean getContent(Writer writer) throws IllegalStateException;
+
+    /**
+     * Decodes the binary content of the current node to the specified
+     * {@link java.io.OutputStream} as it is read, so that large binary content
+     * never has to be held in memory as a whole. The stream is not closed.
+     * <P>
+     * When this method returns, the current node will be closed.
+     *
+     * @param output the stream the decoded content is written to
+     * @return <code>false</code> if the node contains no data (e.g.
+     * <code><node xsi:nil="true"/></code> in XML), in which case nothing is
+     * written to the stream.
+     * @throws ImportExportException when the current node is not a content node, or
+     *                               when the input could not be parsed or written to the stream.
      * @throws IllegalStateException if the current node cannot contain
      *                               content (for instance because {@link NodeParser#isClosed()} is true.
      */
-    void getContent(Writer writer) throws IllegalStateException;
+    boolean getContentAsBinary(OutputStream output) throws IllegalStateException;
 }
@@ -0,0 +1,511 @@
+package com.atlassian.dbexporter.node;
+
+import com.atlassian.dbexporter.ImportExportErrorService;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.Charset;
+import java.util.Date;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * A {@link NodeCreator} that records every call made to it into a temporary file (a <em>spill segment</em>) so that
+ * it can later be {@link #replay(NodeCreator) replayed} against another {@link NodeCreator}.
+ * <p>
+ * This allows parts of a node graph to be produced concurrently, and then written sequentially to the one and only
+ * {@link NodeStreamWriter} in a deterministic order.
+ * <p>
+ * Instances are not thread safe, they are meant to be written by one thread and then replayed by another one.
+ */
+public final class NodeSpool implements NodeCreator {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final byte ADD_NODE = 1;
+    private static final byte CLOSE_ENTITY = 2;
+    private static final byte ADD_ATTRIBUTE = 3;
+    private static final byte STRING = 4;
+    private static final byte DATE = 5;
+    private static final byte BIG_INTEGER = 6;
+    private static final byte BIG_DECIMAL = 7;
+    private static final byte BOOLEAN = 8;
+    private static final byte BINARY = 9;
+    private static final byte CHARACTER_STREAM = 10;
+    private static final byte BINARY_STREAM = 11;
+    private static final byte LONG = 12;
+    private static final byte DOUBLE = 13;
+    private static final byte EPOCH_MILLIS = 14;
+
+    private static final int NULL_LENGTH = -1;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int CHUNK_SIZE = 8 * 1024;
+    private static final int END_OF_STREAM = 0;
+
+    private final ImportExportErrorService errorService;
+    private final File file;
+    private DataOutputStream out;
+
+    private NodeSpool(ImportExportErrorService errorService, File file, DataOutputStream out) {
+        this.errorService = checkNotNull(errorService);
+        this.file = checkNotNull(file);
+        this.out = checkNotNull(out);
+    }
+
+    /**
+     * Creates a new spool, backed by a new temporary file.
+     *
+     * @param errorService the error service used to report I/O errors
+     * @return a new empty spool, ready to record calls.
+     */
+    public static NodeSpool create(ImportExportErrorService errorService) {
+        try {
+            final File file = File.createTempFile("ao-backup-", ".spool");
+            return new NodeSpool(errorService, file, new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), BUFFER_SIZE)));
+        } catch (IOException e) {
+            throw errorService.newParseException("Could not create temporary spill segment", e);
+        }
+    }
+
+    @Override
+    public NodeCreator addNode(String name) {
+        try {
+            out().writeByte(ADD_NODE);
+            writeString(name);
+            return this;
+        } catch (IOException e) {
+            throw onWriteError(e);
+        }
+    }
+
+    @Override
+    public NodeCreator closeEntity() {
+        try {
+            out().writeByte(CLOSE_ENTITY);
+            return this;
+        } catch (IOException e) {
+            throw onWriteError(e);
+        }
+    }
+
+    @Override
+    public NodeCreator setContentAsDate(Date date) {
+        try {
+            out().writeByte(DATE);
+            out().writeBoolean(date != null);
+            if (date != null) {
+                out().writeLong(date.getTime());
+            }
+            return this;
+        } catch (IOException e) {
+            throw onWriteError(e);
+        }
+    }
+
+    @Override
+    public NodeCreator setContentAsBigInteger(BigInteger bigInteger) {
+        return writeContent(BIG_INTEGER, bigInteger == null ? null : bigInteger.toString());
+    }
+
+    @Override
+    public NodeCreator setContentAsBigDecimal(BigDecimal bigDecimal) {
+        return writeContent(BIG_DECIMAL, bigDecimal == null ? null : bigDecimal.toString());
+    }
+
+    @Override
+    public NodeCreator setContentAsLong(long value) {
+        try {
+            out().writeByte(LONG);
+            out().writeLong(value);
+            return this;
+        } catch (IOException e) {
+            throw onWriteError(e);
+        }
+    }
+
+    @Override
+    public NodeCreator setContentAsDouble(double value) {
+        try {
+            out().writeByte(DOUBLE);
+            out().writeDouble(value);
+            return this;
+        } catch (IOException e) {
+            throw onWriteError(e);
+        }
+    }
+
+    @Override
+    public NodeCreator setContentAsEpochMillis(long millis) {
+        try {
+            out().writeByte(EPOCH_MILLIS);
+            out().writeLong(millis);
+            return this;
+        } catch (IOException e) {
+            throw onWriteError(e);
+        }
+    }
+
+    @Override
+    public NodeCreator setContentAsString(String string) {
+        return writeContent(STRING, string);
+    }
+
+    @Override
+    public NodeCreator setContentAsBoolean(Boolean bool) {
+        try {
+            out().writeByte(BOOLEAN);
+            out().writeByte(bool == null ? -1 : (bool ? 1 : 0));
+            return this;
+        } catch (IOException e) {
+            throw onWriteError(e);
+        }
+    }
+
+    @Override
+    public NodeCreator setContentAsBinary(byte[] bytes) {
+        try {
+            out().writeByte(BINARY);
+            writeBytes(bytes);
+            return this;
+        } catch (IOException e) {
+            throw onWriteError(e);
+        }
+    }
+
+    /**
+     * Copies the reader into the spool, errors reading the reader or writing the spool are both reported as
+     * {@link IOException}.
+     */
+    @Override
+    public NodeCreator setContent(Reader data) throws IOException {
+        out().writeByte(CHARACTER_STREAM);
+        out().writeBoolean(data != null);
+        if (data != null) {
+            final char[] buffer = new char[CHUNK_SIZE];
+            int read;
+            while ((read = data.read(buffer)) != -1) {
+                if (read > 0) {
+                    out().writeInt(read);
+                    for (int i = 0; i < read; i++) {
+                        out().writeChar(buffer[i]);
+                    }
+                }
+            }
+            out().writeInt(END_OF_STREAM);
+        }
+        return this;
+    }
+
+    /**
+     * Copies the stream into the spool, errors reading the stream or writing the spool are both reported as
+     * {@link IOException}.
+     */
+    @Override
+    public NodeCreator setContentAsBinary(InputStream data) throws IOException {
+        out().writeByte(BINARY_STREAM);
+        out().writeBoolean(data != null);
+        if (data != null) {
+            final byte[] buffer = new byte[CHUNK_SIZE];
+            int read;
+            while ((read = data.read(buffer)) != -1) {
+                if (read > 0) {
+                    out().writeInt(read);
+                    out().write(buffer, 0, read);
+                }
+            }
+            out().writeInt(END_OF_STREAM);
+        }
+        return this;
+    }
+
+    @Override
+    public NodeCreator addAttribute(String key, String value) {
+        try {
+            out().writeByte(ADD_ATTRIBUTE);
+            writeString(key);
+            writeString(value);
+            return this;
+        } catch (IOException e) {
+            throw onWriteError(e);
+        }
+    }
+
+    /**
+     * Replays all the calls recorded so far against the given node creator, in the order they were recorded. Once
+     * replayed the spool can not be written to anymore.
+     *
+     * @param node the node creator to replay the recorded calls against
+     */
+    public void replay(NodeCreator node) {
+        checkNotNull(node);
+        finishWriting();
+
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE));
+            int op;
+            while ((op = in.read()) != -1) {
+                replay(in, (byte) op, node);
+            }
+        } catch (IOException e) {
+            throw errorService.newParseException("Could not read spill segment " + file, e);
+        } finally {
+            closeQuietly(in);
+        }
+    }
+
+    /**
+     * Releases all resources associated with this spool, including its temporary file.
+     */
+    public void delete() {
+        finishWriting();
+        if (!file.delete() && file.exists()) {
+            file.deleteOnExit();
+        }
+    }
+
+    private void replay(DataInputStream in, byte op, NodeCreator node) throws IOException {
+        switch (op) {
+            case ADD_NODE:
+                node.addNode(readString(in));
+                break;
+            case CLOSE_ENTITY:
+                node.closeEntity();
+                break;
+            case ADD_ATTRIBUTE:
+                node.addAttribute(readString(in), readString(in));
+                break;
+            case STRING:
+                node.setContentAsString(readString(in));
+                break;
+            case DATE:
+                node.setContentAsDate(in.readBoolean() ? new Date(in.readLong()) : null);
+                break;
+            case BIG_INTEGER:
+                final String bigInteger = readString(in);
+                node.setContentAsBigInteger(bigInteger == null ? null : new BigInteger(bigInteger));
+                break;
+            case BIG_DECIMAL:
+                final String bigDecimal = readString(in);
+                node.setContentAsBigDecimal(bigDecimal == null ? null : new BigDecimal(bigDecimal));
+                break;
+            case LONG:
+                node.setContentAsLong(in.readLong());
+                break;
+            case DOUBLE:
+                node.setContentAsDouble(in.readDouble());
+                break;
+            case EPOCH_MILLIS:
+                node.setContentAsEpochMillis(in.readLong());
+                break;
+            case BOOLEAN:
+                final byte bool = in.readByte();
+                node.setContentAsBoolean(bool == -1 ? null : bool == 1);
+                break;
+            case BINARY:
+                node.setContentAsBinary(readBytes(in));
+                break;
+            case CHARACTER_STREAM:
+                if (in.readBoolean()) {
+                    final SpooledReader reader = new SpooledReader(in);
+                    node.setContent(reader);
+                    reader.skipToEnd();
+                } else {
+                    node.setContent(null);
+                }
+                break;
+            case BINARY_STREAM:
+                if (in.readBoolean()) {
+                    final SpooledInputStream stream = new SpooledInputStream(in);
+                    node.setContentAsBinary(stream);
+                    stream.skipToEnd();
+                } else {
+                    node.setContentAsBinary((InputStream) null);
+                }
+                break;
+            default:
+                throw errorService.newParseException("Unexpected operation " + op + " in spill segment " + file);
+        }
+    }
+
+    private NodeCreator writeContent(byte op, String value) {
+        try {
+            out().writeByte(op);
+            writeString(value);
+            return this;
+        } catch (IOException e) {
+            throw onWriteError(e);
+        }
+    }
+
+    private void writeString(String s) throws IOException {
+        writeBytes(s == null ? null : s.getBytes(UTF_8));
+    }
+
+    private void writeBytes(byte[] bytes) throws IOException {
+        if (bytes == null) {
+            out().writeInt(NULL_LENGTH);
+        } else {
+            out().writeInt(bytes.length);
+            out().write(bytes);
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        final byte[] bytes = readBytes(in);
+        return bytes == null ? null : new String(bytes, UTF_8);
+    }
+
+    private static byte[] readBytes(DataInputStream in) throws IOException {
+        final int length = in.readInt();
+        if (length == NULL_LENGTH) {
+            return null;
+        }
+        final byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    private void finishWriting() {
+        if (out != null) {
+            try {
+                out.close();
+            } catch (IOException e) {
+                throw onWriteError(e);
+            } finally {
+                out = null;
+            }
+        }
+    }
+
+    private DataOutputStream out() {
+        checkState(out != null, "Spill segment %s has already been replayed", file);
+        return out;
+    }
+
+    private RuntimeException onWriteError(IOException e) {
+        return errorService.newParseException("Could not write to spill segment " + file, e);
+    }
+
+    private static void closeQuietly(DataInputStream in) {
+        if (in != null) {
+            try {
+                in.close();
+            } catch (IOException e) {
+                // ignore
+            }
+        }
+    }
+
+    /**
+     * Reads back, chunk by chunk, characters copied to the spool by {@link #setContent(Reader)}.
+     */
+    private static final class SpooledReader extends Reader {
+        private final DataInputStream in;
+        private int remaining;
+        private boolean ended;
+
+        SpooledReader(DataInputStream in) {
+            this.in = in;
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int length) throws IOException {
+            if (!nextChunk()) {
+                return -1;
+            }
+            final int read = Math.min(length, remaining);
+            for (int i = 0; i < read; i++) {
+                buffer[offset + i] = in.readChar();
+            }
+            remaining -= read;
+            return read;
+        }
+
+        void skipToEnd() throws IOException {
+            final char[] buffer = new char[CHUNK_SIZE];
+            while (read(buffer, 0, buffer.length) != -1) {
+                // skipping what the node creator did not read
+            }
+        }
+
+        private boolean nextChunk() throws IOException {
+            if (remaining == 0 && !ended) {
+                remaining = in.readInt();
+                ended = remaining == END_OF_STREAM;
+            }
+            return !ended;
+        }
+
+        @Override
+        public void close() {
+            // the underlying spool is closed once replayed
+        }
+    }
+
+    /**
+     * Reads back, chunk by chunk, bytes copied to the spool by {@link #setContentAsBinary(InputStream)}.
+     */
+    private static final class SpooledInputStream extends InputStream {
+        private final DataInputStream in;
+        private int remaining;
+        private boolean ended;
+
+        SpooledInputStream(DataInputStream in) {
+            this.in = in;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (!nextChunk()) {
+                return -1;
+            }
+            remaining--;
+            return in.readUnsignedByte();
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (length == 0) {
+                return 0;
+            }
+            if (!nextChunk()) {
+                return -1;
+            }
+            final int read = Math.min(length, remaining);
+            in.readFully(buffer, offset, read);
+            remaining -= read;
+            return read;
+        }
+
+        void skipToEnd() throws IOException {
+            final byte[] buffer = new byte[CHUNK_SIZE];
+            while (read(buffer, 0, buffer.length) != -1) {
+                // skipping what the node creator did not read
+            }
+        }
+
+        private boolean nextChunk() throws IOException {
+            if (remaining == 0 && !ended) {
+                remaining = in.readInt();
+                ended = remaining == END_OF_STREAM;
+            }
+            return !ended;
+        }
+
+        @Override
+        public void close() {
+            // the underlying spool is closed once replayed
+        }
+    }
+}
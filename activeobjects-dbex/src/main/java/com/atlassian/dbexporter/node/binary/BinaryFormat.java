@@ -0,0 +1,157 @@
+package com.atlassian.dbexporter.node.binary;
+
+import java.nio.charset.Charset;
+import java.text.DateFormat;
+import java.text.SimpleDateFormat;
+import java.util.TimeZone;
+
+import static com.atlassian.dbexporter.node.NodeBackup.RowDataNode;
+
+/**
+ * <p>The binary backup format, a compact alternative to XML backups. The stream starts with the {@link #MAGIC} bytes
+ * and the {@link #VERSION} of the format. Nodes are then written as records, each starting with a tag byte:</p>
+ * <ul>
+ * <li>{@link #START} then the name of the node, {@link #ATTRIBUTE} records follow, then either child nodes and
+ * {@link #END}, or {@link #END} alone, or a single content record which implicitly ends the node;</li>
+ * <li>{@link #ATTRIBUTE} then the name of the attribute, and its value as a length prefixed string, whose length is
+ * incremented by one so that {@code 0} stands for {@code null};</li>
+ * <li>content records, typed after the value that was written: {@link #STRING} and {@link #BINARY} with a length
+ * prefix, {@link #TEXT} and {@link #BINARY_STREAM} as length prefixed chunks ending with an empty one,
+ * {@link #LONG} and {@link #DATE} as zig-zag varints, {@link #DOUBLE} as the 8 bytes of its bits, {@link #DECIMAL} as the zig-zag varint scale then the unscaled
+ * value, {@link #BIG_INTEGER} and {@link #BIG_DECIMAL} with the two's complement bytes of the (unscaled) value.</li>
+ * </ul>
+ * <p>Table data nodes, which hold almost all of a backup, are written by row rather than by node. Their attributes are
+ * followed by a single {@link #COLUMNS} record, the number of columns then their names as length prefixed strings,
+ * then a {@link #ROW} record per row, and {@link #END}. A row is the values of its columns in column order, written
+ * bare: there is no record, name or tag per value, the kind of each column tells how its values are written. The
+ * first row of a table data node declares the kinds, each of its values is preceded by the kind of its column, one of
+ * {@link #STRING_COLUMN}, {@link #BOOLEAN_COLUMN}, {@link #INTEGER_COLUMN}, {@link #DOUBLE_COLUMN},
+ * {@link #TIMESTAMP_COLUMN} and {@link #BINARY_COLUMN}, after the field nodes of rows. Values of every kind start with
+ * a {@code 0} byte, and only that, when they are {@code null}:</p>
+ * <ul>
+ * <li>strings and binaries as length prefixed chunks, the length of the first chunk incremented by one, an empty first
+ * chunk ends the value and any other one is followed by chunks ending with an empty one;</li>
+ * <li>booleans as {@code 1} for false and {@code 2} for true;</li>
+ * <li>integers and timestamps, in milliseconds, as zig-zag varints incremented by one, integers beyond long have as
+ * many more bytes as they need;</li>
+ * <li>doubles as {@code 1} then the 8 bytes of their bits, decimals are written as the doubles the importer reads.</li>
+ * </ul>
+ * <p>Names are written once: a name is a varint reference to the names met so far, starting from {@code 1}, or
+ * {@code 0} followed by a new name, which then gets the next reference. Lengths are unsigned varints, strings are
+ * encoded in UTF-8, and binaries are written as they are.</p>
+ */
+final class BinaryFormat {
+    static final byte[] MAGIC = {'A', 'O', 'B', 'K'};
+    static final int VERSION = 1;
+
+    static final int START = 1;
+    static final int END = 2;
+    static final int ATTRIBUTE = 3;
+    static final int COLUMNS = 4;
+    static final int ROW = 5;
+    static final int NULL = 6;
+    static final int STRING = 7;
+    static final int TEXT = 8;
+    static final int BINARY = 9;
+    static final int BINARY_STREAM = 10;
+    static final int LONG = 11;
+    static final int BIG_INTEGER = 12;
+    static final int DECIMAL = 13;
+    static final int BIG_DECIMAL = 14;
+    static final int TRUE = 15;
+    static final int FALSE = 16;
+    static final int DATE = 17;
+    static final int DOUBLE = 18;
+
+    static final int STRING_COLUMN = 1;
+    static final int BOOLEAN_COLUMN = 2;
+    static final int INTEGER_COLUMN = 3;
+    static final int DOUBLE_COLUMN = 4;
+    static final int TIMESTAMP_COLUMN = 5;
+    static final int BINARY_COLUMN = 6;
+    static final int NO_COLUMN = 0;
+
+    static final int NEW_NAME = 0;
+    static final int NULL_STRING = 0;
+    static final int NULL_VALUE = 0;
+    static final int FALSE_VALUE = 1;
+    static final int TRUE_VALUE = 2;
+    static final int DOUBLE_VALUE = 1;
+    static final int EMPTY_VALUE = 1;
+    static final int END_OF_CHUNKS = 0;
+    static final int CHUNK_SIZE = 8 * 1024;
+    static final int BUFFER_SIZE = 64 * 1024;
+
+    static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final ThreadLocal<DateFormat> DATE_FORMAT = new ThreadLocal<DateFormat>() {
+        @Override
+        protected DateFormat initialValue() {
+            return newDateFormat();
+        }
+    };
+
+    private BinaryFormat() {
+    }
+
+    static boolean isContent(int tag) {
+        return tag >= NULL && tag <= DOUBLE;
+    }
+
+    /**
+     * @param field the name of a field node of a row
+     * @return the kind of the column of the field, {@link #NO_COLUMN} for names which are not those of field nodes.
+     */
+    static int columnKind(String field) {
+        if (RowDataNode.STRING.equals(field)) {
+            return STRING_COLUMN;
+        } else if (RowDataNode.BOOLEAN.equals(field)) {
+            return BOOLEAN_COLUMN;
+        } else if (RowDataNode.INTEGER.equals(field)) {
+            return INTEGER_COLUMN;
+        } else if (RowDataNode.DOUBLE.equals(field)) {
+            return DOUBLE_COLUMN;
+        } else if (RowDataNode.DATE.equals(field)) {
+            return TIMESTAMP_COLUMN;
+        } else if (RowDataNode.BINARY.equals(field)) {
+            return BINARY_COLUMN;
+        } else {
+            return NO_COLUMN;
+        }
+    }
+
+    /**
+     * @return the name of the field nodes of a column of the given kind, {@code null} for unknown kinds.
+     */
+    static String fieldName(int columnKind) {
+        switch (columnKind) {
+            case STRING_COLUMN:
+                return RowDataNode.STRING;
+            case BOOLEAN_COLUMN:
+                return RowDataNode.BOOLEAN;
+            case INTEGER_COLUMN:
+                return RowDataNode.INTEGER;
+            case DOUBLE_COLUMN:
+                return RowDataNode.DOUBLE;
+            case TIMESTAMP_COLUMN:
+                return RowDataNode.DATE;
+            case BINARY_COLUMN:
+                return RowDataNode.BINARY;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * @return the format of dates in XML backups, for dates read as strings, confined to the calling thread.
+     */
+    static DateFormat dateFormat() {
+        return DATE_FORMAT.get();
+    }
+
+    private static DateFormat newDateFormat() {
+        final DateFormat sdf = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'");
+        sdf.setTimeZone(TimeZone.getTimeZone("UTC"));
+        return sdf;
+    }
+}
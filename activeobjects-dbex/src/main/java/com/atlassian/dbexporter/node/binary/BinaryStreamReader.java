@@ -0,0 +1,826 @@
+package com.atlassian.dbexporter.node.binary;
+
+import com.atlassian.dbexporter.ImportExportErrorService;
+import com.atlassian.dbexporter.node.NodeParser;
+import com.atlassian.dbexporter.node.NodeStreamReader;
+
+import javax.xml.bind.DatatypeConverter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static com.atlassian.dbexporter.node.NodeBackup.ColumnDataNode;
+import static com.atlassian.dbexporter.node.NodeBackup.RowDataNode;
+import static com.atlassian.dbexporter.node.binary.BinaryFormat.ATTRIBUTE;
+import static com.atlassian.dbexporter.node.binary.BinaryFormat.BIG_DECIMAL;
+import static com.atlassian.dbexporter.node.binary.BinaryFormat.BIG_INTEGER;
+import static com.atlassian.dbexporter.node.binary.BinaryFormat.BOOLEAN_COLUMN;
+import static com.atlassian.dbexporter.node.binary.BinaryFormat.BINARY;
+import static com.atlassian.dbexporter.node.binary.BinaryFormat.BINARY_COLUMN;
+import static com.atlassian.dbexporter.node.binary.BinaryFormat.BINARY_STREAM;
+import static com.atlassian.dbexporter.node.binary.BinaryFormat.BUFFER_SIZE;
+import static com.atlassian.dbexporter.node.binary.BinaryFormat.COLUMNS;
+import static com.atlassian.dbexporter.node.binary.BinaryFormat.DATE;
+import static com.atlassian.dbexporter.node.binary.BinaryFormat.DECIMAL;
+import static com.atlassian.dbexporter.node.binary.BinaryFormat.DOUBLE;
+import static com.atlassian.dbexporter.node.binary.BinaryFormat.DOUBLE_COLUMN;
+import static com.atlassian.dbexporter.node.binary.BinaryFormat.DOUBLE_VALUE;
+import static com.atlassian.dbexporter.node.binary.BinaryFormat.END;
+import static com.atlassian.dbexporter.node.binary.BinaryFormat.END_OF_CHUNKS;
+import static com.atlassian.dbexporter.node.binary.BinaryFormat.FALSE;
+import static com.atlassian.dbexporter.node.binary.BinaryFormat.FALSE_VALUE;
+import static com.atlassian.dbexporter.node.binary.BinaryFormat.INTEGER_COLUMN;
+import static com.atlassian.dbexporter.node.binary.BinaryFormat.LONG;
+import static com.atlassian.dbexporter.node.binary.BinaryFormat.MAGIC;
+import static com.atlassian.dbexporter.node.binary.BinaryFormat.NEW_NAME;
+import static com.atlassian.dbexporter.node.binary.BinaryFormat.NO_COLUMN;
+import static com.atlassian.dbexporter.node.binary.BinaryFormat.NULL;
+import static com.atlassian.dbexporter.node.binary.BinaryFormat.NULL_STRING;
+import static com.atlassian.dbexporter.node.binary.BinaryFormat.NULL_VALUE;
+import static com.atlassian.dbexporter.node.binary.BinaryFormat.ROW;
+import static com.atlassian.dbexporter.node.binary.BinaryFormat.START;
+import static com.atlassian.dbexporter.node.binary.BinaryFormat.STRING;
+import static com.atlassian.dbexporter.node.binary.BinaryFormat.STRING_COLUMN;
+import static com.atlassian.dbexporter.node.binary.BinaryFormat.TEXT;
+import static com.atlassian.dbexporter.node.binary.BinaryFormat.TIMESTAMP_COLUMN;
+import static com.atlassian.dbexporter.node.binary.BinaryFormat.TRUE;
+import static com.atlassian.dbexporter.node.binary.BinaryFormat.TRUE_VALUE;
+import static com.atlassian.dbexporter.node.binary.BinaryFormat.UTF_8;
+import static com.atlassian.dbexporter.node.binary.BinaryFormat.VERSION;
+import static com.atlassian.dbexporter.node.binary.BinaryFormat.dateFormat;
+import static com.atlassian.dbexporter.node.binary.BinaryFormat.fieldName;
+import static com.atlassian.dbexporter.node.binary.BinaryFormat.isContent;
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Reader implementation of the compact {@link BinaryFormat binary format}. Typed values are converted as the
+ * {@link com.atlassian.dbexporter.node.stax.StaxStreamReader} would convert them from their XML form, e.g. dates are
+ * read as strings in the XML date format and binaries as base64.
+ * <p>The rows of table data are read as the column, row and field nodes they were written from.</p>
+ * <p>The input is buffered, it is not closed when this reader is closed.</p>
+ *
+ * @see BinaryStreamWriter
+ * @see #isBinaryFormat(InputStream)
+ */
+public final class BinaryStreamReader implements NodeStreamReader {
+    private static final int NO_TAG = -1;
+    // the tag of the fields of table data whose value is read when the field is, see fieldValue
+    private static final int FIELD_VALUE = -2;
+    private static final int NO_CHUNK = -1;
+
+    private final ImportExportErrorService errorService;
+    private final InputStream input;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int position;
+    private int limit;
+    private final List<String> names = new ArrayList<String>();
+    private boolean rootReturned = false;
+    // the value of the current field of table data, if it is read along with the field
+    private Object fieldValue;
+    // the length of the first chunk of a string or binary of table data, once read along with the field
+    private int firstChunkLength = NO_CHUNK;
+
+    public BinaryStreamReader(ImportExportErrorService errorService, InputStream input) {
+        this.errorService = checkNotNull(errorService);
+        this.input = checkNotNull(input);
+    }
+
+    /**
+     * Tells whether the stream holds a backup in the binary format, by looking for its magic header. The stream is
+     * reset to where it was before.
+     *
+     * @param stream a stream {@link InputStream#markSupported() supporting marks}
+     * @return {@code true} if the stream starts with the header of the binary format, {@code false} e.g. for XML.
+     */
+    public static boolean isBinaryFormat(InputStream stream) throws IOException {
+        checkArgument(stream.markSupported(), "Stream must support marks");
+        stream.mark(MAGIC.length);
+        try {
+            for (byte b : MAGIC) {
+                if (stream.read() != (b & 0xFF)) {
+                    return false;
+                }
+            }
+            return true;
+        } finally {
+            stream.reset();
+        }
+    }
+
+    public NodeParser getRootNode() {
+        if (rootReturned) {
+            throw new IllegalStateException("The root node has already been returned.");
+        }
+        rootReturned = true;
+        for (byte b : MAGIC) {
+            if (readByte() != (b & 0xFF)) {
+                throw errorService.newParseException("Not a binary backup, the header is missing");
+            }
+        }
+        final int version = readByte();
+        if (version != VERSION) {
+            throw errorService.newParseException("Unsupported version " + version + " of the binary backup format");
+        }
+
+        final NodeParser np = new NodeParser() {
+            private final List<String> path = new ArrayList<String>();
+            private final List<String> attributeKeys = new ArrayList<String>();
+            private final List<String> attributeValues = new ArrayList<String>();
+            private String name;
+            // until the root node is read
+            private boolean closed = true;
+            private boolean endOfDocument;
+            // the record following the attributes of the current node, until it is read
+            private int nextTag = NO_TAG;
+            // the table data node being read, null outside of table data
+            private TableData tableData;
+
+            public String getAttribute(String key) {
+                return getAttribute(key, false);
+            }
+
+            public String getRequiredAttribute(String key) {
+                return getAttribute(key, true);
+            }
+
+            private String getAttribute(String key, boolean required) {
+                requireStartElement();
+                final int index = attributeKeys.indexOf(key);
+                if (index >= 0) {
+                    return attributeValues.get(index);
+                }
+                if (required) {
+                    throw errorService.newParseException(String.format("Required attribute %s not found in node %s", key, getName()));
+                } else {
+                    return null;
+                }
+            }
+
+            public String getName() {
+                return name;
+            }
+
+            public boolean isClosed() {
+                return closed;
+            }
+
+            public NodeParser getNextNode() {
+                if (endOfDocument) {
+                    return null;
+                }
+                if (tableData != null) {
+                    nextTableDataNode();
+                    return this;
+                }
+                final int tag;
+                if (closed) {
+                    tag = readTag();
+                    if (tag == NO_TAG && path.isEmpty()) {
+                        endOfDocument = true;
+                        return null;
+                    }
+                } else {
+                    tag = takeNextTag();
+                }
+                if (tag == START) {
+                    open();
+                } else if (tag == END && !path.isEmpty()) {
+                    close();
+                } else if (!closed && isContent(tag)) {
+                    skipContent(tag);
+                    close();
+                } else {
+                    throw unexpected(tag);
+                }
+                return this;
+            }
+
+            private void open() {
+                open(readName());
+                int tag;
+                while ((tag = readTag()) == ATTRIBUTE) {
+                    attributeKeys.add(readName());
+                    final int length = readUnsignedVarInt();
+                    attributeValues.add(length == NULL_STRING ? null : readString(length - 1));
+                }
+                if (tag == COLUMNS) {
+                    tableData = readColumns(path.size());
+                } else {
+                    nextTag = tag;
+                }
+            }
+
+            private void open(String node) {
+                name = node;
+                path.add(name);
+                closed = false;
+                attributeKeys.clear();
+                attributeValues.clear();
+            }
+
+            /**
+             * Reads the column nodes of table data from its header, then its rows.
+             */
+            private void nextTableDataNode() {
+                final TableData data = tableData;
+                if (path.size() == data.depth + 2) {
+                    // a field whose content was not read
+                    skipContent(takeNextTag());
+                    close();
+                } else if (data.inRow) {
+                    if (data.fields < data.kinds.length) {
+                        openField();
+                    } else {
+                        data.inRow = false;
+                        close();
+                    }
+                } else if (path.size() == data.depth + 1) {
+                    close();
+                } else if (data.columnNodes < data.columns.length) {
+                    open(ColumnDataNode.NAME);
+                    attributeKeys.add(ColumnDataNode.NAME_ATTR);
+                    attributeValues.add(data.columns[data.columnNodes++]);
+                } else {
+                    final int tag = readTag();
+                    if (tag == ROW) {
+                        open(RowDataNode.NAME);
+                        data.inRow = true;
+                        data.fields = 0;
+                    } else if (tag == END) {
+                        tableData = null;
+                        close();
+                    } else {
+                        throw unexpected(tag);
+                    }
+                }
+            }
+
+            /**
+             * Opens the next field of the row, the kind of its column is read first in the first row of the table.
+             */
+            private void openField() {
+                final int column = tableData.fields++;
+                int kind = tableData.kinds[column];
+                if (kind == NO_COLUMN) {
+                    kind = readByte();
+                    if (fieldName(kind) == null) {
+                        throw errorService.newParseException("Unknown kind " + kind + " of column " + tableData.columns[column] + " in binary backup");
+                    }
+                    tableData.kinds[column] = kind;
+                }
+                open(fieldName(kind));
+                nextTag = readFieldTag(kind);
+            }
+
+            private void close() {
+                name = path.remove(path.size() - 1);
+                closed = true;
+            }
+
+            private int takeNextTag() {
+                final int tag = nextTag;
+                nextTag = NO_TAG;
+                return tag;
+            }
+
+            public String getContentAsString() {
+                return asString(readContent());
+            }
+
+            public Boolean getContentAsBoolean() {
+                final Object value = readContent();
+                return value == null || value instanceof Boolean ? (Boolean) value : Boolean.valueOf(asString(value));
+            }
+
+            public Date getContentAsDate() {
+                final Object value = readContent();
+                if (value == null || value instanceof Date) {
+                    return (Date) value;
+                }
+                try {
+                    return dateFormat().parse(asString(value));
+                } catch (java.text.ParseException pe) {
+                    throw errorService.newParseException(pe);
+                }
+            }
+
+            public BigInteger getContentAsBigInteger() {
+                final Object value = readContent();
+                if (value == null || value instanceof BigInteger) {
+                    return (BigInteger) value;
+                }
+                if (value instanceof Long) {
+                    return BigInteger.valueOf((Long) value);
+                }
+                return new BigInteger(asString(value));
+            }
+
+            public BigDecimal getContentAsBigDecimal() {
+                final Object value = readContent();
+                if (value == null || value instanceof BigDecimal) {
+                    return (BigDecimal) value;
+                }
+                if (value instanceof Long) {
+                    return BigDecimal.valueOf((Long) value);
+                }
+                if (value instanceof Double) {
+                    return BigDecimal.valueOf((Double) value);
+                }
+                if (value instanceof BigInteger) {
+                    return new BigDecimal((BigInteger) value);
+                }
+                return new BigDecimal(asString(value));
+            }
+
+            public Long getContentAsLong() {
+                final Object value = readContent();
+                if (value == null || value instanceof Long) {
+                    return (Long) value;
+                }
+                return Long.valueOf(asString(value));
+            }
+
+            public Number getContentAsInteger() {
+                final Object value = readContent();
+                if (value == null || value instanceof Long || value instanceof BigInteger) {
+                    return (Number) value;
+                }
+                final BigInteger integer = new BigInteger(asString(value));
+                return integer.bitLength() < Long.SIZE ? (Number) integer.longValue() : integer;
+            }
+
+            public Double getContentAsDouble() {
+                final Object value = readContent();
+                if (value == null || value instanceof Double) {
+                    return (Double) value;
+                }
+                if (value instanceof Number) {
+                    return ((Number) value).doubleValue();
+                }
+                return Double.valueOf(asString(value));
+            }
+
+            public boolean getContent(Writer writer) {
+                final int tag = takeContentTag();
+                try {
+                    if (tag == NULL) {
+                        return false;
+                    } else if (tag == TEXT) {
+                        for (int length = readFirstChunkLength(); length != END_OF_CHUNKS; length = readUnsignedVarInt()) {
+                            writer.write(readString(length));
+                        }
+                    } else if (tag == STRING) {
+                        writer.write(readString(readUnsignedVarInt()));
+                    } else if (tag != END) {
+                        writer.write(asString(readValue(tag)));
+                    }
+                    return true;
+                } catch (IOException e) {
+                    throw errorService.newParseException("Could not read content of node " + name, e);
+                } finally {
+                    close();
+                }
+            }
+
+            public boolean getContentAsBinary(OutputStream output) {
+                final int tag = takeContentTag();
+                try {
+                    if (tag == NULL) {
+                        return false;
+                    } else if (tag == BINARY) {
+                        copy(readUnsignedVarInt(), output);
+                    } else if (tag == BINARY_STREAM) {
+                        for (int length = readFirstChunkLength(); length != END_OF_CHUNKS; length = readUnsignedVarInt()) {
+                            copy(length, output);
+                        }
+                    } else if (tag != END) {
+                        throw errorService.newParseException("Node " + name + " does not have binary content");
+                    }
+                    return true;
+                } catch (IOException e) {
+                    throw errorService.newParseException("Could not decode binary content of node " + name, e);
+                } finally {
+                    close();
+                }
+            }
+
+            /**
+             * Reads the content of the current node, leaving the reader on the end of the node.
+             *
+             * @return the typed value, as written, {@code null} for nil, and an empty string for a node without
+             * content.
+             */
+            private Object readContent() {
+                final int tag = takeContentTag();
+                try {
+                    return tag == END ? "" : readValue(tag);
+                } finally {
+                    close();
+                }
+            }
+
+            private int takeContentTag() {
+                requireStartElement();
+                final int tag = takeNextTag();
+                if (tag != END && tag != FIELD_VALUE && !isContent(tag)) {
+                    throw errorService.newParseException("Node " + name + " is not a content node");
+                }
+                return tag;
+            }
+
+            private void skipContent(int tag) {
+                if (tag == TEXT || tag == BINARY_STREAM) {
+                    for (int length = readFirstChunkLength(); length != END_OF_CHUNKS; length = readUnsignedVarInt()) {
+                        skip(length);
+                    }
+                } else if (tag == STRING || tag == BINARY || tag == BIG_INTEGER) {
+                    skip(readUnsignedVarInt());
+                } else {
+                    readValue(tag);
+                }
+            }
+
+            private void requireStartElement() throws IllegalStateException {
+                if (closed) {
+                    throw new IllegalStateException("Not currently positioned " +
+                            "at the start of a node.");
+                }
+            }
+
+            /**
+             * Reads the start of the value of a field, enough to tell which content record it stands for.
+             */
+            private int readFieldTag(int kind) {
+                switch (kind) {
+                    case STRING_COLUMN:
+                    case BINARY_COLUMN:
+                        final int length = readUnsignedVarInt();
+                        if (length == NULL_VALUE) {
+                            return NULL;
+                        }
+                        firstChunkLength = length - 1;
+                        return kind == STRING_COLUMN ? TEXT : BINARY_STREAM;
+                    case BOOLEAN_COLUMN:
+                        final int bool = readByte();
+                        if (bool != NULL_VALUE && bool != FALSE_VALUE && bool != TRUE_VALUE) {
+                            throw errorService.newParseException("Invalid boolean " + bool + " in binary backup");
+                        }
+                        return bool == NULL_VALUE ? NULL : bool == TRUE_VALUE ? TRUE : FALSE;
+                    case DOUBLE_COLUMN:
+                        final int presence = readByte();
+                        if (presence != NULL_VALUE && presence != DOUBLE_VALUE) {
+                            throw errorService.newParseException("Invalid double " + presence + " in binary backup");
+                        }
+                        return presence == NULL_VALUE ? NULL : DOUBLE;
+                    case INTEGER_COLUMN:
+                    case TIMESTAMP_COLUMN:
+                        final Number integer = readIntegerValue();
+                        if (integer == null) {
+                            return NULL;
+                        }
+                        fieldValue = kind == TIMESTAMP_COLUMN ? new Date(integer.longValue()) : integer;
+                        return FIELD_VALUE;
+                    default:
+                        throw new IllegalStateException("Unknown kind of column " + kind);
+                }
+            }
+
+            private RuntimeException unexpected(int tag) {
+                return tag == NO_TAG
+                        ? errorService.newParseException("Unexpected end of backup in node " + name)
+                        : errorService.newParseException("Unexpected record " + tag + " after node " + name);
+            }
+
+            @Override
+            public String toString() {
+                final StringBuilder sb = new StringBuilder();
+                sb.append("<");
+                if (isClosed()) {
+                    sb.append("/");
+                }
+                sb.append(getName());
+                if (!isClosed()) {
+                    for (int i = 0; i < attributeKeys.size(); i++) {
+                        sb.append(" ")
+                                .append(attributeKeys.get(i))
+                                .append("=\"")
+                                .append(attributeValues.get(i))
+                                .append("\"");
+                    }
+                }
+                sb.append(">");
+                return sb.toString();
+            }
+        };
+        final NodeParser root = np.getNextNode();
+        if (root == null) {
+            throw errorService.newParseException("Backup has no root node");
+        }
+        return root;
+    }
+
+    private Object readValue(int tag) {
+        switch (tag) {
+            case NULL:
+                return null;
+            case STRING:
+                return readString(readUnsignedVarInt());
+            case TEXT:
+                final StringWriter text = new StringWriter();
+                for (int length = readFirstChunkLength(); length != END_OF_CHUNKS; length = readUnsignedVarInt()) {
+                    text.write(readString(length));
+                }
+                return text.toString();
+            case BINARY:
+            case BINARY_STREAM:
+                final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                try {
+                    if (tag == BINARY) {
+                        copy(readUnsignedVarInt(), bytes);
+                    } else {
+                        for (int length = readFirstChunkLength(); length != END_OF_CHUNKS; length = readUnsignedVarInt()) {
+                            copy(length, bytes);
+                        }
+                    }
+                } catch (IOException e) {
+                    throw errorService.newParseException(e);
+                }
+                return bytes.toByteArray();
+            case LONG:
+                return readSignedVarLong();
+            case BIG_INTEGER:
+                return new BigInteger(readBytes(readUnsignedVarInt()));
+            case DECIMAL:
+                final int scale = (int) readSignedVarLong();
+                return BigDecimal.valueOf(readSignedVarLong(), scale);
+            case BIG_DECIMAL:
+                final int bigScale = (int) readSignedVarLong();
+                return new BigDecimal(new BigInteger(readBytes(readUnsignedVarInt())), bigScale);
+            case TRUE:
+                return Boolean.TRUE;
+            case FALSE:
+                return Boolean.FALSE;
+            case DATE:
+                return new Date(readSignedVarLong());
+            case DOUBLE:
+                return Double.longBitsToDouble(readFixedLong());
+            case FIELD_VALUE:
+                final Object value = fieldValue;
+                fieldValue = null;
+                return value;
+            default:
+                throw errorService.newParseException("Unknown record " + tag + " in binary backup");
+        }
+    }
+
+    private TableData readColumns(int depth) {
+        final String[] columns = new String[readUnsignedVarInt()];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = readString(readUnsignedVarInt());
+        }
+        return new TableData(depth, columns);
+    }
+
+    /**
+     * Reads an integer of table data, a zig-zag varint incremented by one.
+     *
+     * @return {@code null}, a {@link Long}, or a {@link BigInteger} for integers beyond long.
+     */
+    private Number readIntegerValue() {
+        long value = 0L;
+        int shift = 0;
+        int b;
+        do {
+            b = readByte();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0 && shift < 63);
+        if ((b & 0x80) == 0) {
+            if (value == NULL_VALUE) {
+                return null;
+            }
+            final long zigZag = value - 1;
+            return (zigZag >>> 1) ^ -(zigZag & 1);
+        }
+        BigInteger big = BigInteger.valueOf(value);
+        do {
+            b = readByte();
+            big = big.or(BigInteger.valueOf(b & 0x7F).shiftLeft(shift));
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        final BigInteger zigZag = big.subtract(BigInteger.ONE);
+        final BigInteger integer = zigZag.testBit(0) ? zigZag.shiftRight(1).not() : zigZag.shiftRight(1);
+        return integer.bitLength() < 64 ? (Number) integer.longValue() : integer;
+    }
+
+    /**
+     * @return the length of the first chunk of a string or a binary, which has already been read for those of table
+     * data.
+     */
+    private int readFirstChunkLength() {
+        if (firstChunkLength == NO_CHUNK) {
+            return readUnsignedVarInt();
+        }
+        final int length = firstChunkLength;
+        firstChunkLength = NO_CHUNK;
+        return length;
+    }
+
+    private static String asString(Object value) {
+        if (value == null || value instanceof String) {
+            return (String) value;
+        }
+        if (value instanceof Date) {
+            return dateFormat().format((Date) value);
+        }
+        if (value instanceof byte[]) {
+            return DatatypeConverter.printBase64Binary((byte[]) value);
+        }
+        return value.toString();
+    }
+
+    private String readName() {
+        final int ref = readUnsignedVarInt();
+        if (ref == NEW_NAME) {
+            final String name = readString(readUnsignedVarInt());
+            names.add(name);
+            return name;
+        }
+        if (ref > names.size()) {
+            throw errorService.newParseException("Unknown name reference " + ref + " in binary backup");
+        }
+        return names.get(ref - 1);
+    }
+
+    private String readString(int length) {
+        if (length <= buffer.length) {
+            require(length);
+            final String string = new String(buffer, position, length, UTF_8);
+            position += length;
+            return string;
+        }
+        return new String(readBytes(length), UTF_8);
+    }
+
+    private byte[] readBytes(int length) {
+        final byte[] bytes = new byte[length];
+        int offset = 0;
+        while (offset < length) {
+            if (position == limit && fill() == -1) {
+                throw errorService.newParseException("Unexpected end of binary backup");
+            }
+            final int count = Math.min(length - offset, limit - position);
+            System.arraycopy(buffer, position, bytes, offset, count);
+            position += count;
+            offset += count;
+        }
+        return bytes;
+    }
+
+    private void copy(long length, OutputStream output) throws IOException {
+        while (length > 0) {
+            if (position == limit && fill() == -1) {
+                throw errorService.newParseException("Unexpected end of binary backup");
+            }
+            final int count = (int) Math.min(length, limit - position);
+            output.write(buffer, position, count);
+            position += count;
+            length -= count;
+        }
+    }
+
+    private void skip(long length) {
+        while (length > 0) {
+            if (position == limit && fill() == -1) {
+                throw errorService.newParseException("Unexpected end of binary backup");
+            }
+            final int count = (int) Math.min(length, limit - position);
+            position += count;
+            length -= count;
+        }
+    }
+
+    private long readFixedLong() {
+        require(8);
+        long value = 0L;
+        for (int i = 0; i < 8; i++) {
+            value = value << 8 | (buffer[position++] & 0xFF);
+        }
+        return value;
+    }
+
+    private int readUnsignedVarInt() {
+        final long value = readUnsignedVarLong();
+        if (value > Integer.MAX_VALUE) {
+            throw errorService.newParseException("Invalid length " + value + " in binary backup");
+        }
+        return (int) value;
+    }
+
+    private long readSignedVarLong() {
+        final long value = readUnsignedVarLong();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private long readUnsignedVarLong() {
+        long value = 0L;
+        for (int shift = 0; shift < 64; shift += 7) {
+            final int b = readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw errorService.newParseException("Invalid varint in binary backup");
+    }
+
+    private int readByte() {
+        final int tag = readTag();
+        if (tag == NO_TAG) {
+            throw errorService.newParseException("Unexpected end of binary backup");
+        }
+        return tag;
+    }
+
+    /**
+     * @return the next byte, or {@link #NO_TAG} at the end of the stream.
+     */
+    private int readTag() {
+        if (position == limit && fill() == -1) {
+            return NO_TAG;
+        }
+        return buffer[position++] & 0xFF;
+    }
+
+    /**
+     * Makes sure that the next {@code length} bytes are in the buffer.
+     */
+    private void require(int length) {
+        if (limit - position >= length) {
+            return;
+        }
+        System.arraycopy(buffer, position, buffer, 0, limit - position);
+        limit -= position;
+        position = 0;
+        while (limit < length) {
+            if (fill() == -1) {
+                throw errorService.newParseException("Unexpected end of binary backup");
+            }
+        }
+    }
+
+    /**
+     * Reads more of the input into the buffer, after what it holds, or at its start once it has all been read.
+     *
+     * @return the number of bytes read, {@code -1} at the end of the stream.
+     */
+    private int fill() {
+        if (position == limit) {
+            position = 0;
+            limit = 0;
+        }
+        try {
+            final int read = input.read(buffer, limit, buffer.length - limit);
+            if (read > 0) {
+                limit += read;
+            }
+            return read;
+        } catch (IOException e) {
+            throw errorService.newParseException(e);
+        }
+    }
+
+    public void close() {
+    }
+
+    /**
+     * The state of the table data node being read.
+     */
+    private static final class TableData {
+        // the size of the path of the table data node
+        private final int depth;
+        private final String[] columns;
+        // the kinds of the columns, as declared by the first row
+        private final int[] kinds;
+        // the number of column nodes read
+        private int columnNodes;
+        private boolean inRow;
+        // the number of fields of the row read
+        private int fields;
+
+        private TableData(int depth, String[] columns) {
+            this.depth = depth;
+            this.columns = columns;
+            this.kinds = new int[columns.length];
+        }
+    }
+}
@@ -0,0 +1,660 @@
+package com.atlassian.dbexporter.node.binary;
+
+import com.atlassian.dbexporter.ImportExportErrorService;
+import com.atlassian.dbexporter.node.NodeCreator;
+import com.atlassian.dbexporter.node.NodeStreamWriter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.atlassian.dbexporter.node.NodeBackup.ColumnDataNode;
+import static com.atlassian.dbexporter.node.NodeBackup.RowDataNode;
+import static com.atlassian.dbexporter.node.NodeBackup.TableDataNode;
+
+import static com.atlassian.dbexporter.node.binary.BinaryFormat.ATTRIBUTE;
+import static com.atlassian.dbexporter.node.binary.BinaryFormat.BIG_DECIMAL;
+import static com.atlassian.dbexporter.node.binary.BinaryFormat.BIG_INTEGER;
+import static com.atlassian.dbexporter.node.binary.BinaryFormat.BOOLEAN_COLUMN;
+import static com.atlassian.dbexporter.node.binary.BinaryFormat.BINARY;
+import static com.atlassian.dbexporter.node.binary.BinaryFormat.BINARY_COLUMN;
+import static com.atlassian.dbexporter.node.binary.BinaryFormat.BINARY_STREAM;
+import static com.atlassian.dbexporter.node.binary.BinaryFormat.BUFFER_SIZE;
+import static com.atlassian.dbexporter.node.binary.BinaryFormat.CHUNK_SIZE;
+import static com.atlassian.dbexporter.node.binary.BinaryFormat.COLUMNS;
+import static com.atlassian.dbexporter.node.binary.BinaryFormat.DATE;
+import static com.atlassian.dbexporter.node.binary.BinaryFormat.DECIMAL;
+import static com.atlassian.dbexporter.node.binary.BinaryFormat.DOUBLE;
+import static com.atlassian.dbexporter.node.binary.BinaryFormat.DOUBLE_COLUMN;
+import static com.atlassian.dbexporter.node.binary.BinaryFormat.DOUBLE_VALUE;
+import static com.atlassian.dbexporter.node.binary.BinaryFormat.EMPTY_VALUE;
+import static com.atlassian.dbexporter.node.binary.BinaryFormat.END;
+import static com.atlassian.dbexporter.node.binary.BinaryFormat.END_OF_CHUNKS;
+import static com.atlassian.dbexporter.node.binary.BinaryFormat.FALSE;
+import static com.atlassian.dbexporter.node.binary.BinaryFormat.FALSE_VALUE;
+import static com.atlassian.dbexporter.node.binary.BinaryFormat.INTEGER_COLUMN;
+import static com.atlassian.dbexporter.node.binary.BinaryFormat.LONG;
+import static com.atlassian.dbexporter.node.binary.BinaryFormat.MAGIC;
+import static com.atlassian.dbexporter.node.binary.BinaryFormat.NEW_NAME;
+import static com.atlassian.dbexporter.node.binary.BinaryFormat.NO_COLUMN;
+import static com.atlassian.dbexporter.node.binary.BinaryFormat.NULL;
+import static com.atlassian.dbexporter.node.binary.BinaryFormat.NULL_STRING;
+import static com.atlassian.dbexporter.node.binary.BinaryFormat.NULL_VALUE;
+import static com.atlassian.dbexporter.node.binary.BinaryFormat.ROW;
+import static com.atlassian.dbexporter.node.binary.BinaryFormat.START;
+import static com.atlassian.dbexporter.node.binary.BinaryFormat.STRING;
+import static com.atlassian.dbexporter.node.binary.BinaryFormat.STRING_COLUMN;
+import static com.atlassian.dbexporter.node.binary.BinaryFormat.TEXT;
+import static com.atlassian.dbexporter.node.binary.BinaryFormat.TIMESTAMP_COLUMN;
+import static com.atlassian.dbexporter.node.binary.BinaryFormat.TRUE;
+import static com.atlassian.dbexporter.node.binary.BinaryFormat.TRUE_VALUE;
+import static com.atlassian.dbexporter.node.binary.BinaryFormat.UTF_8;
+import static com.atlassian.dbexporter.node.binary.BinaryFormat.VERSION;
+import static com.atlassian.dbexporter.node.binary.BinaryFormat.columnKind;
+import static com.atlassian.dbexporter.node.binary.BinaryFormat.fieldName;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Writer implementation of the compact {@link BinaryFormat binary format}. Values are written typed, e.g. numbers
+ * and dates as varints rather than as strings, and binaries as they are rather than base64 encoded.
+ * <p>The column nodes of table data are written as a single header, when the first row is added, and rows as their
+ * values only. Rows must then have a field per column, and the fields of a column must all be of the same type, as
+ * the {@link com.atlassian.dbexporter.exporter.DataExporter} writes them; an {@link IllegalStateException} is thrown
+ * otherwise.</p>
+ * <p>The output is buffered, it is flushed but not closed when this writer is closed.</p>
+ *
+ * @see BinaryStreamReader
+ */
+public final class BinaryStreamWriter implements NodeStreamWriter {
+    private final ImportExportErrorService errorService;
+    private final OutputStream output;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int position;
+    private final Map<String, Integer> names = new HashMap<String, Integer>();
+    private boolean rootExists = false;
+    // whether the next chunk is the first one of a value of table data
+    private boolean firstValueChunk = false;
+
+    public BinaryStreamWriter(ImportExportErrorService errorService, OutputStream output) {
+        this.errorService = checkNotNull(errorService);
+        this.output = checkNotNull(output);
+    }
+
+    public NodeCreator addRootNode(String name) {
+        if (rootExists) {
+            throw new IllegalStateException("Root node already created.");
+        }
+        rootExists = true;
+        try {
+            writeBytes(MAGIC, 0, MAGIC.length);
+            writeByte(VERSION);
+        } catch (IOException e) {
+            throw errorService.newParseException("Unable to create the root node.", e);
+        }
+
+        final NodeCreator nc = new NodeCreator() {
+            private long depth = 0L;
+            // content implicitly ends its node, no end record is written for it
+            private boolean contentWritten = false;
+            // the table data node being written, null outside of table data
+            private TableData tableData;
+
+            public NodeCreator addNode(String name) {
+                try {
+                    if (tableData != null) {
+                        addTableDataNode(name);
+                    } else {
+                        writeByte(START);
+                        writeName(name);
+                        if (TableDataNode.NAME.equals(name)) {
+                            tableData = new TableData(depth + 1);
+                        }
+                    }
+                    depth++;
+                    return this;
+                } catch (IOException e) {
+                    throw errorService.newParseException(e);
+                }
+            }
+
+            public NodeCreator closeEntity() {
+                try {
+                    if (tableData != null) {
+                        closeTableDataNode();
+                    } else if (!contentWritten) {
+                        writeByte(END);
+                    }
+                    contentWritten = false;
+                    return --depth == 0L ? null : this;
+                } catch (IOException e) {
+                    throw errorService.newParseException(e);
+                }
+            }
+
+            /**
+             * Column nodes are only recorded, until the header of the columns is written. Field nodes write the kind
+             * of their column in the first row, and nothing in the following ones.
+             */
+            private void addTableDataNode(String name) throws IOException {
+                if (depth == tableData.depth && tableData.kinds == null && ColumnDataNode.NAME.equals(name)) {
+                    tableData.columns.add(null);
+                } else if (depth == tableData.depth && RowDataNode.NAME.equals(name)) {
+                    writeColumns();
+                    writeByte(ROW);
+                    tableData.inRow = true;
+                    tableData.fields = 0;
+                } else if (depth == tableData.depth + 1 && tableData.inRow) {
+                    final int kind = columnKind(name);
+                    if (kind == NO_COLUMN) {
+                        throw new IllegalStateException("Unsupported field " + name + " in row of table data");
+                    }
+                    if (tableData.fields == tableData.kinds.length) {
+                        throw new IllegalStateException("Row has more fields than the " + tableData.kinds.length + " columns of the table");
+                    }
+                    if (tableData.rows == 0L) {
+                        writeByte(kind);
+                        tableData.kinds[tableData.fields] = kind;
+                    } else if (tableData.kinds[tableData.fields] != kind) {
+                        throw new IllegalStateException("Field " + name + " of column " + tableData.columns.get(tableData.fields)
+                                + " is not a " + fieldName(tableData.kinds[tableData.fields]) + " as in the first row");
+                    }
+                    tableData.kind = kind;
+                } else {
+                    throw new IllegalStateException("Unexpected node " + name + " in table data");
+                }
+            }
+
+            private void closeTableDataNode() throws IOException {
+                if (depth == tableData.depth + 2) {
+                    if (tableData.kind == STRING_COLUMN || tableData.kind == BINARY_COLUMN) {
+                        writeUnsignedVarInt(EMPTY_VALUE);
+                    } else if (tableData.kind != NO_COLUMN) {
+                        throw new IllegalStateException("Field of column " + tableData.columns.get(tableData.fields) + " has no content");
+                    }
+                    tableData.kind = NO_COLUMN;
+                    tableData.fields++;
+                } else if (depth == tableData.depth + 1 && tableData.inRow) {
+                    if (tableData.fields != tableData.kinds.length) {
+                        throw new IllegalStateException("Row has " + tableData.fields + " fields, the table has " + tableData.kinds.length + " columns");
+                    }
+                    tableData.inRow = false;
+                    tableData.rows++;
+                } else if (depth == tableData.depth + 1) {
+                    if (tableData.columns.get(tableData.columns.size() - 1) == null) {
+                        throw new IllegalStateException("Column without a name in table data");
+                    }
+                } else {
+                    writeColumns();
+                    writeByte(END);
+                    tableData = null;
+                }
+            }
+
+            private void writeColumns() throws IOException {
+                if (tableData.kinds == null) {
+                    writeByte(COLUMNS);
+                    writeUnsignedVarInt(tableData.columns.size());
+                    for (String column : tableData.columns) {
+                        writeByteArray(column.getBytes(UTF_8));
+                    }
+                    tableData.kinds = new int[tableData.columns.size()];
+                }
+            }
+
+            /**
+             * Checks that the content about to be written is the one of the current field of a row.
+             *
+             * @param kind the kind of column of the content, {@link BinaryFormat#NO_COLUMN} for null
+             */
+            private void startValue(int kind) {
+                if (tableData.kind == NO_COLUMN) {
+                    throw new IllegalStateException("Only the fields of rows have content in table data");
+                }
+                if (kind != NO_COLUMN && kind != tableData.kind) {
+                    throw new IllegalStateException("The content of a " + fieldName(tableData.kind) + " field cannot be a " + fieldName(kind));
+                }
+                tableData.kind = NO_COLUMN;
+            }
+
+            public NodeCreator setContentAsDate(Date date) {
+                try {
+                    if (date == null) {
+                        return writeNull();
+                    }
+                    if (tableData != null) {
+                        startValue(TIMESTAMP_COLUMN);
+                        writeIntegerValue(date.getTime());
+                        return this;
+                    }
+                    writeByte(DATE);
+                    writeSignedVarLong(date.getTime());
+                    return contentWritten();
+                } catch (IOException e) {
+                    throw errorService.newParseException(e);
+                }
+            }
+
+            public NodeCreator setContentAsBigInteger(BigInteger bigInteger) {
+                try {
+                    if (bigInteger == null) {
+                        return writeNull();
+                    }
+                    if (tableData != null) {
+                        startValue(INTEGER_COLUMN);
+                        writeIntegerValue(bigInteger);
+                        return this;
+                    }
+                    if (bigInteger.bitLength() < 64) {
+                        writeByte(LONG);
+                        writeSignedVarLong(bigInteger.longValue());
+                    } else {
+                        writeByte(BIG_INTEGER);
+                        writeByteArray(bigInteger.toByteArray());
+                    }
+                    return contentWritten();
+                } catch (IOException e) {
+                    throw errorService.newParseException(e);
+                }
+            }
+
+            public NodeCreator setContentAsBigDecimal(BigDecimal bigDecimal) {
+                try {
+                    if (bigDecimal == null) {
+                        return writeNull();
+                    }
+                    if (tableData != null) {
+                        startValue(DOUBLE_COLUMN);
+                        writeDoubleValue(bigDecimal.doubleValue());
+                        return this;
+                    }
+                    final BigInteger unscaled = bigDecimal.unscaledValue();
+                    if (unscaled.bitLength() < 64) {
+                        writeByte(DECIMAL);
+                        writeSignedVarLong(bigDecimal.scale());
+                        writeSignedVarLong(unscaled.longValue());
+                    } else {
+                        writeByte(BIG_DECIMAL);
+                        writeSignedVarLong(bigDecimal.scale());
+                        writeByteArray(unscaled.toByteArray());
+                    }
+                    return contentWritten();
+                } catch (IOException e) {
+                    throw errorService.newParseException(e);
+                }
+            }
+
+            public NodeCreator setContentAsLong(long value) {
+                try {
+                    if (tableData != null) {
+                        startValue(INTEGER_COLUMN);
+                        writeIntegerValue(value);
+                        return this;
+                    }
+                    writeByte(LONG);
+                    writeSignedVarLong(value);
+                    return contentWritten();
+                } catch (IOException e) {
+                    throw errorService.newParseException(e);
+                }
+            }
+
+            public NodeCreator setContentAsDouble(double value) {
+                try {
+                    if (tableData != null) {
+                        startValue(DOUBLE_COLUMN);
+                        writeDoubleValue(value);
+                        return this;
+                    }
+                    writeByte(DOUBLE);
+                    writeFixedLong(Double.doubleToLongBits(value));
+                    return contentWritten();
+                } catch (IOException e) {
+                    throw errorService.newParseException(e);
+                }
+            }
+
+            public NodeCreator setContentAsEpochMillis(long millis) {
+                try {
+                    if (tableData != null) {
+                        startValue(TIMESTAMP_COLUMN);
+                        writeIntegerValue(millis);
+                        return this;
+                    }
+                    writeByte(DATE);
+                    writeSignedVarLong(millis);
+                    return contentWritten();
+                } catch (IOException e) {
+                    throw errorService.newParseException(e);
+                }
+            }
+
+            public NodeCreator setContentAsString(String string) {
+                try {
+                    if (string == null) {
+                        return writeNull();
+                    }
+                    if (tableData != null) {
+                        startValue(STRING_COLUMN);
+                        writeBytesValue(string.getBytes(UTF_8));
+                        return this;
+                    }
+                    writeByte(STRING);
+                    writeByteArray(string.getBytes(UTF_8));
+                    return contentWritten();
+                } catch (IOException e) {
+                    throw errorService.newParseException(e);
+                }
+            }
+
+            public NodeCreator setContentAsBoolean(Boolean bool) {
+                try {
+                    if (bool == null) {
+                        return writeNull();
+                    }
+                    if (tableData != null) {
+                        startValue(BOOLEAN_COLUMN);
+                        writeByte(bool ? TRUE_VALUE : FALSE_VALUE);
+                        return this;
+                    }
+                    writeByte(bool ? TRUE : FALSE);
+                    return contentWritten();
+                } catch (IOException e) {
+                    throw errorService.newParseException(e);
+                }
+            }
+
+            public NodeCreator setContentAsBinary(byte[] bytes) {
+                try {
+                    if (bytes == null) {
+                        return writeNull();
+                    }
+                    if (tableData != null) {
+                        startValue(BINARY_COLUMN);
+                        writeBytesValue(bytes);
+                        return this;
+                    }
+                    writeByte(BINARY);
+                    writeByteArray(bytes);
+                    return contentWritten();
+                } catch (IOException e) {
+                    throw errorService.newParseException(e);
+                }
+            }
+
+            public NodeCreator setContent(Reader data) throws IOException {
+                if (data == null) {
+                    return writeNull();
+                }
+                startChunks(TEXT, STRING_COLUMN);
+                final char[] chunk = new char[CHUNK_SIZE];
+                int offset = 0;
+                int read;
+                while ((read = data.read(chunk, offset, chunk.length - offset)) != -1) {
+                    int length = offset + read;
+                    // a surrogate pair must not be split across chunks to be encoded
+                    offset = length > 0 && Character.isHighSurrogate(chunk[length - 1]) ? 1 : 0;
+                    length -= offset;
+                    if (length > 0) {
+                        final byte[] bytes = new String(chunk, 0, length).getBytes(UTF_8);
+                        writeChunk(bytes, 0, bytes.length);
+                    }
+                    if (offset > 0) {
+                        chunk[0] = chunk[length];
+                    }
+                }
+                if (offset > 0) {
+                    final byte[] bytes = new String(chunk, 0, offset).getBytes(UTF_8);
+                    writeChunk(bytes, 0, bytes.length);
+                }
+                endChunks();
+                return contentWritten();
+            }
+
+            public NodeCreator setContentAsBinary(InputStream data) throws IOException {
+                if (data == null) {
+                    return writeNull();
+                }
+                startChunks(BINARY_STREAM, BINARY_COLUMN);
+                final byte[] chunk = new byte[CHUNK_SIZE];
+                int read;
+                while ((read = data.read(chunk)) != -1) {
+                    if (read > 0) {
+                        writeChunk(chunk, 0, read);
+                    }
+                }
+                endChunks();
+                return contentWritten();
+            }
+
+            public NodeCreator addAttribute(String key, String value) {
+                try {
+                    if (tableData != null && depth > tableData.depth) {
+                        setColumnName(key, value);
+                        return this;
+                    }
+                    if (tableData != null && tableData.kinds != null) {
+                        throw new IllegalStateException("Attribute " + key + " added to table data after its columns");
+                    }
+                    writeByte(ATTRIBUTE);
+                    writeName(key);
+                    if (value == null) {
+                        writeUnsignedVarInt(NULL_STRING);
+                    } else {
+                        final byte[] bytes = value.getBytes(UTF_8);
+                        writeUnsignedVarInt(bytes.length + 1);
+                        writeBytes(bytes, 0, bytes.length);
+                    }
+                    return this;
+                } catch (IOException e) {
+                    throw errorService.newParseException(e);
+                }
+            }
+
+            private void setColumnName(String key, String value) {
+                if (depth != tableData.depth + 1 || tableData.inRow || !ColumnDataNode.NAME_ATTR.equals(key) || value == null) {
+                    throw new IllegalStateException("Unexpected attribute " + key + " in table data");
+                }
+                tableData.columns.set(tableData.columns.size() - 1, value);
+            }
+
+            private NodeCreator writeNull() {
+                try {
+                    if (tableData != null) {
+                        startValue(NO_COLUMN);
+                        writeByte(NULL_VALUE);
+                        return this;
+                    }
+                    writeByte(NULL);
+                    return contentWritten();
+                } catch (IOException e) {
+                    throw errorService.newParseException(e);
+                }
+            }
+
+            private void startChunks(int tag, int kind) throws IOException {
+                if (tableData != null) {
+                    startValue(kind);
+                    firstValueChunk = true;
+                } else {
+                    writeByte(tag);
+                }
+            }
+
+            private NodeCreator contentWritten() {
+                contentWritten = tableData == null;
+                return this;
+            }
+        };
+        return nc.addNode(name);
+    }
+
+    private void writeName(String name) throws IOException {
+        final Integer ref = names.get(name);
+        if (ref != null) {
+            writeUnsignedVarInt(ref);
+        } else {
+            names.put(name, names.size() + 1);
+            writeUnsignedVarInt(NEW_NAME);
+            writeByteArray(name.getBytes(UTF_8));
+        }
+    }
+
+    /**
+     * Writes a string or a binary of table data, as a single chunk.
+     */
+    private void writeBytesValue(byte[] bytes) throws IOException {
+        firstValueChunk = true;
+        if (bytes.length > 0) {
+            writeChunk(bytes, 0, bytes.length);
+        }
+        endChunks();
+    }
+
+    private void writeChunk(byte[] bytes, int offset, int length) throws IOException {
+        writeUnsignedVarInt(firstValueChunk ? length + 1 : length);
+        firstValueChunk = false;
+        writeBytes(bytes, offset, length);
+    }
+
+    private void endChunks() throws IOException {
+        writeUnsignedVarInt(firstValueChunk ? EMPTY_VALUE : END_OF_CHUNKS);
+        firstValueChunk = false;
+    }
+
+    /**
+     * Writes an integer of table data, as its zig-zag varint incremented by one.
+     */
+    private void writeIntegerValue(long value) throws IOException {
+        final long zigZag = (value << 1) ^ (value >> 63);
+        if (zigZag != -1L) {
+            writeUnsignedVarLong(zigZag + 1);
+        } else {
+            // the long minimum, whose incremented zig-zag value is beyond 64 bits
+            writeUnsignedVarInteger(BigInteger.ONE.shiftLeft(64));
+        }
+    }
+
+    private void writeIntegerValue(BigInteger value) throws IOException {
+        if (value.bitLength() < 64) {
+            writeIntegerValue(value.longValue());
+        } else {
+            final BigInteger zigZag = value.signum() < 0 ? value.shiftLeft(1).negate().subtract(BigInteger.ONE) : value.shiftLeft(1);
+            writeUnsignedVarInteger(zigZag.add(BigInteger.ONE));
+        }
+    }
+
+    private void writeDoubleValue(double value) throws IOException {
+        writeByte(DOUBLE_VALUE);
+        writeFixedLong(Double.doubleToLongBits(value));
+    }
+
+    private void writeUnsignedVarInteger(BigInteger value) throws IOException {
+        while (value.bitLength() > 7) {
+            writeByte((value.intValue() & 0x7F) | 0x80);
+            value = value.shiftRight(7);
+        }
+        writeByte(value.intValue());
+    }
+
+    private void writeByteArray(byte[] bytes) throws IOException {
+        writeUnsignedVarInt(bytes.length);
+        writeBytes(bytes, 0, bytes.length);
+    }
+
+    private void writeSignedVarLong(long value) throws IOException {
+        writeUnsignedVarLong((value << 1) ^ (value >> 63));
+    }
+
+    private void writeFixedLong(long value) throws IOException {
+        if (position + 8 > buffer.length) {
+            flushBuffer();
+        }
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            buffer[position++] = (byte) (value >>> shift);
+        }
+    }
+
+    private void writeUnsignedVarInt(int value) throws IOException {
+        writeUnsignedVarLong(value & 0xFFFFFFFFL);
+    }
+
+    private void writeUnsignedVarLong(long value) throws IOException {
+        if (position + 10 > buffer.length) {
+            flushBuffer();
+        }
+        while ((value & ~0x7FL) != 0L) {
+            buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[position++] = (byte) value;
+    }
+
+    private void writeByte(int b) throws IOException {
+        if (position == buffer.length) {
+            flushBuffer();
+        }
+        buffer[position++] = (byte) b;
+    }
+
+    private void writeBytes(byte[] bytes, int offset, int length) throws IOException {
+        if (length > buffer.length - position) {
+            flushBuffer();
+            if (length > buffer.length) {
+                output.write(bytes, offset, length);
+                return;
+            }
+        }
+        System.arraycopy(bytes, offset, buffer, position, length);
+        position += length;
+    }
+
+    private void flushBuffer() throws IOException {
+        if (position > 0) {
+            output.write(buffer, 0, position);
+            position = 0;
+        }
+    }
+
+    public void flush() {
+        try {
+            flushBuffer();
+            output.flush();
+        } catch (IOException e) {
+            throw errorService.newParseException(e);
+        }
+    }
+
+    public void close() {
+        flush();
+    }
+
+    /**
+     * The state of the table data node being written.
+     */
+    private static final class TableData {
+        // the depth of the table data node
+        private final long depth;
+        // the names of the columns, a column is named by its attribute after it is added
+        private final List<String> columns = new ArrayList<String>();
+        // the kinds of the columns, once their header is written
+        private int[] kinds;
+        private long rows;
+        private boolean inRow;
+        // the number of fields of the row being written
+        private int fields;
+        // the kind of the field whose content is being written, until it is written
+        private int kind = NO_COLUMN;
+
+        private TableData(long depth) {
+            this.depth = depth;
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.atlassian.dbexporter.node.stax;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.util.Arrays;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Decodes base64 text written to it chunk by chunk, writing the decoded bytes to an output stream, so that large binary
+ * content never has to be held in memory as a whole. Whitespace is ignored and several padded sequences may follow each
+ * other. The output stream is flushed, but not closed, when closing the writer.
+ */
+final class Base64DecodingWriter extends Writer {
+    private static final byte[] DECODE = new byte[128];
+    private static final int BUFFER_SIZE = 3 * 1024;
+
+    static {
+        Arrays.fill(DECODE, (byte) -1);
+        final String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/";
+        for (int i = 0; i < alphabet.length(); i++) {
+            DECODE[alphabet.charAt(i)] = (byte) i;
+        }
+    }
+
+    private final OutputStream output;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int count;
+    // bits of the current quantum of 4 characters, and how many characters and padding characters it has so far
+    private int quantum;
+    private int quantumChars;
+    private int padding;
+
+    Base64DecodingWriter(OutputStream output) {
+        this.output = checkNotNull(output);
+    }
+
+    @Override
+    public void write(char[] chars, int offset, int length) throws IOException {
+        for (int i = offset; i < offset + length; i++) {
+            final char c = chars[i];
+            if (c <= ' ') {
+                continue;
+            }
+            if (c == '=') {
+                if (quantumChars < 2) {
+                    throw new IOException("Unexpected base64 padding");
+                }
+                padding++;
+            } else {
+                final int value = c < DECODE.length ? DECODE[c] : -1;
+                if (value < 0) {
+                    throw new IOException("Invalid base64 character '" + c + "'");
+                }
+                if (padding > 0) {
+                    throw new IOException("Unexpected base64 character '" + c + "' after padding");
+                }
+                quantum = quantum << 6 | value;
+            }
+            if (++quantumChars == 4) {
+                decodeQuantum();
+            }
+        }
+    }
+
+    private void decodeQuantum() throws IOException {
+        if (count + 3 > buffer.length) {
+            flushBuffer();
+        }
+        final int bits = quantum << 6 * padding;
+        buffer[count++] = (byte) (bits >> 16);
+        if (padding < 2) {
+            buffer[count++] = (byte) (bits >> 8);
+        }
+        if (padding < 1) {
+            buffer[count++] = (byte) bits;
+        }
+        quantum = 0;
+        quantumChars = 0;
+        padding = 0;
+    }
+
+    private void flushBuffer() throws IOException {
+        output.write(buffer, 0, count);
+        count = 0;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        flushBuffer();
+        output.flush();
+    }
+
+    /**
+     * Flushes the decoded bytes to the output stream, which is not closed.
+     *
+     * @throws IOException if the base64 content ends in the middle of a quantum.
+     */
+    @Override
+    public void close() throws IOException {
+        if (quantumChars != 0) {
+            throw new IOException("Truncated base64 content");
+        }
+        flush();
+    }
+}
@@ -7,31 +7,39 @@ import com.atlassian.dbexporter.node.NodeStreamReader;
 import javax.xml.stream.XMLStreamConstants;
 import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.io.Reader;
 import java.io.Writer;
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.util.Date;
 
-import static com.atlassian.dbexporter.node.stax.StaxUtils.newDateFormat;
+import static com.atlassian.dbexporter.node.stax.StaxUtils.isTypedReader;
 import static com.atlassian.dbexporter.node.stax.StaxUtils.newXmlInputFactory;
+import static com.atlassian.dbexporter.node.stax.StaxUtils.parseDate;
 import static com.atlassian.dbexporter.node.stax.StaxUtils.unicodeDecode;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 /**
- * Reader implementation using StAX.
+ * Reader implementation using StAX. When the parser is Woodstox, numbers and booleans are read through its
+ * {@link TypedContentReader typed access API}, otherwise they are parsed from the element text.
  *
  * @author Erik van Zijst
  */
 public final class StaxStreamReader implements NodeStreamReader {
     private static final String XMLSCHEMA_URI = "http://www.w3.org/2001/XMLSchema-instance";
+    private static final int TEXT_CHUNK_SIZE = 8 * 1024;
 
     private final ImportExportErrorService errorService;
     private final XMLStreamReader reader;
+    // null when the parser doesn't support typed access
+    private final TypedContentReader typedReader;
 
     public StaxStreamReader(ImportExportErrorService errorService, Reader input) {
         this.errorService = checkNotNull(errorService);
         this.reader = createXmlStreamReader(checkNotNull(input));
+        this.typedReader = isTypedReader(reader) ? new TypedContentReader(reader) : null;
     }
 
     private XMLStreamReader createXmlStreamReader(Reader reader) {
@@ -116,20 +124,21 @@ public final class StaxStreamReader implements NodeStreamReader {
                     }
 
                     public String getContentAsString() {
-                        requireStartElement();
                         try {
-                            if (Boolean.parseBoolean(getAttribute("nil", XMLSCHEMA_URI, false))) {
-                                nextTagOrEndOfDocument();
-                                return null;
-                            } else {
-                                return unicodeDecode(reader.getElementText());
-                            }
+                            return skipNil() ? null : unicodeDecode(reader.getElementText());
                         } catch (XMLStreamException e) {
                             throw errorService.newParseException(e);
                         }
                     }
 
                     public Boolean getContentAsBoolean() {
+                        if (typedReader != null) {
+                            try {
+                                return skipNil() ? null : typedReader.getBoolean();
+                            } catch (XMLStreamException e) {
+                                throw errorService.newParseException(e);
+                            }
+                        }
                         String value = getContentAsString();
                         return value == null ? null : Boolean.parseBoolean(value);
                     }
@@ -137,25 +146,144 @@ public final class StaxStreamReader implements NodeStreamReader {
                     public Date getContentAsDate() {
                         String value = getContentAsString();
                         try {
-                            return value == null ? null : newDateFormat().parse(value);
+                            return value == null ? null : parseDate(value);
                         } catch (java.text.ParseException pe) {
                             throw errorService.newParseException(pe);
                         }
                     }
 
                     public BigInteger getContentAsBigInteger() {
+                        if (typedReader != null) {
+                            try {
+                                return skipNil() ? null : typedReader.getBigInteger();
+                            } catch (XMLStreamException e) {
+                                throw errorService.newParseException(e);
+                            }
+                        }
                         String value = getContentAsString();
                         return value == null ? null : new BigInteger(value);
                     }
 
                     @Override
                     public BigDecimal getContentAsBigDecimal() {
+                        if (typedReader != null) {
+                            try {
+                                return skipNil() ? null : typedReader.getBigDecimal();
+                            } catch (XMLStreamException e) {
+                                throw errorService.newParseException(e);
+                            }
+                        }
                         String value = getContentAsString();
                         return value == null ? null : new BigDecimal(value);
                     }
 
-                    public void getContent(Writer writer) {
-                        throw new AssertionError("Not implemented.");
+                    @Override
+                    public Long getContentAsLong() {
+                        if (typedReader != null) {
+                            try {
+                                return skipNil() ? null : typedReader.getLong();
+                            } catch (XMLStreamException e) {
+                                throw errorService.newParseException(e);
+                            }
+                        }
+                        String value = getContentAsString();
+                        return value == null ? null : Long.valueOf(value);
+                    }
+
+                    @Override
+                    public Number getContentAsInteger() {
+                        if (typedReader != null) {
+                            try {
+                                return skipNil() ? null : typedReader.getInteger();
+                            } catch (XMLStreamException e) {
+                                throw errorService.newParseException(e);
+                            }
+                        }
+                        String value = getContentAsString();
+                        return value == null ? null : parseInteger(value);
+                    }
+
+                    @Override
+                    public Double getContentAsDouble() {
+                        if (typedReader != null) {
+                            try {
+                                return skipNil() ? null : typedReader.getDouble();
+                            } catch (XMLStreamException e) {
+                                throw errorService.newParseException(e);
+                            }
+                        }
+                        String value = getContentAsString();
+                        return value == null ? null : Double.valueOf(value);
+                    }
+
+                    public boolean getContent(Writer writer) {
+                        if (skipNil()) {
+                            return false;
+                        }
+                        final String name = getName();
+                        try {
+                            final UnicodeDecodingWriter decoder = new UnicodeDecodingWriter(writer);
+                            copyElementText(name, decoder);
+                            decoder.close();
+                            return true;
+                        } catch (IOException e) {
+                            throw errorService.newParseException("Could not read content of node " + name, e);
+                        }
+                    }
+
+                    public boolean getContentAsBinary(OutputStream output) {
+                        if (skipNil()) {
+                            return false;
+                        }
+                        final String name = getName();
+                        try {
+                            final Base64DecodingWriter decoder = new Base64DecodingWriter(output);
+                            copyElementText(name, decoder);
+                            decoder.close();
+                            return true;
+                        } catch (IOException e) {
+                            throw errorService.newParseException("Could not decode binary content of node " + name, e);
+                        }
+                    }
+
+                    /**
+                     * Moves past the current element if it is nil, looking the attribute up by its name rather than
+                     * going through all attributes of the element.
+                     *
+                     * @return whether the element was nil, and so skipped.
+                     */
+                    private boolean skipNil() {
+                        requireStartElement();
+                        if (Boolean.parseBoolean(reader.getAttributeValue(XMLSCHEMA_URI, "nil"))) {
+                            nextTagOrEndOfDocument();
+                            return true;
+                        }
+                        return false;
+                    }
+
+                    /**
+                     * Copies the text of the current element to the writer, chunk by chunk rather than as a string,
+                     * leaving the reader on the end of the element.
+                     */
+                    private void copyElementText(String name, Writer writer) throws IOException {
+                        try {
+                            final char[] chunk = new char[TEXT_CHUNK_SIZE];
+                            for (int event = reader.next(); event != XMLStreamConstants.END_ELEMENT; event = reader.next()) {
+                                if (event == XMLStreamConstants.CHARACTERS
+                                        || event == XMLStreamConstants.CDATA
+                                        || event == XMLStreamConstants.SPACE) {
+                                    int read;
+                                    for (int start = 0; (read = reader.getTextCharacters(start, chunk, 0, chunk.length)) > 0; start += read) {
+                                        writer.write(chunk, 0, read);
+                                    }
+                                } else if (event != XMLStreamConstants.COMMENT
+                                        && event != XMLStreamConstants.PROCESSING_INSTRUCTION) {
+                                    throw errorService.newParseException("Unexpected content in node " + name + ". Location: " + reader.getLocation());
+                                }
+                            }
+                        } catch (XMLStreamException e) {
+                            throw errorService.newParseException(e);
+                        }
                     }
 
                     private void requireStartElement() throws IllegalStateException {
@@ -192,6 +320,18 @@ public final class StaxStreamReader implements NodeStreamReader {
         }
     }
 
+    /**
+     * Parses integers of up to 18 characters as longs straight away, as they can't overflow, and longer ones as big
+     * integers, which are only kept as such if they don't fit a long.
+     */
+    private static Number parseInteger(String value) {
+        if (value.length() <= 18) {
+            return Long.valueOf(value);
+        }
+        final BigInteger integer = new BigInteger(value);
+        return integer.bitLength() < Long.SIZE ? (Number) integer.longValue() : integer;
+    }
+
     public void close() {
         try {
             reader.close();
@@ -8,28 +8,40 @@ import javanet.staxutils.IndentingXMLStreamWriter;
 import javax.xml.bind.DatatypeConverter;
 import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamWriter;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.Reader;
 import java.io.Writer;
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.nio.charset.Charset;
+import java.util.Arrays;
 import java.util.Date;
 
-import static com.atlassian.dbexporter.node.stax.StaxUtils.newDateFormat;
+import static com.atlassian.dbexporter.node.stax.StaxUtils.formatDate;
 import static com.atlassian.dbexporter.node.stax.StaxUtils.newXmlOutputFactory;
 import static com.atlassian.dbexporter.node.stax.StaxUtils.unicodeEncode;
+import static com.atlassian.dbexporter.node.stax.StaxUtils.writeUnicodeEncoded;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 /**
- * Writer implementation using StAX.
+ * Writer implementation using StAX. The document is either indented and written to a {@link Writer}, or compact,
+ * without indentation, and encoded by the StAX implementation straight to an {@link OutputStream}, which makes for
+ * smaller backups written with less CPU.
  *
  * @author Erik van Zijst
  */
 public final class StaxStreamWriter implements NodeStreamWriter {
     private static final String XMLSCHEMA_URI = "http://www.w3.org/2001/XMLSchema-instance";
+    private static final int CHARACTERS_CHUNK_SIZE = 8 * 1024;
+    private static final int BASE64_CHUNK_SIZE = 3 * 8 * 1024;
+    private static final int OUTPUT_BUFFER_SIZE = 64 * 1024;
 
     private final ImportExportErrorService errorService;
     private final XMLStreamWriter writer;
+    private final OutputStream output; // null when writing to a writer
     private final String nameSpaceUri;
     private final Charset charset;
     private boolean rootExists = false;
@@ -41,10 +53,24 @@ public final class StaxStreamWriter implements NodeStreamWriter {
     public StaxStreamWriter(ImportExportErrorService errorService, Writer output, Charset charset, String nameSpaceUri) {
         this.errorService = checkNotNull(errorService);
         this.writer = new IndentingXMLStreamWriter(checkNotNull(createXmlStreamWriter(output)));
+        this.output = null;
         this.charset = checkNotNull(charset);
         this.nameSpaceUri = checkNotNull(nameSpaceUri);
     }
 
+    /**
+     * Creates a new compact StAX document, not indented, with the default namespace set to the specified uri. The
+     * document is encoded in the given charset by the StAX implementation and buffered before being written to the
+     * stream. The stream is flushed, but not closed, when this writer is closed.
+     */
+    public StaxStreamWriter(ImportExportErrorService errorService, OutputStream output, Charset charset, String nameSpaceUri) {
+        this.errorService = checkNotNull(errorService);
+        this.charset = checkNotNull(charset);
+        this.output = new BufferedOutputStream(checkNotNull(output), OUTPUT_BUFFER_SIZE);
+        this.writer = checkNotNull(createXmlStreamWriter(this.output, charset));
+        this.nameSpaceUri = checkNotNull(nameSpaceUri);
+    }
+
     private XMLStreamWriter createXmlStreamWriter(Writer writer) {
         try {
             return newXmlOutputFactory().createXMLStreamWriter(writer);
@@ -53,6 +79,14 @@ public final class StaxStreamWriter implements NodeStreamWriter {
         }
     }
 
+    private XMLStreamWriter createXmlStreamWriter(OutputStream output, Charset charset) {
+        try {
+            return newXmlOutputFactory().createXMLStreamWriter(output, charset.name());
+        } catch (XMLStreamException xe) {
+            throw errorService.newParseException(xe);
+        }
+    }
+
     public NodeCreator addRootNode(String name) {
         if (rootExists) {
             throw new IllegalStateException("Root node already created.");
@@ -84,7 +118,34 @@ public final class StaxStreamWriter implements NodeStreamWriter {
                     }
 
                     public NodeCreator setContentAsDate(Date date) {
-                        return setContentAsString(date == null ? null : newDateFormat().format(date));
+                        return setContentAsString(date == null ? null : formatDate(date.getTime()));
+                    }
+
+                    @Override
+                    public NodeCreator setContentAsLong(long value) {
+                        return writeCharacters(Long.toString(value));
+                    }
+
+                    @Override
+                    public NodeCreator setContentAsDouble(double value) {
+                        return writeCharacters(Double.toString(value));
+                    }
+
+                    @Override
+                    public NodeCreator setContentAsEpochMillis(long millis) {
+                        return writeCharacters(formatDate(millis));
+                    }
+
+                    /**
+                     * Writes content that needs no escaping.
+                     */
+                    private NodeCreator writeCharacters(String value) {
+                        try {
+                            writer.writeCharacters(value);
+                            return this;
+                        } catch (XMLStreamException e) {
+                            throw errorService.newParseException(e);
+                        }
                     }
 
                     @Override
@@ -121,8 +182,48 @@ public final class StaxStreamWriter implements NodeStreamWriter {
                         }
                     }
 
-                    public NodeCreator setContent(Reader data) {
-                        throw new AssertionError("Not implemented");
+                    public NodeCreator setContent(Reader data) throws IOException {
+                        if (data == null) {
+                            return setContentAsString(null);
+                        }
+                        try {
+                            final char[] buffer = new char[CHARACTERS_CHUNK_SIZE];
+                            int read;
+                            boolean empty = true;
+                            while ((read = data.read(buffer)) != -1) {
+                                writeUnicodeEncoded(writer, buffer, 0, read);
+                                empty = false;
+                            }
+                            if (empty) {
+                                writer.writeCharacters("");
+                            }
+                            return this;
+                        } catch (XMLStreamException e) {
+                            throw errorService.newParseException(e);
+                        }
+                    }
+
+                    @Override
+                    public NodeCreator setContentAsBinary(InputStream data) throws IOException {
+                        if (data == null) {
+                            return setContentAsString(null);
+                        }
+                        try {
+                            // chunks are a multiple of 3 bytes so that only the last one is padded
+                            final byte[] buffer = new byte[BASE64_CHUNK_SIZE];
+                            int read;
+                            boolean empty = true;
+                            while ((read = readFully(data, buffer)) > 0) {
+                                writer.writeCharacters(DatatypeConverter.printBase64Binary(read == buffer.length ? buffer : Arrays.copyOf(buffer, read)));
+                                empty = false;
+                            }
+                            if (empty) {
+                                writer.writeCharacters("");
+                            }
+                            return this;
+                        } catch (XMLStreamException e) {
+                            throw errorService.newParseException(e);
+                        }
                     }
 
                     public NodeCreator addAttribute(String key, String value) {
@@ -144,19 +245,38 @@ public final class StaxStreamWriter implements NodeStreamWriter {
         }
     }
 
+    private static int readFully(InputStream data, byte[] buffer) throws IOException {
+        int total = 0;
+        int read;
+        while (total < buffer.length && (read = data.read(buffer, total, buffer.length - total)) != -1) {
+            total += read;
+        }
+        return total;
+    }
+
     public void flush() {
         try {
             writer.flush();
+            if (output != null) {
+                output.flush();
+            }
         } catch (XMLStreamException e) {
             throw errorService.newParseException(e);
+        } catch (IOException e) {
+            throw errorService.newParseException(e);
         }
     }
 
     public void close() {
         try {
             writer.close();
+            if (output != null) {
+                output.flush();
+            }
         } catch (XMLStreamException e) {
             throw errorService.newParseException(e);
+        } catch (IOException e) {
+            throw errorService.newParseException(e);
         }
     }
 }
@@ -2,113 +2,164 @@ package com.atlassian.dbexporter.node.stax;
 
 import javax.xml.stream.XMLInputFactory;
 import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
 import java.text.DateFormat;
+import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.Arrays;
+import java.util.Date;
 import java.util.List;
-import java.util.Map;
 import java.util.TimeZone;
 
 import static com.google.common.collect.Lists.newArrayList;
-import static com.google.common.collect.Maps.newHashMap;
 
 final class StaxUtils {
     private static final String WOODSTOX_INPUT_FACTORY = "com.ctc.wstx.stax.WstxInputFactory";
     private static final String DEFAULT_INPUT_FACTORY = "com.sun.xml.internal.stream.XMLInputFactoryImpl";
     private static final String WOODSTOX_OUTPUT_FACTORY = "com.ctc.wstx.stax.WstxOutputFactory";
     private static final String DEFAULT_OUTPUT_FACTORY = "com.sun.xml.internal.stream.XMLOutputFactoryImpl";
+    private static final String TYPED_READER = "org.codehaus.stax2.typed.TypedXMLStreamReader";
+    private static final Class<?> TYPED_READER_CLASS = loadClassIfAvailable(TYPED_READER);
+
+    // date formats are not thread safe, and too costly to create for every value
+    private static final ThreadLocal<DateFormat> DATE_FORMAT = new ThreadLocal<DateFormat>() {
+        @Override
+        protected DateFormat initialValue() {
+            return newDateFormat();
+        }
+    };
 
     private static final char BACKSLASH = '\\';
-    private static final Map<Character, String> CHAR_TO_UNICODE;
+    private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+    // the escape sequences of the characters below 0x80, null for those that are not escaped
+    private static final char[][] ESCAPES = new char[0x80][];
+    private static final char[] ESCAPED_FFFE = escapeSequence('\uFFFE');
+    private static final char[] ESCAPED_FFFF = escapeSequence('\uFFFF');
 
     static {
-        final String escapeString = "\u0000\u0001\u0002\u0003\u0004\u0005" +
-                "\u0006\u0007\u0008\u000B\u000C\u000E\u000F\u0010\u0011\u0012" +
-                "\u0013\u0014\u0015\u0016\u0017\u0018\u0019\u001A\u001B\u001C" +
-                "\u001D\u001E\u001F\uFFFE\uFFFF";
+        for (char c = 0; c < 0x20; c++) {
+            if (c != '\t' && c != '\n' && c != '\r') {
+                ESCAPES[c] = escapeSequence(c);
+            }
+        }
+        ESCAPES[BACKSLASH] = new char[]{BACKSLASH, BACKSLASH};
+    }
 
-        CHAR_TO_UNICODE = newHashMap();
+    private static char[] escapeSequence(char c) {
+        return new char[]{BACKSLASH, 'u', HEX_DIGITS[c >> 12], HEX_DIGITS[c >> 8 & 0xF], HEX_DIGITS[c >> 4 & 0xF], HEX_DIGITS[c & 0xF]};
+    }
 
-        for (int i = 0; i < escapeString.length(); i++) {
-            final char c = escapeString.charAt(i);
-            CHAR_TO_UNICODE.put(c, String.format("\\u%04X", (int) c));
+    /**
+     * @return the escape sequence of the character, {@code null} if it is written as it is.
+     */
+    private static char[] escape(char c) {
+        if (c < ESCAPES.length) {
+            return ESCAPES[c];
         }
-        CHAR_TO_UNICODE.put('\\', "\\\\");
+        return c == '\uFFFE' ? ESCAPED_FFFE : c == '\uFFFF' ? ESCAPED_FFFF : null;
     }
 
     /**
      * Replaces all characters that are illegal in XML with a Java-like unicode
      * escape sequence '\\u[0-9][0-9][0-9][0-9]'. When <code>null</code> is
-     * passed into this method, <code>null</code> is returned.
+     * passed into this method, <code>null</code> is returned. The string itself
+     * is returned, without copying it, when no character needs escaping.
      *
      * @see #unicodeDecode(String)
      */
     public static String unicodeEncode(String string) {
-
         if (string == null) {
             return null;
-        } else {
-            final StringBuilder copy = new StringBuilder();
-            copy.setLength(0);
-            boolean copied = false;
-
-            for (int i = 0; i < string.length(); i++) {
-
-                char c = string.charAt(i);
-                String s = CHAR_TO_UNICODE.get(c);
-                if (s != null && !copied) {
-                    copy.append(string.substring(0, i));
-                    copied = true;
-                }
-                if (copied) {
-                    if (s == null) {
-                        copy.append(c);
-                    } else {
-                        copy.append(s);
-                    }
+        }
+        final int length = string.length();
+        int i = 0;
+        while (i < length && escape(string.charAt(i)) == null) {
+            i++;
+        }
+        if (i == length) {
+            return string;
+        }
+        final StringBuilder copy = new StringBuilder(length + 16);
+        copy.append(string, 0, i);
+        for (; i < length; i++) {
+            final char c = string.charAt(i);
+            final char[] escaped = escape(c);
+            if (escaped == null) {
+                copy.append(c);
+            } else {
+                copy.append(escaped);
+            }
+        }
+        return copy.toString();
+    }
+
+    /**
+     * Writes the characters to the XML writer, escaped as {@link #unicodeEncode(String)} does, without copying them:
+     * runs of characters that need no escaping are written as they are.
+     */
+    static void writeUnicodeEncoded(XMLStreamWriter writer, char[] chars, int offset, int length) throws XMLStreamException {
+        final int end = offset + length;
+        int run = offset; // start of the run of characters to write as they are
+        for (int i = offset; i < end; i++) {
+            final char[] escaped = escape(chars[i]);
+            if (escaped != null) {
+                if (i > run) {
+                    writer.writeCharacters(chars, run, i - run);
                 }
+                writer.writeCharacters(escaped, 0, escaped.length);
+                run = i + 1;
             }
-            return copied ? copy.toString() : string;
+        }
+        if (end > run) {
+            writer.writeCharacters(chars, run, end - run);
         }
     }
 
     /**
      * Substitutes all occurances of '\\u[0-9][0-9][0-9][0-9]' with their
      * corresponding character codes. When <code>null</code> is passed into this
-     * method, <code>null</code> is returned.
+     * method, <code>null</code> is returned. The string itself is returned,
+     * without copying it, when it holds no escape sequence.
      *
+     * @throws IllegalArgumentException if the string holds an invalid escape sequence.
      * @see #unicodeEncode(String)
      */
     public static String unicodeDecode(String string) {
-
         if (string == null) {
             return null;
-        } else {
-            final StringBuilder copy = new StringBuilder();
-            copy.setLength(0);
-            boolean copied = false;
-
-            for (int i = 0; i < string.length(); i++) {
-                char c = string.charAt(i);
-                if (c == BACKSLASH) {
-                    if (!copied) {
-                        copy.append(string.substring(0, i));
-                        copied = true;
-                    }
-                    if (string.charAt(++i) == BACKSLASH) {
-                        copy.append(BACKSLASH);
-                    } else {
-                        // must be a unicode string
-                        String value = string.substring(++i, i + 4);
-                        copy.append((char) Integer.parseInt(value, 16));
-                        i += 3;
-                    }
-                } else if (copied) {
-                    copy.append(c);
-                }
+        }
+        int i = string.indexOf(BACKSLASH);
+        if (i < 0) {
+            return string;
+        }
+        final int length = string.length();
+        final StringBuilder copy = new StringBuilder(length);
+        copy.append(string, 0, i);
+        for (; i < length; i++) {
+            final char c = string.charAt(i);
+            if (c != BACKSLASH) {
+                copy.append(c);
+            } else if (i + 1 < length && string.charAt(i + 1) == BACKSLASH) {
+                copy.append(BACKSLASH);
+                i++;
+            } else if (i + 5 < length && string.charAt(i + 1) == 'u') {
+                copy.append((char) (hexDigit(string, i + 2) << 12 | hexDigit(string, i + 3) << 8 | hexDigit(string, i + 4) << 4 | hexDigit(string, i + 5)));
+                i += 5;
+            } else {
+                throw new IllegalArgumentException("Invalid escape sequence at " + i + " in '" + string + "'");
             }
-            return copied ? copy.toString() : string;
         }
+        return copy.toString();
+    }
+
+    private static int hexDigit(String string, int index) {
+        final int digit = Character.digit(string.charAt(index), 16);
+        if (digit < 0) {
+            throw new IllegalArgumentException("Invalid unicode escape sequence, '" + string.charAt(index) + "' is not a hex digit");
+        }
+        return digit;
     }
 
     public static DateFormat newDateFormat() {
@@ -117,6 +168,20 @@ final class StaxUtils {
         return sdf;
     }
 
+    /**
+     * Formats a date as {@link #newDateFormat()} does, with a date format confined to the calling thread.
+     */
+    static String formatDate(long millis) {
+        return DATE_FORMAT.get().format(new Date(millis));
+    }
+
+    /**
+     * Parses a date as {@link #newDateFormat()} does, with a date format confined to the calling thread.
+     */
+    static Date parseDate(String date) throws ParseException {
+        return DATE_FORMAT.get().parse(date);
+    }
+
     static XMLInputFactory newXmlInputFactory() {
         return newInstance(XMLInputFactory.class, WOODSTOX_INPUT_FACTORY, DEFAULT_INPUT_FACTORY);
     }
@@ -125,6 +190,24 @@ final class StaxUtils {
         return newInstance(XMLOutputFactory.class, WOODSTOX_OUTPUT_FACTORY, DEFAULT_OUTPUT_FACTORY);
     }
 
+    /**
+     * @return whether the reader implements the Stax2 typed access API, i.e. whether it can be read by a
+     * {@link TypedContentReader}. Stax2 is optional, it comes with Woodstox.
+     */
+    static boolean isTypedReader(XMLStreamReader reader) {
+        return TYPED_READER_CLASS != null && TYPED_READER_CLASS.isInstance(reader);
+    }
+
+    private static Class<?> loadClassIfAvailable(String className) {
+        try {
+            return StaxUtils.class.getClassLoader().loadClass(className);
+        } catch (ClassNotFoundException e) {
+            return null;
+        } catch (LinkageError e) {
+            return null;
+        }
+    }
+
     private static <T> T newInstance(Class<T> type, String... classNames) {
         final List<XmlFactoryException> exceptions = newArrayList();
         for (String className : classNames) {
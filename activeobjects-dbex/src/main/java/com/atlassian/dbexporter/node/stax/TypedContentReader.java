@@ -0,0 +1,134 @@
+package com.atlassian.dbexporter.node.stax;
+
+import org.codehaus.stax2.typed.TypedValueDecoder;
+import org.codehaus.stax2.typed.TypedXMLStreamException;
+import org.codehaus.stax2.typed.TypedXMLStreamReader;
+
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+/**
+ * Reads the content of elements through the Stax2 typed access API, as implemented by Woodstox: values are decoded
+ * from the buffers of the parser, rather than from the element text as a string.
+ * <p>This is the only class referring to Stax2, it must not be loaded unless
+ * {@link StaxUtils#isTypedReader(XMLStreamReader)} holds, as Stax2 may not be available.</p>
+ * <p>Like {@link XMLStreamReader#getElementText()}, all methods leave the reader on the end of the element. Content
+ * that isn't a valid number fails with a {@link NumberFormatException}, as parsing the element text would.</p>
+ *
+ * @see StaxStreamReader
+ */
+final class TypedContentReader {
+    private final TypedXMLStreamReader reader;
+
+    TypedContentReader(XMLStreamReader reader) {
+        this.reader = (TypedXMLStreamReader) reader;
+    }
+
+    boolean getBoolean() throws XMLStreamException {
+        return reader.getElementAsBoolean();
+    }
+
+    long getLong() throws XMLStreamException {
+        try {
+            return reader.getElementAsLong();
+        } catch (TypedXMLStreamException e) {
+            throw newNumberFormatException(e);
+        }
+    }
+
+    /**
+     * @return the content as a {@link Long}, or as a {@link BigInteger} when it is out of the range of long.
+     */
+    Number getInteger() throws XMLStreamException {
+        // a failed typed read leaves the parser in an inconsistent state, so integers beyond long must not fail
+        final IntegerDecoder decoder = new IntegerDecoder();
+        try {
+            reader.getElementAs(decoder);
+        } catch (TypedXMLStreamException e) {
+            throw newNumberFormatException(e);
+        }
+        return decoder.value;
+    }
+
+    double getDouble() throws XMLStreamException {
+        try {
+            return reader.getElementAsDouble();
+        } catch (TypedXMLStreamException e) {
+            throw newNumberFormatException(e);
+        }
+    }
+
+    BigInteger getBigInteger() throws XMLStreamException {
+        try {
+            return reader.getElementAsInteger();
+        } catch (TypedXMLStreamException e) {
+            throw newNumberFormatException(e);
+        }
+    }
+
+    BigDecimal getBigDecimal() throws XMLStreamException {
+        try {
+            return reader.getElementAsDecimal();
+        } catch (TypedXMLStreamException e) {
+            throw newNumberFormatException(e);
+        }
+    }
+
+    private static NumberFormatException newNumberFormatException(TypedXMLStreamException e) {
+        final NumberFormatException nfe = new NumberFormatException("For input string: \"" + e.getLexical() + "\"");
+        nfe.initCause(e);
+        return nfe;
+    }
+
+    /**
+     * Decodes an integer from the buffer of the parser as a long, only creating a string for integers beyond long.
+     */
+    private static final class IntegerDecoder extends TypedValueDecoder {
+        private Number value;
+
+        @Override
+        public void decode(String lexical) {
+            decode(lexical.toCharArray(), 0, lexical.length());
+        }
+
+        @Override
+        public void decode(char[] lexical, int start, int end) {
+            while (start < end && Character.isWhitespace(lexical[start])) {
+                start++;
+            }
+            while (end > start && Character.isWhitespace(lexical[end - 1])) {
+                end--;
+            }
+            final boolean negative = start < end && lexical[start] == '-';
+            int i = negative || (start < end && lexical[start] == '+') ? start + 1 : start;
+            if (i == end) {
+                throw new IllegalArgumentException("Not an integer: \"" + new String(lexical, start, end - start) + "\"");
+            }
+            // accumulated negatively, as the range of long goes one further below zero than above
+            long result = 0L;
+            for (; i < end; i++) {
+                final int digit = Character.digit(lexical[i], 10);
+                if (digit < 0) {
+                    throw new IllegalArgumentException("Not an integer: \"" + new String(lexical, start, end - start) + "\"");
+                }
+                if (result < (Long.MIN_VALUE + digit) / 10) {
+                    value = new BigInteger(new String(lexical, start, end - start));
+                    return;
+                }
+                result = result * 10 - digit;
+            }
+            if (!negative && result == Long.MIN_VALUE) {
+                value = BigInteger.valueOf(Long.MIN_VALUE).negate();
+                return;
+            }
+            value = negative ? result : -result;
+        }
+
+        @Override
+        public void handleEmptyValue() {
+            throw new IllegalArgumentException("Not an integer: \"\"");
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.atlassian.dbexporter.node.stax;
+
+import java.io.IOException;
+import java.io.Writer;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Substitutes the escape sequences of {@link StaxUtils#unicodeEncode(String)} with the characters they stand for, as
+ * text is written to it chunk by chunk, escape sequences possibly spanning chunks. Runs of characters that are not
+ * escaped are written to the underlying writer as they are. The underlying writer is not closed when closing this
+ * writer.
+ *
+ * @see StaxUtils#unicodeDecode(String)
+ */
+final class UnicodeDecodingWriter extends Writer {
+    private static final char BACKSLASH = '\\';
+    private static final int NOT_ESCAPED = -1;
+    private static final int HEX_DIGITS = 4;
+
+    private final Writer output;
+    // NOT_ESCAPED, 0 right after a backslash, or the number of hex digits read of a unicode escape sequence
+    private int escape = NOT_ESCAPED;
+    private int code;
+
+    UnicodeDecodingWriter(Writer output) {
+        this.output = checkNotNull(output);
+    }
+
+    @Override
+    public void write(char[] chars, int offset, int length) throws IOException {
+        final int end = offset + length;
+        int run = offset; // start of the run of characters to write as they are
+        for (int i = offset; i < end; i++) {
+            final char c = chars[i];
+            if (escape == NOT_ESCAPED) {
+                if (c == BACKSLASH) {
+                    output.write(chars, run, i - run);
+                    escape = 0;
+                }
+            } else if (escape == 0 && c == BACKSLASH) {
+                output.write(BACKSLASH);
+                escape = NOT_ESCAPED;
+                run = i + 1;
+            } else if (escape == 0 && c != 'u') {
+                throw new IOException("Invalid escape sequence '\\" + c + "'");
+            } else if (escape == 0) {
+                escape = 1;
+                code = 0;
+            } else {
+                final int digit = Character.digit(c, 16);
+                if (digit < 0) {
+                    throw new IOException("Invalid unicode escape sequence, '" + c + "' is not a hex digit");
+                }
+                code = code << 4 | digit;
+                if (escape++ == HEX_DIGITS) {
+                    output.write(code);
+                    escape = NOT_ESCAPED;
+                    run = i + 1;
+                }
+            }
+        }
+        if (escape == NOT_ESCAPED) {
+            output.write(chars, run, end - run);
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        output.flush();
+    }
+
+    /**
+     * Flushes the underlying writer, which is not closed.
+     *
+     * @throws IOException if the text ends in the middle of an escape sequence.
+     */
+    @Override
+    public void close() throws IOException {
+        if (escape != NOT_ESCAPED) {
+            throw new IOException("Truncated escape sequence");
+        }
+        flush();
+    }
+}
@@ -0,0 +1,31 @@
+package com.atlassian.dbexporter.progress;
+
+/**
+ * A progress monitor that ignores all notifications.
+ */
+public final class NullProgressMonitor implements ProgressMonitor {
+    public static final ProgressMonitor INSTANCE = new NullProgressMonitor();
+
+    private NullProgressMonitor() {
+    }
+
+    @Override
+    public void begin(Object... args) {
+    }
+
+    @Override
+    public void end(Object... args) {
+    }
+
+    @Override
+    public void begin(Task task, Object... args) {
+    }
+
+    @Override
+    public void end(Task task, Object... args) {
+    }
+
+    @Override
+    public void totalNumberOfTables(int size) {
+    }
+}
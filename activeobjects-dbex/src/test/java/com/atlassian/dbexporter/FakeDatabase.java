@@ -0,0 +1,698 @@
+package com.atlassian.dbexporter;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.CharStreams;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static com.google.common.collect.Maps.newHashMap;
+
+/**
+ * <p>A database faked with proxies of the JDBC interfaces, for tests of how table data is inserted and read. It
+ * understands {@code INSERT INTO table (columns) VALUES (...), ...} statements, executed at once or in batches,
+ * {@code DELETE FROM table}, and the queries of exports: {@code SELECT * FROM table}, optionally restricted to a range
+ * of keys, ordered by key and limited to a number of rows as each database does it,
+ * {@code SELECT MIN(key), MAX(key) FROM table} and {@code SELECT COUNT(*) FROM table WHERE key <= ?}. The first column of a table is its
+ * primary key, inserting a key twice fails as it would with an actual database.</p>
+ * <p>Transactions, savepoints and batches behave as with actual drivers, so that tests can tell which rows end up
+ * committed. A key can also be made to {@link #failOn(Object) fail} with a connection error, as if the database went
+ * away while inserting or reading it.</p>
+ * <p>This class is thread safe, each connection is used by one thread at a time.</p>
+ */
+public final class FakeDatabase implements ConnectionProvider {
+    private static final Pattern INSERT = Pattern.compile("INSERT INTO \"(\\w+)\" \\((.*?)\\) VALUES .*");
+    private static final Pattern DELETE = Pattern.compile("DELETE FROM \"(\\w+)\"");
+    private static final Pattern SELECT = Pattern.compile("SELECT (\\*|MIN\\(\"\\w+\"\\), MAX\\(\"\\w+\"\\)|COUNT\\(\\*\\)) FROM \"(\\w+)\"(?: WHERE (.*?))?(?: ORDER BY \"\\w+\")?");
+    private static final Pattern CONDITION = Pattern.compile("\"\\w+\" (>|<=) \\?");
+    private static final Pattern TOP = Pattern.compile("SELECT TOP \\(\\?\\) (.*)");
+    private static final Pattern ROWNUM = Pattern.compile("SELECT \\* FROM \\((.*)\\) WHERE ROWNUM <= \\?");
+    private static final Pattern LIMIT = Pattern.compile("(.*) (?:LIMIT \\?|FETCH FIRST \\? ROWS ONLY)");
+
+    private final Map<String, List<Object[]>> tables = newHashMap();
+    private final Map<String, List<String>> columns = newHashMap();
+    private final String databaseName;
+    private final AtomicInteger openConnections = new AtomicInteger();
+    private final AtomicInteger maxOpenConnections = new AtomicInteger();
+    private final AtomicInteger insertStatements = new AtomicInteger();
+    private Object failingKey;
+
+    public FakeDatabase() {
+        this("Fake");
+    }
+
+    /**
+     * @param databaseName the name of the product of the database, telling which database is faked
+     */
+    public FakeDatabase(String databaseName) {
+        this.databaseName = databaseName;
+    }
+
+    public DatabaseInformation getDatabaseInformation() {
+        return new DatabaseInformation(ImmutableMap.of("database.name", databaseName));
+    }
+
+    /**
+     * Creates a table with committed rows, as read by queries. The first column is the primary key.
+     *
+     * @param table   the name of the table
+     * @param columns the names of the columns
+     * @param rows    the values of each row, {@link Long} or {@link String}, in the order of the columns
+     */
+    public synchronized void createTable(String table, List<String> columns, Object[]... rows) {
+        this.columns.put(table, newArrayList(columns));
+        getRows(table).addAll(Arrays.asList(rows));
+    }
+
+    /**
+     * Adds committed rows to a table, as if inserted by another connection.
+     */
+    public synchronized void insertRows(String table, Object[]... rows) {
+        getRows(table).addAll(Arrays.asList(rows));
+    }
+
+    /**
+     * Deletes the committed row of a table with the given key, as if deleted by another connection.
+     */
+    public synchronized void deleteRow(String table, Object key) {
+        for (Iterator<Object[]> rows = getRows(table).iterator(); rows.hasNext(); ) {
+            if (rows.next()[0].equals(key)) {
+                rows.remove();
+            }
+        }
+    }
+
+    /**
+     * Makes inserting or reading the given key fail, as if the connection was lost.
+     *
+     * @param key the key, {@code null} for inserts and reads to succeed again
+     */
+    public synchronized void failOn(Object key) {
+        this.failingKey = key;
+    }
+
+    /**
+     * @return the first column of the committed rows of the table, in the order they were inserted.
+     */
+    public synchronized List<Object> getKeys(String table) {
+        final List<Object> keys = newArrayList();
+        for (Object[] row : getRows(table)) {
+            keys.add(row[0]);
+        }
+        return keys;
+    }
+
+    /**
+     * @return the names of the tables with committed rows.
+     */
+    public synchronized List<String> getTables() {
+        final List<String> names = newArrayList(tables.keySet());
+        Collections.sort(names);
+        return names;
+    }
+
+    /**
+     * @return the number of insert statements executed, counting each statement of a batch.
+     */
+    public int getInsertStatements() {
+        return insertStatements.get();
+    }
+
+    /**
+     * @return the number of connections not closed yet.
+     */
+    public int getOpenConnections() {
+        return openConnections.get();
+    }
+
+    /**
+     * @return the greatest number of connections that were open at once.
+     */
+    public int getMaxOpenConnections() {
+        return maxOpenConnections.get();
+    }
+
+    @Override
+    public Connection getConnection() {
+        final int open = openConnections.incrementAndGet();
+        while (true) {
+            final int max = maxOpenConnections.get();
+            if (open <= max || maxOpenConnections.compareAndSet(max, open)) {
+                break;
+            }
+        }
+        return proxy(Connection.class, new FakeConnection());
+    }
+
+    private synchronized List<Object[]> getRows(String table) {
+        List<Object[]> rows = tables.get(table);
+        if (rows == null) {
+            rows = newArrayList();
+            tables.put(table, rows);
+        }
+        return rows;
+    }
+
+    /**
+     * @return the committed rows of the table with a key matching the conditions, in the order they were inserted.
+     */
+    private synchronized List<Object[]> select(String table, List<String> operators, List<Long> keys) {
+        final List<Object[]> selected = newArrayList();
+        for (Object[] row : getRows(table)) {
+            final long key = ((Number) row[0]).longValue();
+            boolean matches = true;
+            for (int i = 0; i < operators.size(); i++) {
+                matches &= operators.get(i).equals(">") ? key > keys.get(i) : key <= keys.get(i);
+            }
+            if (matches) {
+                selected.add(row);
+            }
+        }
+        return selected;
+    }
+
+    private synchronized List<String> getColumns(String table) {
+        final List<String> names = columns.get(table);
+        return names != null ? names : Collections.<String>emptyList();
+    }
+
+    private synchronized boolean hasKey(String table, Object key) {
+        for (Object[] row : getRows(table)) {
+            if (row[0].equals(key)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private synchronized void commit(List<Change> changes) {
+        for (Change change : changes) {
+            if (change.row != null) {
+                getRows(change.table).add(change.row);
+            } else {
+                getRows(change.table).clear();
+            }
+        }
+    }
+
+    private synchronized boolean isFailing(Object key) {
+        return failingKey != null && failingKey.equals(key);
+    }
+
+    private static <T> T proxy(Class<T> type, final Object target) {
+        return type.cast(Proxy.newProxyInstance(FakeDatabase.class.getClassLoader(), new Class[]{type}, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                try {
+                    return target.getClass().getMethod(method.getName(), method.getParameterTypes()).invoke(target, args);
+                } catch (NoSuchMethodException e) {
+                    return defaultValue(method.getReturnType());
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            }
+        }));
+    }
+
+    private static Object defaultValue(Class<?> type) {
+        if (type == boolean.class) {
+            return false;
+        }
+        if (type == int.class) {
+            return 0;
+        }
+        if (type == long.class) {
+            return 0L;
+        }
+        return null;
+    }
+
+    /**
+     * An insert or a deletion of all rows, not committed yet.
+     */
+    private static final class Change {
+        private final String table;
+        private final Object[] row; // null to delete all rows
+
+        private Change(String table, Object[] row) {
+            this.table = table;
+            this.row = row;
+        }
+    }
+
+    public final class FakeConnection {
+        private final List<Change> changes = newArrayList();
+        private boolean autoCommit = true;
+
+        public boolean getAutoCommit() {
+            return autoCommit;
+        }
+
+        public void setAutoCommit(boolean autoCommit) {
+            if (autoCommit && !this.autoCommit) {
+                commit();
+            }
+            this.autoCommit = autoCommit;
+        }
+
+        public void commit() {
+            FakeDatabase.this.commit(changes);
+            changes.clear();
+        }
+
+        public void rollback() {
+            changes.clear();
+        }
+
+        public Savepoint setSavepoint() {
+            return new FakeSavepoint(changes.size());
+        }
+
+        public void rollback(Savepoint savepoint) {
+            changes.subList(((FakeSavepoint) savepoint).changes, changes.size()).clear();
+        }
+
+        public void releaseSavepoint(Savepoint savepoint) {
+        }
+
+        public DatabaseMetaData getMetaData() {
+            return proxy(DatabaseMetaData.class, new FakeMetaData());
+        }
+
+        public Statement createStatement() {
+            return proxy(Statement.class, new FakeStatement(this, null));
+        }
+
+        public PreparedStatement prepareStatement(String sql) throws SQLException {
+            final Matcher insert = INSERT.matcher(sql);
+            if (insert.matches()) {
+                return proxy(PreparedStatement.class, new FakeStatement(this, insert));
+            }
+            final Matcher top = TOP.matcher(sql);
+            if (top.matches()) {
+                return prepareQuery("SELECT " + top.group(1), 1, sql);
+            }
+            final Matcher rownum = ROWNUM.matcher(sql);
+            final Matcher limit = LIMIT.matcher(sql);
+            final String query = rownum.matches() ? rownum.group(1) : limit.matches() ? limit.group(1) : null;
+            if (query != null) {
+                return prepareQuery(query, query.length() - query.replace("?", "").length() + 1, sql);
+            }
+            return prepareQuery(sql, 0, sql);
+        }
+
+        /**
+         * @param limitParameter the index of the parameter limiting the number of rows, {@code 0} if there is none
+         */
+        private PreparedStatement prepareQuery(String query, int limitParameter, String sql) throws SQLException {
+            final Matcher select = SELECT.matcher(query);
+            if (select.matches()) {
+                return proxy(PreparedStatement.class, new FakeQuery(getDatabase(), select, limitParameter));
+            }
+            throw new SQLException("Unsupported statement " + sql);
+        }
+
+        public void close() {
+            changes.clear();
+            openConnections.decrementAndGet();
+        }
+
+        private void insert(String table, Object[] row) throws SQLException {
+            if (isFailing(row[0])) {
+                throw new SQLException("Connection lost", "08006");
+            }
+            if (hasKey(table, row[0])) {
+                throw new SQLException("Duplicate key " + row[0] + " in " + table, "23505");
+            }
+            for (Change change : changes) {
+                if (change.table.equals(table) && change.row != null && change.row[0].equals(row[0])) {
+                    throw new SQLException("Duplicate key " + row[0] + " in " + table, "23505");
+                }
+            }
+            changes.add(new Change(table, row));
+            if (autoCommit) {
+                commit();
+            }
+        }
+
+        private FakeDatabase getDatabase() {
+            return FakeDatabase.this;
+        }
+
+        private void deleteAll(String table) {
+            changes.add(new Change(table, null));
+            if (autoCommit) {
+                commit();
+            }
+        }
+    }
+
+    private static final class FakeSavepoint implements Savepoint {
+        private final int changes;
+
+        private FakeSavepoint(int changes) {
+            this.changes = changes;
+        }
+
+        @Override
+        public int getSavepointId() {
+            return changes;
+        }
+
+        @Override
+        public String getSavepointName() {
+            return null;
+        }
+    }
+
+    public static final class FakeMetaData {
+        public String getIdentifierQuoteString() {
+            return "\"";
+        }
+
+        public ResultSet getColumns(String catalog, String schemaPattern, String tableNamePattern, String columnNamePattern) {
+            return proxy(ResultSet.class, new Object());
+        }
+    }
+
+    public static final class FakeStatement {
+        private final FakeConnection connection;
+        private final String table;
+        private final int columns;
+        private final List<Object> parameters = newArrayList();
+        private final List<List<Object>> batch = newArrayList();
+
+        private FakeStatement(FakeConnection connection, Matcher insert) {
+            this.connection = connection;
+            this.table = insert != null ? insert.group(1) : null;
+            this.columns = insert != null ? insert.group(2).split(",").length : 0;
+        }
+
+        public ResultSet executeQuery(String sql) throws SQLException {
+            final Matcher select = SELECT.matcher(sql);
+            if (!select.matches()) {
+                throw new SQLException("Unsupported statement " + sql);
+            }
+            return new FakeQuery(connection.getDatabase(), select, 0).executeQuery();
+        }
+
+        public int executeUpdate(String sql) throws SQLException {
+            final Matcher delete = DELETE.matcher(sql);
+            if (!delete.matches()) {
+                throw new SQLException("Unsupported statement " + sql);
+            }
+            connection.deleteAll(delete.group(1));
+            return 0;
+        }
+
+        public void setLong(int index, long value) {
+            setParameter(index, value);
+        }
+
+        public void setString(int index, String value) {
+            setParameter(index, value);
+        }
+
+        public void setBigDecimal(int index, BigDecimal value) {
+            setParameter(index, value);
+        }
+
+        public void setBoolean(int index, boolean value) {
+            setParameter(index, value);
+        }
+
+        public void setDouble(int index, double value) {
+            setParameter(index, value);
+        }
+
+        public void setTimestamp(int index, Timestamp value) {
+            setParameter(index, value);
+        }
+
+        public void setCharacterStream(int index, Reader reader, int length) throws SQLException {
+            try {
+                setParameter(index, CharStreams.toString(reader));
+            } catch (IOException e) {
+                throw new SQLException(e);
+            }
+        }
+
+        public void setBinaryStream(int index, InputStream stream, int length) throws SQLException {
+            try {
+                setParameter(index, ByteStreams.toByteArray(stream));
+            } catch (IOException e) {
+                throw new SQLException(e);
+            }
+        }
+
+        public void setNull(int index, int sqlType) {
+            setParameter(index, null);
+        }
+
+        private void setParameter(int index, Object value) {
+            while (parameters.size() < index) {
+                parameters.add(null);
+            }
+            parameters.set(index - 1, value);
+        }
+
+        public boolean execute() throws SQLException {
+            insert(parameters);
+            return false;
+        }
+
+        public int executeUpdate() throws SQLException {
+            return insert(parameters);
+        }
+
+        public void addBatch() {
+            batch.add(newArrayList(parameters));
+        }
+
+        public void clearBatch() {
+            batch.clear();
+        }
+
+        /**
+         * Stops at the first row failing, as most drivers do, the rows before it remain inserted.
+         */
+        public int[] executeBatch() throws SQLException {
+            try {
+                for (int i = 0; i < batch.size(); i++) {
+                    try {
+                        insert(batch.get(i));
+                    } catch (SQLException e) {
+                        final BatchUpdateException failure = new BatchUpdateException(e.getMessage(), e.getSQLState(), new int[i]);
+                        failure.setNextException(e);
+                        throw failure;
+                    }
+                }
+                final int[] counts = new int[batch.size()];
+                Arrays.fill(counts, 1);
+                return counts;
+            } finally {
+                batch.clear();
+            }
+        }
+
+        public Connection getConnection() {
+            return proxy(Connection.class, connection);
+        }
+
+        private int insert(List<Object> values) throws SQLException {
+            connection.getDatabase().insertStatements.incrementAndGet();
+            final int rows = values.size() / columns;
+            for (int row = 0; row < rows; row++) {
+                connection.insert(table, values.subList(row * columns, (row + 1) * columns).toArray());
+            }
+            return rows;
+        }
+
+        @Override
+        public String toString() {
+            return "FakeStatement{" + table + "}";
+        }
+    }
+
+    /**
+     * A query of the rows of a table, of its smallest and greatest keys, or of its number of rows, each condition on
+     * the key taking a parameter. The number of rows is limited either by a parameter, or by the maximum number of
+     * rows.
+     */
+    public static final class FakeQuery {
+        private final FakeDatabase database;
+        private final String table;
+        private final String aggregate; // null for the rows
+        private final List<String> operators = newArrayList();
+        private final List<Long> keys = newArrayList();
+        private final int limitParameter;
+        private int maxRows;
+
+        private FakeQuery(FakeDatabase database, Matcher select, int limitParameter) {
+            this.database = database;
+            this.limitParameter = limitParameter;
+            this.table = select.group(2);
+            this.aggregate = select.group(1).equals("*") ? null : select.group(1);
+            if (select.group(3) != null) {
+                final Matcher condition = CONDITION.matcher(select.group(3));
+                while (condition.find()) {
+                    operators.add(condition.group(1));
+                }
+            }
+        }
+
+        public void setLong(int index, long value) {
+            // the limit only comes before the keys as TOP
+            final int key = limitParameter == 1 ? index - 1 : index;
+            while (keys.size() < key) {
+                keys.add(null);
+            }
+            keys.set(key - 1, value);
+        }
+
+        public void setInt(int index, int value) throws SQLException {
+            if (index != limitParameter) {
+                throw new SQLException("Parameter " + index + " is not the limit of the query");
+            }
+            this.maxRows = value;
+        }
+
+        public void setMaxRows(int maxRows) {
+            this.maxRows = maxRows;
+        }
+
+        public ResultSet executeQuery() throws SQLException {
+            if (limitParameter > 0 && maxRows == 0) {
+                throw new SQLException("No value for parameter " + limitParameter + ", the limit of the query");
+            }
+            List<Object[]> rows = database.select(table, operators, keys);
+            if (aggregate != null && aggregate.startsWith("COUNT")) {
+                return proxy(ResultSet.class, new FakeResultSet(database, Collections.singletonList("COUNT"), Collections.singletonList(new Object[]{(long) rows.size()})));
+            }
+            if (aggregate != null) {
+                Long min = null;
+                Long max = null;
+                for (Object[] row : rows) {
+                    final long key = ((Number) row[0]).longValue();
+                    min = min == null || key < min ? key : min;
+                    max = max == null || key > max ? key : max;
+                }
+                return proxy(ResultSet.class, new FakeResultSet(database, Arrays.asList("MIN", "MAX"), Collections.singletonList(new Object[]{min, max})));
+            }
+            if (maxRows > 0 && rows.size() > maxRows) {
+                rows = rows.subList(0, maxRows);
+            }
+            return proxy(ResultSet.class, new FakeResultSet(database, database.getColumns(table), rows));
+        }
+    }
+
+    public static final class FakeResultSet {
+        private final FakeDatabase database;
+        private final List<String> columns;
+        private final List<Object[]> rows;
+        private int row = -1;
+        private boolean wasNull;
+
+        private FakeResultSet(FakeDatabase database, List<String> columns, List<Object[]> rows) {
+            this.database = database;
+            this.columns = columns;
+            this.rows = rows;
+        }
+
+        public boolean next() throws SQLException {
+            row++;
+            if (row < rows.size() && database.isFailing(rows.get(row)[0])) {
+                throw new SQLException("Connection lost", "08006");
+            }
+            return row < rows.size();
+        }
+
+        public ResultSetMetaData getMetaData() {
+            return proxy(ResultSetMetaData.class, new FakeResultSetMetaData(columns, rows));
+        }
+
+        public int findColumn(String column) throws SQLException {
+            final int index = columns.indexOf(column);
+            if (index < 0) {
+                throw new SQLException("No column " + column);
+            }
+            return index + 1;
+        }
+
+        public long getLong(int col) {
+            final Object value = getValue(col);
+            return value != null ? ((Number) value).longValue() : 0L;
+        }
+
+        public String getString(int col) {
+            final Object value = getValue(col);
+            return value != null ? value.toString() : null;
+        }
+
+        public boolean wasNull() {
+            return wasNull;
+        }
+
+        private Object getValue(int col) {
+            final Object value = rows.get(row)[col - 1];
+            wasNull = value == null;
+            return value;
+        }
+    }
+
+    /**
+     * Columns are typed from the values of the first row, {@code BIGINT} for numbers and {@code VARCHAR} otherwise.
+     */
+    public static final class FakeResultSetMetaData {
+        private final List<String> columns;
+        private final List<Object[]> rows;
+
+        private FakeResultSetMetaData(List<String> columns, List<Object[]> rows) {
+            this.columns = columns;
+            this.rows = rows;
+        }
+
+        public int getColumnCount() {
+            return columns.size();
+        }
+
+        public String getColumnName(int col) {
+            return columns.get(col - 1);
+        }
+
+        public int getColumnType(int col) {
+            return !rows.isEmpty() && rows.get(0)[col - 1] instanceof Number ? Types.BIGINT : Types.VARCHAR;
+        }
+
+        public String getColumnTypeName(int col) {
+            return getColumnType(col) == Types.BIGINT ? "BIGINT" : "VARCHAR";
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.atlassian.dbexporter;
+
+import com.atlassian.activeobjects.spi.ImportExportException;
+
+import java.sql.SQLException;
+
+/**
+ * Creates plain exceptions, carrying the table and row in their message, for tests going through actual databases.
+ */
+public final class SimpleImportExportErrorService implements ImportExportErrorService {
+    @Override
+    public ImportExportException newImportExportException(String tableName, String message) {
+        return new SimpleImportExportException(tableName + ": " + message, null);
+    }
+
+    @Override
+    public ImportExportException newImportExportSqlException(String tableName, String message, SQLException e) {
+        return new SimpleImportExportException(tableName + ": " + message, e);
+    }
+
+    @Override
+    public ImportExportException newRowImportSqlException(String tableName, long rowNum, SQLException e) {
+        return new SimpleImportExportException(tableName + " row " + rowNum, e);
+    }
+
+    @Override
+    public ImportExportException newParseException(Throwable t) {
+        return new SimpleImportExportException(null, t);
+    }
+
+    @Override
+    public ImportExportException newParseException(String message) {
+        return new SimpleImportExportException(message, null);
+    }
+
+    @Override
+    public ImportExportException newParseException(String message, Throwable t) {
+        return new SimpleImportExportException(message, t);
+    }
+
+    public static final class SimpleImportExportException extends ImportExportException {
+        private SimpleImportExportException(String message, Throwable cause) {
+            super(message, cause);
+        }
+    }
+}
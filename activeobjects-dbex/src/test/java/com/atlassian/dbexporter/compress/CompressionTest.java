@@ -0,0 +1,94 @@
+package com.atlassian.dbexporter.compress;
+
+import com.google.common.io.ByteStreams;
+import org.junit.Test;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CompressionTest {
+    @Test
+    public void compressedDataShouldBeReadableAsGzip() throws Exception {
+        final byte[] data = newData(3 * ParallelGzipOutputStream.DEFAULT_BLOCK_SIZE + 17);
+
+        final byte[] compressed = compress(data);
+
+        assertTrue(compressed.length < data.length);
+        assertArrayEquals(data, ByteStreams.toByteArray(new GZIPInputStream(new ByteArrayInputStream(compressed))));
+    }
+
+    @Test
+    public void compressingNothingShouldProduceEmptyGzip() throws Exception {
+        final byte[] compressed = compress(new byte[0]);
+
+        assertArrayEquals(new byte[0], ByteStreams.toByteArray(new GZIPInputStream(new ByteArrayInputStream(compressed))));
+    }
+
+    @Test
+    public void flushingAFinishedStreamShouldDoNothing() throws Exception {
+        final byte[] data = newData(1024);
+        final ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        final OutputStream stream = Compression.compress(compressed, 2);
+        stream.write(data);
+        stream.close();
+
+        stream.flush();
+
+        assertArrayEquals(data, ByteStreams.toByteArray(new GZIPInputStream(new ByteArrayInputStream(compressed.toByteArray()))));
+    }
+
+    @Test
+    public void decompressShouldDetectGzip() throws Exception {
+        final byte[] data = newData(1024 * 1024);
+
+        final InputStream stream = Compression.decompressIfCompressed(new ByteArrayInputStream(compress(data)));
+        try {
+            assertArrayEquals(data, ByteStreams.toByteArray(stream));
+        } finally {
+            stream.close();
+        }
+    }
+
+    @Test
+    public void decompressShouldPassUncompressedDataThrough() throws Exception {
+        final byte[] data = newData(1024);
+
+        assertArrayEquals(data, ByteStreams.toByteArray(Compression.decompressIfCompressed(new ByteArrayInputStream(data))));
+    }
+
+    @Test
+    public void isGzipShouldNotConsumeTheStream() throws Exception {
+        final InputStream stream = new BufferedInputStream(new ByteArrayInputStream(new byte[]{'<', '?'}));
+
+        assertFalse(Compression.isGzip(stream));
+        assertArrayEquals(new byte[]{'<', '?'}, ByteStreams.toByteArray(stream));
+    }
+
+    private static byte[] compress(byte[] data) throws Exception {
+        final ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        final OutputStream stream = Compression.compress(compressed, 4);
+        stream.write(data, 0, data.length / 2);
+        stream.flush();
+        stream.write(data, data.length / 2, data.length - data.length / 2);
+        stream.close();
+        return compressed.toByteArray();
+    }
+
+    private static byte[] newData(int size) {
+        final Random random = new Random(42);
+        final byte[] data = new byte[size];
+        for (int i = 0; i < size; i++) {
+            data[i] = (byte) ('a' + random.nextInt(8));
+        }
+        return data;
+    }
+}
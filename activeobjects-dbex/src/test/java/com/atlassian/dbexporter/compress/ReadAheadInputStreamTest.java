@@ -0,0 +1,101 @@
+package com.atlassian.dbexporter.compress;
+
+import com.google.common.io.ByteStreams;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class ReadAheadInputStreamTest {
+    @Test
+    public void dataShouldBeReadAsInTheSource() throws Exception {
+        final byte[] data = newData(1000);
+
+        final InputStream stream = ReadAheadInputStream.start(new ByteArrayInputStream(data), 64, 2, "test-read-all");
+        try {
+            assertArrayEquals(data, ByteStreams.toByteArray(stream));
+        } finally {
+            stream.close();
+        }
+    }
+
+    @Test
+    public void closingShouldStopReaderBlockedOnFullQueue() throws Exception {
+        final String name = "test-full-queue";
+        final InputStream stream = ReadAheadInputStream.start(new ByteArrayInputStream(newData(1000)), 16, 1, name);
+        assertEquals(0, stream.read());
+
+        stream.close();
+
+        assertReaderStopped(name);
+    }
+
+    @Test
+    public void closingShouldStopReaderWhenSourceFailsAfterInterrupt() throws Exception {
+        final String name = "test-failing-source";
+        final CountDownLatch blocked = new CountDownLatch(1);
+        final CountDownLatch closed = new CountDownLatch(1);
+        final InputStream source = new InputStream() {
+            private int reads;
+
+            @Override
+            public int read() throws IOException {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                if (reads++ < 2) {
+                    return len;
+                }
+                blocked.countDown(); // the queue is full
+                try {
+                    closed.await();
+                } catch (InterruptedException e) {
+                    // swallows the interrupt, as some I/O implementations do
+                }
+                throw new IOException("Source failed");
+            }
+        };
+        final InputStream stream = ReadAheadInputStream.start(source, 16, 1, name);
+        assertEquals(0, stream.read());
+        blocked.await();
+
+        stream.close();
+        closed.countDown();
+
+        assertReaderStopped(name);
+    }
+
+    private static void assertReaderStopped(String name) throws InterruptedException {
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (isRunning(name) && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertFalse("Reader thread " + name + " should have stopped", isRunning(name));
+    }
+
+    private static boolean isRunning(String name) {
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.getName().equals(name) && thread.isAlive()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static byte[] newData(int size) {
+        final byte[] data = new byte[size];
+        for (int i = 0; i < size; i++) {
+            data[i] = (byte) i;
+        }
+        return data;
+    }
+}
@@ -0,0 +1,29 @@
+package com.atlassian.dbexporter.exporter;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class BackupManifestTest {
+    @Test
+    public void storedManifestShouldLoadWithSameEntries() throws Exception {
+        final BackupManifest manifest = new BackupManifest();
+        manifest.put("AO_123456_ISSUE", 1234L, 1200L);
+        manifest.put("AO_123456_NO_KEY", null, 5L);
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        manifest.store(out);
+        final BackupManifest loaded = BackupManifest.load(new ByteArrayInputStream(out.toByteArray()));
+
+        assertEquals(2, loaded.getEntries().size());
+        assertEquals(Long.valueOf(1234L), loaded.get("AO_123456_ISSUE").getHighWaterMark());
+        assertEquals(1200L, loaded.get("AO_123456_ISSUE").getRowCount());
+        assertNull(loaded.get("AO_123456_NO_KEY").getHighWaterMark());
+        assertEquals(5L, loaded.get("AO_123456_NO_KEY").getRowCount());
+        assertNull(loaded.get("AO_123456_OTHER"));
+    }
+}
@@ -0,0 +1,79 @@
+package com.atlassian.dbexporter.exporter;
+
+import com.atlassian.dbexporter.DatabaseInformations.Database;
+import org.junit.Test;
+import org.mockito.InOrder;
+
+import java.sql.PreparedStatement;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+public class ChunkQueryTest {
+    private static final String CONDITION = " WHERE K > ? AND K <= ?";
+
+    @Test
+    public void chunksShouldBeLimited() {
+        assertEquals("SELECT * FROM T WHERE K > ? AND K <= ? ORDER BY K LIMIT ?", render(Database.Type.POSTGRES, 0));
+        assertEquals("SELECT * FROM T WHERE K > ? AND K <= ? ORDER BY K LIMIT ?", render(Database.Type.MYSQL, 0));
+        assertEquals("SELECT * FROM T WHERE K > ? AND K <= ? ORDER BY K LIMIT ?", render(Database.Type.H2, 0));
+        assertEquals("SELECT * FROM T WHERE K > ? AND K <= ? ORDER BY K LIMIT ?", render(Database.Type.HSQL, 0));
+    }
+
+    @Test
+    public void oracleChunksShouldBeLimitedAsTheVersionAllows() {
+        assertEquals("SELECT * FROM T WHERE K > ? AND K <= ? ORDER BY K FETCH FIRST ? ROWS ONLY", render(Database.Type.ORACLE, 12));
+        assertEquals("SELECT * FROM (SELECT * FROM T WHERE K > ? AND K <= ? ORDER BY K) WHERE ROWNUM <= ?", render(Database.Type.ORACLE, 11));
+    }
+
+    @Test
+    public void sqlServerChunksShouldBeLimitedWithTop() throws Exception {
+        assertEquals("SELECT TOP (?) * FROM T WHERE K > ? AND K <= ? ORDER BY K", render(Database.Type.MSSQL, 0));
+
+        final PreparedStatement statement = mock(PreparedStatement.class);
+        ChunkQuery.forDatabase(Database.Type.MSSQL, 0).bind(statement, 10L, 20L, 5);
+        final InOrder inOrder = inOrder(statement);
+        inOrder.verify(statement).setInt(1, 5);
+        inOrder.verify(statement).setLong(2, 10L);
+        inOrder.verify(statement).setLong(3, 20L);
+        verify(statement, never()).setMaxRows(anyInt());
+    }
+
+    @Test
+    public void limitShouldBeBoundAfterTheKeys() throws Exception {
+        final PreparedStatement statement = mock(PreparedStatement.class);
+        ChunkQuery.forDatabase(Database.Type.POSTGRES, 0).bind(statement, 10L, null, 5);
+        verify(statement).setLong(1, 10L);
+        verify(statement).setInt(2, 5);
+        verify(statement, never()).setMaxRows(anyInt());
+    }
+
+    @Test
+    public void unknownDatabasesShouldLimitTheMaximumNumberOfRows() throws Exception {
+        assertEquals("SELECT * FROM T WHERE K > ? AND K <= ? ORDER BY K", render(Database.Type.UNKNOWN, 0));
+
+        final PreparedStatement statement = mock(PreparedStatement.class);
+        ChunkQuery.forDatabase(Database.Type.UNKNOWN, 0).bind(statement, null, null, 5);
+        verify(statement).setMaxRows(5);
+        verify(statement, never()).setInt(anyInt(), anyInt());
+    }
+
+    @Test
+    public void wholeTableShouldNotBeLimited() throws Exception {
+        assertEquals("SELECT * FROM T ORDER BY K", ChunkQuery.forDatabase(Database.Type.MSSQL, 0).render("T", "K", "", 0));
+
+        final PreparedStatement statement = mock(PreparedStatement.class);
+        ChunkQuery.forDatabase(Database.Type.POSTGRES, 0).bind(statement, 10L, null, 0);
+        verify(statement).setLong(1, 10L);
+        verify(statement, never()).setInt(anyInt(), anyInt());
+        verify(statement, never()).setMaxRows(anyInt());
+    }
+
+    private static String render(Database.Type type, int majorVersion) {
+        return ChunkQuery.forDatabase(type, majorVersion).render("T", "K", CONDITION, 1000);
+    }
+}
@@ -0,0 +1,57 @@
+package com.atlassian.dbexporter.exporter;
+
+import com.atlassian.dbexporter.DatabaseInformations.Database;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CursorStrategyTest {
+    @Test
+    public void mySqlShouldStreamRows() {
+        final CursorStrategy cursor = CursorStrategy.forDatabase(Database.Type.MYSQL);
+
+        assertEquals(Integer.MIN_VALUE, cursor.getFetchSize());
+        assertTrue(cursor.isRowStreaming());
+        assertEquals(Integer.MIN_VALUE, cursor.getFetchSize(10));
+    }
+
+    @Test
+    public void otherDatabasesShouldFetchRowsInBatches() {
+        assertFetchSize(Database.Type.POSTGRES, 1000);
+        assertFetchSize(Database.Type.ORACLE, 500);
+        assertFetchSize(Database.Type.H2, 100);
+        assertFetchSize(Database.Type.HSQL, 100);
+        assertFetchSize(Database.Type.MSSQL, 100);
+        assertFetchSize(Database.Type.UNKNOWN, 100);
+    }
+
+    @Test
+    public void fetchSizeShouldNotExceedMaxRows() {
+        final CursorStrategy cursor = CursorStrategy.forDatabase(Database.Type.POSTGRES);
+
+        assertEquals(10, cursor.getFetchSize(10));
+        assertEquals(1000, cursor.getFetchSize(5000));
+    }
+
+    @Test
+    public void fetchSizeShouldBeOverridable() {
+        final CursorStrategy mySql = CursorStrategy.forDatabase(Database.Type.MYSQL);
+
+        final CursorStrategy cursor = mySql.withFetchSize(200);
+
+        assertEquals(Database.Type.MYSQL, cursor.getDatabaseType());
+        assertEquals(200, cursor.getFetchSize());
+        assertFalse(cursor.isRowStreaming());
+        assertEquals(Integer.MIN_VALUE, mySql.getFetchSize());
+    }
+
+    private static void assertFetchSize(Database.Type type, int fetchSize) {
+        final CursorStrategy cursor = CursorStrategy.forDatabase(type);
+
+        assertEquals(type, cursor.getDatabaseType());
+        assertEquals(type.toString(), fetchSize, cursor.getFetchSize());
+        assertFalse(cursor.isRowStreaming());
+    }
+}
@@ -1,36 +1,91 @@
 package com.atlassian.dbexporter.exporter;
 
+import com.atlassian.activeobjects.spi.ImportExportException;
 import com.atlassian.dbexporter.Column;
 import com.atlassian.dbexporter.ConnectionProvider;
 import com.atlassian.dbexporter.Context;
+import com.atlassian.dbexporter.DatabaseInformation;
+import com.atlassian.dbexporter.DatabaseInformations.Database;
 import com.atlassian.dbexporter.EntityNameProcessor;
+import com.atlassian.dbexporter.FakeDatabase;
 import com.atlassian.dbexporter.ForeignKey;
 import com.atlassian.dbexporter.ImportExportErrorService;
+import com.atlassian.dbexporter.NoOpEntityNameProcessor;
+import com.atlassian.dbexporter.SimpleImportExportErrorService;
 import com.atlassian.dbexporter.Table;
 import com.atlassian.dbexporter.node.NodeCreator;
+import com.atlassian.dbexporter.node.NodeParser;
+import com.atlassian.dbexporter.node.NodeStreamReader;
+import com.atlassian.dbexporter.node.NodeStreamWriter;
+import com.atlassian.dbexporter.node.stax.StaxStreamReader;
+import com.atlassian.dbexporter.node.stax.StaxStreamWriter;
+import com.atlassian.dbexporter.progress.NullProgressMonitor;
 import com.atlassian.dbexporter.progress.ProgressMonitor;
+import com.google.common.base.Function;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.io.CountingOutputStream;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
+import org.mockito.InOrder;
 import org.mockito.Matchers;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
 import java.sql.Connection;
 import java.sql.DatabaseMetaData;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
 import java.sql.Statement;
 import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
+import static com.atlassian.dbexporter.node.NodeBackup.ColumnDataNode;
+import static com.atlassian.dbexporter.node.NodeBackup.RootNode;
+import static com.atlassian.dbexporter.node.NodeBackup.RowDataNode;
+import static com.atlassian.dbexporter.node.NodeBackup.TableDataNode;
+import static com.google.common.collect.Lists.newArrayList;
+import static com.google.common.collect.Maps.newHashMap;
+import static com.google.common.collect.Sets.newHashSet;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @RunWith(MockitoJUnitRunner.class)
 public class DataExporterTest {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final String NAMESPACE = "http://www.atlassian.com/ao";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
     @Mock
     private ImportExportErrorService errorService;
     @Mock
@@ -89,4 +144,543 @@ public class DataExporterTest {
 
         verify(nodeCreator).setContentAsBinary(bytes);
     }
+
+    @Test
+    public void shouldResolveColumnTypesOncePerTable() throws Exception {
+        when(nodeCreator.addNode(anyString())).thenReturn(nodeCreator);
+        when(nodeCreator.addAttribute(anyString(), anyString())).thenReturn(nodeCreator);
+        when(nodeCreator.setContentAsString(anyString())).thenReturn(nodeCreator);
+        when(nodeCreator.closeEntity()).thenReturn(nodeCreator);
+        Statement st = mock(Statement.class);
+        when(connection.createStatement()).thenReturn(st);
+        ResultSet rs = mock(ResultSet.class);
+        when(st.executeQuery(anyString())).thenReturn(rs);
+        ResultSetMetaData rsmd = mock(ResultSetMetaData.class);
+        when(rs.getMetaData()).thenReturn(rsmd);
+        when(rsmd.getColumnCount()).thenReturn(1);
+        when(rs.next()).thenReturn(true, true, true, false);
+        when(rsmd.getColumnType(1)).thenReturn(Types.VARCHAR);
+        when(rs.getString(1)).thenReturn("a", "b", "c");
+
+        Context context = new Context(new Table("table",
+                Collections.singletonList(new Column("column", Types.VARCHAR, null, null, null, null)),
+                Collections.<ForeignKey>emptyList()));
+
+        dataExporter.export(nodeCreator, configuration, context);
+
+        verify(nodeCreator).setContentAsString("a");
+        verify(nodeCreator).setContentAsString("b");
+        verify(nodeCreator).setContentAsString("c");
+        verify(rsmd, times(1)).getColumnType(1);
+    }
+
+    @Test
+    public void mySqlTableDataShouldBeStreamedWithoutAutoCommit() throws Exception {
+        final Statement statement = exportEmptyTable("MySQL", true);
+
+        final InOrder inOrder = inOrder(connection, statement);
+        inOrder.verify(connection).setAutoCommit(false);
+        inOrder.verify(statement).setFetchSize(Integer.MIN_VALUE);
+        inOrder.verify(statement).executeQuery(anyString());
+        inOrder.verify(connection).setAutoCommit(true);
+    }
+
+    @Test
+    public void postgresTableDataShouldBeFetchedThroughCursorWithoutAutoCommit() throws Exception {
+        final Statement statement = exportEmptyTable("PostgreSQL", true);
+
+        final InOrder inOrder = inOrder(connection, statement);
+        inOrder.verify(connection).setAutoCommit(false);
+        inOrder.verify(statement).setFetchSize(1000);
+        inOrder.verify(statement).executeQuery(anyString());
+        inOrder.verify(connection).setAutoCommit(true);
+    }
+
+    @Test
+    public void oracleTableDataShouldBeFetchedInLargerBatches() throws Exception {
+        final Statement statement = exportEmptyTable("Oracle", true);
+
+        verify(statement).setFetchSize(500);
+        verify(connection).setAutoCommit(true);
+    }
+
+    @Test
+    public void autoCommitShouldBeRestoredAsItWas() throws Exception {
+        final Statement statement = exportEmptyTable("H2", false);
+
+        verify(statement).setFetchSize(100);
+        verify(connection, times(2)).setAutoCommit(false);
+        verify(connection, never()).setAutoCommit(true);
+    }
+
+    @Test
+    public void configuredCursorStrategyShouldOverrideTheDefault() throws Exception {
+        when(configuration.getCursorStrategy(Database.Type.MYSQL)).thenReturn(CursorStrategy.forDatabase(Database.Type.MYSQL).withFetchSize(50));
+
+        final Statement statement = exportEmptyTable("MySQL", true);
+
+        verify(statement).setFetchSize(50);
+    }
+
+    @Test
+    public void autoCommitShouldBeRestoredWhenQueryFails() throws Exception {
+        final ImportExportException exception = mock(ImportExportException.class);
+        final SQLException sqlException = new SQLException("query failed");
+        when(errorService.newImportExportSqlException(anyString(), anyString(), Matchers.eq(sqlException))).thenReturn(exception);
+        when(connection.getAutoCommit()).thenReturn(true);
+        final Statement statement = mock(Statement.class);
+        when(connection.createStatement()).thenReturn(statement);
+        when(statement.executeQuery(anyString())).thenThrow(sqlException);
+
+        try {
+            dataExporter.export(nodeCreator(), configuration, newContext("PostgreSQL"));
+            fail("Query failure should have been thrown");
+        } catch (ImportExportException e) {
+            assertSame(exception, e);
+        }
+
+        final InOrder inOrder = inOrder(connection);
+        inOrder.verify(connection).setAutoCommit(false);
+        inOrder.verify(connection).setAutoCommit(true);
+    }
+
+    @Test
+    public void tablesExportedConcurrentlyShouldBeWrittenAsWhenExportedSequentially() throws Exception {
+        final FakeDatabase database = new FakeDatabase();
+        final Table[] tables = createTables(database, 8, 20);
+
+        final String sequential = exportData(database, 1, null, tables);
+
+        assertEquals(sequential, exportData(database, 3, null, tables));
+        assertTrue(database.getMaxOpenConnections() <= 3);
+        assertEquals(0, database.getOpenConnections());
+    }
+
+    @Test
+    public void partitionedTablesShouldBeExportedOnTheWorkersOfTheExport() throws Exception {
+        final FakeDatabase database = new FakeDatabase();
+        final Table[] tables = createTables(database, 4, 20);
+        final TablePartitioning partitioning = TablePartitioning.none()
+                .withPartitions(tables[0].getName(), 5)
+                .withPartitions(tables[2].getName(), 4);
+
+        final String sequential = exportData(database, 1, null, tables);
+
+        assertEquals(sequential, exportData(database, 2, partitioning, tables));
+        assertTrue("At most one connection per worker should be open, not " + database.getMaxOpenConnections(),
+                database.getMaxOpenConnections() <= 2);
+        assertEquals(0, database.getOpenConnections());
+    }
+
+    @Test
+    public void spilledSegmentsShouldBeDeletedWhenTablesExportedConcurrentlyFail() throws Exception {
+        final FakeDatabase database = new FakeDatabase();
+        final Table[] tables = createTables(database, 8, 20);
+        final TablePartitioning partitioning = TablePartitioning.none().withPartitions(tables[5].getName(), 3);
+        database.failOn(105L); // in the second table
+        final Set<String> spooledBefore = spooledFiles();
+
+        try {
+            exportData(database, 3, partitioning, tables);
+            fail("Reading the second table should have failed");
+        } catch (SimpleImportExportErrorService.SimpleImportExportException e) {
+            assertSame(SQLException.class, e.getCause().getClass());
+        }
+
+        assertEquals(spooledBefore, spooledFiles());
+        assertEquals(0, database.getOpenConnections());
+    }
+
+    @Test
+    public void tablesExportedInChunksShouldBeWrittenAsWhenExportedAtOnce() throws Exception {
+        final FakeDatabase database = new FakeDatabase();
+        final Table[] tables = createTables(database, 3, 20);
+        final InMemoryExportCheckpoint checkpoint = new InMemoryExportCheckpoint();
+
+        final String atOnce = exportData(database, 1, null, tables);
+
+        assertEquals(atOnce, exportData(new TestExportConfiguration(database, 1, null, 3, checkpoint), tables));
+        assertEquals(ImmutableMap.of(tables[0].getName(), 20L, tables[1].getName(), 120L, tables[2].getName(), 220L),
+                checkpoint.getLastExportedKeys());
+    }
+
+    @Test
+    public void chunksShouldBeLimitedInTheQueryOfEachDatabase() throws Exception {
+        for (String databaseName : Arrays.asList("PostgreSQL", "MySQL", "H2", "HSQL Database Engine", "Oracle", "Microsoft SQL Server")) {
+            final FakeDatabase database = new FakeDatabase(databaseName);
+            final Table[] tables = createTables(database, 2, 20);
+            final TablePartitioning partitioning = TablePartitioning.none().withPartitions(tables[1].getName(), 3);
+
+            final String atOnce = exportData(database, 1, null, tables);
+
+            assertEquals(databaseName, atOnce, exportData(new TestExportConfiguration(database, 1, null, 3, new InMemoryExportCheckpoint()), tables));
+            assertEquals(databaseName, atOnce, exportData(new TestExportConfiguration(database, 2, partitioning, 3, new InMemoryExportCheckpoint()), tables));
+        }
+    }
+
+    @Test
+    public void exportResumedFromInMemoryCheckpointShouldOnlyWriteRowsAfterIt() throws Exception {
+        final FakeDatabase database = new FakeDatabase();
+        final Table[] tables = createTables(database, 2, 20);
+        final InMemoryExportCheckpoint checkpoint = new InMemoryExportCheckpoint(ImmutableMap.of(tables[0].getName(), 12L));
+
+        final Map<String, List<Long>> restored = newHashMap();
+        restored.put(tables[0].getName(), newArrayList(1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L, 9L, 10L, 11L, 12L));
+        restored.put(tables[1].getName(), newArrayList(101L, 102L));
+        final byte[] resumed = exportData(new TestExportConfiguration(database, 1, null, 5, checkpoint), tables).getBytes(UTF_8);
+        restore(new ByteArrayInputStream(resumed), restored);
+
+        assertEquals(allKeys(tables.length, 20), restored);
+    }
+
+    @Test
+    public void incrementalExportShouldOnlyAppendTheRowsAddedSinceTheBase() throws Exception {
+        final FakeDatabase database = new FakeDatabase();
+        final Table[] tables = createTables(database, 2, 20);
+        final BackupManifest base = new BackupManifest();
+        final String full = exportData(new TestExportConfiguration(database, 1, null, 0, null, null, base), tables);
+        assertEquals(Long.valueOf(20L), base.get(tables[0].getName()).getHighWaterMark());
+        assertEquals(20L, base.get(tables[0].getName()).getRowCount());
+
+        database.insertRows(tables[0].getName(), new Object[]{21L, "summary 21"}, new Object[]{22L, "summary 22"});
+        final BackupManifest manifest = new BackupManifest();
+        final String delta = exportData(new TestExportConfiguration(database, 1, null, 0, null, base, manifest), tables);
+
+        assertEquals(ImmutableMap.of(tables[0].getName(), TableDataNode.Mode.APPEND, tables[1].getName(), TableDataNode.Mode.APPEND), readModes(delta));
+        final Map<String, List<Long>> rows = newHashMap();
+        restore(new ByteArrayInputStream(delta.getBytes(UTF_8)), rows);
+        assertEquals(ImmutableMap.of(tables[0].getName(), Arrays.asList(21L, 22L), tables[1].getName(), Collections.<Long>emptyList()), rows);
+        assertEquals(Long.valueOf(22L), manifest.get(tables[0].getName()).getHighWaterMark());
+        assertEquals(22L, manifest.get(tables[0].getName()).getRowCount());
+        assertEquals(Long.valueOf(120L), manifest.get(tables[1].getName()).getHighWaterMark());
+
+        final Map<String, List<Long>> restored = newHashMap();
+        restore(new ByteArrayInputStream(full.getBytes(UTF_8)), restored);
+        restore(new ByteArrayInputStream(delta.getBytes(UTF_8)), restored);
+        final Map<String, List<Long>> expected = allKeys(tables.length, 20);
+        expected.get(tables[0].getName()).addAll(Arrays.asList(21L, 22L));
+        assertEquals(expected, restored);
+    }
+
+    @Test
+    public void tableWithRowsDeletedBelowTheHighWaterMarkShouldBeReplacedInFull() throws Exception {
+        final FakeDatabase database = new FakeDatabase();
+        final Table[] tables = createTables(database, 2, 20);
+        final BackupManifest base = new BackupManifest();
+        exportData(new TestExportConfiguration(database, 1, null, 0, null, null, base), tables);
+
+        database.deleteRow(tables[0].getName(), 5L);
+        database.insertRows(tables[0].getName(), new Object[]{21L, "summary 21"});
+        final BackupManifest manifest = new BackupManifest();
+        final String delta = exportData(new TestExportConfiguration(database, 1, null, 0, null, base, manifest), tables);
+
+        assertEquals(ImmutableMap.of(tables[0].getName(), TableDataNode.Mode.REPLACE, tables[1].getName(), TableDataNode.Mode.APPEND), readModes(delta));
+        final Map<String, List<Long>> rows = newHashMap();
+        restore(new ByteArrayInputStream(delta.getBytes(UTF_8)), rows);
+        final List<Long> remaining = allKeys(1, 21).get(tables[0].getName());
+        remaining.remove(Long.valueOf(5L));
+        assertEquals(remaining, rows.get(tables[0].getName()));
+        assertEquals(Collections.<Long>emptyList(), rows.get(tables[1].getName()));
+        assertEquals(Long.valueOf(21L), manifest.get(tables[0].getName()).getHighWaterMark());
+        assertEquals(20L, manifest.get(tables[0].getName()).getRowCount());
+    }
+
+    @Test
+    public void interruptedExportShouldBeResumedFromTheLastRecordedChunk() throws Exception {
+        assertExportResumedFromTheLastRecordedChunk(1);
+    }
+
+    @Test
+    public void interruptedConcurrentExportShouldBeResumedFromTheLastRecordedChunk() throws Exception {
+        assertExportResumedFromTheLastRecordedChunk(3);
+    }
+
+    /**
+     * Interrupts an export in the middle of the third table, resumes it to another segment, then checks that restoring
+     * both segments in order gives every row once.
+     */
+    private void assertExportResumedFromTheLastRecordedChunk(int workerCount) throws Exception {
+        final FakeDatabase database = new FakeDatabase();
+        final Table[] tables = createTables(database, 4, 20);
+        final File checkpointFile = new File(folder.getRoot(), "export.checkpoint");
+        final File interrupted = new File(folder.getRoot(), "backup");
+        final File resumed = new File(folder.getRoot(), "backup.1");
+        database.failOn(215L);
+
+        try {
+            exportSegment(database, workerCount, FileExportCheckpoint.open(checkpointFile), 0, interrupted, tables);
+            fail("Reading the third table should have failed");
+        } catch (SimpleImportExportErrorService.SimpleImportExportException e) {
+            assertSame(SQLException.class, e.getCause().getClass());
+        }
+        database.failOn(null);
+
+        final FileExportCheckpoint checkpoint = FileExportCheckpoint.open(checkpointFile);
+        assertTrue(checkpoint.isResuming());
+        assertEquals(0, checkpoint.getSegment());
+        if (workerCount == 1) {
+            assertEquals(Long.valueOf(212L), checkpoint.getLastExportedKey(tables[2].getName()));
+        }
+        checkpoint.endSegment(interrupted, new Function<OutputStream, NodeStreamWriter>() {
+            @Override
+            public NodeStreamWriter apply(OutputStream output) {
+                return new StaxStreamWriter(new SimpleImportExportErrorService(), output, UTF_8, NAMESPACE);
+            }
+        });
+        exportSegment(database, workerCount, checkpoint, 1, resumed, tables);
+        checkpoint.exportCompleted();
+        assertFalse(checkpointFile.exists());
+
+        final Map<String, List<Long>> restored = newHashMap();
+        for (File segment : Arrays.asList(interrupted, resumed)) {
+            final InputStream input = new FileInputStream(segment);
+            try {
+                restore(input, restored);
+            } finally {
+                input.close();
+            }
+        }
+        assertEquals(allKeys(tables.length, 20), restored);
+        assertEquals(0, database.getOpenConnections());
+    }
+
+    private Statement exportEmptyTable(String databaseName, boolean autoCommit) throws Exception {
+        when(connection.getAutoCommit()).thenReturn(autoCommit);
+        final Statement statement = mock(Statement.class);
+        when(connection.createStatement()).thenReturn(statement);
+        final ResultSet rs = mock(ResultSet.class);
+        when(statement.executeQuery(anyString())).thenReturn(rs);
+        final ResultSetMetaData rsmd = mock(ResultSetMetaData.class);
+        when(rs.getMetaData()).thenReturn(rsmd);
+        when(rsmd.getColumnCount()).thenReturn(1);
+        when(rsmd.getColumnType(1)).thenReturn(Types.VARCHAR);
+        when(rs.next()).thenReturn(false);
+
+        dataExporter.export(nodeCreator(), configuration, newContext(databaseName));
+        return statement;
+    }
+
+    private NodeCreator nodeCreator() {
+        when(nodeCreator.addNode(anyString())).thenReturn(nodeCreator);
+        when(nodeCreator.addAttribute(anyString(), anyString())).thenReturn(nodeCreator);
+        when(nodeCreator.closeEntity()).thenReturn(nodeCreator);
+        return nodeCreator;
+    }
+
+    /**
+     * Creates the tables, each with an {@code ID} primary key and a {@code SUMMARY}. The keys of table {@code i} are
+     * {@code i * 100 + 1} to {@code i * 100 + rows}.
+     */
+    private static Table[] createTables(FakeDatabase database, int count, int rows) {
+        final Table[] tables = new Table[count];
+        for (int i = 0; i < count; i++) {
+            final String name = "AO_123456_TABLE_" + i;
+            final Object[][] data = new Object[rows][];
+            for (int row = 0; row < rows; row++) {
+                final long key = i * 100L + row + 1;
+                data[row] = new Object[]{key, "summary " + key};
+            }
+            database.createTable(name, Arrays.asList("ID", "SUMMARY"), data);
+            tables[i] = new Table(name,
+                    Arrays.asList(new Column("ID", Types.BIGINT, true, true, null, null), new Column("SUMMARY", Types.VARCHAR, false, false, 255, null)),
+                    Collections.<ForeignKey>emptyList());
+        }
+        return tables;
+    }
+
+    /**
+     * @return the keys of the tables {@link #createTables(FakeDatabase, int, int) created}.
+     */
+    private static Map<String, List<Long>> allKeys(int count, int rows) {
+        final Map<String, List<Long>> keys = newHashMap();
+        for (int i = 0; i < count; i++) {
+            final List<Long> tableKeys = newArrayList();
+            for (int row = 0; row < rows; row++) {
+                tableKeys.add(i * 100L + row + 1);
+            }
+            keys.put("AO_123456_TABLE_" + i, tableKeys);
+        }
+        return keys;
+    }
+
+    /**
+     * @return the XML document of the data of the tables.
+     */
+    private static String exportData(FakeDatabase database, int workerCount, TablePartitioning partitioning, Table... tables) {
+        return exportData(new TestExportConfiguration(database, workerCount, partitioning, 0, null), tables);
+    }
+
+    private static String exportData(TestExportConfiguration configuration, Table... tables) {
+        final ImportExportErrorService errorService = new SimpleImportExportErrorService();
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        final StaxStreamWriter writer = new StaxStreamWriter(errorService, output, UTF_8, NAMESPACE);
+        try {
+            new DataExporter(errorService, null).export(RootNode.add(writer), configuration, context(configuration.database, tables));
+        } finally {
+            writer.close();
+        }
+        return new String(output.toByteArray(), UTF_8);
+    }
+
+    /**
+     * Exports the data of the tables in chunks of 4 rows to a segment file, recording progress to the checkpoint.
+     */
+    private static void exportSegment(FakeDatabase database, int workerCount, FileExportCheckpoint checkpoint, int segment, File file, Table... tables) throws Exception {
+        final ImportExportErrorService errorService = new SimpleImportExportErrorService();
+        final CountingOutputStream output = new CountingOutputStream(new FileOutputStream(file));
+        try {
+            final StaxStreamWriter writer = new StaxStreamWriter(errorService, output, UTF_8, NAMESPACE);
+            checkpoint.segmentStarted(segment, writer, output);
+            new DataExporter(errorService, null).export(RootNode.add(writer), new TestExportConfiguration(database, workerCount, null, 4, checkpoint), context(database, tables));
+            writer.close();
+        } finally {
+            output.close();
+        }
+    }
+
+    private static Context context(FakeDatabase database, Table... tables) {
+        return new Context((Object[]) tables).put(database.getDatabaseInformation());
+    }
+
+    /**
+     * Reads the keys of the rows of an exported document into the tables, the way they would be restored: rows of
+     * tables in {@link TableDataNode.Mode#APPEND append} mode are added to the ones already restored, the other
+     * tables are restored from scratch.
+     */
+    private static void restore(InputStream document, Map<String, List<Long>> tables) {
+        restore(document, tables, new HashMap<String, TableDataNode.Mode>());
+    }
+
+    private static void restore(InputStream document, Map<String, List<Long>> tables, Map<String, TableDataNode.Mode> modes) {
+        final NodeStreamReader reader = new StaxStreamReader(new SimpleImportExportErrorService(), new InputStreamReader(document, UTF_8));
+        NodeParser node = RootNode.get(reader).getNextNode();
+        for (; TableDataNode.NAME.equals(node.getName()) && !node.isClosed(); node = node.getNextNode()) {
+            final String table = TableDataNode.getName(node);
+            modes.put(table, TableDataNode.getMode(node));
+            if (TableDataNode.getMode(node) != TableDataNode.Mode.APPEND || !tables.containsKey(table)) {
+                tables.put(table, new ArrayList<Long>());
+            }
+            node = node.getNextNode();
+            for (; ColumnDataNode.NAME.equals(node.getName()) && !node.isClosed(); node = node.getNextNode()) {
+                node = node.getNextNode(); // close column node
+            }
+            for (; RowDataNode.NAME.equals(node.getName()) && !node.isClosed(); node = node.getNextNode()) {
+                node = node.getNextNode(); // read the key
+                tables.get(table).add(node.getContentAsBigInteger().longValue());
+                for (node = node.getNextNode(); !node.isClosed(); node = node.getNextNode()) {
+                    node.getContentAsString();
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the mode of the data of each table of an exported document.
+     */
+    private static Map<String, TableDataNode.Mode> readModes(String document) {
+        final Map<String, TableDataNode.Mode> modes = newHashMap();
+        restore(new ByteArrayInputStream(document.getBytes(UTF_8)), new HashMap<String, List<Long>>(), modes);
+        return modes;
+    }
+
+    /**
+     * @return the names of the temporary files of the table data spilled while exporting.
+     */
+    private static Set<String> spooledFiles() {
+        final Set<String> names = newHashSet();
+        final String[] files = new File(System.getProperty("java.io.tmpdir")).list();
+        for (String name : files != null ? files : new String[0]) {
+            if (name.startsWith("ao-backup-") && name.endsWith(".spool")) {
+                names.add(name);
+            }
+        }
+        return names;
+    }
+
+    private static Context newContext(String databaseName) {
+        return new Context(
+                new DatabaseInformation(ImmutableMap.of("database.name", databaseName)),
+                new Table("table",
+                        Collections.singletonList(new Column("column", Types.VARCHAR, null, null, null, null)),
+                        Collections.<ForeignKey>emptyList()));
+    }
+
+    private static final class TestExportConfiguration implements ExportConfiguration {
+        private final FakeDatabase database;
+        private final int workerCount;
+        private final TablePartitioning partitioning;
+        private final int chunkSize;
+        private final ExportCheckpoint checkpoint;
+        private final BackupManifest baseManifest;
+        private final BackupManifest manifest;
+
+        private TestExportConfiguration(FakeDatabase database, int workerCount, TablePartitioning partitioning, int chunkSize, ExportCheckpoint checkpoint) {
+            this(database, workerCount, partitioning, chunkSize, checkpoint, null, null);
+        }
+
+        private TestExportConfiguration(FakeDatabase database, int workerCount, TablePartitioning partitioning, int chunkSize, ExportCheckpoint checkpoint, BackupManifest baseManifest, BackupManifest manifest) {
+            this.database = database;
+            this.workerCount = workerCount;
+            this.partitioning = partitioning;
+            this.chunkSize = chunkSize;
+            this.checkpoint = checkpoint;
+            this.baseManifest = baseManifest;
+            this.manifest = manifest;
+        }
+
+        @Override
+        public int getWorkerCount() {
+            return workerCount;
+        }
+
+        @Override
+        public int getChunkSize() {
+            return chunkSize;
+        }
+
+        @Override
+        public ExportCheckpoint getExportCheckpoint() {
+            return checkpoint;
+        }
+
+        @Override
+        public CursorStrategy getCursorStrategy(Database.Type databaseType) {
+            return null;
+        }
+
+        @Override
+        public BackupManifest getBaseManifest() {
+            return baseManifest;
+        }
+
+        @Override
+        public BackupManifest getManifest() {
+            return manifest;
+        }
+
+        @Override
+        public TablePartitioning getTablePartitioning() {
+            return partitioning;
+        }
+
+        @Override
+        public boolean isConsistentSnapshot() {
+            return false;
+        }
+
+        @Override
+        public ConnectionProvider getConnectionProvider() {
+            return database;
+        }
+
+        @Override
+        public ProgressMonitor getProgressMonitor() {
+            return NullProgressMonitor.INSTANCE;
+        }
+
+        @Override
+        public EntityNameProcessor getEntityNameProcessor() {
+            return new NoOpEntityNameProcessor();
+        }
+    }
 }
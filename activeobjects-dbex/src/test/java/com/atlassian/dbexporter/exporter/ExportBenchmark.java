@@ -0,0 +1,314 @@
+package com.atlassian.dbexporter.exporter;
+
+import com.atlassian.dbexporter.Column;
+import com.atlassian.dbexporter.ConnectionProvider;
+import com.atlassian.dbexporter.Context;
+import com.atlassian.dbexporter.DatabaseInformation;
+import com.atlassian.dbexporter.DatabaseInformations.Database;
+import com.atlassian.dbexporter.EntityNameProcessor;
+import com.atlassian.dbexporter.ForeignKey;
+import com.atlassian.dbexporter.ImportExportErrorService;
+import com.atlassian.dbexporter.NoOpEntityNameProcessor;
+import com.atlassian.dbexporter.SimpleImportExportErrorService;
+import com.atlassian.dbexporter.Table;
+import com.atlassian.dbexporter.node.NodeCreator;
+import com.atlassian.dbexporter.node.NodeStreamWriter;
+import com.atlassian.dbexporter.progress.NullProgressMonitor;
+import com.atlassian.dbexporter.progress.ProgressMonitor;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+
+import static com.atlassian.dbexporter.node.NodeBackup.RootNode;
+import static com.atlassian.dbexporter.node.NodeBackup.RowDataNode;
+import static com.atlassian.dbexporter.node.NodeBackup.TableDataNode;
+import static com.atlassian.dbexporter.progress.ProgressMonitor.Task;
+
+/**
+ * <p>Compares exporting the rows of a wide table with the {@link DataExporter}, which resolves how each column is read
+ * once per query, against reading the column type, and the precision and scale of numeric columns, from the result set
+ * meta data for every cell as the exporter used to.</p>
+ * <p>This is not a unit test, run it from the IDE or with {@code mvn exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.atlassian.dbexporter.exporter.ExportBenchmark}. The table is read from an in memory HSQLDB
+ * database, and written to a node writer that does nothing so that only reading and dispatching the values is
+ * measured.</p>
+ */
+public final class ExportBenchmark {
+    private static final String URL = "jdbc:hsqldb:mem:export-benchmark";
+    private static final String TABLE = "WIDE";
+    private static final int COLUMNS = 100;
+    private static final int ROWS = 20000;
+    private static final int ITERATIONS = 10;
+
+    private static final String[] SQL_TYPES = {"INTEGER", "VARCHAR(255)", "BIGINT", "BOOLEAN", "DOUBLE", "TIMESTAMP", "NUMERIC(18)"};
+
+    private final ImportExportErrorService errorService = new SimpleImportExportErrorService();
+    private final DatabaseInformation databaseInformation = new DatabaseInformation(ImmutableMap.of("database.name", "HSQL Database Engine"));
+    private final NodeStreamWriter writer = proxy(NodeStreamWriter.class);
+    private final ConnectionProvider connectionProvider = new ConnectionProvider() {
+        @Override
+        public Connection getConnection() throws SQLException {
+            return DriverManager.getConnection(URL, "sa", "");
+        }
+    };
+
+    public static void main(String[] args) throws Exception {
+        Class.forName("org.hsqldb.jdbcDriver");
+        final ExportBenchmark benchmark = new ExportBenchmark();
+        benchmark.createTable();
+        for (int i = 0; i < ITERATIONS; i++) {
+            final long perCell = benchmark.time(false);
+            final long encoders = benchmark.time(true);
+            System.out.println(String.format("%d columns x %d rows: per cell meta data %d ns/row, column encoders %d ns/row",
+                    COLUMNS, ROWS, perCell / ROWS, encoders / ROWS));
+        }
+    }
+
+    private void createTable() throws SQLException {
+        final StringBuilder create = new StringBuilder("CREATE TABLE " + TABLE + " (ID BIGINT PRIMARY KEY");
+        final StringBuilder insert = new StringBuilder("INSERT INTO " + TABLE + " VALUES (?");
+        for (int col = 0; col < COLUMNS; col++) {
+            create.append(", C").append(col).append(' ').append(SQL_TYPES[col % SQL_TYPES.length]);
+            insert.append(", ?");
+        }
+        final Connection connection = connectionProvider.getConnection();
+        try {
+            final Statement statement = connection.createStatement();
+            statement.executeUpdate(create.append(')').toString());
+            statement.close();
+
+            final PreparedStatement ps = connection.prepareStatement(insert.append(')').toString());
+            for (long row = 1; row <= ROWS; row++) {
+                ps.setLong(1, row);
+                for (int col = 0; col < COLUMNS; col++) {
+                    setValue(ps, col + 2, col % SQL_TYPES.length, row);
+                }
+                ps.addBatch();
+                if (row % 1000 == 0) {
+                    ps.executeBatch();
+                }
+            }
+            ps.close();
+        } finally {
+            connection.close();
+        }
+    }
+
+    private static void setValue(PreparedStatement ps, int index, int type, long row) throws SQLException {
+        switch (type) {
+            case 0:
+                ps.setInt(index, (int) row);
+                break;
+            case 1:
+                ps.setString(index, "some text value " + row);
+                break;
+            case 2:
+                ps.setLong(index, row * 1000003L);
+                break;
+            case 3:
+                ps.setBoolean(index, row % 2 == 0);
+                break;
+            case 4:
+                ps.setDouble(index, row / 7d);
+                break;
+            case 5:
+                ps.setTimestamp(index, new Timestamp(1300000000000L + row * 1000L));
+                break;
+            default:
+                ps.setBigDecimal(index, BigDecimal.valueOf(row * 31L));
+        }
+    }
+
+    private long time(boolean encoders) throws SQLException {
+        final long start = System.nanoTime();
+        if (encoders) {
+            exportWithEncoders();
+        } else {
+            exportPerCell();
+        }
+        return System.nanoTime() - start;
+    }
+
+    private void exportWithEncoders() {
+        final Table table = new Table(TABLE, ImmutableList.<Column>of(), ImmutableList.<ForeignKey>of());
+        new DataExporter(errorService, null).export(RootNode.add(writer), new BenchmarkExportConfiguration(), new Context(table, databaseInformation));
+    }
+
+    /**
+     * The rows as the exporter used to write them, reading the meta data of each column for every row.
+     */
+    private void exportPerCell() throws SQLException {
+        final ProgressMonitor monitor = NullProgressMonitor.INSTANCE;
+        final Connection connection = connectionProvider.getConnection();
+        try {
+            final Statement statement = connection.createStatement();
+            final ResultSet result = statement.executeQuery("SELECT * FROM \"" + TABLE + "\"");
+            final NodeCreator node = TableDataNode.add(RootNode.add(writer), TABLE);
+            while (result.next()) {
+                monitor.begin(Task.TABLE_ROW);
+                final ResultSetMetaData metaData = result.getMetaData();
+                RowDataNode.add(node);
+                for (int col = 1; col <= metaData.getColumnCount(); col++) {
+                    switch (metaData.getColumnType(col)) {
+                        case Types.TINYINT:
+                        case Types.SMALLINT:
+                        case Types.BIGINT:
+                        case Types.INTEGER:
+                            appendInteger(result, col, node);
+                            break;
+                        case Types.NUMERIC:
+                            if (metaData.getScale(col) > 0 || metaData.getPrecision(col) == 126) {
+                                appendDouble(result, col, node);
+                            } else if (metaData.getPrecision(col) == 1) {
+                                appendBoolean(result, col, node);
+                            } else if (metaData.getPrecision(col) > 0 && metaData.getPrecision(col) <= 18) {
+                                appendInteger(result, col, node);
+                            } else {
+                                final BigDecimal bd = result.getBigDecimal(col);
+                                RowDataNode.append(node, result.wasNull() ? null : bd.toBigInteger());
+                            }
+                            break;
+                        case Types.CHAR:
+                        case Types.NCHAR:
+                        case Types.VARCHAR:
+                        case Types.NVARCHAR:
+                            final String s = result.getString(col);
+                            RowDataNode.append(node, result.wasNull() ? null : s);
+                            break;
+                        case Types.BOOLEAN:
+                        case Types.BIT:
+                            appendBoolean(result, col, node);
+                            break;
+                        case Types.DOUBLE:
+                        case Types.DECIMAL:
+                            appendDouble(result, col, node);
+                            break;
+                        case Types.TIMESTAMP:
+                            final Timestamp t = result.getTimestamp(col);
+                            if (result.wasNull()) {
+                                RowDataNode.append(node, (Timestamp) null);
+                            } else {
+                                RowDataNode.appendTimestamp(node, t.getTime());
+                            }
+                            break;
+                        default:
+                            throw new IllegalStateException("Unexpected column type " + metaData.getColumnType(col));
+                    }
+                }
+                monitor.end(Task.TABLE_ROW);
+                node.closeEntity();
+            }
+            result.close();
+            statement.close();
+        } finally {
+            connection.close();
+        }
+    }
+
+    private static void appendInteger(ResultSet result, int col, NodeCreator node) throws SQLException {
+        final long l = result.getLong(col);
+        if (result.wasNull()) {
+            RowDataNode.append(node, (BigInteger) null);
+        } else {
+            RowDataNode.append(node, l);
+        }
+    }
+
+    private static void appendDouble(ResultSet result, int col, NodeCreator node) throws SQLException {
+        final double d = result.getDouble(col);
+        if (result.wasNull()) {
+            RowDataNode.append(node, (BigDecimal) null);
+        } else {
+            RowDataNode.append(node, d);
+        }
+    }
+
+    private static void appendBoolean(ResultSet result, int col, NodeCreator node) throws SQLException {
+        final boolean b = result.getBoolean(col);
+        RowDataNode.append(node, result.wasNull() ? null : b);
+    }
+
+    /**
+     * @return an instance of the interface where every method does nothing, and returns the instance itself when it
+     * returns a node creator.
+     */
+    private static <T> T proxy(Class<T> type) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class[]{type, NodeCreator.class}, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                return method.getReturnType() == NodeCreator.class ? proxy : null;
+            }
+        }));
+    }
+
+    private final class BenchmarkExportConfiguration implements ExportConfiguration {
+        @Override
+        public int getWorkerCount() {
+            return 1;
+        }
+
+        @Override
+        public int getChunkSize() {
+            return 0;
+        }
+
+        @Override
+        public ExportCheckpoint getExportCheckpoint() {
+            return null;
+        }
+
+        @Override
+        public CursorStrategy getCursorStrategy(Database.Type databaseType) {
+            return null;
+        }
+
+        @Override
+        public BackupManifest getBaseManifest() {
+            return null;
+        }
+
+        @Override
+        public BackupManifest getManifest() {
+            return null;
+        }
+
+        @Override
+        public TablePartitioning getTablePartitioning() {
+            return null;
+        }
+
+        @Override
+        public boolean isConsistentSnapshot() {
+            return false;
+        }
+
+        @Override
+        public ConnectionProvider getConnectionProvider() {
+            return connectionProvider;
+        }
+
+        @Override
+        public ProgressMonitor getProgressMonitor() {
+            return NullProgressMonitor.INSTANCE;
+        }
+
+        @Override
+        public EntityNameProcessor getEntityNameProcessor() {
+            return new NoOpEntityNameProcessor();
+        }
+    }
+}
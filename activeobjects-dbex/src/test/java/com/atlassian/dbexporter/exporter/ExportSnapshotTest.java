@@ -0,0 +1,96 @@
+package com.atlassian.dbexporter.exporter;
+
+import com.atlassian.dbexporter.DatabaseInformations.Database;
+import com.atlassian.dbexporter.ImportExportErrorService;
+import com.atlassian.dbexporter.jdbc.JdbcUtils.JdbcCallable;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ExportSnapshotTest {
+    @Mock
+    private ImportExportErrorService errorService;
+    @Mock
+    private Connection connection;
+    @Mock
+    private Connection worker;
+    @Mock
+    private Statement statement;
+    @Mock
+    private Statement workerStatement;
+    @Mock
+    private ResultSet resultSet;
+
+    @Before
+    public void setUp() throws Exception {
+        when(connection.getAutoCommit()).thenReturn(true);
+        when(connection.getTransactionIsolation()).thenReturn(Connection.TRANSACTION_READ_COMMITTED);
+        when(connection.createStatement()).thenReturn(statement);
+        when(statement.executeQuery("SELECT pg_export_snapshot()")).thenReturn(resultSet);
+        when(resultSet.getString(1)).thenReturn("00000003-0000001B-1");
+        when(worker.getAutoCommit()).thenReturn(true);
+        when(worker.getTransactionIsolation()).thenReturn(Connection.TRANSACTION_READ_COMMITTED);
+        when(worker.createStatement()).thenReturn(workerStatement);
+    }
+
+    @Test
+    public void snapshotShouldBeReadOnlyTransaction() throws Exception {
+        final ExportSnapshot snapshot = ExportSnapshot.begin(errorService, connection, Database.Type.MYSQL);
+
+        final InOrder inOrder = inOrder(connection);
+        inOrder.verify(connection).setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+        inOrder.verify(connection).setReadOnly(true);
+        inOrder.verify(connection).setAutoCommit(false);
+        assertFalse(snapshot.isShareable());
+
+        snapshot.end();
+
+        inOrder.verify(connection).rollback();
+        inOrder.verify(connection).setAutoCommit(true);
+        inOrder.verify(connection).setReadOnly(false);
+        inOrder.verify(connection).setTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+    }
+
+    @Test
+    public void postgresSnapshotShouldBeSharedWithWorkers() throws Exception {
+        final ExportSnapshot snapshot = ExportSnapshot.begin(errorService, connection, Database.Type.POSTGRES);
+        assertTrue(snapshot.isShareable());
+
+        final String read = snapshot.join(worker, new JdbcCallable<String>() {
+            @Override
+            public String call(Connection connection) {
+                return "read";
+            }
+        });
+
+        assertEquals("read", read);
+        final InOrder inOrder = inOrder(worker, workerStatement);
+        inOrder.verify(worker).setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+        inOrder.verify(worker).setAutoCommit(false);
+        inOrder.verify(workerStatement).execute("SET TRANSACTION SNAPSHOT '00000003-0000001B-1'");
+        inOrder.verify(worker).rollback();
+        inOrder.verify(worker).setAutoCommit(true);
+    }
+
+    @Test
+    public void oracleSnapshotShouldBeSerializable() throws Exception {
+        ExportSnapshot.begin(errorService, connection, Database.Type.ORACLE);
+
+        verify(connection).setTransactionIsolation(Connection.TRANSACTION_SERIALIZABLE);
+    }
+}
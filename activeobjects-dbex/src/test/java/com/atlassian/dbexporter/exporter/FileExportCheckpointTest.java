@@ -0,0 +1,198 @@
+package com.atlassian.dbexporter.exporter;
+
+import com.atlassian.dbexporter.ImportExportErrorService;
+import com.atlassian.dbexporter.SimpleImportExportErrorService;
+import com.atlassian.dbexporter.node.NodeCreator;
+import com.atlassian.dbexporter.node.NodeParser;
+import com.atlassian.dbexporter.node.NodeStreamReader;
+import com.atlassian.dbexporter.node.NodeStreamWriter;
+import com.atlassian.dbexporter.node.binary.BinaryStreamReader;
+import com.atlassian.dbexporter.node.binary.BinaryStreamWriter;
+import com.atlassian.dbexporter.node.stax.StaxStreamReader;
+import com.atlassian.dbexporter.node.stax.StaxStreamWriter;
+import com.google.common.base.Function;
+import com.google.common.io.CountingOutputStream;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.atlassian.dbexporter.node.NodeBackup.ColumnDataNode;
+import static com.atlassian.dbexporter.node.NodeBackup.RootNode;
+import static com.atlassian.dbexporter.node.NodeBackup.RowDataNode;
+import static com.atlassian.dbexporter.node.NodeBackup.TableDataNode;
+import static com.google.common.collect.Lists.newArrayList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class FileExportCheckpointTest {
+    private static final ImportExportErrorService ERROR_SERVICE = new SimpleImportExportErrorService();
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final String NAMESPACE = "http://www.atlassian.com/ao";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void progressShouldBeResumedWhenReopened() throws Exception {
+        final File file = new File(folder.getRoot(), "export.checkpoint");
+        final FileExportCheckpoint checkpoint = FileExportCheckpoint.open(file);
+        assertFalse(checkpoint.isResuming());
+        final CountingOutputStream output = new CountingOutputStream(new FileOutputStream(folder.newFile("backup.1")));
+        final NodeStreamWriter writer = new BinaryStreamWriter(ERROR_SERVICE, output);
+        checkpoint.segmentStarted(1, writer, output);
+        final NodeCreator data = addTableData(writer, TableDataNode.Mode.FULL);
+        writeRow(data, 5000L);
+        checkpoint.chunkExported("AO_123456_ISSUE", 5000L);
+        writeRow(data, 5001L);
+        writer.close();
+        output.close();
+
+        final FileExportCheckpoint resumed = FileExportCheckpoint.open(file);
+        assertTrue(resumed.isResuming());
+        assertEquals(Long.valueOf(5000L), resumed.getLastExportedKey("AO_123456_ISSUE"));
+        assertNull(resumed.getLastExportedKey("AO_123456_COMMENT"));
+        assertEquals(1, resumed.getSegment());
+        assertTrue(resumed.getSegmentLength() > 0L);
+        assertTrue(resumed.getSegmentLength() < output.getCount());
+    }
+
+    @Test
+    public void checkpointShouldBeDeletedOnceExportCompletes() throws Exception {
+        final File file = new File(folder.getRoot(), "export.checkpoint");
+        final FileExportCheckpoint checkpoint = FileExportCheckpoint.open(file);
+        final CountingOutputStream output = new CountingOutputStream(new FileOutputStream(folder.newFile("backup")));
+        checkpoint.segmentStarted(0, new BinaryStreamWriter(ERROR_SERVICE, output), output);
+        checkpoint.chunkExported("AO_123456_ISSUE", 5000L);
+        assertTrue(file.exists());
+
+        checkpoint.exportCompleted();
+        output.close();
+        assertFalse(file.exists());
+        assertFalse(FileExportCheckpoint.open(file).isResuming());
+    }
+
+    @Test
+    public void indentedXmlSegmentShouldBeEndedAfterTheLastRecordedChunk() throws Exception {
+        assertSegmentEndedAfterLastRecordedChunk(new Function<OutputStream, NodeStreamWriter>() {
+            @Override
+            public NodeStreamWriter apply(OutputStream output) {
+                return new StaxStreamWriter(ERROR_SERVICE, new OutputStreamWriter(output, UTF_8), UTF_8, NAMESPACE);
+            }
+        }, new Function<InputStream, NodeStreamReader>() {
+            @Override
+            public NodeStreamReader apply(InputStream input) {
+                return new StaxStreamReader(ERROR_SERVICE, new InputStreamReader(input, UTF_8));
+            }
+        });
+    }
+
+    @Test
+    public void compactXmlSegmentShouldBeEndedAfterTheLastRecordedChunk() throws Exception {
+        assertSegmentEndedAfterLastRecordedChunk(new Function<OutputStream, NodeStreamWriter>() {
+            @Override
+            public NodeStreamWriter apply(OutputStream output) {
+                return new StaxStreamWriter(ERROR_SERVICE, output, UTF_8, NAMESPACE);
+            }
+        }, new Function<InputStream, NodeStreamReader>() {
+            @Override
+            public NodeStreamReader apply(InputStream input) {
+                return new StaxStreamReader(ERROR_SERVICE, new InputStreamReader(input, UTF_8));
+            }
+        });
+    }
+
+    @Test
+    public void binarySegmentShouldBeEndedAfterTheLastRecordedChunk() throws Exception {
+        assertSegmentEndedAfterLastRecordedChunk(new Function<OutputStream, NodeStreamWriter>() {
+            @Override
+            public NodeStreamWriter apply(OutputStream output) {
+                return new BinaryStreamWriter(ERROR_SERVICE, output);
+            }
+        }, new Function<InputStream, NodeStreamReader>() {
+            @Override
+            public NodeStreamReader apply(InputStream input) {
+                return new BinaryStreamReader(ERROR_SERVICE, input);
+            }
+        });
+    }
+
+    /**
+     * Writes rows to a segment as an export interrupted in the middle of its second chunk would, then checks that the
+     * segment ends, and can be read, after the rows of the first chunk.
+     */
+    private void assertSegmentEndedAfterLastRecordedChunk(Function<OutputStream, NodeStreamWriter> writers, Function<InputStream, NodeStreamReader> readers) throws Exception {
+        final File file = new File(folder.getRoot(), "export.checkpoint");
+        final File segment = folder.newFile("backup");
+        final CountingOutputStream output = new CountingOutputStream(new FileOutputStream(segment));
+        final NodeStreamWriter writer = writers.apply(output);
+        final FileExportCheckpoint checkpoint = FileExportCheckpoint.open(file);
+        checkpoint.segmentStarted(0, writer, output);
+        final NodeCreator data = addTableData(writer, TableDataNode.Mode.FULL);
+        writeRow(data, 1L);
+        writeRow(data, 2L);
+        checkpoint.chunkExported("AO_123456_ISSUE", 2L);
+        writeRow(data, 3L);
+        data.addNode("row").addNode("integer");
+        writer.flush();
+        output.close();
+
+        final FileExportCheckpoint resumed = FileExportCheckpoint.open(file);
+        resumed.endSegment(segment, writers);
+        final long length = segment.length();
+        resumed.endSegment(segment, writers);
+
+        assertEquals(length, segment.length());
+        assertEquals(Arrays.asList(1L, 2L), readKeys(readers, segment));
+    }
+
+    private static NodeCreator addTableData(NodeStreamWriter writer, TableDataNode.Mode mode) {
+        final NodeCreator data = TableDataNode.add(RootNode.add(writer), "AO_123456_ISSUE", mode);
+        ColumnDataNode.add(data, "ID").closeEntity();
+        ColumnDataNode.add(data, "SUMMARY").closeEntity();
+        return data;
+    }
+
+    private static void writeRow(NodeCreator data, long key) {
+        final NodeCreator row = RowDataNode.add(data);
+        RowDataNode.append(row, key);
+        RowDataNode.append(row, "summary " + key);
+        row.closeEntity();
+    }
+
+    private static List<Long> readKeys(Function<InputStream, NodeStreamReader> readers, File segment) throws Exception {
+        final List<Long> keys = newArrayList();
+        final InputStream input = new FileInputStream(segment);
+        try {
+            NodeParser node = RootNode.get(readers.apply(input)).getNextNode();
+            assertEquals("AO_123456_ISSUE", TableDataNode.getName(node));
+            for (node = node.getNextNode(); ColumnDataNode.NAME.equals(node.getName()) && !node.isClosed(); node = node.getNextNode()) {
+                node = node.getNextNode(); // close the column node
+            }
+            for (; RowDataNode.NAME.equals(node.getName()) && !node.isClosed(); node = node.getNextNode()) {
+                node = node.getNextNode(); // read the key
+                keys.add(node.getContentAsBigInteger().longValue());
+                for (node = node.getNextNode(); !node.isClosed(); node = node.getNextNode()) {
+                    node.getContentAsString();
+                }
+            }
+            assertTrue(node.isClosed());
+            assertTrue(node.getNextNode().isClosed()); // end of the document
+        } finally {
+            input.close();
+        }
+        return keys;
+    }
+}
@@ -0,0 +1,43 @@
+package com.atlassian.dbexporter.exporter;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TablePartitioningTest {
+    @Test
+    public void noneShouldNeverSplitTables() {
+        assertFalse(TablePartitioning.none().isEnabled());
+        assertEquals(1, TablePartitioning.none().getPartitionCount("TABLE", Long.MAX_VALUE));
+    }
+
+    @Test
+    public void partitionsShouldBeSetPerTable() {
+        final TablePartitioning partitioning = TablePartitioning.none().withPartitions("AO_123456_AUDIT", 8);
+
+        assertTrue(partitioning.isEnabled());
+        assertEquals(8, partitioning.getPartitionCount("ao_123456_audit", 10));
+        assertEquals(1, partitioning.getPartitionCount("AO_123456_OTHER", Long.MAX_VALUE));
+    }
+
+    @Test
+    public void partitionsShouldBeDerivedFromRowThreshold() {
+        final TablePartitioning partitioning = TablePartitioning.none().withRowThreshold(1000, 4);
+
+        assertTrue(partitioning.isEnabled());
+        assertEquals(1, partitioning.getPartitionCount("TABLE", 1000));
+        assertEquals(2, partitioning.getPartitionCount("TABLE", 1001));
+        assertEquals(3, partitioning.getPartitionCount("TABLE", 3000));
+        assertEquals(4, partitioning.getPartitionCount("TABLE", 1000000));
+    }
+
+    @Test
+    public void tableSettingShouldOverrideRowThreshold() {
+        final TablePartitioning partitioning = TablePartitioning.none().withRowThreshold(1000, 4).withPartitions("TABLE", 1);
+
+        assertEquals(1, partitioning.getPartitionCount("TABLE", 1000000));
+        assertEquals(4, partitioning.getPartitionCount("OTHER", 1000000));
+    }
+}
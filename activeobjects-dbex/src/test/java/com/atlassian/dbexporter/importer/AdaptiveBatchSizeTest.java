@@ -0,0 +1,67 @@
+package com.atlassian.dbexporter.importer;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class AdaptiveBatchSizeTest {
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final long SLOW = TimeUnit.SECONDS.toNanos(10);
+
+    private final BatchSizing sizing = BatchSizing.defaults().withRows(100, 1700).withMaxBytes(1000).withTargetFlushMillis(1000);
+
+    @Test
+    public void firstBatchShouldUseInitialRowsWithinBounds() {
+        assertEquals(1700, new AdaptiveBatchSize(sizing).getRowLimit());
+        assertEquals(5000, new AdaptiveBatchSize(BatchSizing.defaults()).getRowLimit());
+    }
+
+    @Test
+    public void batchShouldBeFullAtRowLimitOrByteBudget() {
+        final AdaptiveBatchSize batchSize = new AdaptiveBatchSize(sizing);
+
+        assertFalse(batchSize.isFull(1699, 999));
+        assertTrue(batchSize.isFull(1700, 0));
+        assertTrue(batchSize.isFull(1, 1000));
+    }
+
+    @Test
+    public void slowBatchesShouldHalveDownToMinimum() {
+        final AdaptiveBatchSize batchSize = new AdaptiveBatchSize(sizing);
+
+        batchSize.flushed(1700, 10, SLOW);
+        assertEquals(850, batchSize.getRowLimit());
+
+        for (int i = 0; i < 10; i++) {
+            batchSize.flushed(batchSize.getRowLimit(), 10, SLOW);
+        }
+        assertEquals(100, batchSize.getRowLimit());
+    }
+
+    @Test
+    public void fastBatchesShouldGrowAdditivelyUpToMaximum() {
+        final AdaptiveBatchSize batchSize = new AdaptiveBatchSize(sizing);
+        batchSize.flushed(1700, 10, SLOW);
+
+        batchSize.flushed(850, 10, FAST);
+        assertEquals(950, batchSize.getRowLimit());
+
+        for (int i = 0; i < 20; i++) {
+            batchSize.flushed(batchSize.getRowLimit(), 10, FAST);
+        }
+        assertEquals(1700, batchSize.getRowLimit());
+    }
+
+    @Test
+    public void batchesCutByByteBudgetShouldNotGrow() {
+        final AdaptiveBatchSize batchSize = new AdaptiveBatchSize(sizing);
+        batchSize.flushed(1700, 10, SLOW);
+
+        batchSize.flushed(3, 1200, FAST);
+        assertEquals(850, batchSize.getRowLimit());
+    }
+}
@@ -0,0 +1,86 @@
+package com.atlassian.dbexporter.importer;
+
+import com.atlassian.dbexporter.ImportExportErrorService;
+import com.atlassian.dbexporter.node.NodeParser;
+import com.atlassian.dbexporter.node.stax.StaxStreamReader;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import javax.xml.bind.DatatypeConverter;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.StringReader;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(MockitoJUnitRunner.class)
+public class BinaryValueTest {
+    private static final int LARGE_LENGTH = BinaryValue.IN_MEMORY_LIMIT * 3 + 1;
+
+    @Rule
+    public NodeParserRule nodeParser = new NodeParserRule();
+
+    @Mock
+    private ImportExportErrorService errorService;
+
+    @Test
+    @Xml("<binary>AAECAw==</binary>")
+    public void smallValuesShouldBeKeptInMemory() throws Exception {
+        final NodeParser node = nodeParser.getNode();
+        final BinaryValue value = BinaryValue.read(node);
+
+        assertTrue(node.isClosed());
+        assertTrue(value.isInMemory());
+        assertArrayEquals(new byte[]{0, 1, 2, 3}, read(value));
+        value.release();
+    }
+
+    @Test
+    @Xml("<binary xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\" xsi:nil=\"true\"/>")
+    public void nilValuesShouldBeNull() throws Exception {
+        final NodeParser node = nodeParser.getNode();
+
+        assertNull(BinaryValue.read(node));
+        assertTrue(node.isClosed());
+    }
+
+    @Test
+    public void largeValuesShouldBeSpooledToFile() throws Exception {
+        final byte[] content = new byte[LARGE_LENGTH];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) i;
+        }
+        final StaxStreamReader reader = new StaxStreamReader(errorService,
+                new StringReader("<binary>" + DatatypeConverter.printBase64Binary(content) + "</binary>"));
+
+        final BinaryValue value = BinaryValue.read(reader.getRootNode());
+        try {
+            assertFalse(value.isInMemory());
+            assertEquals(LARGE_LENGTH, value.length());
+            // the stream can be opened again, e.g. when a batch is retried
+            read(value);
+            assertArrayEquals(content, read(value));
+        } finally {
+            value.release();
+            reader.close();
+        }
+    }
+
+    private static byte[] read(BinaryValue value) throws Exception {
+        final InputStream stream = value.openStream();
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[4096];
+        int read;
+        while ((read = stream.read(buffer)) != -1) {
+            bytes.write(buffer, 0, read);
+        }
+        return bytes.toByteArray();
+    }
+}
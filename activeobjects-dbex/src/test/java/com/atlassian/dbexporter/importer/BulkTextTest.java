@@ -0,0 +1,35 @@
+package com.atlassian.dbexporter.importer;
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+import static org.junit.Assert.assertEquals;
+
+public class BulkTextTest {
+    @Test
+    public void tabSeparatedShouldEscapeSeparatorsAndBackslashes() {
+        final StringBuilder text = new StringBuilder();
+
+        BulkText.appendTabSeparated(text, new Object[]{"a\tb\nc\\d\re", null, BigInteger.TEN});
+
+        assertEquals("a\\tb\\nc\\\\d\\re\t\\N\t10\n", text.toString());
+    }
+
+    @Test
+    public void csvShouldQuoteValuesAndLeaveNullsEmpty() {
+        final StringBuilder text = new StringBuilder();
+
+        BulkText.appendCsv(text, new Object[]{"say \"hi\", bye", null, "", Boolean.TRUE});
+
+        assertEquals("\"say \"\"hi\"\", bye\",,\"\",\"1\"\n", text.toString());
+    }
+
+    @Test
+    public void decimalsShouldNotUseExponents() {
+        assertEquals("1000", BulkText.format(new BigDecimal("1E+3")));
+        assertEquals("0", BulkText.format(Boolean.FALSE));
+        assertEquals("12345678900", BulkText.format(1.23456789E10d));
+    }
+}
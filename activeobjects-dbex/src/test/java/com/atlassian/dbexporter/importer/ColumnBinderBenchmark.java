@@ -0,0 +1,142 @@
+package com.atlassian.dbexporter.importer;
+
+import com.atlassian.dbexporter.DatabaseInformation;
+import com.atlassian.dbexporter.DatabaseInformations.Database;
+import com.atlassian.dbexporter.ImportExportErrorService;
+import com.atlassian.dbexporter.node.NodeParser;
+import com.google.common.collect.ImmutableMap;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.atlassian.dbexporter.DatabaseInformations.database;
+import static com.google.common.collect.Lists.newArrayList;
+
+/**
+ * <p>Compares binding the rows of a wide table through {@link ColumnBinder binders} planned once per table, against
+ * resolving the database type, the field type and the column size for every cell as the importer used to.</p>
+ * <p>This is not a unit test, run it from the IDE or with {@code mvn exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.atlassian.dbexporter.importer.ColumnBinderBenchmark}. Values are bound to a statement that
+ * does nothing so that only the binding is measured.</p>
+ */
+public final class ColumnBinderBenchmark {
+    private static final int COLUMNS = 200;
+    private static final int ROWS = 20000;
+    private static final int ITERATIONS = 10;
+
+    private static final String[] NAMES = {"string", "integer", "boolean", "double", "timestamp"};
+    private static final FieldType[] TYPES = {FieldType.STRING, FieldType.INTEGER, FieldType.BOOLEAN, FieldType.DOUBLE, FieldType.DATE};
+    private static final Object[] VALUES = {"some text value", BigInteger.valueOf(123456789L), Boolean.TRUE, new BigDecimal("3.14159"), new Date()};
+
+    private final ImportExportErrorService errorService = proxy(ImportExportErrorService.class, null);
+    private final DatabaseInformation databaseInformation = new DatabaseInformation(ImmutableMap.of("database.name", "Oracle"));
+    private final PreparedStatement ps = proxy(PreparedStatement.class, null);
+    private final NodeParser[] nodes = new NodeParser[NAMES.length];
+    private final List<Integer> maxColumnSizes = newArrayList(0);
+
+    private ColumnBinderBenchmark() {
+        for (int i = 0; i < NAMES.length; i++) {
+            nodes[i] = proxy(NodeParser.class, NAMES[i]);
+        }
+        for (int col = 0; col < COLUMNS; col++) {
+            maxColumnSizes.add(col % NAMES.length == 0 ? 255 : ColumnBinder.UNLIMITED_COLUMN_SIZE);
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        final ColumnBinderBenchmark benchmark = new ColumnBinderBenchmark();
+        for (int i = 0; i < ITERATIONS; i++) {
+            final long perCell = benchmark.time(false);
+            final long planned = benchmark.time(true);
+            System.out.println(String.format("%d columns x %d rows: per cell dispatch %d ns/row, planned binders %d ns/row",
+                    COLUMNS, ROWS, perCell / ROWS, planned / ROWS));
+        }
+    }
+
+    private long time(boolean planned) throws SQLException {
+        final long start = System.nanoTime();
+        if (planned) {
+            bindPlanned();
+        } else {
+            bindPerCell();
+        }
+        return System.nanoTime() - start;
+    }
+
+    private void bindPlanned() throws SQLException {
+        final ColumnBinder[] binders = ColumnBinder.plan(errorService, "TABLE", maxColumnSizes, database(databaseInformation).getType());
+        for (int row = 0; row < ROWS; row++) {
+            for (int col = 0; col < COLUMNS; col++) {
+                final ColumnBinder binder = binders[col];
+                binder.bind(ps, binder.typeOf(nodes[col % NAMES.length]), VALUES[col % NAMES.length]);
+            }
+        }
+    }
+
+    private void bindPerCell() throws SQLException {
+        for (int row = 0; row < ROWS; row++) {
+            for (int col = 1; col <= COLUMNS; col++) {
+                final Database.Type databaseType = database(databaseInformation).getType();
+                final FieldType type = FieldType.of(nodes[(col - 1) % NAMES.length]);
+                final Object value = VALUES[(col - 1) % NAMES.length];
+                switch (type) {
+                    case STRING:
+                        if (((String) value).length() > maxColumnSizes.get(col) && maxColumnSizes.get(col) != -1) {
+                            throw new IllegalStateException();
+                        }
+                        ps.setString(col, (String) value);
+                        break;
+                    case BOOLEAN:
+                        setBoolean(col, (Boolean) value, databaseType);
+                        break;
+                    case INTEGER:
+                        if (maxColumnSizes.get(col) == 1) {
+                            setBoolean(col, ((BigInteger) value).intValue() == 1, databaseType);
+                        } else {
+                            ps.setBigDecimal(col, new BigDecimal((BigInteger) value));
+                        }
+                        break;
+                    case DOUBLE:
+                        ps.setBigDecimal(col, (BigDecimal) value);
+                        break;
+                    default:
+                        ps.setTimestamp(col, new Timestamp(((Date) value).getTime()));
+                }
+            }
+        }
+    }
+
+    private void setBoolean(int col, Boolean value, Database.Type databaseType) throws SQLException {
+        if (databaseType == Database.Type.ORACLE) {
+            ps.setObject(col, value, Types.NUMERIC, 1);
+        } else {
+            ps.setBoolean(col, value);
+        }
+    }
+
+    /**
+     * @return an instance of the interface where {@code getName} returns the given name and every other method does
+     * nothing.
+     */
+    private static <T> T proxy(Class<T> type, final String name) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class[]{type}, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                if (method.getName().equals("getName")) {
+                    return name;
+                }
+                return method.getReturnType() == boolean.class ? Boolean.FALSE : null;
+            }
+        }));
+    }
+}
@@ -0,0 +1,126 @@
+package com.atlassian.dbexporter.importer;
+
+import com.atlassian.activeobjects.spi.ImportExportException;
+import com.atlassian.dbexporter.DatabaseInformations.Database;
+import com.atlassian.dbexporter.ImportExportErrorService;
+import com.atlassian.dbexporter.node.NodeParser;
+import com.atlassian.dbexporter.node.stax.StaxStreamReader;
+import com.atlassian.dbexporter.node.stax.StaxStreamWriter;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.PreparedStatement;
+import java.nio.charset.Charset;
+import java.sql.Types;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ColumnBinderTest {
+    @Mock
+    private ImportExportErrorService errorService;
+    @Mock
+    private PreparedStatement ps;
+    @Mock
+    private NodeParser node;
+
+    @Test
+    public void bindersShouldBindParametersInColumnOrder() throws Exception {
+        final ColumnBinder[] binders = ColumnBinder.plan(errorService, "TABLE", Arrays.asList(0, 255, -1), Database.Type.H2);
+
+        assertEquals(2, binders.length);
+        binders[0].bind(ps, FieldType.STRING, "value");
+        binders[1].bind(ps, FieldType.INTEGER, BigInteger.TEN);
+
+        verify(ps).setString(1, "value");
+        verify(ps).setBigDecimal(2, BigDecimal.TEN);
+    }
+
+    @Test
+    public void primitiveNumbersShouldBeBoundAsPrimitives() throws Exception {
+        final ColumnBinder[] binders = ColumnBinder.plan(errorService, "TABLE", Arrays.asList(0, -1, -1), Database.Type.H2);
+
+        binders[0].bind(ps, FieldType.INTEGER, 1234567890123L);
+        binders[1].bind(ps, FieldType.DOUBLE, 1.5d);
+
+        verify(ps).setLong(1, 1234567890123L);
+        verify(ps).setDouble(2, 1.5d);
+    }
+
+    @Test
+    public void integerBeyondLongShouldRoundTripAsBigDecimal() throws Exception {
+        final BigInteger beyondLong = BigInteger.valueOf(Long.MAX_VALUE).add(BigInteger.ONE);
+        final StringWriter output = new StringWriter();
+        final StaxStreamWriter writer = new StaxStreamWriter(errorService, output, Charset.forName("utf-8"), "");
+        writer.addRootNode("row")
+                .addNode("integer").setContentAsBigInteger(beyondLong).closeEntity()
+                .addNode("integer").setContentAsBigInteger(BigInteger.TEN).closeEntity()
+                .closeEntity();
+        writer.close();
+        final NodeParser row = new StaxStreamReader(errorService, new StringReader(output.toString())).getRootNode();
+        final ColumnBinder[] binders = ColumnBinder.plan(errorService, "TABLE", Arrays.asList(0, -1, -1), Database.Type.POSTGRES);
+
+        binders[0].bind(ps, FieldType.INTEGER, FieldType.INTEGER.read(row.getNextNode()));
+        binders[1].bind(ps, FieldType.INTEGER, FieldType.INTEGER.read(row.getNextNode()));
+
+        verify(ps).setBigDecimal(1, new BigDecimal(beyondLong));
+        verify(ps).setLong(2, 10L);
+    }
+
+    @Test
+    public void oracleBooleansShouldBeNumeric() throws Exception {
+        final ColumnBinder binder = ColumnBinder.plan(errorService, "TABLE", Arrays.asList(0, 1), Database.Type.ORACLE)[0];
+
+        binder.bind(ps, FieldType.BOOLEAN, true);
+        binder.bind(ps, FieldType.BOOLEAN, null);
+
+        verify(ps).setObject(1, true, Types.NUMERIC, 1);
+        verify(ps).setNull(1, Types.NUMERIC);
+    }
+
+    @Test
+    public void integerInColumnOfSizeOneShouldBeBoundAsBoolean() throws Exception {
+        final ColumnBinder binder = ColumnBinder.plan(errorService, "TABLE", Arrays.asList(0, 1), Database.Type.MSSQL)[0];
+
+        binder.bind(ps, FieldType.INTEGER, BigInteger.ONE);
+        binder.bind(ps, FieldType.INTEGER, 0L);
+        binder.bind(ps, FieldType.BOOLEAN, null);
+
+        verify(ps).setBoolean(1, true);
+        verify(ps).setBoolean(1, false);
+        verify(ps).setNull(1, Types.BIT);
+    }
+
+    @Test(expected = ImportExportException.class)
+    public void tooLongStringShouldBeRejected() throws Exception {
+        final ImportExportException tooLong = mock(ImportExportException.class);
+        when(errorService.newImportExportException(eq("TABLE"), anyString())).thenReturn(tooLong);
+        final ColumnBinder binder = ColumnBinder.plan(errorService, "TABLE", Arrays.asList(0, 3), Database.Type.H2)[0];
+
+        binder.bind(ps, FieldType.STRING, "four");
+    }
+
+    @Test
+    public void typeOfShouldFollowFieldName() throws Exception {
+        final ColumnBinder binder = ColumnBinder.plan(errorService, "TABLE", Arrays.asList(0, -1), Database.Type.H2)[0];
+
+        when(node.getName()).thenReturn("string");
+        assertEquals(FieldType.STRING, binder.typeOf(node));
+        assertEquals(FieldType.STRING, binder.typeOf(node));
+
+        when(node.getName()).thenReturn("integer");
+        assertEquals(FieldType.INTEGER, binder.typeOf(node));
+    }
+}
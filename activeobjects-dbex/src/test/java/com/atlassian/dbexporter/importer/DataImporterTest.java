@@ -0,0 +1,332 @@
+package com.atlassian.dbexporter.importer;
+
+import com.atlassian.activeobjects.spi.ImportExportException;
+import com.atlassian.dbexporter.BatchMode;
+import com.atlassian.dbexporter.CleanupMode;
+import com.atlassian.dbexporter.ConnectionProvider;
+import com.atlassian.dbexporter.Context;
+import com.atlassian.dbexporter.DatabaseInformation;
+import com.atlassian.dbexporter.DatabaseInformations.Database;
+import com.atlassian.dbexporter.EntityNameProcessor;
+import com.atlassian.dbexporter.FakeDatabase;
+import com.atlassian.dbexporter.ImportExportErrorService;
+import com.atlassian.dbexporter.NoOpEntityNameProcessor;
+import com.atlassian.dbexporter.SimpleImportExportErrorService;
+import com.atlassian.dbexporter.node.NodeParser;
+import com.atlassian.dbexporter.node.NodeStreamReader;
+import com.atlassian.dbexporter.node.stax.StaxStreamReader;
+import com.atlassian.dbexporter.progress.NullProgressMonitor;
+import com.atlassian.dbexporter.progress.ProgressMonitor;
+import com.google.common.base.Predicate;
+import com.google.common.base.Strings;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.sql.Connection;
+import java.util.Arrays;
+import java.util.Set;
+
+import static com.google.common.collect.Sets.newHashSet;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class DataImporterTest {
+    private static final String ISSUE = "AO_123456_ISSUE";
+    private static final String COMMENT = "AO_123456_COMMENT";
+
+    private final ImportExportErrorService errorService = new SimpleImportExportErrorService();
+    private final FakeDatabase database = new FakeDatabase();
+    private final TestImportConfiguration configuration = new TestImportConfiguration(database);
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void rowFailingInBatchShouldBeRejectedAndOtherRowsCommitted() throws Exception {
+        final StringWriter rejected = new StringWriter();
+        configuration.rejectedRows = new RejectedRows(rejected, 10);
+
+        importData(backup(ISSUE, 1, 2, 3, 2, 5, 6, 7));
+
+        assertEquals(Arrays.<Object>asList(1L, 2L, 3L, 5L, 6L, 7L), database.getKeys(ISSUE));
+        assertEquals("# AO_123456_ISSUE row 3: Duplicate key 2 in AO_123456_ISSUE (SQL state 23505)\n"
+                + "ID=2\n"
+                + "SUMMARY=summary 2\n"
+                + "\n", rejected.toString());
+        assertEquals(1, configuration.rejectedRows.getRejectCount());
+    }
+
+    @Test
+    public void everyRowFailingInBatchShouldBeRejected() throws Exception {
+        final StringWriter rejected = new StringWriter();
+        configuration.rejectedRows = new RejectedRows(rejected, 10);
+
+        importData(backup(ISSUE, 1, 1, 2, 3, 3, 3, 4, 1));
+
+        assertEquals(Arrays.<Object>asList(1L, 2L, 3L, 4L), database.getKeys(ISSUE));
+        assertEquals(4, configuration.rejectedRows.getRejectCount());
+        assertTrue(rejected.toString().contains("# AO_123456_ISSUE row 1: "));
+        assertTrue(rejected.toString().contains("# AO_123456_ISSUE row 4: "));
+        assertTrue(rejected.toString().contains("# AO_123456_ISSUE row 5: "));
+        assertTrue(rejected.toString().contains("# AO_123456_ISSUE row 7: "));
+    }
+
+    @Test
+    public void rowsShouldBeRejectedWhenTablesAreImportedConcurrently() throws Exception {
+        final StringWriter rejected = new StringWriter();
+        configuration.rejectedRows = new RejectedRows(rejected, 10);
+        configuration.workerCount = 2;
+
+        importData(backup(ISSUE, 1, 2, 2, 3) + backup(COMMENT, 4, 5, 6, 4));
+
+        assertEquals(Arrays.<Object>asList(1L, 2L, 3L), database.getKeys(ISSUE));
+        assertEquals(Arrays.<Object>asList(4L, 5L, 6L), database.getKeys(COMMENT));
+        assertEquals(2, configuration.rejectedRows.getRejectCount());
+        assertTrue(rejected.toString().contains("# AO_123456_ISSUE row 2: "));
+        assertTrue(rejected.toString().contains("# AO_123456_COMMENT row 3: "));
+    }
+
+    @Test
+    public void multiRowStatementsShouldNotExceedTheByteBudget() throws Exception {
+        configuration.databaseInformation = new FakeDatabase("MySQL").getDatabaseInformation();
+        configuration.batchMode = BatchMode.MULTI_ROW;
+        // an integer and a string of 9 characters make about 50 bytes
+        configuration.batchSizing = BatchSizing.defaults().withMaxBytes(100);
+
+        importData(backup(ISSUE, 1, 2, 3, 4, 5));
+
+        assertEquals(Arrays.<Object>asList(1L, 2L, 3L, 4L, 5L), database.getKeys(ISSUE));
+        assertEquals(3, database.getInsertStatements());
+    }
+
+    @Test
+    public void failingMultiRowStatementShouldTellWhichRowsFailed() throws Exception {
+        configuration.databaseInformation = new FakeDatabase("MySQL").getDatabaseInformation();
+        configuration.batchMode = BatchMode.MULTI_ROW;
+        configuration.batchSizing = BatchSizing.defaults().withMaxBytes(100);
+
+        try {
+            importData(backup(ISSUE, 1, 2, 3, 2, 5));
+            fail("The duplicate key should have failed the import");
+        } catch (ImportExportException e) {
+            assertEquals(ISSUE + ": Could not insert rows 2 to 3 with a single statement of about 100 bytes", e.getMessage());
+        }
+        assertTrue(database.getKeys(ISSUE).isEmpty());
+        assertEquals(0, database.getOpenConnections());
+    }
+
+    @Test
+    public void importShouldFailOnceTheMaximumOfRejectedRowsIsReached() throws Exception {
+        final StringWriter rejected = new StringWriter();
+        configuration.rejectedRows = new RejectedRows(rejected, 1);
+
+        try {
+            importData(backup(ISSUE, 1, 2, 1, 3, 2, 4));
+            fail("The second failing row should have failed the import");
+        } catch (ImportExportException e) {
+            assertEquals(ISSUE + " row 4", e.getMessage());
+        }
+
+        assertTrue(database.getKeys(ISSUE).isEmpty());
+        assertEquals(1, configuration.rejectedRows.getRejectCount());
+        assertTrue(rejected.toString().startsWith("# AO_123456_ISSUE row 2: "));
+        assertEquals(0, database.getOpenConnections());
+    }
+
+    @Test
+    public void interruptedRestoreShouldResumeWithoutLosingOrDuplicatingRows() throws Exception {
+        assertRestoreResumes();
+    }
+
+    @Test
+    public void interruptedRestoreOfTablesImportedConcurrentlyShouldResumeWithoutLosingOrDuplicatingRows() throws Exception {
+        configuration.workerCount = 2;
+        assertRestoreResumes();
+    }
+
+    @Test
+    public void valuesOfRowsNotLoadedShouldBeReleasedWhenTablesImportedConcurrentlyFail() throws Exception {
+        final String largeSummary = Strings.repeat("x", TextValue.IN_MEMORY_LIMIT) + " ";
+        final String rowMissingSummary = "<row><integer>13</integer></row>";
+        final Set<String> spooled = spooledFiles();
+        configuration.workerCount = 2;
+
+        try {
+            importData(backup(ISSUE, largeSummary, 1, 2, 3) + backup(COMMENT, largeSummary, 4, 5, 6)
+                    + backup("AO_123456_PROJECT", largeSummary, 7, 8, 9)
+                    + backup("AO_123456_USER", largeSummary, 10, 11, 12).replace("</data>", rowMissingSummary + "</data>"));
+            fail("The row missing a field should have failed the import");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+
+        assertEquals(spooled, spooledFiles());
+        assertEquals(0, database.getOpenConnections());
+    }
+
+    /**
+     * Restores two tables, committing every two rows, with the connection lost in the middle of the second table,
+     * then restores the same backup again from the checkpoint left by the first attempt.
+     */
+    private void assertRestoreResumes() throws Exception {
+        final String data = backup(ISSUE, 1, 2, 3, 4, 5) + backup(COMMENT, 11, 12, 13, 14, 15, 16, 17);
+        final File file = new File(folder.getRoot(), "restore.checkpoint");
+        configuration.batchSizing = BatchSizing.defaults().withRows(2, 2).withCommitInterval(2);
+        configuration.restoreCheckpoint = FileRestoreCheckpoint.open(file, "backup");
+        database.failOn(14L);
+
+        try {
+            importData(data);
+            fail("Inserting the failing key should have failed the import");
+        } catch (ImportExportException e) {
+            // expected
+        }
+        assertEquals(0, database.getOpenConnections());
+        assertTrue(file.exists());
+
+        database.failOn(null);
+        configuration.restoreCheckpoint = FileRestoreCheckpoint.open(file, "backup");
+        assertTrue(configuration.restoreCheckpoint.isResuming());
+        importData(data);
+
+        assertEquals(Arrays.<Object>asList(1L, 2L, 3L, 4L, 5L), database.getKeys(ISSUE));
+        assertEquals(Arrays.<Object>asList(11L, 12L, 13L, 14L, 15L, 16L, 17L), database.getKeys(COMMENT));
+        assertTrue(configuration.restoreCheckpoint.isTableRestored(ISSUE));
+        assertTrue(configuration.restoreCheckpoint.isTableRestored(COMMENT));
+        assertEquals(0, database.getOpenConnections());
+    }
+
+    private void importData(String data) {
+        final NodeStreamReader reader = new StaxStreamReader(errorService, new StringReader("<backup>" + data + "</backup>"));
+        try {
+            final NodeParser node = reader.getRootNode().getNextNode();
+            new DataImporter(errorService, null, new NoOpAroundTableImporter()).importNode(node, configuration, new Context());
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * @return the names of the temporary files of the values spooled while importing.
+     */
+    private static Set<String> spooledFiles() {
+        final Set<String> names = newHashSet();
+        final String[] files = new File(System.getProperty("java.io.tmpdir")).list();
+        for (String name : files != null ? files : new String[0]) {
+            if (name.startsWith("ao-restore-")) {
+                names.add(name);
+            }
+        }
+        return names;
+    }
+
+    /**
+     * @return the data of the table, with a row of an {@code ID} and a {@code SUMMARY} for each key.
+     */
+    static String backup(String table, long... keys) {
+        return backup(table, "summary ", keys);
+    }
+
+    /**
+     * @return the data of the table, with a row of an {@code ID} and a {@code SUMMARY}, starting with the given
+     * prefix, for each key.
+     */
+    static String backup(String table, String summaryPrefix, long... keys) {
+        final StringBuilder xml = new StringBuilder("<data tableName=\"").append(table).append("\">")
+                .append("<column name=\"ID\"/><column name=\"SUMMARY\"/>");
+        for (long key : keys) {
+            xml.append("<row><integer>").append(key).append("</integer><string>").append(summaryPrefix).append(key).append("</string></row>");
+        }
+        return xml.append("</data>").toString();
+    }
+
+    static final class NoOpAroundTableImporter implements DataImporter.AroundTableImporter {
+        @Override
+        public void before(ImportConfiguration configuration, Context context, String table, Connection connection) {
+        }
+
+        @Override
+        public void after(ImportConfiguration configuration, Context context, String table, Connection connection) {
+        }
+    }
+
+    static final class TestImportConfiguration implements ImportConfiguration {
+        private final FakeDatabase database;
+        DatabaseInformation databaseInformation;
+        BatchMode batchMode = BatchMode.ON;
+        int workerCount = 1;
+        RejectedRows rejectedRows;
+        BatchSizing batchSizing;
+        RestoreCheckpoint restoreCheckpoint;
+
+        TestImportConfiguration(FakeDatabase database) {
+            this.database = database;
+            this.databaseInformation = database.getDatabaseInformation();
+        }
+
+        @Override
+        public DatabaseInformation getDatabaseInformation() {
+            return databaseInformation;
+        }
+
+        @Override
+        public CleanupMode getCleanupMode() {
+            return CleanupMode.NONE;
+        }
+
+        @Override
+        public BatchMode getBatchMode() {
+            return batchMode;
+        }
+
+        @Override
+        public Predicate<String> getTableFilter() {
+            return null;
+        }
+
+        @Override
+        public int getWorkerCount() {
+            return workerCount;
+        }
+
+        @Override
+        public BatchSizing getBatchSizing() {
+            return batchSizing;
+        }
+
+        @Override
+        public BulkLoader getBulkLoader(Database.Type databaseType) {
+            return null;
+        }
+
+        @Override
+        public RestoreCheckpoint getRestoreCheckpoint() {
+            return restoreCheckpoint;
+        }
+
+        @Override
+        public RejectedRows getRejectedRows() {
+            return rejectedRows;
+        }
+
+        @Override
+        public ConnectionProvider getConnectionProvider() {
+            return database;
+        }
+
+        @Override
+        public ProgressMonitor getProgressMonitor() {
+            return NullProgressMonitor.INSTANCE;
+        }
+
+        @Override
+        public EntityNameProcessor getEntityNameProcessor() {
+            return new NoOpEntityNameProcessor();
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.atlassian.dbexporter.importer;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class FileRestoreCheckpointTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void progressShouldBeResumedForTheSameBackup() throws Exception {
+        final File file = new File(folder.getRoot(), "restore.checkpoint");
+        final FileRestoreCheckpoint checkpoint = FileRestoreCheckpoint.open(file, "backup");
+        assertFalse(checkpoint.isResuming());
+        checkpoint.rowsRestored("AO_123456_ISSUE", 5000L);
+        checkpoint.tableRestored("AO_123456_ISSUE");
+        checkpoint.rowsRestored("AO_123456_COMMENT", 10000L);
+
+        final FileRestoreCheckpoint resumed = FileRestoreCheckpoint.open(file, "backup");
+        assertTrue(resumed.isResuming());
+        assertTrue(resumed.isTableRestored("AO_123456_ISSUE"));
+        assertEquals(0L, resumed.getRestoredRows("AO_123456_ISSUE"));
+        assertFalse(resumed.isTableRestored("AO_123456_COMMENT"));
+        assertEquals(10000L, resumed.getRestoredRows("AO_123456_COMMENT"));
+    }
+
+    @Test
+    public void progressShouldBeIgnoredForAnotherBackup() throws Exception {
+        final File file = new File(folder.getRoot(), "restore.checkpoint");
+        FileRestoreCheckpoint.open(file, "backup").tableRestored("AO_123456_ISSUE");
+
+        final FileRestoreCheckpoint other = FileRestoreCheckpoint.open(file, "other backup");
+        assertFalse(other.isResuming());
+        assertFalse(other.isTableRestored("AO_123456_ISSUE"));
+    }
+
+    @Test
+    public void checkpointShouldBeDeletedOnceRestoreCompletes() throws Exception {
+        final File file = new File(folder.getRoot(), "restore.checkpoint");
+        final FileRestoreCheckpoint checkpoint = FileRestoreCheckpoint.open(file, "backup");
+        checkpoint.tableRestored("AO_123456_ISSUE");
+        assertTrue(file.exists());
+
+        checkpoint.restoreCompleted();
+        assertFalse(file.exists());
+        assertFalse(FileRestoreCheckpoint.open(file, "backup").isResuming());
+    }
+
+    @Test
+    public void fingerprintShouldDependOnContent() throws Exception {
+        final File backup = write("backup", new byte[3 * 1024 * 1024]);
+        final byte[] changed = new byte[3 * 1024 * 1024];
+        changed[changed.length - 1] = 1;
+
+        assertEquals(FileRestoreCheckpoint.fingerprint(backup), FileRestoreCheckpoint.fingerprint(write("copy", new byte[3 * 1024 * 1024])));
+        assertNotEquals(FileRestoreCheckpoint.fingerprint(backup), FileRestoreCheckpoint.fingerprint(write("changed", changed)));
+        assertNotEquals(FileRestoreCheckpoint.fingerprint(write("empty", new byte[0])), FileRestoreCheckpoint.fingerprint(write("small", new byte[1])));
+    }
+
+    private File write(String name, byte[] content) throws Exception {
+        final File file = folder.newFile(name);
+        final OutputStream output = new FileOutputStream(file);
+        try {
+            output.write(content);
+        } finally {
+            output.close();
+        }
+        return file;
+    }
+}
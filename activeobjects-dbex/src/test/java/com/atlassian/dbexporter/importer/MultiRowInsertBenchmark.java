@@ -0,0 +1,181 @@
+package com.atlassian.dbexporter.importer;
+
+import com.atlassian.dbexporter.DatabaseInformation;
+import com.atlassian.dbexporter.DatabaseInformations.Database;
+import com.atlassian.dbexporter.ImportExportErrorService;
+import com.google.common.collect.ImmutableMap;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.atlassian.dbexporter.DatabaseInformations.database;
+
+/**
+ * <p>Compares inserting rows with JDBC batches of single-row statements, as the {@code BatchInserter} of the
+ * {@link DataImporter} does, against {@link MultiRowInsert multi-row statements}, on a real database.</p>
+ * <p>This is not a unit test, run it with the JDBC driver of the database on the class path:
+ * {@code mvn exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.atlassian.dbexporter.importer.MultiRowInsertBenchmark
+ * -Dexec.args="jdbc-url user password [rows]"}. It creates, and drops, the table {@code AO_BENCH_MULTI_ROW}.</p>
+ */
+public final class MultiRowInsertBenchmark {
+    private static final String TABLE = "AO_BENCH_MULTI_ROW";
+    private static final List<String> COLUMNS = Arrays.asList("ID", "NAME", "AMOUNT", "CREATED");
+    private static final FieldType[] TYPES = {FieldType.INTEGER, FieldType.STRING, FieldType.DOUBLE, FieldType.DATE};
+    private static final int BATCH_SIZE = 5000;
+    private static final int ITERATIONS = 5;
+
+    private final Connection connection;
+    private final Database.Type databaseType;
+    private final ColumnBinder[] binders;
+    private final int rows;
+
+    private MultiRowInsertBenchmark(Connection connection, int rows) throws SQLException {
+        this.connection = connection;
+        this.databaseType = database(new DatabaseInformation(ImmutableMap.of("database.name", connection.getMetaData().getDatabaseProductName()))).getType();
+        this.binders = ColumnBinder.plan(errorService(), TABLE, Arrays.asList(0, -1, 255, -1, -1), databaseType);
+        this.rows = rows;
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 3) {
+            System.err.println("Usage: MultiRowInsertBenchmark jdbc-url user password [rows]");
+            return;
+        }
+        final Connection connection = DriverManager.getConnection(args[0], args[1], args[2]);
+        try {
+            connection.setAutoCommit(false);
+            final MultiRowInsertBenchmark benchmark = new MultiRowInsertBenchmark(connection, args.length > 3 ? Integer.parseInt(args[3]) : 100000);
+            if (MultiRowInsert.forDatabase(benchmark.databaseType).getRowsPerStatement(COLUMNS.size()) <= 1) {
+                System.err.println(benchmark.databaseType + " inserts one row per statement, there is nothing to compare");
+                return;
+            }
+            benchmark.createTable();
+            try {
+                for (int i = 0; i < ITERATIONS; i++) {
+                    final long batched = benchmark.time(false);
+                    final long multiRow = benchmark.time(true);
+                    System.out.println(String.format("%s, %d rows: JDBC batches %d rows/s, multi-row statements of %d rows %d rows/s",
+                            benchmark.databaseType, benchmark.rows, benchmark.rowsPerSecond(batched),
+                            MultiRowInsert.forDatabase(benchmark.databaseType).getRowsPerStatement(COLUMNS.size()), benchmark.rowsPerSecond(multiRow)));
+                }
+            } finally {
+                benchmark.execute("DROP TABLE " + TABLE);
+            }
+        } finally {
+            connection.close();
+        }
+    }
+
+    private void createTable() throws SQLException {
+        final String timestamp = databaseType == Database.Type.MSSQL ? "DATETIME" : "TIMESTAMP";
+        execute("CREATE TABLE " + TABLE + " (ID NUMERIC(19) NOT NULL PRIMARY KEY, NAME VARCHAR(255), AMOUNT NUMERIC(20, 4), CREATED " + timestamp + ")");
+    }
+
+    private long time(boolean multiRow) throws SQLException {
+        execute("DELETE FROM " + TABLE);
+        final long start = System.nanoTime();
+        if (multiRow) {
+            insertMultiRow();
+        } else {
+            insertBatched();
+        }
+        connection.commit();
+        return System.nanoTime() - start;
+    }
+
+    private long rowsPerSecond(long nanos) {
+        return rows * TimeUnit.SECONDS.toNanos(1) / nanos;
+    }
+
+    private void insertBatched() throws SQLException {
+        final MultiRowInsert insert = MultiRowInsert.forDatabase(databaseType);
+        final PreparedStatement ps = connection.prepareStatement(insert.render(TABLE, columnList(), COLUMNS.size(), 1));
+        try {
+            for (int row = 0; row < rows; row++) {
+                bind(ps, 0, row);
+                ps.addBatch();
+                if ((row + 1) % BATCH_SIZE == 0) {
+                    ps.executeBatch();
+                }
+            }
+            ps.executeBatch();
+        } finally {
+            ps.close();
+        }
+    }
+
+    private void insertMultiRow() throws SQLException {
+        final MultiRowInsert insert = MultiRowInsert.forDatabase(databaseType);
+        final int rowsPerStatement = insert.getRowsPerStatement(COLUMNS.size());
+        final PreparedStatement ps = connection.prepareStatement(insert.render(TABLE, columnList(), COLUMNS.size(), rowsPerStatement));
+        try {
+            int row = 0;
+            for (; row + rowsPerStatement <= rows; row += rowsPerStatement) {
+                for (int i = 0; i < rowsPerStatement; i++) {
+                    bind(ps, i * COLUMNS.size(), row + i);
+                }
+                ps.executeUpdate();
+            }
+            if (row < rows) {
+                final PreparedStatement remaining = connection.prepareStatement(insert.render(TABLE, columnList(), COLUMNS.size(), rows - row));
+                try {
+                    for (int i = 0; row + i < rows; i++) {
+                        bind(remaining, i * COLUMNS.size(), row + i);
+                    }
+                    remaining.executeUpdate();
+                } finally {
+                    remaining.close();
+                }
+            }
+        } finally {
+            ps.close();
+        }
+    }
+
+    private void bind(PreparedStatement ps, int offset, int row) throws SQLException {
+        final Object[] values = {BigInteger.valueOf(row), "Row number " + row, BigDecimal.valueOf(row, 2), new Date()};
+        for (int i = 0; i < binders.length; i++) {
+            binders[i].bind(ps, offset, TYPES[i], values[i]);
+        }
+    }
+
+    private static String columnList() {
+        final StringBuilder list = new StringBuilder();
+        for (String column : COLUMNS) {
+            list.append(list.length() > 0 ? ", " : "").append(column);
+        }
+        return list.toString();
+    }
+
+    private void execute(String sql) throws SQLException {
+        final Statement statement = connection.createStatement();
+        try {
+            statement.execute(sql);
+        } finally {
+            statement.close();
+        }
+        connection.commit();
+    }
+
+    private static ImportExportErrorService errorService() {
+        return (ImportExportErrorService) Proxy.newProxyInstance(ImportExportErrorService.class.getClassLoader(),
+                new Class[]{ImportExportErrorService.class}, new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        throw new IllegalStateException(method.getName() + Arrays.toString(args));
+                    }
+                });
+    }
+}
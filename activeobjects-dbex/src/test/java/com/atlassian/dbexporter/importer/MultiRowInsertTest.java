@@ -0,0 +1,44 @@
+package com.atlassian.dbexporter.importer;
+
+import com.atlassian.dbexporter.DatabaseInformations.Database;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class MultiRowInsertTest {
+    @Test
+    public void singleRowShouldBePlainInsert() {
+        assertEquals("INSERT INTO T (A, B) VALUES (?, ?)", MultiRowInsert.forDatabase(Database.Type.ORACLE).render("T", "A, B", 2, 1));
+    }
+
+    @Test
+    public void rowsShouldBeRenderedAsValuesList() {
+        assertEquals("INSERT INTO T (A, B) VALUES (?, ?), (?, ?), (?, ?)", MultiRowInsert.forDatabase(Database.Type.POSTGRES).render("T", "A, B", 2, 3));
+    }
+
+    @Test
+    public void oracleRowsShouldBeRenderedAsInsertAll() {
+        assertEquals("INSERT ALL INTO T (A) VALUES (?) INTO T (A) VALUES (?) SELECT * FROM DUAL",
+                MultiRowInsert.forDatabase(Database.Type.ORACLE).render("T", "A", 1, 2));
+    }
+
+    @Test
+    public void rowsPerStatementShouldBeBoundByParameters() {
+        assertEquals(1000, MultiRowInsert.forDatabase(Database.Type.MSSQL).getRowsPerStatement(2));
+        assertEquals(209, MultiRowInsert.forDatabase(Database.Type.MSSQL).getRowsPerStatement(10));
+        assertEquals(32, MultiRowInsert.forDatabase(Database.Type.POSTGRES).getRowsPerStatement(1000));
+        assertEquals(500, MultiRowInsert.forDatabase(Database.Type.ORACLE).getRowsPerStatement(5));
+    }
+
+    @Test
+    public void mySqlStatementsShouldBeBoundByPacketSize() {
+        assertEquals(1024 * 1024, MultiRowInsert.forDatabase(Database.Type.MYSQL).getMaxBytes());
+        assertEquals(Long.MAX_VALUE, MultiRowInsert.forDatabase(Database.Type.POSTGRES).getMaxBytes());
+    }
+
+    @Test
+    public void databasesWithoutMultiRowInsertShouldInsertOneRowAtATime() {
+        assertEquals(1, MultiRowInsert.forDatabase(Database.Type.HSQL).getRowsPerStatement(5));
+        assertEquals(1, MultiRowInsert.forDatabase(Database.Type.UNKNOWN).getRowsPerStatement(5));
+    }
+}
@@ -0,0 +1,72 @@
+package com.atlassian.dbexporter.importer;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import java.sql.SQLException;
+import java.sql.SQLWarning;
+import java.sql.Statement;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class MySqlLoadDataBulkLoaderTest {
+    @Mock
+    private Statement statement;
+
+    @Test
+    public void allRowsLoadedWithoutWarningShouldPass() throws Exception {
+        when(statement.getUpdateCount()).thenReturn(3);
+
+        MySqlLoadDataBulkLoader.checkLoaded(statement, 3);
+    }
+
+    @Test
+    public void rowsSkippedShouldFail() throws Exception {
+        final SQLWarning warning = new SQLWarning("Duplicate entry '2' for key 'PRIMARY'", "23000", 1062);
+        when(statement.getUpdateCount()).thenReturn(2);
+        when(statement.getWarnings()).thenReturn(warning);
+
+        try {
+            MySqlLoadDataBulkLoader.checkLoaded(statement, 3);
+            fail("Loading fewer rows than sent should have failed");
+        } catch (SQLException e) {
+            assertEquals("LOAD DATA loaded 2 of the 3 rows sent: Duplicate entry '2' for key 'PRIMARY'", e.getMessage());
+            assertEquals("23000", e.getSQLState());
+            assertSame(warning, e.getCause());
+        }
+    }
+
+    @Test
+    public void rowsMissingWithoutWarningShouldFail() throws Exception {
+        when(statement.getUpdateCount()).thenReturn(1);
+
+        try {
+            MySqlLoadDataBulkLoader.checkLoaded(statement, 3);
+            fail("Loading fewer rows than sent should have failed");
+        } catch (SQLException e) {
+            assertEquals("LOAD DATA loaded 1 of the 3 rows sent", e.getMessage());
+        }
+    }
+
+    @Test
+    public void warningsShouldFailEvenWhenAllRowsAreLoaded() throws Exception {
+        final SQLWarning warning = new SQLWarning("Data truncated for column 'SUMMARY' at row 1", "01000", 1265);
+        warning.setNextWarning(new SQLWarning("Incorrect integer value: 'x' for column 'ID' at row 2", "HY000", 1366));
+        when(statement.getUpdateCount()).thenReturn(3);
+        when(statement.getWarnings()).thenReturn(warning);
+
+        try {
+            MySqlLoadDataBulkLoader.checkLoaded(statement, 3);
+            fail("Warnings should have failed the load");
+        } catch (SQLException e) {
+            assertEquals("LOAD DATA loaded 3 of the 3 rows sent: Data truncated for column 'SUMMARY' at row 1; "
+                    + "Incorrect integer value: 'x' for column 'ID' at row 2", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.atlassian.dbexporter.importer;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.mockito.stubbing.Answer;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+@RunWith(MockitoJUnitRunner.class)
+public class PostgresCopyBulkLoaderTest {
+    @Mock
+    private CopyIn copyIn;
+
+    private final ByteArrayOutputStream copied = new ByteArrayOutputStream();
+
+    @Test
+    public void rowsShouldBeCopiedAsTabSeparatedUtf8Text() throws Exception {
+        recordCopiedBytes();
+        final Timestamp published = Timestamp.valueOf("2011-01-04 10:30:00.0");
+        final BulkLoader.Load load = new PostgresCopyBulkLoader.CopyLoad(CopyIn.class, copyIn);
+
+        load.addRow(new Object[]{1L, "Programming in Scala", Boolean.TRUE, new BigDecimal("31.17"), published});
+        load.addRow(new Object[]{2L, "tab\there,\nnew line \\ and été", Boolean.FALSE, null, null});
+        load.finish();
+
+        assertEquals("1\tProgramming in Scala\t1\t31.17\t2011-01-04 10:30:00.0\n"
+                + "2\ttab\\there,\\nnew line \\\\ and été\t0\t\\N\t\\N\n", copied.toString("UTF-8"));
+        verify(copyIn).endCopy();
+        verify(copyIn, never()).cancelCopy();
+    }
+
+    @Test
+    public void largeLoadsShouldBeCopiedInChunks() throws Exception {
+        recordCopiedBytes();
+        final BulkLoader.Load load = new PostgresCopyBulkLoader.CopyLoad(CopyIn.class, copyIn);
+        final StringBuilder expected = new StringBuilder();
+        for (long i = 0; i < 10000; i++) {
+            load.addRow(new Object[]{i, "summary " + i});
+            expected.append(i).append("\tsummary ").append(i).append('\n');
+        }
+        load.finish();
+
+        assertEquals(expected.toString(), copied.toString("UTF-8"));
+    }
+
+    @Test
+    public void abortedLoadShouldCancelTheCopy() throws Exception {
+        final BulkLoader.Load load = new PostgresCopyBulkLoader.CopyLoad(CopyIn.class, copyIn);
+        load.addRow(new Object[]{1L});
+
+        load.abort();
+        load.abort();
+
+        verify(copyIn).cancelCopy();
+        verify(copyIn, never()).writeToCopy(any(byte[].class), anyInt(), anyInt());
+    }
+
+    private void recordCopiedBytes() {
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) {
+                final Object[] args = invocation.getArguments();
+                copied.write((byte[]) args[0], (Integer) args[1], (Integer) args[2]);
+                return null;
+            }
+        }).when(copyIn).writeToCopy(any(byte[].class), anyInt(), anyInt());
+    }
+
+    /**
+     * The methods of the driver's {@code CopyIn} the load calls.
+     */
+    public interface CopyIn {
+        void writeToCopy(byte[] bytes, int offset, int length);
+
+        long endCopy();
+
+        void cancelCopy();
+    }
+}
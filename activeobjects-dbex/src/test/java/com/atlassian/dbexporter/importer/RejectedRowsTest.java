@@ -0,0 +1,39 @@
+package com.atlassian.dbexporter.importer;
+
+import org.junit.Test;
+
+import java.io.StringWriter;
+import java.sql.SQLException;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RejectedRowsTest {
+    @Test
+    public void rejectedRowsShouldBeWrittenWithTheirValuesAndError() throws Exception {
+        final StringWriter output = new StringWriter();
+        final RejectedRows rejects = new RejectedRows(output, 10);
+
+        assertTrue(rejects.reject("AO_123456_ISSUE", 1234L, Arrays.asList("ID", "SUMMARY", "DESCRIPTION"),
+                new Object[]{1235L, "two\nlines", null}, new SQLException("value too long", "22001")));
+
+        assertEquals("# AO_123456_ISSUE row 1234: value too long (SQL state 22001)\n"
+                + "ID=1235\n"
+                + "SUMMARY=two\\nlines\n"
+                + "DESCRIPTION=NULL\n"
+                + "\n", output.toString());
+        assertEquals(1, rejects.getRejectCount());
+    }
+
+    @Test
+    public void rowsShouldNotBeRejectedOnceTheMaximumIsReached() throws Exception {
+        final StringWriter output = new StringWriter();
+        final RejectedRows rejects = new RejectedRows(output, 1);
+
+        assertTrue(rejects.reject("AO_123456_ISSUE", 1L, Arrays.asList("ID"), new Object[]{1L}, new SQLException("duplicate")));
+        assertFalse(rejects.reject("AO_123456_ISSUE", 2L, Arrays.asList("ID"), new Object[]{1L}, new SQLException("duplicate")));
+        assertEquals(1, rejects.getRejectCount());
+    }
+}
@@ -0,0 +1,176 @@
+package com.atlassian.dbexporter.importer;
+
+import com.google.common.collect.ImmutableList;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class SqlServerBulkCopyLoaderTest {
+    @Test
+    public void nullShouldStayNull() {
+        assertNull(SqlServerBulkCopyLoader.convert(null, Types.INTEGER));
+        assertNull(SqlServerBulkCopyLoader.convert(null, Types.VARCHAR));
+    }
+
+    @Test
+    public void booleansShouldBeConvertedToTheTypeOfTheColumn() {
+        assertEquals(Boolean.TRUE, SqlServerBulkCopyLoader.convert(Boolean.TRUE, Types.BIT));
+        assertEquals(Boolean.TRUE, SqlServerBulkCopyLoader.convert(1L, Types.BIT));
+        assertEquals(Boolean.FALSE, SqlServerBulkCopyLoader.convert(BigInteger.ZERO, Types.BOOLEAN));
+        assertEquals((short) 1, SqlServerBulkCopyLoader.convert(Boolean.TRUE, Types.TINYINT));
+        assertEquals(0, SqlServerBulkCopyLoader.convert(Boolean.FALSE, Types.INTEGER));
+    }
+
+    @Test
+    public void integersShouldBeConvertedToTheTypeOfTheColumn() {
+        assertEquals((short) 7, SqlServerBulkCopyLoader.convert(BigInteger.valueOf(7), Types.SMALLINT));
+        assertEquals(7, SqlServerBulkCopyLoader.convert(7L, Types.INTEGER));
+        assertEquals(9007199254740993L, SqlServerBulkCopyLoader.convert(BigInteger.valueOf(9007199254740993L), Types.BIGINT));
+        assertEquals(new BigDecimal("12345678901234567890"), SqlServerBulkCopyLoader.convert(new BigInteger("12345678901234567890"), Types.NUMERIC));
+        assertEquals(new BigDecimal("42"), SqlServerBulkCopyLoader.convert(42L, Types.DECIMAL));
+    }
+
+    @Test
+    public void floatingPointsShouldBeConvertedToTheTypeOfTheColumn() {
+        assertEquals(1.5d, SqlServerBulkCopyLoader.convert(1.5d, Types.DOUBLE));
+        assertEquals(1.5d, SqlServerBulkCopyLoader.convert(new BigDecimal("1.5"), Types.FLOAT));
+        assertEquals(1.5f, SqlServerBulkCopyLoader.convert(1.5d, Types.REAL));
+        assertEquals(new BigDecimal("1.25"), SqlServerBulkCopyLoader.convert(1.25d, Types.DECIMAL));
+        final BigDecimal decimal = new BigDecimal("3.14");
+        assertSame(decimal, SqlServerBulkCopyLoader.convert(decimal, Types.NUMERIC));
+    }
+
+    @Test
+    public void datesShouldBeConvertedToTimestamps() {
+        final Date date = new Date(1234567890123L);
+
+        assertEquals(new Timestamp(date.getTime()), SqlServerBulkCopyLoader.convert(date, Types.TIMESTAMP));
+        assertEquals(Timestamp.class, SqlServerBulkCopyLoader.convert(date, Types.DATE).getClass());
+        assertEquals(new Timestamp(date.getTime()), SqlServerBulkCopyLoader.convert(date, Types.OTHER));
+    }
+
+    @Test
+    public void stringsShouldBeKept() {
+        assertEquals("summary", SqlServerBulkCopyLoader.convert("summary", Types.NVARCHAR));
+    }
+
+    @Test
+    public void rowsShouldBeWrittenAsBulkDataWhenTheDriverTakesIt() {
+        assertSame(BulkData.class, SqlServerBulkCopyLoader.writeToServerParameter(BulkDataCopy.class, BulkData.class, BulkRecord.class));
+    }
+
+    @Test
+    public void rowsShouldBeWrittenAsBulkRecordsToOlderDrivers() {
+        assertSame(BulkRecord.class, SqlServerBulkCopyLoader.writeToServerParameter(BulkRecordCopy.class, null, BulkRecord.class));
+        assertSame(BulkRecord.class, SqlServerBulkCopyLoader.writeToServerParameter(BulkRecordCopy.class, BulkData.class, BulkRecord.class));
+    }
+
+    @Test
+    public void driverWithoutBulkCopyOfRowsShouldNotBeSupported() {
+        assertNull(SqlServerBulkCopyLoader.writeToServerParameter(ResultSetCopy.class, BulkData.class, BulkRecord.class));
+    }
+
+    @Test
+    public void bulkRecordShouldReadTheRowsAndTheirColumns() throws Exception {
+        final List<Object[]> rows = ImmutableList.of(new Object[]{1, "a"}, new Object[]{2, null});
+        final BulkRecord record = (BulkRecord) SqlServerBulkCopyLoader.newBulkRecord(BulkRecord.class, "[T]",
+                Arrays.asList("ID", "SUMMARY"), new int[][]{{Types.INTEGER, 10, 0}, {Types.NVARCHAR, 255, 0}}, rows.iterator());
+
+        assertEquals(ImmutableList.of(1, 2), ImmutableList.copyOf(record.getColumnOrdinals()));
+        assertEquals("SUMMARY", record.getColumnName(2));
+        assertEquals(Types.NVARCHAR, record.getColumnType(2));
+        assertEquals(255, record.getPrecision(2));
+        assertEquals(0, record.getScale(1));
+        assertFalse(record.isAutoIncrement(1));
+        assertTrue(record.next());
+        assertSame(rows.get(0), record.getRowData());
+        assertTrue(record.next());
+        assertSame(rows.get(1), record.getRowData());
+        assertFalse(record.next());
+    }
+
+    @Test
+    public void bulkRecordShouldIgnoreMethodsTheBulkCopyDoesNotNeed() {
+        final BulkRecord record = (BulkRecord) SqlServerBulkCopyLoader.newBulkRecord(BulkRecord.class, "[T]",
+                Arrays.asList("ID"), new int[][]{{Types.INTEGER, 10, 0}}, ImmutableList.<Object[]>of().iterator());
+
+        record.addColumnMetadata(1, "ID", Types.INTEGER, 10, 0);
+        record.setTimestampWithTimezoneFormat("yyyy");
+        assertNull(record.getColumnDateTimeFormatter(1));
+        assertEquals(0, record.getColumnCount());
+        assertFalse(record.isCaseSensitive());
+    }
+
+    /**
+     * The shape of the driver's {@code ISQLServerBulkData}.
+     */
+    public interface BulkData {
+        Set<Integer> getColumnOrdinals();
+
+        String getColumnName(int column);
+
+        int getColumnType(int column);
+
+        int getPrecision(int column);
+
+        int getScale(int column);
+
+        Object[] getRowData() throws SQLException;
+
+        boolean next() throws SQLException;
+    }
+
+    /**
+     * The shape of the driver's {@code ISQLServerBulkRecord}, with methods the bulk copy doesn't need, some of them
+     * unknown to the loader.
+     */
+    public interface BulkRecord extends BulkData {
+        boolean isAutoIncrement(int column);
+
+        void addColumnMetadata(int column, String name, int type, int precision, int scale);
+
+        void setTimestampWithTimezoneFormat(String format);
+
+        Object getColumnDateTimeFormatter(int column);
+
+        int getColumnCount();
+
+        boolean isCaseSensitive();
+    }
+
+    public static final class BulkDataCopy {
+        public void writeToServer(ResultSet rows) {
+        }
+
+        public void writeToServer(BulkData rows) {
+        }
+    }
+
+    public static final class BulkRecordCopy {
+        public void writeToServer(ResultSet rows) {
+        }
+
+        public void writeToServer(BulkRecord rows) {
+        }
+    }
+
+    public static final class ResultSetCopy {
+        public void writeToServer(ResultSet rows) {
+        }
+    }
+}
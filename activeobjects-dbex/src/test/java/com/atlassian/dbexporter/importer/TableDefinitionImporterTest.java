@@ -5,6 +5,7 @@ import com.atlassian.dbexporter.Context;
 import com.atlassian.dbexporter.DatabaseInformation;
 import com.atlassian.dbexporter.EntityNameProcessor;
 import com.atlassian.dbexporter.ImportExportErrorService;
+import com.atlassian.dbexporter.Index;
 import com.atlassian.dbexporter.NoOpEntityNameProcessor;
 import com.atlassian.dbexporter.Table;
 import com.atlassian.dbexporter.node.NodeParser;
@@ -80,6 +81,22 @@ public class TableDefinitionImporterTest {
         assertTable(iterator.next(), "table-3", 3, "column-31", "column-32", "column-33");
     }
 
+    @Test
+    @Xml(TABLE_WITH_INDEXES)
+    public void tableDefinitionWithIndexes() throws Exception {
+        final NodeParser node = nodeParser.getNode();
+        tableDefinitionImporter.doImportNode(node, configuration, context);
+
+        final Table table = verifyTables().iterator().next();
+        assertTable(table, "a-table", 2, "column-1", "column-2");
+        assertEquals(1, table.getForeignKeys().size());
+        assertEquals(2, table.getIndexes().size());
+
+        final Iterator<Index> indexes = table.getIndexes().iterator();
+        assertIndex(indexes.next(), "a-table", "column-1");
+        assertIndex(indexes.next(), "a-table", "column-2");
+    }
+
     @SuppressWarnings("unchecked")
     private List<Table> verifyTables() {
         final ArgumentCaptor<List> argument = ArgumentCaptor.forClass(List.class);
@@ -108,6 +125,14 @@ public class TableDefinitionImporterTest {
                     "  <foreignKey name=\"fk-1\" fromTable=\"a-table\" toTable=\"table-2\" fromColumn=\"column-11\" toColumn=\"column-21\"/>\n" +
                     "</table>";
 
+    private static final String TABLE_WITH_INDEXES =
+            "<table name=\"a-table\">\n" +
+                    "  <column name=\"column-1\" sqlType=\"3\"/>\n" +
+                    "  <column name=\"column-2\" sqlType=\"5\"/>\n" +
+                    "  <foreignKey name=\"fk-1\" fromTable=\"a-table\" toTable=\"table-2\" fromColumn=\"column-11\" toColumn=\"column-21\"/>\n" +
+                    "  <index table=\"a-table\" column=\"column-1\"/>\n" +
+                    "  <index table=\"a-table\" column=\"column-2\"/>\n" +
+                    "</table>";
 
     private static final String MULTIPLE_TABLES = "<database>\n" +
             "<table name=\"table-1\">\n" +
@@ -133,4 +158,9 @@ public class TableDefinitionImporterTest {
             assertEquals(columnName, colIt.next().getName());
         }
     }
+
+    private static void assertIndex(Index index, String tableName, String columnName) {
+        assertEquals(tableName, index.getTable());
+        assertEquals(columnName, index.getColumn());
+    }
 }
@@ -0,0 +1,86 @@
+package com.atlassian.dbexporter.importer;
+
+import com.atlassian.dbexporter.ImportExportErrorService;
+import com.atlassian.dbexporter.node.NodeParser;
+import com.atlassian.dbexporter.node.stax.StaxStreamReader;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import java.io.Reader;
+import java.io.StringReader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(MockitoJUnitRunner.class)
+public class TextValueTest {
+    private static final int LARGE_LENGTH = TextValue.IN_MEMORY_LIMIT * 3 + 1;
+
+    @Rule
+    public NodeParserRule nodeParser = new NodeParserRule();
+
+    @Mock
+    private ImportExportErrorService errorService;
+
+    @Test
+    @Xml("<string>a \\u0001 b \\\\</string>")
+    public void smallValuesShouldBeReadAsDecodedStrings() throws Exception {
+        final NodeParser node = nodeParser.getNode();
+
+        assertEquals("a \u0001 b \\", TextValue.read(node));
+        assertTrue(node.isClosed());
+    }
+
+    @Test
+    @Xml("<string xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\" xsi:nil=\"true\"/>")
+    public void nilValuesShouldBeNull() throws Exception {
+        final NodeParser node = nodeParser.getNode();
+
+        assertNull(TextValue.read(node));
+        assertTrue(node.isClosed());
+    }
+
+    @Test
+    public void largeValuesShouldBeSpooledToFile() throws Exception {
+        final StringBuilder content = new StringBuilder(LARGE_LENGTH);
+        final StringBuilder encoded = new StringBuilder("<string>");
+        for (int i = 0; content.length() < LARGE_LENGTH; i++) {
+            if (i % 10 == 0) {
+                content.append('\u0002');
+                encoded.append("\\u0002");
+            } else {
+                final char c = i % 7 == 0 ? '\u00e9' : (char) ('a' + i % 26);
+                content.append(c);
+                encoded.append(c);
+            }
+        }
+        final StaxStreamReader reader = new StaxStreamReader(errorService, new StringReader(encoded.append("</string>").toString()));
+
+        final TextValue value = (TextValue) TextValue.read(reader.getRootNode());
+        try {
+            assertEquals(LARGE_LENGTH, value.length());
+            // the reader can be opened again, e.g. when a batch is retried
+            read(value);
+            assertEquals(content.toString(), read(value));
+            assertEquals(content.toString(), value.asString());
+        } finally {
+            value.release();
+            reader.close();
+        }
+    }
+
+    private static String read(TextValue value) throws Exception {
+        final Reader reader = value.openReader();
+        final StringBuilder text = new StringBuilder();
+        final char[] buffer = new char[4096];
+        int read;
+        while ((read = reader.read(buffer)) != -1) {
+            text.append(buffer, 0, read);
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,146 @@
+package com.atlassian.dbexporter.node;
+
+import com.atlassian.dbexporter.ImportExportErrorService;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.CharStreams;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.mockito.stubbing.Answer;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Date;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class NodeSpoolTest {
+    @Mock
+    private ImportExportErrorService errorService;
+    @Mock
+    private NodeCreator target;
+
+    private NodeSpool spool;
+
+    @Before
+    public void setUp() throws Exception {
+        spool = NodeSpool.create(errorService);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        spool.delete();
+    }
+
+    @Test
+    public void replayShouldRepeatCallsInOrder() throws Exception {
+        final Date date = new Date(1234567890L);
+        final byte[] bytes = new byte[]{0, 1, 100, 2};
+
+        spool.addNode("data").addAttribute("tableName", "TABLE");
+        spool.addNode("row");
+        spool.addNode("integer").setContentAsBigInteger(BigInteger.TEN).closeEntity();
+        spool.addNode("double").setContentAsBigDecimal(new BigDecimal("1.5")).closeEntity();
+        spool.addNode("integer").setContentAsLong(-42L).closeEntity();
+        spool.addNode("double").setContentAsDouble(2.5d).closeEntity();
+        spool.addNode("timestamp").setContentAsEpochMillis(1234567890L).closeEntity();
+        spool.addNode("string").setContentAsString("some \u00e9 string").closeEntity();
+        spool.addNode("string").setContentAsString(null).closeEntity();
+        spool.addNode("boolean").setContentAsBoolean(true).closeEntity();
+        spool.addNode("timestamp").setContentAsDate(date).closeEntity();
+        spool.addNode("binary").setContentAsBinary(bytes).closeEntity();
+        spool.closeEntity();
+        spool.closeEntity();
+
+        spool.replay(target);
+
+        final InOrder inOrder = inOrder(target);
+        inOrder.verify(target).addNode("data");
+        inOrder.verify(target).addAttribute("tableName", "TABLE");
+        inOrder.verify(target).addNode("row");
+        inOrder.verify(target).addNode("integer");
+        inOrder.verify(target).setContentAsBigInteger(BigInteger.TEN);
+        inOrder.verify(target).closeEntity();
+        inOrder.verify(target).addNode("double");
+        inOrder.verify(target).setContentAsBigDecimal(new BigDecimal("1.5"));
+        inOrder.verify(target).closeEntity();
+        inOrder.verify(target).addNode("integer");
+        inOrder.verify(target).setContentAsLong(-42L);
+        inOrder.verify(target).closeEntity();
+        inOrder.verify(target).addNode("double");
+        inOrder.verify(target).setContentAsDouble(2.5d);
+        inOrder.verify(target).closeEntity();
+        inOrder.verify(target).addNode("timestamp");
+        inOrder.verify(target).setContentAsEpochMillis(1234567890L);
+        inOrder.verify(target).closeEntity();
+        inOrder.verify(target).addNode("string");
+        inOrder.verify(target).setContentAsString("some \u00e9 string");
+        inOrder.verify(target).closeEntity();
+        inOrder.verify(target).addNode("string");
+        inOrder.verify(target).setContentAsString(null);
+        inOrder.verify(target).closeEntity();
+        inOrder.verify(target).addNode("boolean");
+        inOrder.verify(target).setContentAsBoolean(true);
+        inOrder.verify(target).closeEntity();
+        inOrder.verify(target).addNode("timestamp");
+        inOrder.verify(target).setContentAsDate(date);
+        inOrder.verify(target).closeEntity();
+        inOrder.verify(target).addNode("binary");
+        inOrder.verify(target).setContentAsBinary(bytes);
+        inOrder.verify(target, times(3)).closeEntity();
+    }
+
+    @Test
+    public void replayShouldRepeatStreamedContent() throws Exception {
+        final byte[] bytes = new byte[20 * 1024];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) i;
+        }
+        final StringBuilder chars = new StringBuilder();
+        for (int i = 0; i < 20 * 1024; i++) {
+            chars.append((char) ('a' + i % 26));
+        }
+
+        spool.addNode("string").setContent(new StringReader(chars.toString())).closeEntity();
+        spool.addNode("binary").setContentAsBinary(new ByteArrayInputStream(bytes)).closeEntity();
+
+        final StringWriter replayedChars = new StringWriter();
+        final ByteArrayOutputStream replayedBytes = new ByteArrayOutputStream();
+        when(target.setContent(any(Reader.class))).thenAnswer(new Answer<NodeCreator>() {
+            @Override
+            public NodeCreator answer(InvocationOnMock invocation) throws Throwable {
+                CharStreams.copy((Reader) invocation.getArguments()[0], replayedChars);
+                return target;
+            }
+        });
+        when(target.setContentAsBinary(any(InputStream.class))).thenAnswer(new Answer<NodeCreator>() {
+            @Override
+            public NodeCreator answer(InvocationOnMock invocation) throws Throwable {
+                ByteStreams.copy((InputStream) invocation.getArguments()[0], replayedBytes);
+                return target;
+            }
+        });
+
+        spool.replay(target);
+
+        assertEquals(chars.toString(), replayedChars.toString());
+        assertArrayEquals(bytes, replayedBytes.toByteArray());
+    }
+}
@@ -0,0 +1,404 @@
+package com.atlassian.dbexporter.node.binary;
+
+import com.atlassian.dbexporter.ImportExportErrorService;
+import com.atlassian.dbexporter.node.NodeCreator;
+import com.atlassian.dbexporter.node.NodeParser;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Date;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(MockitoJUnitRunner.class)
+public class BinaryStreamTest {
+    @Mock
+    private ImportExportErrorService errorService;
+
+    @Test
+    public void nodesShouldBeReadAsWritten() throws Exception {
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        final BinaryStreamWriter writer = new BinaryStreamWriter(errorService, output);
+        NodeCreator node = writer.addRootNode("backup");
+        node = node.addNode("table").addAttribute("name", "AO_123456_ISSUE").addAttribute("empty", null);
+        node = node.addNode("column").addAttribute("name", "ID").closeEntity();
+        node = node.addNode("column").addAttribute("name", "SUMMARY").closeEntity();
+        assertNull(node.closeEntity().closeEntity());
+        writer.close();
+
+        final BinaryStreamReader reader = new BinaryStreamReader(errorService, new ByteArrayInputStream(output.toByteArray()));
+        NodeParser parser = reader.getRootNode();
+        assertEquals("backup", parser.getName());
+        parser = parser.getNextNode();
+        assertEquals("table", parser.getName());
+        assertEquals("AO_123456_ISSUE", parser.getRequiredAttribute("name"));
+        assertNull(parser.getRequiredAttribute("empty"));
+        assertNull(parser.getAttribute("missing"));
+        for (String column : new String[]{"ID", "SUMMARY"}) {
+            parser = parser.getNextNode();
+            assertEquals("column", parser.getName());
+            assertEquals(column, parser.getRequiredAttribute("name"));
+            assertTrue(parser.getNextNode().isClosed());
+        }
+        assertEquals("table", parser.getNextNode().getName());
+        assertEquals("backup", parser.getNextNode().getName());
+        assertTrue(parser.isClosed());
+        assertNull(parser.getNextNode());
+    }
+
+    @Test
+    public void rowsShouldBeReadAsWritten() throws Exception {
+        final Date date = new Date(1234567890L);
+        final String[] columns = {"INT", "BIG", "DBL", "DEC", "STR", "NUL", "EMPTY", "BOOL", "DATE", "BIN"};
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        final BinaryStreamWriter writer = new BinaryStreamWriter(errorService, output);
+        NodeCreator node = writer.addRootNode("backup");
+        node = node.addNode("data").addAttribute("tableName", "AO_123456_ISSUE").addAttribute("empty", null);
+        for (String column : columns) {
+            node = node.addNode("column").addAttribute("name", column).closeEntity();
+        }
+        for (int i = 0; i < 2; i++) {
+            node = node.addNode("row");
+            node = node.addNode("integer").setContentAsBigInteger(BigInteger.valueOf(-i)).closeEntity();
+            node = node.addNode("integer").setContentAsBigInteger(new BigInteger("123456789012345678901234567890").negate().add(BigInteger.valueOf(i))).closeEntity();
+            node = node.addNode("double").setContentAsBigDecimal(new BigDecimal("-1.50")).closeEntity();
+            node = node.addNode("double").setContentAsBigDecimal(i == 0 ? null : new BigDecimal("0.1")).closeEntity();
+            node = node.addNode("string").setContentAsString("caf\u00e9 \ud83d\ude00").closeEntity();
+            node = node.addNode("string").setContentAsString(null).closeEntity();
+            node = node.addNode("string").closeEntity();
+            node = node.addNode("boolean").setContentAsBoolean(i == 0).closeEntity();
+            node = node.addNode("timestamp").setContentAsDate(date).closeEntity();
+            node = node.addNode("binary").setContentAsBinary(new byte[]{0, 1, 100, 2}).closeEntity();
+            node = node.closeEntity();
+        }
+        assertNull(node.closeEntity().closeEntity());
+        writer.close();
+
+        final BinaryStreamReader reader = new BinaryStreamReader(errorService, new ByteArrayInputStream(output.toByteArray()));
+        NodeParser parser = reader.getRootNode();
+        parser = parser.getNextNode();
+        assertEquals("data", parser.getName());
+        assertEquals("AO_123456_ISSUE", parser.getRequiredAttribute("tableName"));
+        assertNull(parser.getRequiredAttribute("empty"));
+        for (String column : columns) {
+            parser = parser.getNextNode();
+            assertEquals("column", parser.getName());
+            assertEquals(column, parser.getRequiredAttribute("name"));
+            assertTrue(parser.getNextNode().isClosed());
+        }
+        for (int i = 0; i < 2; i++) {
+            parser = parser.getNextNode();
+            assertEquals("row", parser.getName());
+            assertFalse(parser.isClosed());
+            assertEquals(BigInteger.valueOf(-i), parser.getNextNode().getContentAsBigInteger());
+            assertEquals(new BigInteger("123456789012345678901234567890").negate().add(BigInteger.valueOf(i)), parser.getNextNode().getContentAsBigInteger());
+            assertEquals(Double.valueOf(-1.5d), parser.getNextNode().getContentAsDouble());
+            assertEquals(i == 0 ? null : Double.valueOf(0.1d), parser.getNextNode().getContentAsDouble());
+            parser = parser.getNextNode();
+            assertEquals("string", parser.getName());
+            assertEquals("caf\u00e9 \ud83d\ude00", parser.getContentAsString());
+            assertNull(parser.getNextNode().getContentAsString());
+            assertEquals("", parser.getNextNode().getContentAsString());
+            assertEquals(i == 0, parser.getNextNode().getContentAsBoolean());
+            assertEquals(date, parser.getNextNode().getContentAsDate());
+            parser = parser.getNextNode();
+            assertEquals("binary", parser.getName());
+            if (i == 0) {
+                final ByteArrayOutputStream binary = new ByteArrayOutputStream();
+                assertTrue(parser.getContentAsBinary(binary));
+                assertArrayEquals(new byte[]{0, 1, 100, 2}, binary.toByteArray());
+            } else {
+                // unread content is skipped
+                assertEquals("binary", parser.getNextNode().getName());
+            }
+            assertTrue(parser.isClosed());
+            parser = parser.getNextNode();
+            assertTrue(parser.isClosed());
+            assertEquals("row", parser.getName());
+        }
+        assertEquals("data", parser.getNextNode().getName());
+        assertTrue(parser.isClosed());
+        assertEquals("backup", parser.getNextNode().getName());
+        assertNull(parser.getNextNode());
+    }
+
+    @Test
+    public void rowsShouldBeWrittenAsTheirValuesOnly() throws Exception {
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        final BinaryStreamWriter writer = new BinaryStreamWriter(errorService, output);
+        final NodeCreator data = writer.addRootNode("backup").addNode("data").addAttribute("tableName", "T");
+        data.addNode("column").addAttribute("name", "ID").closeEntity();
+        data.addNode("column").addAttribute("name", "FLAG").closeEntity();
+        data.addNode("column").addAttribute("name", "NAME").closeEntity();
+        writeRow(data, 1L, true, "a");
+        writer.flush();
+        final int firstRowEnd = output.size();
+        writeRow(data, 2L, null, "bc");
+        writer.flush();
+
+        // the row record, the varint of the key, the boolean and the length prefixed string ending with an empty chunk
+        assertEquals(1 + 1 + 1 + 1 + 2 + 1, output.size() - firstRowEnd);
+        data.closeEntity().closeEntity();
+        writer.close();
+
+        final NodeParser parser = new BinaryStreamReader(errorService, new ByteArrayInputStream(output.toByteArray())).getRootNode();
+        NodeParser node = parser.getNextNode();
+        for (int i = 0; i < 3; i++) {
+            node = node.getNextNode().getNextNode();
+        }
+        for (long key = 1L; key <= 2L; key++) {
+            assertEquals("row", node.getNextNode().getName());
+            assertEquals(Long.valueOf(key), node.getNextNode().getContentAsInteger());
+            assertEquals(key == 1L ? Boolean.TRUE : null, node.getNextNode().getContentAsBoolean());
+            assertEquals(key == 1L ? "a" : "bc", node.getNextNode().getContentAsString());
+            assertTrue(node.getNextNode().isClosed());
+        }
+        assertEquals("data", node.getNextNode().getName());
+    }
+
+    @Test
+    public void tableDataShouldBeReadWithoutRows() throws Exception {
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        final BinaryStreamWriter writer = new BinaryStreamWriter(errorService, output);
+        final NodeCreator root = writer.addRootNode("backup");
+        root.addNode("data").addAttribute("tableName", "EMPTY").addNode("column").addAttribute("name", "ID").closeEntity().closeEntity();
+        root.addNode("data").addAttribute("tableName", "NO_COLUMNS").addNode("row").closeEntity().closeEntity();
+        root.closeEntity();
+        writer.close();
+
+        NodeParser parser = new BinaryStreamReader(errorService, new ByteArrayInputStream(output.toByteArray())).getRootNode();
+        assertEquals("EMPTY", parser.getNextNode().getRequiredAttribute("tableName"));
+        assertEquals("ID", parser.getNextNode().getRequiredAttribute("name"));
+        assertEquals("column", parser.getNextNode().getName());
+        parser = parser.getNextNode();
+        assertEquals("data", parser.getName());
+        assertTrue(parser.isClosed());
+        assertEquals("NO_COLUMNS", parser.getNextNode().getRequiredAttribute("tableName"));
+        assertEquals("row", parser.getNextNode().getName());
+        assertFalse(parser.isClosed());
+        assertTrue(parser.getNextNode().isClosed());
+        assertTrue(parser.getNextNode().isClosed());
+        assertEquals("backup", parser.getNextNode().getName());
+        assertNull(parser.getNextNode());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void rowsShouldHaveAFieldPerColumn() throws Exception {
+        final NodeCreator data = new BinaryStreamWriter(errorService, new ByteArrayOutputStream()).addRootNode("backup").addNode("data");
+        data.addNode("column").addAttribute("name", "ID").closeEntity();
+        data.addNode("row").closeEntity();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void fieldsOfAColumnShouldAllHaveTheSameType() throws Exception {
+        final NodeCreator data = new BinaryStreamWriter(errorService, new ByteArrayOutputStream()).addRootNode("backup").addNode("data");
+        data.addNode("column").addAttribute("name", "ID").closeEntity();
+        data.addNode("row").addNode("integer").setContentAsLong(1L).closeEntity().closeEntity();
+        data.addNode("row").addNode("string").setContentAsString("1");
+    }
+
+    @Test
+    public void primitiveValuesShouldBeReadAsWritten() throws Exception {
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        final BinaryStreamWriter writer = new BinaryStreamWriter(errorService, output);
+        writer.addRootNode("backup")
+                .addNode("integer").setContentAsLong(Long.MIN_VALUE).closeEntity()
+                .addNode("integer").setContentAsLong(42L).closeEntity()
+                .addNode("double").setContentAsDouble(-0.1d).closeEntity()
+                .addNode("double").setContentAsDouble(3d).closeEntity()
+                .addNode("timestamp").setContentAsEpochMillis(1234567890L).closeEntity()
+                .closeEntity();
+        writer.close();
+
+        final NodeParser parser = new BinaryStreamReader(errorService, new ByteArrayInputStream(output.toByteArray())).getRootNode();
+        assertEquals(Long.valueOf(Long.MIN_VALUE), parser.getNextNode().getContentAsLong());
+        assertEquals(BigInteger.valueOf(42L), parser.getNextNode().getContentAsBigInteger());
+        assertEquals(Double.valueOf(-0.1d), parser.getNextNode().getContentAsDouble());
+        assertEquals("3.0", parser.getNextNode().getContentAsString());
+        assertEquals(new Date(1234567890L), parser.getNextNode().getContentAsDate());
+        assertEquals("backup", parser.getNextNode().getName());
+        assertNull(parser.getNextNode());
+    }
+
+    @Test
+    public void integersBeyondLongShouldBeReadAsBigIntegers() throws Exception {
+        final BigInteger beyondLong = BigInteger.valueOf(Long.MAX_VALUE).add(BigInteger.ONE);
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        final BinaryStreamWriter writer = new BinaryStreamWriter(errorService, output);
+        writer.addRootNode("backup")
+                .addNode("integer").setContentAsLong(Long.MAX_VALUE).closeEntity()
+                .addNode("integer").setContentAsBigInteger(beyondLong).closeEntity()
+                .addNode("integer").setContentAsString(beyondLong.negate().toString()).closeEntity()
+                .addNode("integer").setContentAsString(beyondLong.negate().subtract(BigInteger.ONE).toString()).closeEntity()
+                .addNode("integer").setContentAsString("42").closeEntity()
+                .addNode("integer").setContentAsBigInteger(null).closeEntity()
+                .closeEntity();
+        writer.close();
+
+        final NodeParser parser = new BinaryStreamReader(errorService, new ByteArrayInputStream(output.toByteArray())).getRootNode();
+        assertEquals(Long.valueOf(Long.MAX_VALUE), parser.getNextNode().getContentAsInteger());
+        assertEquals(beyondLong, parser.getNextNode().getContentAsInteger());
+        assertEquals(Long.valueOf(Long.MIN_VALUE), parser.getNextNode().getContentAsInteger());
+        assertEquals(beyondLong.negate().subtract(BigInteger.ONE), parser.getNextNode().getContentAsInteger());
+        assertEquals(Long.valueOf(42L), parser.getNextNode().getContentAsInteger());
+        assertNull(parser.getNextNode().getContentAsInteger());
+        assertEquals("backup", parser.getNextNode().getName());
+        assertNull(parser.getNextNode());
+    }
+
+    @Test
+    public void streamedContentShouldBeReadAsWritten() throws Exception {
+        final StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 20 * 1024; i++) {
+            text.append(i % 100 == 0 ? "\ud83d\ude00" : String.valueOf((char) ('a' + i % 26)));
+        }
+        final byte[] bytes = new byte[100 * 1024 + 1];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) i;
+        }
+
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        final BinaryStreamWriter writer = new BinaryStreamWriter(errorService, output);
+        writer.addRootNode("backup")
+                .addNode("text").setContent(new StringReader(text.toString())).closeEntity()
+                .addNode("text").setContent(null).closeEntity()
+                .addNode("binary").setContentAsBinary(new ByteArrayInputStream(bytes)).closeEntity()
+                .addNode("binary").setContentAsBinary(new ByteArrayInputStream(new byte[0])).closeEntity()
+                .closeEntity();
+        writer.close();
+
+        final NodeParser parser = new BinaryStreamReader(errorService, new ByteArrayInputStream(output.toByteArray())).getRootNode();
+        final StringWriter content = new StringWriter();
+        assertTrue(parser.getNextNode().getContent(content));
+        assertEquals(text.toString(), content.toString());
+        assertFalse(parser.getNextNode().getContent(new StringWriter()));
+        final ByteArrayOutputStream binary = new ByteArrayOutputStream();
+        assertTrue(parser.getNextNode().getContentAsBinary(binary));
+        assertArrayEquals(bytes, binary.toByteArray());
+        assertEquals("", parser.getNextNode().getContentAsString());
+        assertEquals("backup", parser.getNextNode().getName());
+        assertNull(parser.getNextNode());
+    }
+
+    @Test
+    public void streamedFieldsShouldBeReadAsWritten() throws Exception {
+        final String text = repeat("\ud83d\ude00 text ", 4 * 1024);
+        final byte[] bytes = new byte[20 * 1024];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) i;
+        }
+
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        final BinaryStreamWriter writer = new BinaryStreamWriter(errorService, output);
+        final NodeCreator data = writer.addRootNode("backup").addNode("data");
+        data.addNode("column").addAttribute("name", "CLOB").closeEntity();
+        data.addNode("column").addAttribute("name", "BLOB").closeEntity();
+        for (int i = 0; i < 3; i++) {
+            final NodeCreator row = data.addNode("row");
+            row.addNode("string").setContent(i == 0 ? new StringReader(text) : i == 1 ? new StringReader("") : null).closeEntity();
+            row.addNode("binary").setContentAsBinary(i == 0 ? new ByteArrayInputStream(bytes) : i == 1 ? new ByteArrayInputStream(new byte[0]) : null).closeEntity();
+            row.closeEntity();
+        }
+        data.closeEntity().closeEntity();
+        writer.close();
+
+        NodeParser parser = new BinaryStreamReader(errorService, new ByteArrayInputStream(output.toByteArray())).getRootNode().getNextNode();
+        parser = parser.getNextNode().getNextNode().getNextNode().getNextNode();
+        assertEquals("row", parser.getNextNode().getName());
+        final StringWriter content = new StringWriter();
+        assertTrue(parser.getNextNode().getContent(content));
+        assertEquals(text, content.toString());
+        final ByteArrayOutputStream binary = new ByteArrayOutputStream();
+        assertTrue(parser.getNextNode().getContentAsBinary(binary));
+        assertArrayEquals(bytes, binary.toByteArray());
+        assertTrue(parser.getNextNode().isClosed());
+
+        assertEquals("row", parser.getNextNode().getName());
+        assertEquals("", parser.getNextNode().getContentAsString());
+        assertTrue(parser.getNextNode().getContentAsBinary(new ByteArrayOutputStream()));
+        assertTrue(parser.getNextNode().isClosed());
+
+        assertEquals("row", parser.getNextNode().getName());
+        assertFalse(parser.getNextNode().getContent(new StringWriter()));
+        assertFalse(parser.getNextNode().getContentAsBinary(new ByteArrayOutputStream()));
+        assertTrue(parser.getNextNode().isClosed());
+        assertEquals("data", parser.getNextNode().getName());
+    }
+
+    @Test
+    public void integersOfTableDataShouldBeReadAsWritten() throws Exception {
+        final BigInteger beyondLong = BigInteger.valueOf(Long.MAX_VALUE).add(BigInteger.ONE);
+        final Object[] values = {0L, -1L, Long.MAX_VALUE, Long.MIN_VALUE, beyondLong, beyondLong.negate().subtract(BigInteger.ONE), beyondLong.shiftLeft(64), null};
+
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        final BinaryStreamWriter writer = new BinaryStreamWriter(errorService, output);
+        final NodeCreator data = writer.addRootNode("backup").addNode("data");
+        data.addNode("column").addAttribute("name", "ID").closeEntity();
+        data.addNode("column").addAttribute("name", "CREATED").closeEntity();
+        for (Object value : values) {
+            final NodeCreator row = data.addNode("row");
+            if (value instanceof Long) {
+                row.addNode("integer").setContentAsLong((Long) value).closeEntity();
+                row.addNode("timestamp").setContentAsEpochMillis((Long) value).closeEntity();
+            } else {
+                row.addNode("integer").setContentAsBigInteger((BigInteger) value).closeEntity();
+                row.addNode("timestamp").setContentAsDate(null).closeEntity();
+            }
+            row.closeEntity();
+        }
+        data.closeEntity().closeEntity();
+        writer.close();
+
+        NodeParser parser = new BinaryStreamReader(errorService, new ByteArrayInputStream(output.toByteArray())).getRootNode().getNextNode();
+        parser = parser.getNextNode().getNextNode().getNextNode().getNextNode();
+        for (Object value : values) {
+            assertEquals("row", parser.getNextNode().getName());
+            assertEquals(value, parser.getNextNode().getContentAsInteger());
+            assertEquals(value instanceof Long ? new Date((Long) value) : null, parser.getNextNode().getContentAsDate());
+            assertTrue(parser.getNextNode().isClosed());
+        }
+    }
+
+    @Test
+    public void binaryFormatShouldBeDetectedByItsHeader() throws Exception {
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        final BinaryStreamWriter writer = new BinaryStreamWriter(errorService, output);
+        writer.addRootNode("backup").closeEntity();
+        writer.close();
+
+        final BufferedInputStream binary = new BufferedInputStream(new ByteArrayInputStream(output.toByteArray()));
+        assertTrue(BinaryStreamReader.isBinaryFormat(binary));
+        assertEquals("backup", new BinaryStreamReader(errorService, binary).getRootNode().getName());
+        assertFalse(BinaryStreamReader.isBinaryFormat(new BufferedInputStream(new ByteArrayInputStream("<?xml version=\"1.0\"?>".getBytes("UTF-8")))));
+        assertFalse(BinaryStreamReader.isBinaryFormat(new BufferedInputStream(new ByteArrayInputStream(new byte[0]))));
+    }
+
+    private static void writeRow(NodeCreator data, long key, Boolean flag, String name) {
+        final NodeCreator row = data.addNode("row");
+        row.addNode("integer").setContentAsLong(key).closeEntity();
+        row.addNode("boolean").setContentAsBoolean(flag).closeEntity();
+        row.addNode("string").setContentAsString(name).closeEntity();
+        row.closeEntity();
+    }
+
+    private static String repeat(String string, int times) {
+        final StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < times; i++) {
+            sb.append(string);
+        }
+        return sb.toString();
+    }
+}
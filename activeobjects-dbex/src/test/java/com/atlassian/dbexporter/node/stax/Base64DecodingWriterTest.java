@@ -0,0 +1,51 @@
+package com.atlassian.dbexporter.node.stax;
+
+import org.junit.Test;
+
+import javax.xml.bind.DatatypeConverter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.assertArrayEquals;
+
+public class Base64DecodingWriterTest {
+    @Test
+    public void decodesContentWrittenInChunks() throws Exception {
+        final byte[] bytes = new byte[10 * 1024 + 2];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) (i * 31);
+        }
+        final char[] encoded = DatatypeConverter.printBase64Binary(bytes).toCharArray();
+
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        final Base64DecodingWriter writer = new Base64DecodingWriter(output);
+        for (int i = 0; i < encoded.length; i += 7) {
+            writer.write(encoded, i, Math.min(7, encoded.length - i));
+        }
+        writer.close();
+
+        assertArrayEquals(bytes, output.toByteArray());
+    }
+
+    @Test
+    public void ignoresWhitespaceAndDecodesConsecutivePaddedSequences() throws Exception {
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        final Base64DecodingWriter writer = new Base64DecodingWriter(output);
+        writer.write(" AAE=\n AgMEBQ==\t");
+        writer.close();
+
+        assertArrayEquals(new byte[]{0, 1, 2, 3, 4, 5}, output.toByteArray());
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsInvalidCharacters() throws Exception {
+        new Base64DecodingWriter(new ByteArrayOutputStream()).write("AA*A");
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsTruncatedContent() throws Exception {
+        final Base64DecodingWriter writer = new Base64DecodingWriter(new ByteArrayOutputStream());
+        writer.write("AAEC A");
+        writer.close();
+    }
+}
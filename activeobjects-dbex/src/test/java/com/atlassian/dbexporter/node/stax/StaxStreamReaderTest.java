@@ -0,0 +1,84 @@
+package com.atlassian.dbexporter.node.stax;
+
+import com.atlassian.dbexporter.ImportExportErrorService;
+import com.atlassian.dbexporter.node.NodeParser;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.Charset;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+@RunWith(MockitoJUnitRunner.class)
+public class StaxStreamReaderTest {
+    @Mock
+    private ImportExportErrorService errorService;
+
+    @Test
+    public void typedContentShouldBeReadAsWritten() throws Exception {
+        final StringWriter output = new StringWriter();
+        final StaxStreamWriter writer = new StaxStreamWriter(errorService, output, Charset.forName("utf-8"), "");
+        writer.addRootNode("row")
+                .addNode("integer").setContentAsLong(Long.MIN_VALUE).closeEntity()
+                .addNode("integer").setContentAsBigInteger(null).closeEntity()
+                .addNode("integer").setContentAsBigInteger(new BigInteger("123456789012345678901234567890")).closeEntity()
+                .addNode("double").setContentAsDouble(-0.1d).closeEntity()
+                .addNode("double").setContentAsBigDecimal(null).closeEntity()
+                .addNode("double").setContentAsBigDecimal(new BigDecimal("1.50")).closeEntity()
+                .addNode("boolean").setContentAsBoolean(true).closeEntity()
+                .addNode("boolean").setContentAsBoolean(null).closeEntity()
+                .addNode("string").setContentAsString("caf\u00e9").closeEntity()
+                .closeEntity();
+        writer.close();
+
+        final NodeParser node = new StaxStreamReader(errorService, new StringReader(output.toString())).getRootNode();
+        assertEquals(Long.valueOf(Long.MIN_VALUE), node.getNextNode().getContentAsLong());
+        assertNull(node.getNextNode().getContentAsLong());
+        assertEquals(new BigInteger("123456789012345678901234567890"), node.getNextNode().getContentAsBigInteger());
+        assertEquals(Double.valueOf(-0.1d), node.getNextNode().getContentAsDouble());
+        assertNull(node.getNextNode().getContentAsDouble());
+        assertEquals(new BigDecimal("1.50"), node.getNextNode().getContentAsBigDecimal());
+        assertEquals(Boolean.TRUE, node.getNextNode().getContentAsBoolean());
+        assertNull(node.getNextNode().getContentAsBoolean());
+        assertEquals("caf\u00e9", node.getNextNode().getContentAsString());
+        assertEquals("row", node.getNextNode().getName());
+    }
+
+    @Test
+    public void integersBeyondLongShouldBeReadAsBigIntegers() throws Exception {
+        final BigInteger beyondLong = BigInteger.valueOf(Long.MAX_VALUE).add(BigInteger.ONE);
+        final StringWriter output = new StringWriter();
+        final StaxStreamWriter writer = new StaxStreamWriter(errorService, output, Charset.forName("utf-8"), "");
+        writer.addRootNode("row")
+                .addNode("integer").setContentAsLong(Long.MAX_VALUE).closeEntity()
+                .addNode("integer").setContentAsBigInteger(beyondLong).closeEntity()
+                .addNode("integer").setContentAsBigInteger(beyondLong.multiply(BigInteger.valueOf(-2))).closeEntity()
+                .addNode("integer").setContentAsBigInteger(null).closeEntity()
+                .closeEntity();
+        writer.close();
+
+        final NodeParser node = new StaxStreamReader(errorService, new StringReader(output.toString())).getRootNode();
+        assertEquals(Long.valueOf(Long.MAX_VALUE), node.getNextNode().getContentAsInteger());
+        assertEquals(beyondLong, node.getNextNode().getContentAsInteger());
+        assertEquals(beyondLong.multiply(BigInteger.valueOf(-2)), node.getNextNode().getContentAsInteger());
+        assertNull(node.getNextNode().getContentAsInteger());
+        assertEquals("row", node.getNextNode().getName());
+    }
+
+    @Test(expected = NumberFormatException.class)
+    public void invalidIntegerShouldNotBeRead() throws Exception {
+        new StaxStreamReader(errorService, new StringReader("<integer>123456789012345678901234567890a</integer>")).getRootNode().getContentAsInteger();
+    }
+
+    @Test(expected = NumberFormatException.class)
+    public void invalidNumberShouldNotBeRead() throws Exception {
+        new StaxStreamReader(errorService, new StringReader("<integer>12a</integer>")).getRootNode().getContentAsLong();
+    }
+}
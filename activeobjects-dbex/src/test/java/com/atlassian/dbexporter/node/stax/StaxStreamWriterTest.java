@@ -8,10 +8,14 @@ import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 
 import javax.xml.bind.DatatypeConverter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
 import java.io.StringWriter;
 import java.io.Writer;
 import java.nio.charset.Charset;
 
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertThat;
 import static org.junit.matchers.JUnitMatchers.containsString;
 
@@ -39,4 +43,44 @@ public class StaxStreamWriterTest {
 
         assertThat(output.toString(), containsString(DatatypeConverter.printBase64Binary(bytes)));
     }
+
+    @Test
+    public void nodeCreatorShouldEncodeBinaryStreamAsBase64() throws Exception {
+        final byte[] bytes = new byte[100 * 1024 + 1];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) i;
+        }
+
+        staxStreamWriter.addRootNode("root").setContentAsBinary(new ByteArrayInputStream(bytes));
+        staxStreamWriter.close();
+
+        assertThat(output.toString(), containsString(DatatypeConverter.printBase64Binary(bytes)));
+    }
+
+    @Test
+    public void nodeCreatorShouldEncodeCharacterStream() throws Exception {
+        final StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 20 * 1024; i++) {
+            content.append((char) ('a' + i % 26));
+        }
+        content.append('\u0001');
+
+        staxStreamWriter.addRootNode("root").setContent(new StringReader(content.toString()));
+        staxStreamWriter.close();
+
+        assertThat(output.toString(), containsString(StaxUtils.unicodeEncode(content.toString())));
+    }
+
+    @Test
+    public void compactWriterShouldWriteUnindentedEncodedDocumentToStream() throws Exception {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final StaxStreamWriter compactWriter = new StaxStreamWriter(errorService, bytes, Charset.forName("utf-8"), "");
+
+        compactWriter.addRootNode("root").addNode("node").setContentAsString("caf\u00e9").closeEntity().closeEntity();
+        compactWriter.close();
+
+        final String xml = new String(bytes.toByteArray(), "UTF-8");
+        assertThat(xml, containsString("><node>caf\u00e9</node></root>"));
+        assertFalse(xml.contains("\n"));
+    }
 }
@@ -4,6 +4,7 @@ import org.junit.Test;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 
 public class StaxUtilsTest {
     private final String legal = "legal: \u0020 \uFFFC";
@@ -24,6 +25,17 @@ public class StaxUtilsTest {
         assertNull(StaxUtils.unicodeEncode(null));
     }
 
+    @Test
+    public void stringsWithoutEscapingShouldNotBeCopied() throws Exception {
+        assertSame(legal, StaxUtils.unicodeEncode(legal));
+        assertSame(legal, StaxUtils.unicodeDecode(legal));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidEscapeSequencesShouldNotBeDecoded() throws Exception {
+        StaxUtils.unicodeDecode("truncated \\u00");
+    }
+
     /**
      * This test pushes a string that contains every valid 16-bit Java char
      * through the unicode encoder and decoder and verifies that the exact string
@@ -0,0 +1,39 @@
+package com.atlassian.dbexporter.node.stax;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import static org.junit.Assert.assertEquals;
+
+public class UnicodeDecodingWriterTest {
+    @Test
+    public void decodesEscapeSequencesSpanningChunks() throws Exception {
+        final String text = "Illegal: \u0000 \u0008 \u000B \u001F \uFFFE, backslashes: \\ \\\\ end\\";
+        final char[] encoded = StaxUtils.unicodeEncode(text).toCharArray();
+
+        for (int chunk = 1; chunk <= 7; chunk++) {
+            final StringWriter output = new StringWriter();
+            final UnicodeDecodingWriter writer = new UnicodeDecodingWriter(output);
+            for (int i = 0; i < encoded.length; i += chunk) {
+                writer.write(encoded, i, Math.min(chunk, encoded.length - i));
+            }
+            writer.close();
+
+            assertEquals("chunks of " + chunk, text, output.toString());
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsInvalidEscapeSequences() throws Exception {
+        new UnicodeDecodingWriter(new StringWriter()).write("a\\n");
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsTruncatedEscapeSequences() throws Exception {
+        final UnicodeDecodingWriter writer = new UnicodeDecodingWriter(new StringWriter());
+        writer.write("a\\u00");
+        writer.close();
+    }
+}
@@ -1,11 +1,11 @@
 package com.atlassian.activeobjects.backup;
 
 import com.atlassian.activeobjects.ao.PrefixedSchemaConfiguration;
+import com.atlassian.activeobjects.external.PluginScopedBackup;
 import com.atlassian.activeobjects.internal.DatabaseProviderFactory;
 import com.atlassian.activeobjects.internal.Prefix;
 import com.atlassian.activeobjects.internal.SimplePrefix;
 import com.atlassian.activeobjects.osgi.ActiveObjectsServiceFactory;
-import com.atlassian.activeobjects.spi.Backup;
 import com.atlassian.activeobjects.spi.BackupProgressMonitor;
 import com.atlassian.activeobjects.spi.ImportExportException;
 import com.atlassian.activeobjects.spi.RestoreProgressMonitor;
@@ -14,71 +14,128 @@ import com.atlassian.dbexporter.BatchMode;
 import com.atlassian.dbexporter.CleanupMode;
 import com.atlassian.dbexporter.ConnectionProvider;
 import com.atlassian.dbexporter.DatabaseInformation;
+import com.atlassian.dbexporter.DatabaseInformations;
 import com.atlassian.dbexporter.DbExporter;
 import com.atlassian.dbexporter.DbImporter;
 import com.atlassian.dbexporter.EntityNameProcessor;
 import com.atlassian.dbexporter.ImportExportConfiguration;
 import com.atlassian.dbexporter.ImportExportErrorService;
+import com.atlassian.dbexporter.compress.Compression;
+import com.atlassian.dbexporter.exporter.BackupManifest;
 import com.atlassian.dbexporter.exporter.ConnectionProviderInformationReader;
+import com.atlassian.dbexporter.exporter.CursorStrategy;
 import com.atlassian.dbexporter.exporter.DataExporter;
 import com.atlassian.dbexporter.exporter.DatabaseInformationExporter;
+import com.atlassian.dbexporter.exporter.ExportCheckpoint;
 import com.atlassian.dbexporter.exporter.ExportConfiguration;
+import com.atlassian.dbexporter.exporter.FileExportCheckpoint;
+import com.atlassian.dbexporter.exporter.InMemoryExportCheckpoint;
 import com.atlassian.dbexporter.exporter.TableDefinitionExporter;
+import com.atlassian.dbexporter.exporter.TablePartitioning;
+import com.atlassian.dbexporter.importer.AroundImporter;
+import com.atlassian.dbexporter.importer.BatchSizing;
+import com.atlassian.dbexporter.importer.BulkLoader;
 import com.atlassian.dbexporter.importer.DataImporter;
 import com.atlassian.dbexporter.importer.DatabaseInformationImporter;
 import com.atlassian.dbexporter.importer.ImportConfiguration;
+import com.atlassian.dbexporter.importer.RejectedRows;
+import com.atlassian.dbexporter.importer.RestoreCheckpoint;
 import com.atlassian.dbexporter.importer.SqlServerAroundTableImporter;
+import com.atlassian.dbexporter.importer.TableCreator;
 import com.atlassian.dbexporter.importer.TableDefinitionImporter;
 import com.atlassian.dbexporter.node.NodeStreamReader;
 import com.atlassian.dbexporter.node.NodeStreamWriter;
+import com.atlassian.dbexporter.node.binary.BinaryStreamReader;
+import com.atlassian.dbexporter.node.binary.BinaryStreamWriter;
 import com.atlassian.dbexporter.node.stax.StaxStreamReader;
 import com.atlassian.dbexporter.node.stax.StaxStreamWriter;
 import com.atlassian.dbexporter.progress.ProgressMonitor;
 import com.atlassian.tenancy.api.Tenant;
 import com.atlassian.tenancy.api.TenantContext;
+import com.google.common.base.Function;
+import com.google.common.base.Predicate;
+import com.google.common.base.Predicates;
 import com.google.common.base.Supplier;
 import com.google.common.base.Suppliers;
+import com.google.common.io.CountingOutputStream;
 import net.java.ao.DatabaseProvider;
 import net.java.ao.SchemaConfiguration;
 import net.java.ao.schema.NameConverters;
+import net.java.ao.schema.ddl.DDLTable;
+import net.java.ao.schema.ddl.SchemaReader;
 
+import java.io.BufferedInputStream;
 import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.nio.charset.Charset;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Set;
 
 import static com.atlassian.activeobjects.ao.ConverterUtils.toUpperCase;
 import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+import static com.google.common.collect.Lists.newArrayList;
+import static com.google.common.collect.Sets.newHashSet;
 
-public final class ActiveObjectsBackup implements Backup {
+public final class ActiveObjectsBackup implements PluginScopedBackup {
     public static final Prefix PREFIX = new SimplePrefix("AO");
 
     private static final Charset CHARSET = Charset.forName("UTF-8");
     private static final String NAMESPACE = "http://www.atlassian.com/ao";
 
+    private static final String EXPORT_WORKERS_PROPERTY = "ao-plugin.backup.export.workers";
+    private static final String EXPORT_CHUNK_SIZE_PROPERTY = "ao-plugin.backup.export.chunk.size";
+    private static final String EXPORT_FETCH_SIZE_PROPERTY = "ao-plugin.backup.export.fetch.size";
+    private static final String EXPORT_PARTITION_ROWS_PROPERTY = "ao-plugin.backup.export.partition.rows";
+    private static final String EXPORT_PARTITIONS_MAX_PROPERTY = "ao-plugin.backup.export.partitions.max";
+    private static final String EXPORT_PARTITIONS_PROPERTY = "ao-plugin.backup.export.partitions";
+    private static final String EXPORT_CONSISTENT_PROPERTY = "ao-plugin.backup.export.consistent";
+    private static final String IMPORT_WORKERS_PROPERTY = "ao-plugin.backup.import.workers";
+    private static final String IMPORT_BATCH_ROWS_MIN_PROPERTY = "ao-plugin.backup.import.batch.rows.min";
+    private static final String IMPORT_BATCH_ROWS_MAX_PROPERTY = "ao-plugin.backup.import.batch.rows.max";
+    private static final String IMPORT_BATCH_BYTES_PROPERTY = "ao-plugin.backup.import.batch.bytes";
+    private static final String IMPORT_BATCH_MILLIS_PROPERTY = "ao-plugin.backup.import.batch.millis";
+    private static final String IMPORT_COMMIT_ROWS_PROPERTY = "ao-plugin.backup.import.commit.rows";
+    private static final String IMPORT_BULK_PROPERTY = "ao-plugin.backup.import.bulk";
+    private static final String IMPORT_MULTI_ROW_PROPERTY = "ao-plugin.backup.import.multirow";
+    private static final String IMPORT_INDEX_WORKERS_PROPERTY = "ao-plugin.backup.import.index.workers";
+    private static final String IMPORT_REJECTS_FILE_PROPERTY = "ao-plugin.backup.import.rejects.file";
+    private static final String IMPORT_REJECTS_MAX_PROPERTY = "ao-plugin.backup.import.rejects.max";
+    private static final String COMPRESS_PROPERTY = "ao-plugin.backup.compress";
+    private static final String COMPRESS_THREADS_PROPERTY = "ao-plugin.backup.compress.threads";
+    private static final String FORMAT_PROPERTY = "ao-plugin.backup.format";
+    private static final String BINARY_FORMAT = "binary";
+    private static final String XML_COMPACT_PROPERTY = "ao-plugin.backup.xml.compact";
+
     private final Supplier<DatabaseProvider> databaseProviderSupplier;
     private final NameConverters nameConverters;
     private final ImportExportErrorService errorService;
     private final ActiveObjectsServiceFactory aoServiceFactory;
+    private final PluginTables pluginTables;
 
-    public ActiveObjectsBackup(final DatabaseProviderFactory databaseProviderFactory, final TenantAwareDataSourceProvider tenantAwareDataSourceProvider, final TenantContext tenantContext, NameConverters converters, ImportExportErrorService errorService, final ActiveObjectsServiceFactory aoServiceFactory) {
+    public ActiveObjectsBackup(final DatabaseProviderFactory databaseProviderFactory, final TenantAwareDataSourceProvider tenantAwareDataSourceProvider, final TenantContext tenantContext, NameConverters converters, ImportExportErrorService errorService, final ActiveObjectsServiceFactory aoServiceFactory, PluginTables pluginTables) {
         this(new Supplier<DatabaseProvider>() {
             @Override
             public DatabaseProvider get() {
                 final Tenant tenant = tenantContext.getCurrentTenant();
                 return checkNotNull(databaseProviderFactory).getDatabaseProvider(tenantAwareDataSourceProvider.getDataSource(tenant), tenantAwareDataSourceProvider.getDatabaseType(tenant), tenantAwareDataSourceProvider.getSchema(tenant));
             }
-        }, converters, errorService, aoServiceFactory);
+        }, converters, errorService, aoServiceFactory, checkNotNull(pluginTables));
     }
 
     ActiveObjectsBackup(DatabaseProvider databaseProvider, NameConverters converters, ImportExportErrorService errorService, final ActiveObjectsServiceFactory aoServiceFactory) {
-        this(Suppliers.ofInstance(checkNotNull(databaseProvider)), converters, errorService, aoServiceFactory);
+        this(Suppliers.ofInstance(checkNotNull(databaseProvider)), converters, errorService, aoServiceFactory, null);
     }
 
-    private ActiveObjectsBackup(Supplier<DatabaseProvider> databaseProviderSupplier, NameConverters converters, ImportExportErrorService errorService, final ActiveObjectsServiceFactory aoServiceFactory) {
+    private ActiveObjectsBackup(Supplier<DatabaseProvider> databaseProviderSupplier, NameConverters converters, ImportExportErrorService errorService, final ActiveObjectsServiceFactory aoServiceFactory, PluginTables pluginTables) {
+        this.pluginTables = pluginTables; // maybe null, then plugin scoped operations are not available
         this.aoServiceFactory = checkNotNull(aoServiceFactory);
         this.databaseProviderSupplier = checkNotNull(databaseProviderSupplier);
         this.nameConverters = checkNotNull(converters);
@@ -86,7 +143,11 @@ public final class ActiveObjectsBackup implements Backup {
     }
 
     /**
-     * Saves the backup to an output stream.
+     * Saves the backup to an output stream. The backup is gzip compressed on a pool of threads if the
+     * {@code ao-plugin.backup.compress} system property is {@code true}, see also
+     * {@code ao-plugin.backup.compress.threads}. The backup is XML, unless the {@code ao-plugin.backup.format} system
+     * property is {@code binary}, then it is written in the compact binary format. The XML is indented, unless the
+     * {@code ao-plugin.backup.xml.compact} system property is {@code true}.
      *
      * @param stream  the stream to write the backup to
      * @param monitor the progress monitor for the current backup
@@ -94,24 +155,165 @@ public final class ActiveObjectsBackup implements Backup {
      *                               {@link java.sql.SQLException SQL exceptions} will be wrapped in {@link ImportExportException}.
      */
     public void save(OutputStream stream, BackupProgressMonitor monitor) {
-        final DatabaseProvider provider = databaseProviderSupplier.get();
-        final DatabaseProviderConnectionProvider connectionProvider = getConnectionProvider(provider);
-        final ExportConfiguration configuration = new ActiveObjectsExportConfiguration(connectionProvider, getProgressMonitor(monitor));
+        save(stream, monitor, new InMemoryExportCheckpoint());
+    }
 
-        final DbExporter dbExporter = new DbExporter(
-                new DatabaseInformationExporter(new ConnectionProviderInformationReader(errorService, connectionProvider)),
-                new TableDefinitionExporter(new ActiveObjectsTableReader(errorService, nameConverters, provider, schemaConfiguration())),
-                new DataExporter(errorService, provider.getSchema()));
+    /**
+     * Saves the backup to an output stream, resuming from the given checkpoint. When exporting tables in chunks (see
+     * the {@code ao-plugin.backup.export.chunk.size} system property), only rows after the last chunk recorded in the
+     * checkpoint are exported, and the checkpoint is updated as chunks are written. A resumed backup is incremental to
+     * the output of the interrupted one, which must be ended after its last recorded chunk to be restored: use
+     * {@link #save(File, BackupProgressMonitor, FileExportCheckpoint)} for backups which can be resumed.
+     *
+     * @param stream     the stream to write the backup to
+     * @param monitor    the progress monitor for the current backup
+     * @param checkpoint the checkpoint to resume from, and to record progress to
+     * @throws ImportExportException or one of its sub-types if any error happens during the backup.
+     *                               {@link java.sql.SQLException SQL exceptions} will be wrapped in {@link ImportExportException}.
+     */
+    public void save(OutputStream stream, BackupProgressMonitor monitor, ExportCheckpoint checkpoint) {
+        save(stream, monitor, checkNotNull(checkpoint), null, null, Predicates.<String>alwaysTrue());
+    }
+
+    /**
+     * Saves the backup of the tables of a single plugin to an output stream.
+     *
+     * @param stream    the stream to write the backup to
+     * @param monitor   the progress monitor for the current backup
+     * @param pluginKey the key of the plugin whose tables are saved
+     * @throws ImportExportException or one of its sub-types if any error happens during the backup.
+     *                               {@link java.sql.SQLException SQL exceptions} will be wrapped in {@link ImportExportException}.
+     * @throws IllegalArgumentException if no plugin is installed with that key.
+     */
+    @Override
+    public void save(OutputStream stream, BackupProgressMonitor monitor, String pluginKey) {
+        save(stream, monitor, new InMemoryExportCheckpoint(), null, null, getTableFilter(pluginKey));
+    }
+
+    /**
+     * Saves an incremental backup to an output stream. Only the rows added since the backup described by the base
+     * manifest are saved, except for tables which had rows removed, those are saved in full and replace the table's
+     * data on restore. Updates to existing rows are <em>not</em> detected, this is meant for append-mostly tables.
+     *
+     * @param stream       the stream to write the backup to
+     * @param monitor      the progress monitor for the current backup
+     * @param baseManifest the manifest of the backup this one is incremental to, {@code null} for a full backup.
+     * @return the manifest of this backup, for the next incremental backup to be based on.
+     * @throws ImportExportException or one of its sub-types if any error happens during the backup.
+     *                               {@link java.sql.SQLException SQL exceptions} will be wrapped in {@link ImportExportException}.
+     * @see #restore(InputStream, List, RestoreProgressMonitor)
+     */
+    public BackupManifest saveIncremental(OutputStream stream, BackupProgressMonitor monitor, BackupManifest baseManifest) {
+        final BackupManifest manifest = new BackupManifest();
+        save(stream, monitor, new InMemoryExportCheckpoint(), baseManifest, manifest, Predicates.<String>alwaysTrue());
+        return manifest;
+    }
+
+    /**
+     * Saves the backup to files, so that an interrupted backup can be resumed from the given checkpoint. Tables must be
+     * exported in chunks, see the {@code ao-plugin.backup.export.chunk.size} system property, progress is recorded to
+     * the checkpoint as chunks are written. The backup is written to the given file. When resuming, that file, or the
+     * segment last written to, is cut after the last recorded chunk, and the rows after it are written to the next
+     * segment: {@code file.1}, {@code file.2}&hellip; The segments are restored in order with
+     * {@link #restore(InputStream, List, RestoreProgressMonitor)}. The backup is not compressed, and the format must
+     * be the same as the one of the interrupted backup.
+     *
+     * @param file       the file to write the backup to
+     * @param monitor    the progress monitor for the current backup
+     * @param checkpoint the checkpoint to resume from, and to record progress to
+     * @return the segments of the backup, in the order they must be restored.
+     * @throws ImportExportException or one of its sub-types if any error happens during the backup.
+     *                               {@link java.sql.SQLException SQL exceptions} will be wrapped in {@link ImportExportException}.
+     */
+    public List<File> save(File file, BackupProgressMonitor monitor, FileExportCheckpoint checkpoint) {
+        checkNotNull(file);
+        int segment = 0;
+        try {
+            if (checkNotNull(checkpoint).isResuming()) {
+                segment = checkpoint.getSegment();
+                checkpoint.endSegment(getSegmentFile(file, segment), new Function<OutputStream, NodeStreamWriter>() {
+                    @Override
+                    public NodeStreamWriter apply(OutputStream output) {
+                        return newStreamWriter(output);
+                    }
+                });
+                segment++;
+            }
 
+            final CountingOutputStream output = new CountingOutputStream(new FileOutputStream(getSegmentFile(file, segment)));
+            NodeStreamWriter streamWriter = null;
+            try {
+                streamWriter = newStreamWriter(output);
+                checkpoint.segmentStarted(segment, streamWriter, output);
+                save(streamWriter, monitor, checkpoint, null, null, Predicates.<String>alwaysTrue());
+
+                final NodeStreamWriter writer = streamWriter;
+                streamWriter = null;
+                writer.close();
+            } finally {
+                closeCloseable(streamWriter);
+                output.close();
+            }
+        } catch (IOException e) {
+            throw errorService.newParseException(e);
+        }
+        checkpoint.exportCompleted();
+
+        final List<File> segments = newArrayList();
+        for (int i = 0; i <= segment; i++) {
+            segments.add(getSegmentFile(file, i));
+        }
+        return segments;
+    }
+
+    private static File getSegmentFile(File file, int segment) {
+        return segment == 0 ? file : new File(file.getPath() + "." + segment);
+    }
 
+    private void save(OutputStream stream, BackupProgressMonitor monitor, ExportCheckpoint checkpoint, BackupManifest baseManifest, BackupManifest manifest, Predicate<String> tableFilter) {
+        final OutputStream output = Boolean.getBoolean(COMPRESS_PROPERTY)
+                ? Compression.compress(stream, Integer.getInteger(COMPRESS_THREADS_PROPERTY, Runtime.getRuntime().availableProcessors()))
+                : stream;
         NodeStreamWriter streamWriter = null;
         try {
-            streamWriter = new StaxStreamWriter(errorService, new OutputStreamWriter(stream, CHARSET), CHARSET, NAMESPACE);
-            dbExporter.exportData(streamWriter, configuration);
-            streamWriter.flush();
+            streamWriter = newStreamWriter(output);
+            save(streamWriter, monitor, checkpoint, baseManifest, manifest, tableFilter);
+
+            // the writer flushes what it buffered when closed, this must happen before the compressed stream is finished
+            final NodeStreamWriter writer = streamWriter;
+            streamWriter = null;
+            writer.close();
+            if (output != stream) {
+                finishCompression(output);
+            }
         } finally {
             closeCloseable(streamWriter);
+            if (output != stream) {
+                closeCloseable(output);
+            }
+        }
+    }
+
+    private void save(NodeStreamWriter streamWriter, BackupProgressMonitor monitor, ExportCheckpoint checkpoint, BackupManifest baseManifest, BackupManifest manifest, Predicate<String> tableFilter) {
+        final DatabaseProvider provider = databaseProviderSupplier.get();
+        final DatabaseProviderConnectionProvider connectionProvider = getConnectionProvider(provider);
+        final ExportConfiguration configuration = new ActiveObjectsExportConfiguration(connectionProvider, getProgressMonitor(monitor), checkpoint, baseManifest, manifest);
+
+        final DbExporter dbExporter = new DbExporter(
+                new DatabaseInformationExporter(new ConnectionProviderInformationReader(errorService, connectionProvider)),
+                new TableDefinitionExporter(new ActiveObjectsTableReader(errorService, nameConverters, provider, schemaConfiguration(), tableFilter)),
+                new DataExporter(errorService, provider.getSchema()));
+        dbExporter.exportData(streamWriter, configuration);
+    }
+
+    private NodeStreamWriter newStreamWriter(OutputStream output) {
+        if (BINARY_FORMAT.equalsIgnoreCase(System.getProperty(FORMAT_PROPERTY))) {
+            return new BinaryStreamWriter(errorService, output);
+        }
+        if (Boolean.getBoolean(XML_COMPACT_PROPERTY)) {
+            return new StaxStreamWriter(errorService, output, CHARSET, NAMESPACE);
         }
+        return new StaxStreamWriter(errorService, new OutputStreamWriter(output, CHARSET), CHARSET, NAMESPACE);
     }
 
     public static SchemaConfiguration schemaConfiguration() {
@@ -119,7 +321,8 @@ public final class ActiveObjectsBackup implements Backup {
     }
 
     /**
-     * Restores the backup coming from the given input stream.
+     * Restores the backup coming from the given input stream. Gzip compressed backups are detected and decompressed,
+     * backups in the binary format rather than XML are detected by their header.
      *
      * @param stream  the stream of data previously backed up by the plugin.
      * @param monitor the progress monitor for the current restore
@@ -128,36 +331,202 @@ public final class ActiveObjectsBackup implements Backup {
      */
     public void restore(InputStream stream, RestoreProgressMonitor monitor) {
         final DatabaseProvider provider = databaseProviderSupplier.get();
+        restore(stream, monitor, provider, CleanupMode.CLEAN, new ActiveObjectsTableCreator(errorService, provider, nameConverters), true, null, null);
+    }
+
+    /**
+     * Restores the backup coming from the given input stream, resuming from the given checkpoint. Progress is recorded
+     * to the checkpoint as table data is committed. When the checkpoint holds the progress of a previous restore of
+     * the same backup, the database is not cleaned, only missing tables are created, restored tables are skipped and
+     * the rows already committed are read through without being inserted again.
+     *
+     * @param stream     the stream of data previously backed up by the plugin.
+     * @param monitor    the progress monitor for the current restore
+     * @param checkpoint the checkpoint to resume from, and to record progress to, e.g. a
+     *                   {@link com.atlassian.dbexporter.importer.FileRestoreCheckpoint}
+     * @throws ImportExportException or one of its sub-types if any error happens during the backup.
+     *                               {@link java.sql.SQLException SQL exceptions} will be wrapped in {@link ImportExportException}.
+     */
+    public void restore(InputStream stream, RestoreProgressMonitor monitor, RestoreCheckpoint checkpoint) {
+        final DatabaseProvider provider = databaseProviderSupplier.get();
+        final TableCreator tableCreator = new ActiveObjectsTableCreator(errorService, provider, nameConverters);
+        if (checkNotNull(checkpoint).isResuming()) {
+            restore(stream, monitor, provider, CleanupMode.NONE, new MissingTableCreator(tableCreator, getExistingTables(provider)), true, null, checkpoint);
+        } else {
+            restore(stream, monitor, provider, CleanupMode.CLEAN, tableCreator, true, null, checkpoint);
+        }
+        checkpoint.restoreCompleted();
+    }
+
+    /**
+     * Restores the tables of a single plugin from the given input stream. Only the tables of that plugin are cleared,
+     * tables of other plugins found in the backup are skipped.
+     *
+     * @param stream    the stream of data previously backed up by the plugin.
+     * @param monitor   the progress monitor for the current restore
+     * @param pluginKey the key of the plugin whose tables are restored
+     * @throws ImportExportException or one of its sub-types if any error happens during the backup.
+     *                               {@link java.sql.SQLException SQL exceptions} will be wrapped in {@link ImportExportException}.
+     * @throws IllegalArgumentException if no plugin is installed with that key.
+     */
+    @Override
+    public void restore(InputStream stream, RestoreProgressMonitor monitor, String pluginKey) {
+        checkNotNull(pluginKey);
+        final DatabaseProvider provider = databaseProviderSupplier.get();
+        restore(stream, monitor, provider, CleanupMode.CLEAN, new ActiveObjectsTableCreator(errorService, provider, nameConverters), true, pluginKey, null);
+    }
+
+    /**
+     * Restores a base backup followed by a chain of incremental backups, in order. Foreign keys and indexes are only
+     * created once the last incremental backup has been restored, so that replaced tables can be cleared whatever rows
+     * reference them.
+     *
+     * @param base    the stream of the base backup, either a full backup or the first of the chain.
+     * @param deltas  the streams of the incremental backups, in the order they were saved.
+     * @param monitor the progress monitor for the current restore
+     * @throws ImportExportException or one of its sub-types if any error happens during the backup.
+     *                               {@link java.sql.SQLException SQL exceptions} will be wrapped in {@link ImportExportException}.
+     * @see #saveIncremental(OutputStream, BackupProgressMonitor, BackupManifest)
+     */
+    public void restore(InputStream base, List<InputStream> deltas, RestoreProgressMonitor monitor) {
+        final DatabaseProvider provider = databaseProviderSupplier.get();
+        final Set<String> createdTables = newHashSet();
+        final TableCreator tableCreator = new MissingTableCreator(new ActiveObjectsTableCreator(errorService, provider, nameConverters), createdTables);
+
+        restore(base, monitor, provider, CleanupMode.CLEAN, tableCreator, deltas.isEmpty(), null, null);
+        for (int i = 0; i < deltas.size(); i++) {
+            restore(deltas.get(i), monitor, provider, CleanupMode.NONE, tableCreator, i == deltas.size() - 1, null, null);
+        }
+    }
+
+    /**
+     * @param pluginKey the key of the plugin whose tables are restored, {@code null} to restore the tables of all plugins
+     */
+    private void restore(InputStream stream, RestoreProgressMonitor monitor, DatabaseProvider provider, CleanupMode cleanupMode, TableCreator tableCreator, boolean createKeys, String pluginKey, RestoreCheckpoint checkpoint) {
+        final Predicate<String> tableFilter = pluginKey != null ? getTableFilter(pluginKey) : null;
         final DatabaseProviderConnectionProvider connectionProvider = getConnectionProvider(provider);
 
         final DatabaseInformation databaseInformation = getDatabaseInformation(connectionProvider);
 
-        final ImportConfiguration configuration = new ActiveObjectsImportConfiguration(connectionProvider, getProgressMonitor(monitor), databaseInformation);
+        final RejectedRows rejectedRows = getRejectedRows(checkpoint != null && checkpoint.isResuming());
+        final ImportConfiguration configuration = new ActiveObjectsImportConfiguration(connectionProvider, getProgressMonitor(monitor), databaseInformation, cleanupMode, tableFilter, checkpoint, rejectedRows);
+
+        final List<AroundImporter> dataArounds = newArrayList(
+                new PostgresSequencesAroundImporter(errorService, provider),
+                new OracleSequencesAroundImporter(errorService, provider, nameConverters));
+        if (createKeys) {
+            dataArounds.add(new ForeignKeyAroundImporter(new ActiveObjectsForeignKeyCreator(errorService, nameConverters, provider)));
+            // arounds are called in reverse order after the data is imported, so indexes are there for foreign keys
+            dataArounds.add(new IndexAroundImporter(new ActiveObjectsIndexCreator(errorService, nameConverters, provider, getIndexWorkers(databaseInformation))));
+        }
 
         final DbImporter dbImporter = new DbImporter(errorService,
                 new DatabaseInformationImporter(errorService),
-                new TableDefinitionImporter(errorService, new ActiveObjectsTableCreator(errorService, provider, nameConverters), new ActiveObjectsDatabaseCleaner(provider, nameConverters, schemaConfiguration(), errorService, aoServiceFactory)),
+                new TableDefinitionImporter(errorService, tableCreator, newDatabaseCleaner(provider, pluginKey)),
                 new DataImporter(errorService,
                         provider.getSchema(),
                         new SqlServerAroundTableImporter(errorService, provider.getSchema()),
-                        new PostgresSequencesAroundImporter(errorService, provider),
-                        new OracleSequencesAroundImporter(errorService, provider, nameConverters),
-                        new ForeignKeyAroundImporter(new ActiveObjectsForeignKeyCreator(errorService, nameConverters, provider))
+                        dataArounds
                 ));
 
+        InputStream input = null;
         NodeStreamReader streamReader = null;
         try {
-            streamReader = new StaxStreamReader(errorService, new InputStreamReader(stream, CHARSET));
+            input = Compression.decompressIfCompressed(stream);
+            if (!input.markSupported()) {
+                input = new BufferedInputStream(input);
+            }
+            streamReader = BinaryStreamReader.isBinaryFormat(input)
+                    ? new BinaryStreamReader(errorService, input)
+                    : new StaxStreamReader(errorService, new InputStreamReader(input, CHARSET));
             dbImporter.importData(streamReader, configuration);
+        } catch (IOException e) {
+            throw errorService.newParseException(e);
         } finally {
             closeCloseable(streamReader);
+            closeCloseable(input);
+            closeCloseable(rejectedRows);
+        }
+    }
+
+    /**
+     * Rows that cannot be inserted are written to the file named by the {@code ao-plugin.backup.import.rejects.file}
+     * system property, rather than failing the restore, up to {@code ao-plugin.backup.import.rejects.max} rows,
+     * defaults to 100.
+     *
+     * @param resuming whether the restore resumes an interrupted one, whose rejected rows are kept
+     * @return the rejected rows, {@code null} if the property is not set.
+     */
+    private RejectedRows getRejectedRows(boolean resuming) {
+        final String file = System.getProperty(IMPORT_REJECTS_FILE_PROPERTY);
+        if (file == null || file.trim().length() == 0) {
+            return null;
+        }
+        try {
+            return RejectedRows.toFile(new File(file.trim()), resuming, Integer.getInteger(IMPORT_REJECTS_MAX_PROPERTY, 100));
+        } catch (IOException e) {
+            throw errorService.newImportExportException(null, "Could not create reject file " + file + ", " + e.getMessage());
         }
     }
 
     @Override
     public void clear() {
         final DatabaseProvider provider = databaseProviderSupplier.get();
-        new ActiveObjectsDatabaseCleaner(provider, nameConverters, schemaConfiguration(), errorService, aoServiceFactory).cleanup(CleanupMode.CLEAN);
+        newDatabaseCleaner(provider, null).cleanup(CleanupMode.CLEAN);
+    }
+
+    /**
+     * Clears the tables of a single plugin. Only the Active Objects services of that plugin are stopped while its
+     * tables are dropped, those of other plugins keep running.
+     *
+     * @param pluginKey the key of the plugin whose tables are cleared
+     * @throws IllegalArgumentException if no plugin is installed with that key.
+     */
+    @Override
+    public void clear(String pluginKey) {
+        newDatabaseCleaner(databaseProviderSupplier.get(), pluginKey).cleanup(CleanupMode.CLEAN);
+    }
+
+    /**
+     * @param pluginKey the key of the plugin whose tables are cleaned, {@code null} to clean the tables of all plugins
+     */
+    private ActiveObjectsDatabaseCleaner newDatabaseCleaner(DatabaseProvider provider, String pluginKey) {
+        if (pluginKey == null) {
+            return new ActiveObjectsDatabaseCleaner(provider, nameConverters, schemaConfiguration(), errorService, aoServiceFactory);
+        }
+        return new ActiveObjectsDatabaseCleaner(provider, nameConverters, schemaConfiguration(), errorService, aoServiceFactory, getTableFilter(pluginKey), pluginKey);
+    }
+
+    /**
+     * @return the (upper case) names of the tables already in the database, which a resumed restore must not create.
+     */
+    private Set<String> getExistingTables(DatabaseProvider provider) {
+        final Set<String> tables = newHashSet();
+        try {
+            for (DDLTable table : SchemaReader.readSchema(provider, nameConverters, schemaConfiguration())) {
+                tables.add(toUpperCase(table.getName()));
+            }
+        } catch (SQLException e) {
+            throw errorService.newImportExportSqlException(null, "An error occurred reading schema information from database", e);
+        }
+        return tables;
+    }
+
+    private Predicate<String> getTableFilter(String pluginKey) {
+        checkState(pluginTables != null, "Plugin scoped backups are not available");
+        return pluginTables.filter(checkNotNull(pluginKey));
+    }
+
+    /**
+     * Indexes of different tables are created concurrently by {@code ao-plugin.backup.import.index.workers} threads,
+     * defaults to the number of processors, up to 4. HSQLDB builds indexes one at a time whatever the number of
+     * connections.
+     */
+    private static int getIndexWorkers(DatabaseInformation databaseInformation) {
+        if (DatabaseInformations.database(databaseInformation).getType() == DatabaseInformations.Database.Type.HSQL) {
+            return 1;
+        }
+        return Math.max(1, Integer.getInteger(IMPORT_INDEX_WORKERS_PROPERTY, Math.min(4, Runtime.getRuntime().availableProcessors())));
     }
 
     private DatabaseInformation getDatabaseInformation(DatabaseProviderConnectionProvider connectionProvider) {
@@ -176,6 +545,14 @@ public final class ActiveObjectsBackup implements Backup {
         return new ActiveObjectsRestoreProgressMonitor(restoreProgressMonitor);
     }
 
+    private void finishCompression(OutputStream output) {
+        try {
+            output.close();
+        } catch (IOException e) {
+            throw errorService.newParseException(e);
+        }
+    }
+
     private static void closeCloseable(Closeable streamWriter) {
         if (streamWriter != null) {
             try {
@@ -214,17 +591,91 @@ public final class ActiveObjectsBackup implements Backup {
     }
 
     private static final class ActiveObjectsExportConfiguration extends ActiveObjectsImportExportConfiguration implements ExportConfiguration {
-        public ActiveObjectsExportConfiguration(ConnectionProvider connectionProvider, ProgressMonitor progressMonitor) {
+        private final ExportCheckpoint exportCheckpoint;
+        private final BackupManifest baseManifest;
+        private final BackupManifest manifest;
+
+        public ActiveObjectsExportConfiguration(ConnectionProvider connectionProvider, ProgressMonitor progressMonitor, ExportCheckpoint exportCheckpoint, BackupManifest baseManifest, BackupManifest manifest) {
             super(connectionProvider, progressMonitor);
+            this.exportCheckpoint = checkNotNull(exportCheckpoint);
+            this.baseManifest = baseManifest; // maybe null
+            this.manifest = manifest; // maybe null
+        }
+
+        @Override
+        public int getWorkerCount() {
+            return Integer.getInteger(EXPORT_WORKERS_PROPERTY, 1);
+        }
+
+        @Override
+        public int getChunkSize() {
+            return Integer.getInteger(EXPORT_CHUNK_SIZE_PROPERTY, 0);
+        }
+
+        @Override
+        public ExportCheckpoint getExportCheckpoint() {
+            return exportCheckpoint;
+        }
+
+        @Override
+        public CursorStrategy getCursorStrategy(DatabaseInformations.Database.Type databaseType) {
+            final CursorStrategy cursorStrategy = CursorStrategy.forDatabase(databaseType);
+            final Integer fetchSize = Integer.getInteger(EXPORT_FETCH_SIZE_PROPERTY);
+            return fetchSize != null ? cursorStrategy.withFetchSize(fetchSize) : cursorStrategy;
+        }
+
+        @Override
+        public BackupManifest getBaseManifest() {
+            return baseManifest;
+        }
+
+        @Override
+        public BackupManifest getManifest() {
+            return manifest;
+        }
+
+        /**
+         * Tables are split by their number of rows with {@code ao-plugin.backup.export.partition.rows} (and
+         * {@code ao-plugin.backup.export.partitions.max}, defaults to 4), or explicitly with
+         * {@code ao-plugin.backup.export.partitions}, a comma separated list of {@code TABLE_NAME:partitions}. Key
+         * ranges are read by the export workers, tables are only split when exporting with more than one worker.
+         */
+        @Override
+        public TablePartitioning getTablePartitioning() {
+            TablePartitioning partitioning = TablePartitioning.none()
+                    .withRowThreshold(Long.getLong(EXPORT_PARTITION_ROWS_PROPERTY, 0L), Integer.getInteger(EXPORT_PARTITIONS_MAX_PROPERTY, 4));
+            final String partitions = System.getProperty(EXPORT_PARTITIONS_PROPERTY, "");
+            for (String tablePartitions : partitions.split(",")) {
+                final int separator = tablePartitions.lastIndexOf(':');
+                if (separator > 0) {
+                    partitioning = partitioning.withPartitions(tablePartitions.substring(0, separator).trim(),
+                            Integer.parseInt(tablePartitions.substring(separator + 1).trim()));
+                }
+            }
+            return partitioning;
+        }
+
+        @Override
+        public boolean isConsistentSnapshot() {
+            return Boolean.getBoolean(EXPORT_CONSISTENT_PROPERTY);
         }
     }
 
     private static final class ActiveObjectsImportConfiguration extends ActiveObjectsImportExportConfiguration implements ImportConfiguration {
         private final DatabaseInformation databaseInformation;
+        private final CleanupMode cleanupMode;
+        private final Predicate<String> tableFilter;
+        private final RestoreCheckpoint restoreCheckpoint;
+        private final RejectedRows rejectedRows;
 
-        ActiveObjectsImportConfiguration(ConnectionProvider connectionProvider, ProgressMonitor progressMonitor, DatabaseInformation databaseInformation) {
+        ActiveObjectsImportConfiguration(ConnectionProvider connectionProvider, ProgressMonitor progressMonitor, DatabaseInformation databaseInformation, CleanupMode cleanupMode, Predicate<String> tableFilter,
+                                         RestoreCheckpoint restoreCheckpoint, RejectedRows rejectedRows) {
             super(connectionProvider, progressMonitor);
             this.databaseInformation = checkNotNull(databaseInformation);
+            this.cleanupMode = checkNotNull(cleanupMode);
+            this.tableFilter = tableFilter; // maybe null
+            this.restoreCheckpoint = restoreCheckpoint; // maybe null
+            this.rejectedRows = rejectedRows; // maybe null
         }
 
         @Override
@@ -234,12 +685,48 @@ public final class ActiveObjectsBackup implements Backup {
 
         @Override
         public CleanupMode getCleanupMode() {
-            return CleanupMode.CLEAN;
+            return cleanupMode;
         }
 
         @Override
         public BatchMode getBatchMode() {
-            return BatchMode.ON;
+            return Boolean.getBoolean(IMPORT_MULTI_ROW_PROPERTY) ? BatchMode.MULTI_ROW : BatchMode.ON;
+        }
+
+        @Override
+        public Predicate<String> getTableFilter() {
+            return tableFilter;
+        }
+
+        @Override
+        public int getWorkerCount() {
+            return Integer.getInteger(IMPORT_WORKERS_PROPERTY, 1);
+        }
+
+        @Override
+        public BatchSizing getBatchSizing() {
+            final BatchSizing defaults = BatchSizing.defaults();
+            return defaults
+                    .withRows(Integer.getInteger(IMPORT_BATCH_ROWS_MIN_PROPERTY, defaults.getMinRows()),
+                            Integer.getInteger(IMPORT_BATCH_ROWS_MAX_PROPERTY, defaults.getMaxRows()))
+                    .withMaxBytes(Long.getLong(IMPORT_BATCH_BYTES_PROPERTY, defaults.getMaxBytes()))
+                    .withTargetFlushMillis(Long.getLong(IMPORT_BATCH_MILLIS_PROPERTY, defaults.getTargetFlushMillis()))
+                    .withCommitInterval(Integer.getInteger(IMPORT_COMMIT_ROWS_PROPERTY, defaults.getCommitInterval()));
+        }
+
+        @Override
+        public BulkLoader getBulkLoader(DatabaseInformations.Database.Type databaseType) {
+            return Boolean.getBoolean(IMPORT_BULK_PROPERTY) ? BulkLoader.forDatabase(databaseType) : null;
+        }
+
+        @Override
+        public RestoreCheckpoint getRestoreCheckpoint() {
+            return restoreCheckpoint;
+        }
+
+        @Override
+        public RejectedRows getRejectedRows() {
+            return rejectedRows;
         }
     }
 
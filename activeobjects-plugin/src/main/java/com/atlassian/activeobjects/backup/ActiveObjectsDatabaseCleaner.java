@@ -4,6 +4,8 @@ import com.atlassian.activeobjects.osgi.ActiveObjectsServiceFactory;
 import com.atlassian.dbexporter.CleanupMode;
 import com.atlassian.dbexporter.ImportExportErrorService;
 import com.atlassian.dbexporter.importer.DatabaseCleaner;
+import com.google.common.base.Predicate;
+import com.google.common.base.Predicates;
 import net.java.ao.DatabaseProvider;
 import net.java.ao.SchemaConfiguration;
 import net.java.ao.schema.NameConverters;
@@ -17,10 +19,13 @@ import org.slf4j.LoggerFactory;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.List;
 
+import static com.atlassian.activeobjects.ao.ConverterUtils.toUpperCase;
 import static com.atlassian.activeobjects.backup.SqlUtils.executeUpdate;
 import static com.atlassian.dbexporter.jdbc.JdbcUtils.closeQuietly;
 import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.collect.Lists.newArrayList;
 
 final class ActiveObjectsDatabaseCleaner implements DatabaseCleaner {
     private final Logger logger = LoggerFactory.getLogger(this.getClass());
@@ -30,13 +35,26 @@ final class ActiveObjectsDatabaseCleaner implements DatabaseCleaner {
     private final DatabaseProvider provider;
     private final SchemaConfiguration schemaConfiguration;
     private final ActiveObjectsServiceFactory aoServiceFactory;
+    private final Predicate<String> tableFilter;
+    private final String pluginKey;
 
     public ActiveObjectsDatabaseCleaner(DatabaseProvider provider, NameConverters converters, SchemaConfiguration schemaConfiguration, ImportExportErrorService errorService, final ActiveObjectsServiceFactory aoServiceFactory) {
+        this(provider, converters, schemaConfiguration, errorService, aoServiceFactory, Predicates.<String>alwaysTrue(), null);
+    }
+
+    /**
+     * @param tableFilter only the tables whose (upper case) name is accepted by the filter are dropped
+     * @param pluginKey   the key of the plugin the tables of the filter belong to, only its services are stopped while
+     *                    cleaning, {@code null} to stop the services of all plugins
+     */
+    public ActiveObjectsDatabaseCleaner(DatabaseProvider provider, NameConverters converters, SchemaConfiguration schemaConfiguration, ImportExportErrorService errorService, final ActiveObjectsServiceFactory aoServiceFactory, Predicate<String> tableFilter, String pluginKey) {
         this.errorService = checkNotNull(errorService);
         this.provider = checkNotNull(provider);
         this.converters = checkNotNull(converters);
         this.schemaConfiguration = checkNotNull(schemaConfiguration);
         this.aoServiceFactory = checkNotNull(aoServiceFactory);
+        this.tableFilter = checkNotNull(tableFilter);
+        this.pluginKey = pluginKey;
     }
 
     @Override
@@ -53,9 +71,13 @@ final class ActiveObjectsDatabaseCleaner implements DatabaseCleaner {
         Connection conn = null;
         Statement stmt = null;
         try {
-            aoServiceFactory.startCleaning();
+            if (pluginKey != null) {
+                aoServiceFactory.startCleaning(pluginKey);
+            } else {
+                aoServiceFactory.startCleaning();
+            }
 
-            final DDLTable[] readTables = SchemaReader.readSchema(provider, converters, schemaConfiguration);
+            final DDLTable[] readTables = filterTables(SchemaReader.readSchema(provider, converters, schemaConfiguration));
             final DDLAction[] actions = SchemaReader.sortTopologically(SchemaReader.diffSchema(provider.getTypeManager(), new DDLTable[]{}, readTables, provider.isCaseSensitive()));
 
             conn = provider.getConnection();
@@ -72,8 +94,22 @@ final class ActiveObjectsDatabaseCleaner implements DatabaseCleaner {
         } finally {
             closeQuietly(stmt);
             closeQuietly(conn);
-            aoServiceFactory.stopCleaning();
+            if (pluginKey != null) {
+                aoServiceFactory.stopCleaning(pluginKey);
+            } else {
+                aoServiceFactory.stopCleaning();
+            }
+        }
+    }
+
+    private DDLTable[] filterTables(DDLTable[] tables) {
+        final List<DDLTable> filtered = newArrayList();
+        for (DDLTable table : tables) {
+            if (tableFilter.apply(toUpperCase(table.getName()))) {
+                filtered.add(table);
+            }
         }
+        return filtered.toArray(new DDLTable[filtered.size()]);
     }
 
     private String tableName(DDLAction a) {
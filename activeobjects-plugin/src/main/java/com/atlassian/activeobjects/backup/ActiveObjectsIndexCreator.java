@@ -0,0 +1,144 @@
+package com.atlassian.activeobjects.backup;
+
+import com.atlassian.dbexporter.EntityNameProcessor;
+import com.atlassian.dbexporter.ImportExportErrorService;
+import com.atlassian.dbexporter.Index;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import net.java.ao.DatabaseProvider;
+import net.java.ao.schema.NameConverters;
+import net.java.ao.schema.ddl.DDLAction;
+import net.java.ao.schema.ddl.DDLActionType;
+import net.java.ao.schema.ddl.DDLIndex;
+import net.java.ao.schema.ddl.SQLAction;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static com.atlassian.activeobjects.backup.SqlUtils.executeUpdate;
+import static com.atlassian.dbexporter.jdbc.JdbcUtils.closeQuietly;
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.collect.Lists.newArrayList;
+import static com.google.common.collect.Maps.newLinkedHashMap;
+
+/**
+ * Creates indexes once the data of their tables has been imported. The indexes of a table are created one after the
+ * other, on a single connection, as most databases lock the table while building an index. Indexes of different tables
+ * are created concurrently by up to {@code workers} threads.
+ */
+final class ActiveObjectsIndexCreator implements IndexCreator {
+    private final ImportExportErrorService errorService;
+    private final NameConverters converters;
+    private final DatabaseProvider provider;
+    private final int workers;
+
+    /**
+     * @param workers the number of tables whose indexes are created concurrently, {@code 1} to create all indexes on
+     *                the calling thread.
+     */
+    public ActiveObjectsIndexCreator(ImportExportErrorService errorService, NameConverters converters, DatabaseProvider provider, int workers) {
+        checkArgument(workers > 0, "Number of workers must be positive");
+        this.errorService = checkNotNull(errorService);
+        this.converters = checkNotNull(converters);
+        this.provider = checkNotNull(provider);
+        this.workers = workers;
+    }
+
+    public void create(Iterable<Index> indexes, EntityNameProcessor entityNameProcessor) {
+        final Map<String, List<Index>> indexesByTable = newLinkedHashMap();
+        for (Index index : indexes) {
+            final String table = entityNameProcessor.tableName(index.getTable());
+            List<Index> tableIndexes = indexesByTable.get(table);
+            if (tableIndexes == null) {
+                tableIndexes = newArrayList();
+                indexesByTable.put(table, tableIndexes);
+            }
+            tableIndexes.add(index);
+        }
+
+        if (workers == 1 || indexesByTable.size() <= 1) {
+            for (List<Index> tableIndexes : indexesByTable.values()) {
+                create(tableIndexes, entityNameProcessor);
+            }
+        } else {
+            createConcurrently(indexesByTable.values(), entityNameProcessor);
+        }
+    }
+
+    private void createConcurrently(Collection<List<Index>> indexesByTable, final EntityNameProcessor entityNameProcessor) {
+        final ExecutorService executor = Executors.newFixedThreadPool(Math.min(workers, indexesByTable.size()),
+                new ThreadFactoryBuilder().setNameFormat("active-objects-index-%d").setDaemon(true).build());
+        try {
+            final List<Future<Void>> creations = newArrayList();
+            for (final List<Index> tableIndexes : indexesByTable) {
+                creations.add(executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() {
+                        create(tableIndexes, entityNameProcessor);
+                        return null;
+                    }
+                }));
+            }
+            for (Future<Void> creation : creations) {
+                waitFor(creation);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void create(List<Index> tableIndexes, EntityNameProcessor entityNameProcessor) {
+        Connection conn = null;
+        Statement stmt = null;
+        try {
+            conn = provider.getConnection();
+            stmt = conn.createStatement();
+            for (Index index : tableIndexes) {
+                final DDLAction a = new DDLAction(DDLActionType.CREATE_INDEX);
+                a.setIndex(toDdlIndex(index, entityNameProcessor));
+                final Iterable<SQLAction> sqlActions = provider.renderAction(converters, a);
+                for (SQLAction sql : sqlActions) {
+                    executeUpdate(errorService, a.getIndex().getTable(), stmt, sql.getStatement());
+                }
+            }
+        } catch (SQLException e) {
+            throw errorService.newImportExportSqlException(null, "", e);
+        } finally {
+            closeQuietly(stmt);
+            closeQuietly(conn);
+        }
+    }
+
+    private void waitFor(Future<Void> creation) {
+        try {
+            creation.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw errorService.newImportExportException(null, "Interrupted while waiting for indexes to be created");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw new IllegalStateException("Unexpected exception creating indexes", e.getCause());
+        }
+    }
+
+    private DDLIndex toDdlIndex(Index index, EntityNameProcessor entityNameProcessor) {
+        final DDLIndex ddlIndex = new DDLIndex();
+        ddlIndex.setTable(entityNameProcessor.tableName(index.getTable()));
+        ddlIndex.setField(entityNameProcessor.columnName(index.getColumn()));
+        return ddlIndex;
+    }
+}
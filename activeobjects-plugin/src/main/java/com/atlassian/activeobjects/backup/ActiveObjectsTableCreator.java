@@ -13,6 +13,7 @@ import net.java.ao.schema.NameConverters;
 import net.java.ao.schema.ddl.DDLAction;
 import net.java.ao.schema.ddl.DDLActionType;
 import net.java.ao.schema.ddl.DDLField;
+import net.java.ao.schema.ddl.DDLIndex;
 import net.java.ao.schema.ddl.DDLTable;
 import net.java.ao.schema.ddl.SQLAction;
 import net.java.ao.types.TypeInfo;
@@ -83,6 +84,8 @@ final class ActiveObjectsTableCreator implements TableCreator {
             fields.add(toDdlField(exportTypeManager, entityNameProcessor, column));
         }
         ddlTable.setFields(fields.toArray(new DDLField[fields.size()]));
+        // indexes are created once the data has been imported, see ActiveObjectsIndexCreator
+        ddlTable.setIndexes(new DDLIndex[0]);
         return ddlTable;
     }
 
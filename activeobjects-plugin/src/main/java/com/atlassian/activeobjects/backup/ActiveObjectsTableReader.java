@@ -5,9 +5,12 @@ import com.atlassian.dbexporter.DatabaseInformation;
 import com.atlassian.dbexporter.EntityNameProcessor;
 import com.atlassian.dbexporter.ForeignKey;
 import com.atlassian.dbexporter.ImportExportErrorService;
+import com.atlassian.dbexporter.Index;
 import com.atlassian.dbexporter.Table;
 import com.atlassian.dbexporter.exporter.TableReader;
 import com.google.common.base.Function;
+import com.google.common.base.Predicate;
+import com.google.common.base.Predicates;
 import com.google.common.collect.Collections2;
 import com.google.common.collect.Lists;
 import net.java.ao.DatabaseProvider;
@@ -15,6 +18,7 @@ import net.java.ao.SchemaConfiguration;
 import net.java.ao.schema.NameConverters;
 import net.java.ao.schema.ddl.DDLField;
 import net.java.ao.schema.ddl.DDLForeignKey;
+import net.java.ao.schema.ddl.DDLIndex;
 import net.java.ao.schema.ddl.DDLTable;
 import net.java.ao.schema.ddl.SchemaReader;
 
@@ -22,9 +26,11 @@ import java.sql.Connection;
 import java.sql.SQLException;
 import java.util.Collection;
 import java.util.List;
+import java.util.Set;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.collect.Lists.newArrayList;
+import static com.google.common.collect.Sets.newHashSet;
 import static net.java.ao.sql.SqlUtils.closeQuietly;
 
 public final class ActiveObjectsTableReader implements TableReader {
@@ -32,12 +38,21 @@ public final class ActiveObjectsTableReader implements TableReader {
     private final DatabaseProvider provider;
     private final NameConverters converters;
     private final SchemaConfiguration schemaConfiguration;
+    private final Predicate<String> tableFilter;
 
     public ActiveObjectsTableReader(ImportExportErrorService errorService, NameConverters converters, DatabaseProvider provider, SchemaConfiguration schemaConfiguration) {
+        this(errorService, converters, provider, schemaConfiguration, Predicates.<String>alwaysTrue());
+    }
+
+    /**
+     * @param tableFilter only the tables whose (processed) name is accepted by the filter are read
+     */
+    public ActiveObjectsTableReader(ImportExportErrorService errorService, NameConverters converters, DatabaseProvider provider, SchemaConfiguration schemaConfiguration, Predicate<String> tableFilter) {
         this.converters = checkNotNull(converters);
         this.errorService = checkNotNull(errorService);
         this.provider = checkNotNull(provider);
         this.schemaConfiguration = checkNotNull(schemaConfiguration);
+        this.tableFilter = checkNotNull(tableFilter);
     }
 
     @Override
@@ -54,7 +69,10 @@ public final class ActiveObjectsTableReader implements TableReader {
             closeQuietly(connection);
         }
         for (DDLTable ddlTable : ddlTables) {
-            tables.add(readTable(ddlTable, entityNameProcessor));
+            final Table table = readTable(ddlTable, entityNameProcessor);
+            if (tableFilter.apply(table.getName())) {
+                tables.add(table);
+            }
         }
         return tables;
     }
@@ -69,7 +87,7 @@ public final class ActiveObjectsTableReader implements TableReader {
 
     private Table readTable(DDLTable ddlTable, EntityNameProcessor processor) {
         final String name = processor.tableName(ddlTable.getName());
-        return new Table(name, readColumns(ddlTable.getFields(), processor), readForeignKeys(ddlTable.getForeignKeys()));
+        return new Table(name, readColumns(ddlTable.getFields(), processor), readForeignKeys(ddlTable.getForeignKeys()), readIndexes(ddlTable, processor));
     }
 
     private List<Column> readColumns(DDLField[] fields, final EntityNameProcessor processor) {
@@ -112,4 +130,23 @@ public final class ActiveObjectsTableReader implements TableReader {
     private ForeignKey readForeignKey(DDLForeignKey fk) {
         return new ForeignKey(fk.getDomesticTable(), fk.getField(), fk.getTable(), fk.getForeignField());
     }
+
+    /**
+     * Reads the secondary indexes of the table, indexes of the primary key come with the table.
+     */
+    private Collection<Index> readIndexes(DDLTable ddlTable, EntityNameProcessor processor) {
+        final Set<String> primaryKeys = newHashSet();
+        for (DDLField field : ddlTable.getFields()) {
+            if (field.isPrimaryKey()) {
+                primaryKeys.add(field.getName());
+            }
+        }
+        final Collection<Index> indexes = newArrayList();
+        for (DDLIndex index : ddlTable.getIndexes()) {
+            if (!primaryKeys.contains(index.getField())) {
+                indexes.add(new Index(processor.tableName(index.getTable()), processor.columnName(index.getField())));
+            }
+        }
+        return indexes;
+    }
 }
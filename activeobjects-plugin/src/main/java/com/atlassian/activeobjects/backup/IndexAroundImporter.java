@@ -0,0 +1,40 @@
+package com.atlassian.activeobjects.backup;
+
+import com.atlassian.dbexporter.Context;
+import com.atlassian.dbexporter.Index;
+import com.atlassian.dbexporter.Table;
+import com.atlassian.dbexporter.importer.ImportConfiguration;
+import com.atlassian.dbexporter.importer.NoOpAroundImporter;
+import com.atlassian.dbexporter.node.NodeParser;
+import com.google.common.base.Function;
+
+import java.util.Collection;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.collect.Collections2.transform;
+import static com.google.common.collect.Iterables.concat;
+
+/**
+ * Creates the secondary indexes of the imported tables once their data has been imported, so that indexes are built
+ * in one go rather than maintained row by row.
+ */
+public final class IndexAroundImporter extends NoOpAroundImporter {
+    private final IndexCreator indexCreator;
+
+    public IndexAroundImporter(IndexCreator indexCreator) {
+        this.indexCreator = checkNotNull(indexCreator);
+    }
+
+    @Override
+    public void after(NodeParser node, ImportConfiguration configuration, Context context) {
+        indexCreator.create(concat(transform(context.getAll(Table.class), getIndexesFunction())), configuration.getEntityNameProcessor());
+    }
+
+    private Function<Table, Collection<Index>> getIndexesFunction() {
+        return new Function<Table, Collection<Index>>() {
+            public Collection<Index> apply(Table from) {
+                return from.getIndexes();
+            }
+        };
+    }
+}
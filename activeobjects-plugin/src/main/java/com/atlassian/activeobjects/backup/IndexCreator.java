@@ -0,0 +1,8 @@
+package com.atlassian.activeobjects.backup;
+
+import com.atlassian.dbexporter.EntityNameProcessor;
+import com.atlassian.dbexporter.Index;
+
+public interface IndexCreator {
+    void create(Iterable<Index> indexes, EntityNameProcessor entityNameProcessor);
+}
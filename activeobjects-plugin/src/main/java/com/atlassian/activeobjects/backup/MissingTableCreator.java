@@ -0,0 +1,44 @@
+package com.atlassian.activeobjects.backup;
+
+import com.atlassian.dbexporter.DatabaseInformation;
+import com.atlassian.dbexporter.EntityNameProcessor;
+import com.atlassian.dbexporter.Table;
+import com.atlassian.dbexporter.importer.TableCreator;
+import com.atlassian.dbexporter.progress.ProgressMonitor;
+import com.google.common.base.Predicate;
+
+import java.util.Set;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.collect.Iterables.filter;
+import static com.google.common.collect.Lists.newArrayList;
+
+/**
+ * A table creator that only creates the tables that have not been created yet while restoring a chain of backups, a
+ * base backup followed by incremental ones, or that are not in the database yet when resuming an interrupted restore.
+ */
+final class MissingTableCreator implements TableCreator {
+    private final TableCreator delegate;
+    private final Set<String> createdTables;
+
+    MissingTableCreator(TableCreator delegate, Set<String> createdTables) {
+        this.delegate = checkNotNull(delegate);
+        this.createdTables = checkNotNull(createdTables);
+    }
+
+    @Override
+    public void create(DatabaseInformation databaseInformation, Iterable<Table> tables, final EntityNameProcessor entityNameProcessor, ProgressMonitor monitor) {
+        final Iterable<Table> missingTables = newArrayList(filter(tables, new Predicate<Table>() {
+            @Override
+            public boolean apply(Table table) {
+                return !createdTables.contains(entityNameProcessor.tableName(table.getName()));
+            }
+        }));
+
+        delegate.create(databaseInformation, missingTables, entityNameProcessor, monitor);
+
+        for (Table table : missingTables) {
+            createdTables.add(entityNameProcessor.tableName(table.getName()));
+        }
+    }
+}
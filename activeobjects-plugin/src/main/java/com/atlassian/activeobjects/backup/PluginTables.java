@@ -0,0 +1,79 @@
+package com.atlassian.activeobjects.backup;
+
+import com.atlassian.activeobjects.admin.PluginInfo;
+import com.atlassian.activeobjects.admin.PluginToTablesMapping;
+import com.atlassian.activeobjects.internal.Prefix;
+import com.atlassian.activeobjects.plugin.ActiveObjectModuleDescriptor;
+import com.atlassian.plugin.ModuleDescriptor;
+import com.atlassian.plugin.PluginAccessor;
+import com.atlassian.plugin.predicate.ModuleDescriptorPredicate;
+import com.google.common.base.Predicate;
+
+import java.util.List;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.collect.Lists.newArrayList;
+
+/**
+ * Resolves the Active Objects tables that belong to a plugin. A table belongs to a plugin if it was recorded for it in
+ * the {@link PluginToTablesMapping}, or if its name starts with the table name prefix of one of the plugin's
+ * {@link ActiveObjectModuleDescriptor active objects modules}.
+ */
+public final class PluginTables {
+    private final PluginToTablesMapping pluginToTablesMapping;
+    private final PluginAccessor pluginAccessor;
+
+    public PluginTables(PluginToTablesMapping pluginToTablesMapping, PluginAccessor pluginAccessor) {
+        this.pluginToTablesMapping = checkNotNull(pluginToTablesMapping);
+        this.pluginAccessor = checkNotNull(pluginAccessor);
+    }
+
+    /**
+     * Gets the filter of the tables of the given plugin.
+     *
+     * @param pluginKey the key of the plugin
+     * @return a predicate on table names, {@code true} for the tables of the plugin.
+     * @throws IllegalArgumentException if no plugin is installed with that key.
+     */
+    public Predicate<String> filter(final String pluginKey) {
+        checkNotNull(pluginKey);
+        checkArgument(pluginAccessor.getPlugin(pluginKey) != null, "No plugin installed with key '%s'", pluginKey);
+
+        final List<Prefix> prefixes = getTableNamePrefixes(pluginKey);
+        return new Predicate<String>() {
+            @Override
+            public boolean apply(String tableName) {
+                final PluginInfo pluginInfo = pluginToTablesMapping.get(tableName);
+                if (pluginInfo != null) {
+                    return pluginKey.equals(pluginInfo.key);
+                }
+                for (Prefix prefix : prefixes) {
+                    if (prefix.isStarting(tableName, false)) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+
+            @Override
+            public String toString() {
+                return "tables of plugin " + pluginKey;
+            }
+        };
+    }
+
+    private List<Prefix> getTableNamePrefixes(final String pluginKey) {
+        final List<Prefix> prefixes = newArrayList();
+        for (ModuleDescriptor<Object> moduleDescriptor : pluginAccessor.getModuleDescriptors(new ModuleDescriptorPredicate<Object>() {
+            @Override
+            public boolean matches(ModuleDescriptor<? extends Object> moduleDescriptor) {
+                return moduleDescriptor instanceof ActiveObjectModuleDescriptor
+                        && pluginKey.equals(moduleDescriptor.getPluginKey());
+            }
+        })) {
+            prefixes.add(((ActiveObjectModuleDescriptor) moduleDescriptor).getConfiguration().getTableNamePrefix());
+        }
+        return prefixes;
+    }
+}
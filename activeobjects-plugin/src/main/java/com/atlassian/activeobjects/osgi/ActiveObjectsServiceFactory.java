@@ -37,6 +37,8 @@ import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import java.util.IdentityHashMap;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
@@ -78,6 +80,10 @@ public class ActiveObjectsServiceFactory implements ServiceFactory, Initializing
     @VisibleForTesting
     volatile boolean cleaning = false;
 
+    // keys of the plugins whose tables are being cleaned, while the other plugins keep running
+    @VisibleForTesting
+    final Set<String> cleaningPlugins = new CopyOnWriteArraySet<>();
+
     @VisibleForTesting
     final Function<Tenant, ExecutorService> initExecutorFn;
 
@@ -137,7 +143,7 @@ public class ActiveObjectsServiceFactory implements ServiceFactory, Initializing
         aoDelegatesByBundle = CacheBuilder.newBuilder().build(new CacheLoader<BundleRef, TenantAwareActiveObjects>() {
             @Override
             public TenantAwareActiveObjects load(@Nonnull final BundleRef bundleRef) throws Exception {
-                TenantAwareActiveObjects delegate = new TenantAwareActiveObjects(bundleRef.bundle, factory, tenantContext, initExecutorFn);
+                TenantAwareActiveObjects delegate = new TenantAwareActiveObjects(bundleRef.bundle, factory, tenantContext, bundleInitExecutorFn(bundleRef.bundle));
                 delegate.init();
                 unattachedConfigsLock.lock();
                 try {
@@ -236,6 +242,53 @@ public class ActiveObjectsServiceFactory implements ServiceFactory, Initializing
         cleaning = false;
     }
 
+    /**
+     * Stops initialising the services of the given plugin, whose key is the symbolic name of its bundle, so that its tables can be cleaned, and waits for the
+     * initialisations in progress to complete. The services of the other plugins are not affected.
+     *
+     * @param pluginKey the key of the plugin
+     */
+    public void startCleaning(final String pluginKey) {
+        logger.debug("startCleaning plugin [{}]", pluginKey);
+
+        cleaningPlugins.add(checkNotNull(pluginKey));
+
+        for (TenantAwareActiveObjects aoDelegate : ImmutableList.copyOf(aoDelegatesByBundle.asMap().values())) {
+            if (pluginKey.equals(aoDelegate.getBundle().getSymbolicName())) {
+                try {
+                    if (!aoDelegate.awaitInitialisation(INIT_TASK_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                        logger.error("startCleaning timed out after {}ms awaiting init of plugin [{}], continuing; note that this timeout may be adjusted via the system property '{}'", new Object[]{INIT_TASK_TIMEOUT_MS, pluginKey, INIT_TASK_TIMEOUT_MS_PROPERTY});
+                    }
+                } catch (InterruptedException e) {
+                    logger.error("startCleaning interrupted while awaiting init of plugin [" + pluginKey + "], continuing", e);
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    public void stopCleaning(final String pluginKey) {
+        logger.debug("stopCleaning plugin [{}]", pluginKey);
+
+        cleaningPlugins.remove(pluginKey);
+    }
+
+    /**
+     * @return the init executor retrieval function of the delegate of the bundle, refusing to initialise it while the
+     * tables of its plugin are being cleaned
+     */
+    private Function<Tenant, ExecutorService> bundleInitExecutorFn(final Bundle bundle) {
+        return new Function<Tenant, ExecutorService>() {
+            @Override
+            public ExecutorService apply(@Nullable final Tenant tenant) {
+                if (!cleaningPlugins.isEmpty() && cleaningPlugins.contains(bundle.getSymbolicName())) {
+                    throw new IllegalStateException("applied initExecutorFn during ActiveObjects cleaning of bundle [" + bundle.getSymbolicName() + "]");
+                }
+                return initExecutorFn.apply(tenant);
+            }
+        };
+    }
+
     /**
      * Listens for {@link TenantArrivedEvent} and allows initialisation of any uninitialised instances
      */
@@ -30,6 +30,7 @@ import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import java.util.Map;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
@@ -124,6 +125,29 @@ class TenantAwareActiveObjects implements ActiveObjects {
         }
     }
 
+    /**
+     * Waits for the initialisations in progress of this service to complete, whether they succeed or not.
+     *
+     * @return {@code false} if the timeout elapsed before they completed
+     */
+    boolean awaitInitialisation(final long timeout, final TimeUnit unit) throws InterruptedException {
+        if (!aoConfigFuture.isDone()) {
+            // nothing can be initialising without a configuration
+            return true;
+        }
+        final long deadline = System.nanoTime() + unit.toNanos(timeout);
+        for (Promise<ActiveObjects> aoPromise : aoPromisesByTenant.asMap().values()) {
+            try {
+                aoPromise.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } catch (ExecutionException | CancellationException e) {
+                // failed initialisations are complete too
+            } catch (TimeoutException e) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     void setAoConfiguration(@Nonnull final ActiveObjectsConfiguration aoConfiguration) {
         logger.debug("setAoConfiguration [{}]", bundle.getSymbolicName());
 
@@ -4,7 +4,10 @@ import com.atlassian.activeobjects.admin.PluginToTablesMapping;
 import com.atlassian.activeobjects.osgi.ActiveObjectsServiceFactory;
 import com.atlassian.activeobjects.spi.NullBackupProgressMonitor;
 import com.atlassian.activeobjects.spi.NullRestoreProgressMonitor;
+import com.atlassian.dbexporter.exporter.BackupManifest;
 import com.atlassian.plugin.PluginAccessor;
+import com.google.common.collect.HashMultiset;
+import com.google.common.collect.Multiset;
 import net.java.ao.EntityManager;
 import net.java.ao.atlassian.AtlassianFieldNameConverter;
 import net.java.ao.atlassian.AtlassianIndexNameConverter;
@@ -19,11 +22,18 @@ import org.junit.runner.RunWith;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
 
+import static com.google.common.collect.Lists.newArrayList;
 import static org.mockito.Mockito.mock;
 
 @RunWith(ActiveObjectsJUnitRunner.class)
@@ -61,10 +71,32 @@ public abstract class AbstractTestActiveObjectsBackup {
         }
     }
 
+    protected final byte[] saveAsBytes() {
+        final ByteArrayOutputStream os = new ByteArrayOutputStream();
+        aoBackup.save(os, NullBackupProgressMonitor.INSTANCE);
+        return os.toByteArray();
+    }
+
+    protected final BackupManifest saveIncremental(OutputStream os, BackupManifest baseManifest) {
+        return aoBackup.saveIncremental(os, NullBackupProgressMonitor.INSTANCE, baseManifest);
+    }
+
     protected final void restore(String xmlBackup) throws IOException {
         aoBackup.restore(IOUtils.toInputStream(xmlBackup, UTF_8), NullRestoreProgressMonitor.INSTANCE);
     }
 
+    protected final void restore(byte[] backup) {
+        aoBackup.restore(new ByteArrayInputStream(backup), NullRestoreProgressMonitor.INSTANCE);
+    }
+
+    protected final void restore(byte[] base, List<byte[]> deltas) {
+        final List<InputStream> streams = newArrayList();
+        for (byte[] delta : deltas) {
+            streams.add(new ByteArrayInputStream(delta));
+        }
+        aoBackup.restore(new ByteArrayInputStream(base), streams, NullRestoreProgressMonitor.INSTANCE);
+    }
+
     protected final String read(String resource) throws IOException {
         logger.debug("Reading resource from '{}'", resource);
         InputStream is = null;
@@ -75,4 +107,29 @@ public abstract class AbstractTestActiveObjectsBackup {
             IOUtils.closeQuietly(is);
         }
     }
+
+    /**
+     * @return the columns of the indexes of the given table, primary key included, each column as many times as it
+     * is indexed.
+     */
+    protected final Multiset<String> indexedColumns(String table) throws SQLException {
+        final Connection connection = entityManager.getProvider().getConnection();
+        try {
+            final ResultSet indexes = connection.getMetaData().getIndexInfo(null, entityManager.getProvider().getSchema(), table, false, false);
+            try {
+                final Multiset<String> columns = HashMultiset.create();
+                while (indexes.next()) {
+                    final String column = indexes.getString("COLUMN_NAME");
+                    if (column != null) { // table statistics
+                        columns.add(column);
+                    }
+                }
+                return columns;
+            } finally {
+                indexes.close();
+            }
+        } finally {
+            connection.close();
+        }
+    }
 }
@@ -1,8 +1,13 @@
 package com.atlassian.activeobjects.backup;
 
+import com.atlassian.activeobjects.test.model.Author;
+import com.atlassian.activeobjects.test.model.Authorship;
+import com.atlassian.activeobjects.test.model.Book;
 import com.atlassian.activeobjects.test.model.Model;
+import com.atlassian.dbexporter.exporter.BackupManifest;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Multiset;
 import net.java.ao.DatabaseProvider;
 import net.java.ao.db.H2DatabaseProvider;
 import net.java.ao.db.HSQLDatabaseProvider;
@@ -21,12 +26,18 @@ import org.w3c.dom.Document;
 import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
 
+import java.io.ByteArrayOutputStream;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
 import java.sql.Types;
 
 import static net.java.ao.Common.fuzzyTypeCompare;
 import static org.custommonkey.xmlunit.XMLAssert.assertEquals;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
 
 public abstract class ActiveObjectsBackupDataSetup extends AbstractTestActiveObjectsBackup {
     protected static final String H2 = "/com/atlassian/activeobjects/backup/h2.xml";
@@ -56,6 +67,127 @@ public abstract class ActiveObjectsBackupDataSetup extends AbstractTestActiveObj
         checkXmlBackup(secondXmlBackup, getCurrentDatabaseData());
     }
 
+    /**
+     * Restores the given XML backup, then saves the database in whatever format the system properties select, and
+     * checks that restoring that backup gives the same data back.
+     */
+    protected final void testBackupRoundTrip(String xml) throws Exception {
+        restore(read(xml));
+        assertDataPresent();
+
+        final byte[] backup = saveAsBytes();
+        model.emptyDatabase();
+        restore(backup);
+
+        assertDataPresent();
+    }
+
+    /**
+     * Restores the given XML backup, saves it as the base of a chain of two incremental backups, each saved after
+     * adding rows, then restores the whole chain into an empty database. Foreign keys are only created once the last
+     * incremental backup is restored, the one adding a row that references rows of the others.
+     */
+    protected final void testIncrementalBackupRoundTrip(String xml) throws Exception {
+        restore(read(xml));
+
+        final ByteArrayOutputStream base = new ByteArrayOutputStream();
+        final BackupManifest baseManifest = saveIncremental(base, null);
+
+        final Author me = entityManager.create(Author.class);
+        me.setName("Me");
+        me.save();
+        final ByteArrayOutputStream delta1 = new ByteArrayOutputStream();
+        final BackupManifest delta1Manifest = saveIncremental(delta1, baseManifest);
+
+        final Authorship authorship = entityManager.create(Authorship.class);
+        authorship.setAuthor(me);
+        authorship.setBook(entityManager.find(Book.class)[0]);
+        authorship.save();
+        final ByteArrayOutputStream delta2 = new ByteArrayOutputStream();
+        saveIncremental(delta2, delta1Manifest);
+
+        model.emptyDatabase();
+        entityManager.flushAll();
+        restore(base.toByteArray(), ImmutableList.of(delta1.toByteArray(), delta2.toByteArray()));
+        entityManager.flushAll();
+
+        assertEquals(10, entityManager.find(Author.class).length);
+        assertEquals(11, entityManager.find(Authorship.class).length);
+        assertEquals(3, entityManager.find(Book.class).length);
+        final Author[] restored = entityManager.find(Author.class, "NAME = ?", "Me");
+        assertEquals(1, restored.length);
+        assertEquals(1, restored[0].getBooks().length);
+        assertEquals(2, countForeignKeys(AUTHORSHIP_ID.table));
+    }
+
+    /**
+     * Saves a database created by Active Objects, with the indexes of its foreign keys and one more index on another
+     * table, then checks that the backup holds the secondary indexes, and that restoring it creates each of them once,
+     * leaving the primary keys with their own index only.
+     */
+    protected final void testIndexesRoundTrip() throws Exception {
+        model.createData();
+        createIndex("IDX_BOOK_TITLE", BOOK_TITLE.table, BOOK_TITLE.column);
+
+        final String xmlBackup = save();
+        final XpathEngine engine = newXpathEngine();
+        final Document doc = XMLUnit.buildControlDocument(xmlBackup);
+        assertHasIndex(engine, doc, AUTHORSHIP_AUTHOR_ID);
+        assertHasIndex(engine, doc, AUTHORSHIP_BOOK_ID);
+        assertHasIndex(engine, doc, BOOK_TITLE);
+        assertEquals(0, engine.getMatchingNodes("/ao:backup/ao:table/ao:index[@column='ID' or @column='ISBN']", doc).getLength());
+
+        model.emptyDatabase();
+        restore(xmlBackup);
+
+        final Multiset<String> authorshipIndexes = indexedColumns(AUTHORSHIP_ID.table);
+        assertEquals(1, authorshipIndexes.count(AUTHORSHIP_AUTHOR_ID.column));
+        assertEquals(1, authorshipIndexes.count(AUTHORSHIP_BOOK_ID.column));
+        assertThat(authorshipIndexes.count(AUTHORSHIP_ID.column), lessThanOrEqualTo(1));
+        final Multiset<String> bookIndexes = indexedColumns(BOOK_ISBN.table);
+        assertEquals(1, bookIndexes.count(BOOK_TITLE.column));
+        assertThat(bookIndexes.count(BOOK_ISBN.column), lessThanOrEqualTo(1));
+        model.checkBooks();
+    }
+
+    private void assertHasIndex(XpathEngine engine, Document doc, BackupData data) throws XpathException {
+        assertEquals("Expected an index on " + data.table + "." + data.column, 1, engine.getMatchingNodes(
+                "/ao:backup/ao:table[@name='" + data.table + "']/ao:index[@table='" + data.table + "' and @column='" + data.column + "']", doc).getLength());
+    }
+
+    private void createIndex(String name, String table, String column) throws SQLException {
+        final DatabaseProvider provider = entityManager.getProvider();
+        final Connection connection = provider.getConnection();
+        try {
+            final Statement statement = connection.createStatement();
+            try {
+                statement.executeUpdate("CREATE INDEX " + provider.processID(name) + " ON " + provider.withSchema(table) + " (" + provider.processID(column) + ")");
+            } finally {
+                statement.close();
+            }
+        } finally {
+            connection.close();
+        }
+    }
+
+    private int countForeignKeys(String table) throws SQLException {
+        final Connection connection = entityManager.getProvider().getConnection();
+        try {
+            final ResultSet keys = connection.getMetaData().getImportedKeys(null, entityManager.getProvider().getSchema(), table);
+            try {
+                int count = 0;
+                while (keys.next()) {
+                    count++;
+                }
+                return count;
+            } finally {
+                keys.close();
+            }
+        } finally {
+            connection.close();
+        }
+    }
+
     private Iterable<BackupData> getCurrentDatabaseData() {
         final DatabaseProvider provider = entityManager.getProvider();
         if (provider.getClass() == H2DatabaseProvider.class) {
@@ -0,0 +1,69 @@
+package com.atlassian.activeobjects.backup;
+
+import com.atlassian.dbexporter.Column;
+import com.atlassian.dbexporter.Context;
+import com.atlassian.dbexporter.EntityNameProcessor;
+import com.atlassian.dbexporter.ForeignKey;
+import com.atlassian.dbexporter.Index;
+import com.atlassian.dbexporter.Table;
+import com.atlassian.dbexporter.importer.ImportConfiguration;
+import com.atlassian.dbexporter.node.NodeParser;
+import com.google.common.collect.ImmutableList;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.same;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class IndexAroundImporterUnitTest {
+    @Mock
+    private IndexCreator indexCreator;
+    @Mock
+    private ImportConfiguration configuration;
+    @Mock
+    private EntityNameProcessor entityNameProcessor;
+    @Mock
+    private NodeParser node;
+
+    private IndexAroundImporter indexAroundImporter;
+
+    @Before
+    public void setUp() {
+        when(configuration.getEntityNameProcessor()).thenReturn(entityNameProcessor);
+        indexAroundImporter = new IndexAroundImporter(indexCreator);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void indexesOfAllImportedTablesShouldBeCreatedAfterTheData() {
+        final Index issueProject = new Index("AO_000000_ISSUE", "PROJECT_ID");
+        final Index issueSummary = new Index("AO_000000_ISSUE", "SUMMARY");
+        final Index commentIssue = new Index("AO_000000_COMMENT", "ISSUE_ID");
+        final Context context = new Context(
+                table("AO_000000_ISSUE", issueProject, issueSummary),
+                table("AO_000000_PROJECT"),
+                table("AO_000000_COMMENT", commentIssue));
+
+        indexAroundImporter.before(node, configuration, context);
+        verify(indexCreator, never()).create(any(Iterable.class), any(EntityNameProcessor.class));
+
+        indexAroundImporter.after(node, configuration, context);
+
+        final ArgumentCaptor<Iterable> indexes = ArgumentCaptor.forClass(Iterable.class);
+        verify(indexCreator).create(indexes.capture(), same(entityNameProcessor));
+        assertEquals(ImmutableList.of(issueProject, issueSummary, commentIssue), ImmutableList.copyOf(indexes.getValue()));
+    }
+
+    private static Table table(String name, Index... indexes) {
+        return new Table(name, ImmutableList.<Column>of(), ImmutableList.<ForeignKey>of(), ImmutableList.copyOf(indexes));
+    }
+}
@@ -0,0 +1,76 @@
+package com.atlassian.activeobjects.backup;
+
+import com.atlassian.activeobjects.admin.PluginInfo;
+import com.atlassian.activeobjects.admin.PluginToTablesMapping;
+import com.atlassian.activeobjects.config.ActiveObjectsConfiguration;
+import com.atlassian.activeobjects.internal.SimplePrefix;
+import com.atlassian.activeobjects.plugin.ActiveObjectModuleDescriptor;
+import com.atlassian.plugin.Plugin;
+import com.atlassian.plugin.PluginAccessor;
+import com.atlassian.plugin.predicate.ModuleDescriptorPredicate;
+import com.google.common.base.Predicate;
+import com.google.common.collect.ImmutableList;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import java.util.Collection;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class PluginTablesUnitTest {
+    private static final String PLUGIN_KEY = "com.example.plugin";
+
+    @Mock
+    private PluginToTablesMapping pluginToTablesMapping;
+    @Mock
+    private PluginAccessor pluginAccessor;
+
+    private PluginTables pluginTables;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setUp() throws Exception {
+        final Plugin plugin = mock(Plugin.class);
+        when(pluginAccessor.getPlugin(PLUGIN_KEY)).thenReturn(plugin);
+
+        final ActiveObjectsConfiguration configuration = mock(ActiveObjectsConfiguration.class);
+        when(configuration.getTableNamePrefix()).thenReturn(new SimplePrefix("AO_123456"));
+        final ActiveObjectModuleDescriptor moduleDescriptor = mock(ActiveObjectModuleDescriptor.class);
+        when(moduleDescriptor.getConfiguration()).thenReturn(configuration);
+        when(pluginAccessor.getModuleDescriptors(any(ModuleDescriptorPredicate.class))).thenReturn((Collection) ImmutableList.of(moduleDescriptor));
+
+        pluginTables = new PluginTables(pluginToTablesMapping, pluginAccessor);
+    }
+
+    @Test
+    public void filterShouldAcceptTablesMappedToThePlugin() {
+        when(pluginToTablesMapping.get("AO_ABCDEF_MAPPED")).thenReturn(new PluginInfo(PLUGIN_KEY, "name", "1.0", null, null));
+        when(pluginToTablesMapping.get("AO_123456_OTHER")).thenReturn(new PluginInfo("com.example.other", "name", "1.0", null, null));
+
+        final Predicate<String> filter = pluginTables.filter(PLUGIN_KEY);
+
+        assertTrue(filter.apply("AO_ABCDEF_MAPPED"));
+        assertFalse(filter.apply("AO_123456_OTHER"));
+    }
+
+    @Test
+    public void filterShouldAcceptUnmappedTablesWithThePluginPrefix() {
+        final Predicate<String> filter = pluginTables.filter(PLUGIN_KEY);
+
+        assertTrue(filter.apply("AO_123456_ENTITY"));
+        assertFalse(filter.apply("AO_654321_ENTITY"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void filterShouldFailForUnknownPlugin() {
+        pluginTables.filter("com.example.unknown");
+    }
+}
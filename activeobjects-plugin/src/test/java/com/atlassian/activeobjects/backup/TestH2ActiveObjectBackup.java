@@ -13,4 +13,102 @@ public class TestH2ActiveObjectBackup extends ActiveObjectsBackupDataSetup {
     public void testH2Backup() throws Exception {
         testBackup(H2, H2_DATA);
     }
+
+    @Test
+    @NonTransactional
+    public void testH2ConsistentBackup() throws Exception {
+        System.setProperty("ao-plugin.backup.export.consistent", "true");
+        try {
+            testBackup(H2, H2_DATA);
+        } finally {
+            System.clearProperty("ao-plugin.backup.export.consistent");
+        }
+    }
+
+    @Test
+    @NonTransactional
+    public void testH2BulkLoadedBackup() throws Exception {
+        System.setProperty("ao-plugin.backup.import.bulk", "true");
+        try {
+            testBackup(H2, H2_DATA);
+        } finally {
+            System.clearProperty("ao-plugin.backup.import.bulk");
+        }
+    }
+
+    @Test
+    @NonTransactional
+    public void testH2ConcurrentlyImportedBackup() throws Exception {
+        System.setProperty("ao-plugin.backup.import.workers", "4");
+        try {
+            testBackup(H2, H2_DATA);
+        } finally {
+            System.clearProperty("ao-plugin.backup.import.workers");
+        }
+    }
+
+    @Test
+    @NonTransactional
+    public void testH2CompressedBackup() throws Exception {
+        System.setProperty("ao-plugin.backup.compress", "true");
+        try {
+            testBackupRoundTrip(H2);
+        } finally {
+            System.clearProperty("ao-plugin.backup.compress");
+        }
+    }
+
+    @Test
+    @NonTransactional
+    public void testH2CompressedCompactBackup() throws Exception {
+        System.setProperty("ao-plugin.backup.compress", "true");
+        System.setProperty("ao-plugin.backup.xml.compact", "true");
+        try {
+            testBackupRoundTrip(H2);
+        } finally {
+            System.clearProperty("ao-plugin.backup.xml.compact");
+            System.clearProperty("ao-plugin.backup.compress");
+        }
+    }
+
+    @Test
+    @NonTransactional
+    public void testH2CompressedBinaryBackup() throws Exception {
+        System.setProperty("ao-plugin.backup.compress", "true");
+        System.setProperty("ao-plugin.backup.format", "binary");
+        try {
+            testBackupRoundTrip(H2);
+        } finally {
+            System.clearProperty("ao-plugin.backup.format");
+            System.clearProperty("ao-plugin.backup.compress");
+        }
+    }
+
+    @Test
+    @NonTransactional
+    public void testH2IncrementalBackups() throws Exception {
+        testIncrementalBackupRoundTrip(H2);
+    }
+
+    @Test
+    @NonTransactional
+    public void testH2Indexes() throws Exception {
+        System.setProperty("ao-plugin.backup.import.index.workers", "1");
+        try {
+            testIndexesRoundTrip();
+        } finally {
+            System.clearProperty("ao-plugin.backup.import.index.workers");
+        }
+    }
+
+    @Test
+    @NonTransactional
+    public void testH2ConcurrentlyCreatedIndexes() throws Exception {
+        System.setProperty("ao-plugin.backup.import.index.workers", "4");
+        try {
+            testIndexesRoundTrip();
+        } finally {
+            System.clearProperty("ao-plugin.backup.import.index.workers");
+        }
+    }
 }
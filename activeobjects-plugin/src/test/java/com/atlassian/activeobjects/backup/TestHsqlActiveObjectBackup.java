@@ -14,6 +14,28 @@ public class TestHsqlActiveObjectBackup extends ActiveObjectsBackupDataSetup {
         testBackup(HSQL, HSQL_DATA);
     }
 
+    @Test
+    @NonTransactional
+    public void testHsqlConsistentBackup() throws Exception {
+        System.setProperty("ao-plugin.backup.export.consistent", "true");
+        try {
+            testBackup(HSQL, HSQL_DATA);
+        } finally {
+            System.clearProperty("ao-plugin.backup.export.consistent");
+        }
+    }
+
+    @Test
+    @NonTransactional
+    public void testHsqlConcurrentlyImportedBackup() throws Exception {
+        System.setProperty("ao-plugin.backup.import.workers", "4");
+        try {
+            testBackup(HSQL, HSQL_DATA);
+        } finally {
+            System.clearProperty("ao-plugin.backup.import.workers");
+        }
+    }
+
     @Test
     @NonTransactional
     public void testHsqlEmptyBackup() throws Exception {
@@ -36,7 +36,11 @@ import static org.hamcrest.CoreMatchers.notNullValue;
 import static org.hamcrest.CoreMatchers.sameInstance;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.collection.IsMapContaining.hasEntry;
+import static org.hamcrest.core.IsCollectionContaining.hasItem;
 import static org.hamcrest.core.IsInstanceOf.instanceOf;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -173,6 +177,29 @@ public final class ActiveObjectsServiceFactoryTest {
         verify(executorService3).awaitTermination(ActiveObjectsServiceFactory.INIT_TASK_TIMEOUT_MS, TimeUnit.MILLISECONDS);
     }
 
+    @Test
+    public void startCleaningPlugin() throws Exception {
+        serviceFactory.initExecutorsByTenant.put(tenant1, executorService1);
+        serviceFactory.aoDelegatesByBundle.put(new BundleRef(bundle1), babyBear1);
+        serviceFactory.aoDelegatesByBundle.put(new BundleRef(bundle2), babyBear2);
+        when(bundle1.getSymbolicName()).thenReturn("plugin1");
+        when(bundle2.getSymbolicName()).thenReturn("plugin2");
+        when(babyBear1.awaitInitialisation(ActiveObjectsServiceFactory.INIT_TASK_TIMEOUT_MS, TimeUnit.MILLISECONDS)).thenReturn(true);
+
+        serviceFactory.startCleaning("plugin1");
+
+        assertThat(serviceFactory.cleaning, is(false));
+        assertThat(serviceFactory.cleaningPlugins, hasItem("plugin1"));
+
+        verify(babyBear1).awaitInitialisation(ActiveObjectsServiceFactory.INIT_TASK_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        verify(babyBear2, never()).awaitInitialisation(anyLong(), any(TimeUnit.class));
+        verify(executorService1, never()).shutdownNow();
+
+        serviceFactory.stopCleaning("plugin1");
+
+        assertThat(serviceFactory.cleaningPlugins.isEmpty(), is(true));
+    }
+
     @Test
     public void initExecutorFn() {
         serviceFactory.initExecutorsByTenant.put(tenant1, executorService1);